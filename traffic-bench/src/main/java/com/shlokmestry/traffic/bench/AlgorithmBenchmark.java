@@ -0,0 +1,148 @@
+package com.shlokmestry.traffic.bench;
+
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.shlokmestry.traffic.ratelimit.AdaptiveLimits;
+import com.shlokmestry.traffic.ratelimit.CoalescingProperties;
+import com.shlokmestry.traffic.ratelimit.InMemoryProperties;
+import com.shlokmestry.traffic.ratelimit.LeaseProperties;
+import com.shlokmestry.traffic.ratelimit.RateLimiter;
+import com.shlokmestry.traffic.ratelimit.RedisCircuitBreaker;
+import com.shlokmestry.traffic.ratelimit.TokenBucketRateLimiter;
+import com.shlokmestry.traffic.redis.RedisShards;
+import com.shlokmestry.traffic.rules.Algorithm;
+import com.shlokmestry.traffic.rules.Fallback;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Decision throughput per {@link Algorithm} against a real Redis (see {@link LocalRedis}),
+ * plus what each costs Redis: at the end of the trial it prints script time per
+ * decision ({@code INFO commandstats}), Redis process CPU per decision ({@code INFO cpu})
+ * and memory per identity ({@code used_memory} growth over {@link Fixtures#KEY_COUNT} keys).
+ * With an existing server, run one algorithm per trial so earlier keys do not count.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlgorithmBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Limiter {
+        @Param({"TOKEN_BUCKET", "GCRA", "FIXED_WINDOW", "SLIDING_WINDOW"})
+        Algorithm algorithm;
+
+        LocalRedis redis;
+        LettuceConnectionFactory factory;
+        StringRedisTemplate template;
+        TokenBucketRateLimiter limiter;
+        RateLimitRule rule;
+        RedisStats before;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            redis = LocalRedis.start();
+            factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(redis.host(), redis.port()));
+            factory.afterPropertiesSet();
+            factory.start();
+            template = new StringRedisTemplate(factory);
+
+            MeterRegistry registry = new SimpleMeterRegistry();
+            RedisShards shards = RedisShards.single(template);
+            RedisCircuitBreaker breaker = new RedisCircuitBreaker(Fixtures.breakerProperties(), registry);
+            limiter = new TokenBucketRateLimiter(
+                    shards,
+                    registry,
+                    new CoalescingProperties(false, 64, Duration.ofNanos(200_000), 10_000, 2, Duration.ofSeconds(1)),
+                    new LeaseProperties(Duration.ofMillis(250), Duration.ofMillis(100), Duration.ofSeconds(60)),
+                    new InMemoryProperties(64, 256, Duration.ofSeconds(30)),
+                    Fixtures.bucketProperties(),
+                    breaker,
+                    new AdaptiveLimits(shards, breaker, Fixtures.adaptiveProperties(), registry)
+            );
+
+            // Effectively unlimited, as Fixtures.rule(); a 10-minute ttl/window outlasts the trial.
+            rule = new RateLimitRule("search-pro", "/v1/search", "pro", 1_000_000_000, 1_000_000_000.0, 1_000_000_000,
+                    600_000, 10, 0, algorithm, Fallback.FAIL_CLOSED, 0.0, 0L);
+            before = RedisStats.read(template);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            RedisStats after = RedisStats.read(template);
+            long decisions = after.scriptCalls - before.scriptCalls;
+            if (decisions > 0) {
+                System.out.printf("%n%s: %.2f us script time/decision, %.2f us Redis CPU/decision, %d B/identity%n",
+                        algorithm,
+                        (double) (after.scriptUsec - before.scriptUsec) / decisions,
+                        (after.cpuSeconds - before.cpuSeconds) * 1e6 / decisions,
+                        (after.usedMemory - before.usedMemory) / Fixtures.KEY_COUNT);
+            }
+            factory.destroy();
+            redis.close();
+        }
+    }
+
+    @Benchmark
+    public RateLimiter.Result limiter(Limiter s, Fixtures.Keys keys) {
+        return s.limiter.checkAndConsume(s.rule, keys.next(), 1);
+    }
+
+    /** The counters the report is computed from; scripts may run as EVAL or EVALSHA. */
+    private record RedisStats(long scriptCalls, long scriptUsec, double cpuSeconds, long usedMemory) {
+
+        static RedisStats read(StringRedisTemplate template) {
+            Properties stats = template.execute((RedisCallback<Properties>) c -> c.serverCommands().info("commandstats"));
+            Properties cpu = template.execute((RedisCallback<Properties>) c -> c.serverCommands().info("cpu"));
+            Properties memory = template.execute((RedisCallback<Properties>) c -> c.serverCommands().info("memory"));
+
+            long calls = 0;
+            long usec = 0;
+            for (String cmd : new String[] { "cmdstat_eval", "cmdstat_evalsha" }) {
+                String line = stats.getProperty(cmd);
+                if (line == null) continue;
+                calls += field(line, "calls");
+                usec += field(line, "usec");
+            }
+            return new RedisStats(
+                    calls,
+                    usec,
+                    Double.parseDouble(cpu.getProperty("used_cpu_user", "0")) + Double.parseDouble(cpu.getProperty("used_cpu_sys", "0")),
+                    Long.parseLong(memory.getProperty("used_memory", "0"))
+            );
+        }
+
+        // "calls=12,usec=34,usec_per_call=2.83,..."
+        private static long field(String line, String name) {
+            for (String part : line.split(",")) {
+                int eq = part.indexOf('=');
+                if (eq > 0 && part.substring(0, eq).equals(name)) return Long.parseLong(part.substring(eq + 1));
+            }
+            return 0;
+        }
+    }
+}
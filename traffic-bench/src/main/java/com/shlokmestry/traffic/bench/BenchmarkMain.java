@@ -0,0 +1,39 @@
+package com.shlokmestry.traffic.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks (regular JMH arguments) once single-threaded and
+ * once with a thread per core, always with the GC profiler so allocation per
+ * operation ({@code gc.alloc.rate.norm}) is reported next to the timings.
+ * Passing {@code -t} runs only that thread count. Unless {@code -rff} is given,
+ * results are written to {@code jmh-<threads>t.json} for comparison between runs.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {}
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+
+        int[] threadCounts = cli.getThreads().hasValue()
+                ? new int[] { cli.getThreads().get() }
+                : new int[] { 1, Math.max(2, Runtime.getRuntime().availableProcessors()) };
+
+        for (int threads : threadCounts) {
+            ChainedOptionsBuilder opts = new OptionsBuilder()
+                    .parent(cli)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class);
+            if (!cli.getResult().hasValue()) {
+                opts.result("jmh-" + threads + "t.json").resultFormat(ResultFormatType.JSON);
+            }
+            new Runner(opts.build()).run();
+        }
+    }
+}
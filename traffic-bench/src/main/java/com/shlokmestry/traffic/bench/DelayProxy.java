@@ -0,0 +1,129 @@
+package com.shlokmestry.traffic.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TCP proxy that holds every client-to-server chunk for a fixed delay before
+ * forwarding it, i.e. adds that much to each Redis round trip. Reading never
+ * waits: chunks are queued with their due time, so a pipelined connection keeps
+ * its throughput and only sees the extra latency.
+ */
+final class DelayProxy implements AutoCloseable {
+
+    private static final byte[] EOF = new byte[0];
+
+    private record Chunk(byte[] bytes, long dueNanos) {}
+
+    private final String targetHost;
+    private final int targetPort;
+    private final long delayNanos;
+    private final ServerSocket server;
+    private final ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+
+    DelayProxy(String targetHost, int targetPort, long delayMs) {
+        this.targetHost = targetHost;
+        this.targetPort = targetPort;
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMs);
+        try {
+            this.server = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        threads.execute(this::acceptLoop);
+    }
+
+    int port() {
+        return server.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket client = server.accept();
+                Socket upstream = new Socket(targetHost, targetPort);
+                client.setTcpNoDelay(true);
+                upstream.setTcpNoDelay(true);
+
+                BlockingQueue<Chunk> delayed = new LinkedBlockingQueue<>();
+                threads.execute(() -> read(client, delayed));
+                threads.execute(() -> writeDelayed(delayed, upstream, client));
+                threads.execute(() -> copy(upstream, client));
+            } catch (IOException e) {
+                if (server.isClosed()) return;
+            }
+        }
+    }
+
+    private void read(Socket from, BlockingQueue<Chunk> delayed) {
+        byte[] buf = new byte[16 * 1024];
+        try (InputStream in = from.getInputStream()) {
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                delayed.add(new Chunk(Arrays.copyOf(buf, n), System.nanoTime() + delayNanos));
+            }
+        } catch (IOException ignored) {
+            // connection closed
+        }
+        delayed.add(new Chunk(EOF, 0));
+    }
+
+    private static void writeDelayed(BlockingQueue<Chunk> delayed, Socket to, Socket from) {
+        try (OutputStream out = to.getOutputStream()) {
+            while (true) {
+                Chunk c = delayed.take();
+                if (c.bytes() == EOF) break;
+
+                long waitNanos = c.dueNanos() - System.nanoTime();
+                if (waitNanos > 0) TimeUnit.NANOSECONDS.sleep(waitNanos);
+                out.write(c.bytes());
+                out.flush();
+            }
+        } catch (IOException | InterruptedException ignored) {
+            // connection closed or proxy stopping
+        } finally {
+            closeQuietly(to);
+            closeQuietly(from);
+        }
+    }
+
+    private static void copy(Socket from, Socket to) {
+        try {
+            from.getInputStream().transferTo(to.getOutputStream());
+        } catch (IOException ignored) {
+            // connection closed
+        } finally {
+            closeQuietly(from);
+            closeQuietly(to);
+        }
+    }
+
+    private static void closeQuietly(Socket s) {
+        try {
+            s.close();
+        } catch (IOException ignored) {
+            // already closed
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // already closed
+        }
+        threads.shutdownNow();
+    }
+}
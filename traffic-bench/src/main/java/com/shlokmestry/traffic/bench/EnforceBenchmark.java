@@ -0,0 +1,115 @@
+package com.shlokmestry.traffic.bench;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import com.shlokmestry.traffic.api.CheckRateLimitRequest;
+import com.shlokmestry.traffic.api.EnforceController;
+import com.shlokmestry.traffic.enforce.Enforcer;
+import com.shlokmestry.traffic.observability.DecisionAudit;
+import com.shlokmestry.traffic.observability.DecisionTracer;
+import com.shlokmestry.traffic.observability.DecisionTrace;
+import com.shlokmestry.traffic.observability.HeavyHitters;
+import com.shlokmestry.traffic.observability.RateLimitMetrics;
+import com.shlokmestry.traffic.ratelimit.DenyCache;
+import com.shlokmestry.traffic.ratelimit.DenyCacheProperties;
+import com.shlokmestry.traffic.ratelimit.InMemoryProperties;
+import com.shlokmestry.traffic.ratelimit.InMemoryRateLimiter;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+import com.shlokmestry.traffic.rules.RouteIndex;
+import com.shlokmestry.traffic.rules.RouteIndexProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The controller's own per-request cost: metrics, heavy-hitter sketches, the decision
+ * audit and header building. Rules come from a map and buckets from the in-memory engine, so Redis
+ * is not involved; {@link RedisEnforceBenchmark} covers the full path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnforceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Controller {
+        MeterRegistry registry;
+        RateLimitMetrics metrics;
+        HeavyHitters heavyHitters;
+        DecisionAudit audit;
+        EnforceController controller;
+        RateLimitRule rule;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            registry = new SimpleMeterRegistry();
+            metrics = new RateLimitMetrics(registry);
+
+            Fixtures.MapRuleStore rules = new Fixtures.MapRuleStore();
+            rule = Fixtures.rule();
+            rules.upsert(rule);
+            rules.upsert(Fixtures.exhaustedRule());
+
+            InMemoryRateLimiter limiter =
+                    new InMemoryRateLimiter(new InMemoryProperties(64, 256, Duration.ofSeconds(30)), registry);
+            // Disabled: denied requests must still build their 429 headers every time.
+            DenyCache denyCache = new DenyCache(new DenyCacheProperties(false, 100_000, Duration.ofSeconds(60)), registry);
+            heavyHitters = new HeavyHitters(registry, Fixtures.heavyHitterProperties());
+            audit = Fixtures.audit(registry);
+            Enforcer enforcer = new Enforcer(limiter, rules, metrics, denyCache,
+                    new DecisionTracer(registry, Fixtures.tracingProperties()), heavyHitters, audit, Optional.empty());
+
+            controller = new EnforceController(enforcer, limiter, rules, metrics, denyCache,
+                    new RouteIndex(rules, new RouteIndexProperties(Duration.ofSeconds(60))), heavyHitters, audit);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            audit.close();
+        }
+    }
+
+    @Benchmark
+    public void decisionMetrics(Controller c) {
+        c.metrics.decision(c.rule, true);
+    }
+
+    @Benchmark
+    public void heavyHitters(Controller c, Fixtures.Keys keys) {
+        c.heavyHitters.record("search-pro", keys.next(), 1, true);
+    }
+
+    // Denials are never sampled out, so this is the full request-thread cost of one audit record.
+    @Benchmark
+    public void auditDenied(Controller c, Fixtures.Keys keys) {
+        c.audit.record(c.rule, keys.next(), 1, DecisionTrace.Outcome.LIMITED);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> enforceAllowed(Controller c, Fixtures.Keys keys) {
+        return c.controller.enforce(new CheckRateLimitRequest(keys.next(), "search-pro", 1));
+    }
+
+    @Benchmark
+    public ResponseEntity<?> enforceDenied(Controller c, Fixtures.Keys keys) {
+        return c.controller.enforce(new CheckRateLimitRequest(keys.next(), "search-free", 1));
+    }
+}
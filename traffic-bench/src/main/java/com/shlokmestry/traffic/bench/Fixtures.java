@@ -0,0 +1,124 @@
+package com.shlokmestry.traffic.bench;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.util.unit.DataSize;
+
+import com.shlokmestry.traffic.observability.AuditProperties;
+import com.shlokmestry.traffic.observability.DecisionAudit;
+import com.shlokmestry.traffic.observability.HeavyHitterProperties;
+import com.shlokmestry.traffic.observability.TracingProperties;
+import com.shlokmestry.traffic.ratelimit.AdaptiveProperties;
+import com.shlokmestry.traffic.ratelimit.BreakerProperties;
+import com.shlokmestry.traffic.ratelimit.BucketProperties;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+import com.shlokmestry.traffic.rules.RuleStore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/** Shared rules, keys and stores so every benchmark measures the same inputs. */
+public final class Fixtures {
+
+    public static final int KEY_COUNT = 10_000;
+
+    private Fixtures() {}
+
+    /** Effectively unlimited, so every decision is an allow. */
+    public static RateLimitRule rule() {
+        return new RateLimitRule("search-pro", "/v1/search", "pro", 1_000_000_000, 1_000_000_000.0, 1_000_000_000, 60_000, 10);
+    }
+
+    /** One token and no refill, so every decision after the first is a deny. */
+    public static RateLimitRule exhaustedRule() {
+        return new RateLimitRule("search-free", "/v1/search", "free", 1, 0.0, 1, 60_000, 1);
+    }
+
+    /** Breaker defaults, as bound from an empty traffic.ratelimit.breaker section. */
+    public static BreakerProperties breakerProperties() {
+        return new BreakerProperties(true, Duration.ofSeconds(10), 20, 0.5, Duration.ofMillis(250), 0.5, Duration.ofSeconds(5), 10);
+    }
+
+    /** Adaptive-limit defaults, as bound from an empty traffic.ratelimit.adaptive section. */
+    public static AdaptiveProperties adaptiveProperties() {
+        return new AdaptiveProperties(Duration.ofSeconds(1), 0.05, 0.5, 0.1, 1.0, 0.05, Duration.ofMinutes(10));
+    }
+
+    /** Bucket defaults, as bound from an empty traffic.ratelimit.buckets section. */
+    public static BucketProperties bucketProperties() {
+        return new BucketProperties(true, false);
+    }
+
+    /** Tracing defaults, as bound from an empty traffic.observability.tracing section. */
+    public static TracingProperties tracingProperties() {
+        return new TracingProperties(20, Duration.ofMillis(50), 128);
+    }
+
+    /** Heavy-hitter defaults, as bound from an empty traffic.observability.heavy-hitters section. */
+    public static HeavyHitterProperties heavyHitterProperties() {
+        return new HeavyHitterProperties(true, 20, 10, 4, 1024, Duration.ofSeconds(60), 3);
+    }
+
+    /** Audit defaults, but enabled; events are drained and discarded so only the request-thread side is measured. */
+    public static DecisionAudit audit(MeterRegistry registry) {
+        AuditProperties props = new AuditProperties(true, AuditProperties.Sink.FILE, 65_536, 512,
+                Duration.ofMillis(100), 0.01,
+                new AuditProperties.File(Path.of("audit"), DataSize.ofMegabytes(64), 10),
+                new AuditProperties.Stream("traffic:audit", 1_000_000));
+        return new DecisionAudit(registry, props, batch -> {});
+    }
+
+    /**
+     * Cycles through {@link #KEY_COUNT} client keys. Each thread starts at a random
+     * offset so threads spread over buckets instead of walking the same ones in step.
+     */
+    @State(Scope.Thread)
+    public static class Keys {
+        private String[] keys;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            keys = new String[KEY_COUNT];
+            for (int i = 0; i < KEY_COUNT; i++) {
+                keys[i] = "apiKey:user" + i;
+            }
+            next = ThreadLocalRandom.current().nextInt(KEY_COUNT);
+        }
+
+        public String next() {
+            String k = keys[next];
+            next = (next + 1 == KEY_COUNT) ? 0 : next + 1;
+            return k;
+        }
+    }
+
+    /** Rule store without Redis, so controller benchmarks isolate everything after the lookup. */
+    public static final class MapRuleStore implements RuleStore {
+        private final Map<String, RateLimitRule> rules = new ConcurrentHashMap<>();
+
+        @Override
+        public void upsert(RateLimitRule rule) {
+            rules.put(rule.ruleId(), rule);
+        }
+
+        @Override
+        public Optional<RateLimitRule> get(String ruleId) {
+            return Optional.ofNullable(rules.get(ruleId));
+        }
+
+        @Override
+        public List<RateLimitRule> all() {
+            return List.copyOf(rules.values());
+        }
+    }
+}
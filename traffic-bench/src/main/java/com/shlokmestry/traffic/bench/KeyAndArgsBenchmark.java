@@ -0,0 +1,85 @@
+package com.shlokmestry.traffic.bench;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.shlokmestry.traffic.ratelimit.AdaptiveLimits;
+import com.shlokmestry.traffic.ratelimit.BucketProperties;
+import com.shlokmestry.traffic.ratelimit.CoalescingProperties;
+import com.shlokmestry.traffic.ratelimit.InMemoryProperties;
+import com.shlokmestry.traffic.ratelimit.LeaseProperties;
+import com.shlokmestry.traffic.ratelimit.RedisCircuitBreaker;
+import com.shlokmestry.traffic.ratelimit.TokenBucketRateLimiter;
+import com.shlokmestry.traffic.redis.RedisShards;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Per-request work done before anything reaches Redis: finding the rule's pre-encoded
+ * script arguments and building the bucket key from them. No connection is opened.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyAndArgsBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Limiter {
+        @Param({"false", "true"})
+        boolean compactKeys;
+
+        TokenBucketRateLimiter limiter;
+        RateLimitRule rule;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            // Never started, so nothing connects; the limiter only needs it for construction.
+            LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", 6379));
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            RedisShards shards = RedisShards.single(new StringRedisTemplate(factory));
+            RedisCircuitBreaker breaker = new RedisCircuitBreaker(Fixtures.breakerProperties(), registry);
+            limiter = new TokenBucketRateLimiter(
+                    shards,
+                    registry,
+                    new CoalescingProperties(false, 64, Duration.ofNanos(200_000), 10_000, 2, Duration.ofSeconds(1)),
+                    new LeaseProperties(Duration.ofMillis(250), Duration.ofMillis(100), Duration.ofSeconds(60)),
+                    new InMemoryProperties(64, 256, Duration.ofSeconds(30)),
+                    new BucketProperties(compactKeys, false),
+                    breaker,
+                    new AdaptiveLimits(shards, breaker, Fixtures.adaptiveProperties(), registry)
+            );
+            rule = Fixtures.rule();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            limiter.shutdown();
+        }
+    }
+
+    // What checkAndConsume does per decision before the script call: rule-level arguments come pre-encoded.
+    @Benchmark
+    public String bucketKey(Limiter s, Fixtures.Keys keys) {
+        return s.limiter.bucketKey(s.rule, keys.next());
+    }
+}
@@ -0,0 +1,160 @@
+package com.shlokmestry.traffic.bench;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.shlokmestry.traffic.ratelimit.AdaptiveLimits;
+import com.shlokmestry.traffic.ratelimit.BucketProperties;
+import com.shlokmestry.traffic.ratelimit.CoalescingProperties;
+import com.shlokmestry.traffic.ratelimit.InMemoryProperties;
+import com.shlokmestry.traffic.ratelimit.LeaseProperties;
+import com.shlokmestry.traffic.ratelimit.RateLimiter;
+import com.shlokmestry.traffic.ratelimit.RedisCircuitBreaker;
+import com.shlokmestry.traffic.ratelimit.TokenBucketRateLimiter;
+import com.shlokmestry.traffic.redis.RedisShards;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Redis memory per million identities for each {@code traffic.ratelimit.buckets}
+ * setting: readable or compact keys, expiry at ttlMs or when full. Each setting gets
+ * a fresh {@code redis-server} from the PATH; one decision is made for each of
+ * {@code --identities} long API keys under a rule with a long endpoint, then memory is
+ * read, and read again once the buckets would have refilled.
+ *
+ * <pre>
+ * mvn -pl traffic-bench -am install -DskipTests
+ * mvn -pl traffic-bench exec:java -Dexec.mainClass=com.shlokmestry.traffic.bench.KeyMemoryReport \
+ *     -Dexec.args="--identities=1000000"
+ * </pre>
+ *
+ * Options: {@code --identities} (default 1000000), {@code --batch} (decisions per
+ * pipelined call, default 1000), {@code --idle-s} (how long to wait for expiry,
+ * default 10).
+ */
+public final class KeyMemoryReport {
+
+    // Refills one token in 20 ms, so every bucket is full again long before its 10-minute ttl.
+    static final RateLimitRule RULE = new RateLimitRule(
+            "search-enterprise", "/v1/organizations/{orgId}/projects/{projectId}/search", "enterprise",
+            100, 50.0, 100, 600_000, 10);
+
+    private KeyMemoryReport() {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = LoadTest.parse(args);
+        int identities = Integer.parseInt(opts.getOrDefault("identities", "1000000"));
+        int batch = Integer.parseInt(opts.getOrDefault("batch", "1000"));
+        Duration idle = Duration.ofSeconds(Long.parseLong(opts.getOrDefault("idle-s", "10")));
+
+        List<String> report = new ArrayList<>();
+        for (BucketProperties buckets : List.of(
+                new BucketProperties(false, false),
+                new BucketProperties(true, false),
+                new BucketProperties(false, true),
+                new BucketProperties(true, true))) {
+            report.add(run(buckets, identities, batch, idle));
+        }
+
+        System.out.println();
+        System.out.println("keys      expiry       key B   MB/1M ids   live keys after idle   MB/1M ids after idle");
+        report.forEach(System.out::println);
+    }
+
+    private static String run(BucketProperties buckets, int identities, int batch, Duration idle) throws InterruptedException {
+        try (LocalRedis redis = LocalRedis.startServer()) {
+            LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(redis.host(), redis.port()));
+            factory.afterPropertiesSet();
+            factory.start();
+            StringRedisTemplate template = new StringRedisTemplate(factory);
+
+            MeterRegistry registry = new SimpleMeterRegistry();
+            RedisShards shards = RedisShards.single(template);
+            RedisCircuitBreaker breaker = new RedisCircuitBreaker(Fixtures.breakerProperties(), registry);
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(
+                    shards,
+                    registry,
+                    new CoalescingProperties(false, 64, Duration.ofNanos(200_000), 10_000, 2, Duration.ofSeconds(1)),
+                    new LeaseProperties(Duration.ofMillis(250), Duration.ofMillis(100), Duration.ofSeconds(60)),
+                    new InMemoryProperties(64, 256, Duration.ofSeconds(30)),
+                    buckets,
+                    breaker,
+                    new AdaptiveLimits(shards, breaker, Fixtures.adaptiveProperties(), registry)
+            );
+
+            try {
+                long baseline = usedMemory(template);
+                List<RateLimiter.Check> checks = new ArrayList<>(batch);
+                for (int i = 0; i < identities; i++) {
+                    checks.add(new RateLimiter.Check(RULE, identity(i), 1));
+                    if (checks.size() == batch || i == identities - 1) {
+                        limiter.checkAndConsumeAll(checks);
+                        checks.clear();
+                    }
+                }
+                double perMillion = 1e6 / identities / (1024 * 1024);
+                double written = (usedMemory(template) - baseline) * perMillion;
+
+                // Expired keys are reclaimed by Redis' active expiry in the background; wait for it to settle.
+                long deadline = System.nanoTime() + idle.toNanos();
+                long live = keys(template);
+                while (live > 0 && System.nanoTime() < deadline) {
+                    Thread.sleep(500);
+                    live = keys(template);
+                }
+                double afterIdle = (usedMemory(template) - baseline) * perMillion;
+
+                return String.format("%-9s %-12s %5d %11.1f %22d %22.1f",
+                        buckets.compactKeys() ? "compact" : "readable",
+                        buckets.expireWhenFull() ? "when full" : "ttlMs",
+                        keyLength(buckets, identity(0)), written, live, afterIdle);
+            } finally {
+                limiter.shutdown();
+                factory.destroy();
+            }
+        }
+    }
+
+    // A 40-hex-digit API key, as many gateways issue them.
+    private static String identity(int i) {
+        return "apiKey:" + HexFormat.of().formatHex(longBytes(i * 0x9E3779B97F4A7C15L))
+                + HexFormat.of().formatHex(longBytes(i)) + "abcdef01";
+    }
+
+    private static byte[] longBytes(long v) {
+        byte[] b = new byte[8];
+        for (int i = 0; i < 8; i++) b[i] = (byte) (v >>> (56 - 8 * i));
+        return b;
+    }
+
+    // tb:{identity}:ruleId:endpoint:plan, or tb:{<16 hex>}:<12 hex>.
+    private static int keyLength(BucketProperties buckets, String identity) {
+        if (buckets.compactKeys()) return "tb:{}:".length() + 16 + 12;
+        return ("tb:{" + identity + "}:" + RULE.ruleId() + ":" + RULE.endpoint() + ":" + RULE.plan()).length();
+    }
+
+    private static long usedMemory(StringRedisTemplate template) {
+        Properties memory = template.execute((RedisCallback<Properties>) c -> c.serverCommands().info("memory"));
+        return Long.parseLong(memory.getProperty("used_memory", "0"));
+    }
+
+    // db0 reads "keys=123,expires=123,avg_ttl=0"; absent when the database is empty.
+    private static long keys(StringRedisTemplate template) {
+        Properties keyspace = template.execute((RedisCallback<Properties>) c -> c.serverCommands().info("keyspace"));
+        String db0 = keyspace.getProperty("db0");
+        if (db0 == null) return 0;
+        String count = db0.substring("keys=".length(), db0.indexOf(','));
+        return Long.parseLong(count);
+    }
+}
@@ -0,0 +1,203 @@
+package com.shlokmestry.traffic.bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.shlokmestry.traffic.TrafficServiceApplication;
+
+/**
+ * Closed-loop HTTP load against a real traffic-service with extra Redis latency
+ * injected by {@link DelayProxy}, once per request-thread mode, to show how many
+ * requests stay in flight and what p99 looks like when Redis slows down.
+ *
+ * <pre>
+ * mvn -pl traffic-bench -am install -DskipTests
+ * mvn -pl traffic-bench exec:java -Dexec.mainClass=com.shlokmestry.traffic.bench.LoadTest \
+ *     -Dexec.args="--concurrency=1000 --redis-delay-ms=20 --duration-s=20"
+ * </pre>
+ *
+ * Options: {@code --concurrency} (clients, default 1000), {@code --redis-delay-ms}
+ * (default 20), {@code --duration-s} (measured seconds, default 20), {@code --warmup-s}
+ * (default 5), {@code --modes} (default {@code platform,virtual}). Redis comes from
+ * {@link LocalRedis}.
+ */
+public final class LoadTest {
+
+    static final String RULE_ID = "loadtest";
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parse(args);
+        int concurrency = Integer.parseInt(opts.getOrDefault("concurrency", "1000"));
+        long delayMs = Long.parseLong(opts.getOrDefault("redis-delay-ms", "20"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(opts.getOrDefault("duration-s", "20")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(opts.getOrDefault("warmup-s", "5")));
+        List<String> modes = Arrays.asList(opts.getOrDefault("modes", "platform,virtual").split(","));
+
+        List<String> report = new ArrayList<>();
+        try (LocalRedis redis = LocalRedis.start();
+             DelayProxy proxy = new DelayProxy(redis.host(), redis.port(), delayMs)) {
+            for (String mode : modes) {
+                Stats s = run(mode, proxy.port(), concurrency, warmup, duration);
+                report.add(String.format("%-8s %6d %6d %10.0f %9.1f %9.1f %9.1f %8d %8d %8d",
+                        mode, concurrency, delayMs, s.throughput(), s.percentileMs(0.50), s.percentileMs(0.99),
+                        s.maxMs(), s.allowed, s.limited, s.errors));
+            }
+        }
+
+        System.out.println();
+        System.out.println("mode     conc.  delay    req/s     p50 ms    p99 ms    max ms   204      429      other");
+        report.forEach(System.out::println);
+    }
+
+    private static Stats run(String mode, int redisPort, int concurrency, Duration warmup, Duration duration) throws Exception {
+        int port = freePort();
+        ConfigurableApplicationContext app = SpringApplication.run(TrafficServiceApplication.class,
+                "--server.port=" + port,
+                "--spring.threads.virtual.enabled=" + "virtual".equals(mode),
+                "--spring.data.redis.host=127.0.0.1",
+                "--spring.data.redis.port=" + redisPort,
+                "--logging.level.root=WARN");
+
+        try (HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build()) {
+            String base = "http://127.0.0.1:" + port;
+            putRule(http, base);
+
+            // Effectively unlimited, so every response measures the enforce path, not throttling.
+            HttpRequest.Builder enforce = HttpRequest.newBuilder(URI.create(base + "/v1/enforce"))
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofSeconds(30));
+
+            long warmupEnd = System.nanoTime() + warmup.toNanos();
+            long end = warmupEnd + duration.toNanos();
+
+            List<Future<Stats>> clients = new ArrayList<>(concurrency);
+            try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int c = 0; c < concurrency; c++) {
+                    String body = "{\"key\":\"apiKey:user" + c + "\",\"ruleId\":\"" + RULE_ID + "\",\"cost\":1}";
+                    HttpRequest req = enforce.copy().POST(HttpRequest.BodyPublishers.ofString(body)).build();
+                    clients.add(pool.submit(() -> client(http, req, warmupEnd, end)));
+                }
+            }
+
+            Stats total = new Stats();
+            for (Future<Stats> f : clients) total.add(f.get());
+            total.seconds = duration.toNanos() / 1e9;
+            return total;
+        } finally {
+            app.close();
+        }
+    }
+
+    private static Stats client(HttpClient http, HttpRequest req, long warmupEnd, long end) {
+        Stats s = new Stats();
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            int status;
+            try {
+                status = http.send(req, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                status = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (now >= warmupEnd) s.record(status, System.nanoTime() - now);
+        }
+        return s;
+    }
+
+    static void putRule(HttpClient http, String base) throws IOException, InterruptedException {
+        String rule = "{\"endpoint\":\"/loadtest\",\"plan\":\"default\",\"capacity\":1000000000,"
+                + "\"refillTokensPerSecond\":1000000000,\"burstCapacity\":1000000000,\"ttlMs\":60000,\"maxCost\":1}";
+        HttpRequest req = HttpRequest.newBuilder(URI.create(base + "/v1/rules/" + RULE_ID))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(rule))
+                .build();
+        int status = http.send(req, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status != 200) throw new IllegalStateException("rule upsert failed: HTTP " + status);
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> out = new HashMap<>();
+        for (String a : args) {
+            if (!a.startsWith("--") || !a.contains("=")) throw new IllegalArgumentException("expected --name=value, got " + a);
+            int eq = a.indexOf('=');
+            out.put(a.substring(2, eq), a.substring(eq + 1));
+        }
+        return out;
+    }
+
+    static int freePort() {
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static final class Stats {
+        long[] latenciesNanos = new long[1024];
+        int count;
+        long allowed;
+        long limited;
+        long errors;
+        double seconds;
+
+        void record(int status, long nanos) {
+            if (count == latenciesNanos.length) latenciesNanos = Arrays.copyOf(latenciesNanos, count * 2);
+            latenciesNanos[count++] = nanos;
+            if (status == 204) allowed++;
+            else if (status == 429) limited++;
+            else errors++;
+        }
+
+        void add(Stats o) {
+            if (count + o.count > latenciesNanos.length) {
+                latenciesNanos = Arrays.copyOf(latenciesNanos, Math.max(count + o.count, latenciesNanos.length * 2));
+            }
+            System.arraycopy(o.latenciesNanos, 0, latenciesNanos, count, o.count);
+            count += o.count;
+            allowed += o.allowed;
+            limited += o.limited;
+            errors += o.errors;
+        }
+
+        double throughput() {
+            return count / seconds;
+        }
+
+        double percentileMs(double p) {
+            if (count == 0) return 0;
+            long[] sorted = Arrays.copyOf(latenciesNanos, count);
+            Arrays.sort(sorted);
+            int i = (int) Math.min(count - 1, Math.ceil(p * count) - 1);
+            return sorted[Math.max(0, i)] / 1e6;
+        }
+
+        double maxMs() {
+            return percentileMs(1.0);
+        }
+    }
+}
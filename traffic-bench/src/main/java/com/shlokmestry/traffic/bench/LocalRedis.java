@@ -0,0 +1,98 @@
+package com.shlokmestry.traffic.bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * Redis for the end-to-end benchmarks. Uses {@code -Dtraffic.bench.redis.host}
+ * (and {@code .port}) when given; otherwise starts a throwaway {@code redis-server}
+ * from the PATH on a free port with persistence off, and stops it on close.
+ */
+final class LocalRedis implements AutoCloseable {
+
+    private static final long STARTUP_TIMEOUT_MS = 5_000;
+
+    private final String host;
+    private final int port;
+    private final Process process;     // null when pointed at an existing server
+
+    private LocalRedis(String host, int port, Process process) {
+        this.host = host;
+        this.port = port;
+        this.process = process;
+    }
+
+    static LocalRedis start() {
+        String host = System.getProperty("traffic.bench.redis.host");
+        if (host != null) {
+            return new LocalRedis(host, Integer.getInteger("traffic.bench.redis.port", 6379), null);
+        }
+        return startServer();
+    }
+
+    /** Always a fresh {@code redis-server}, e.g. one per shard. */
+    static LocalRedis startServer() {
+        int port = freePort();
+        Process p;
+        try {
+            p = new ProcessBuilder(List.of(
+                    "redis-server",
+                    "--port", String.valueOf(port),
+                    "--bind", "127.0.0.1",
+                    "--save", "",
+                    "--appendonly", "no"
+            )).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("redis-server not found on PATH; set -Dtraffic.bench.redis.host instead", e);
+        }
+
+        LocalRedis redis = new LocalRedis("127.0.0.1", port, p);
+        redis.awaitListening();
+        return redis;
+    }
+
+    String host() {
+        return host;
+    }
+
+    int port() {
+        return port;
+    }
+
+    private void awaitListening() {
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            try (Socket s = new Socket()) {
+                s.connect(new InetSocketAddress(host, port), 100);
+                return;
+            } catch (IOException e) {
+                if (!process.isAlive()) break;
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        close();
+        throw new IllegalStateException("redis-server did not start on port " + port);
+    }
+
+    private static int freePort() {
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (process != null) process.destroy();
+    }
+}
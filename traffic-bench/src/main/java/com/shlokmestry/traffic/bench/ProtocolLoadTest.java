@@ -0,0 +1,230 @@
+package com.shlokmestry.traffic.bench;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.shlokmestry.traffic.TrafficServiceApplication;
+import com.shlokmestry.traffic.binary.BinaryProtocol;
+
+/**
+ * Closed-loop throughput of {@code POST /v1/enforce} against the binary listener
+ * on the same service instance, with the same number of requests in flight: HTTP
+ * uses {@code connections x pipeline} clients, binary uses {@code connections}
+ * sockets with {@code pipeline} frames outstanding on each.
+ *
+ * <pre>
+ * mvn -pl traffic-bench -am install -DskipTests
+ * taskset -c 0-3 mvn -pl traffic-bench exec:java -Dexec.mainClass=com.shlokmestry.traffic.bench.ProtocolLoadTest \
+ *     -Dexec.args="--connections=16 --pipeline=16 --duration-s=20"
+ * </pre>
+ *
+ * Pin the JVM with {@code taskset} (or {@code -XX:ActiveProcessorCount}) so both
+ * protocols are measured on the same cores; server and load generator share them.
+ * Options: {@code --connections} (default 16), {@code --pipeline} (default 16),
+ * {@code --duration-s} (default 20), {@code --warmup-s} (default 5),
+ * {@code --io-threads} (binary event loops, default 0 = Netty default).
+ * Redis comes from {@link LocalRedis}.
+ */
+public final class ProtocolLoadTest {
+
+    private ProtocolLoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = LoadTest.parse(args);
+        int connections = Integer.parseInt(opts.getOrDefault("connections", "16"));
+        int pipeline = Integer.parseInt(opts.getOrDefault("pipeline", "16"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(opts.getOrDefault("duration-s", "20")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(opts.getOrDefault("warmup-s", "5")));
+        String ioThreads = opts.getOrDefault("io-threads", "0");
+
+        int httpPort = LoadTest.freePort();
+        int binaryPort = LoadTest.freePort();
+        List<String> report = new ArrayList<>();
+
+        try (LocalRedis redis = LocalRedis.start();
+             ConfigurableApplicationContext app = SpringApplication.run(TrafficServiceApplication.class,
+                     "--server.port=" + httpPort,
+                     "--traffic.binary.enabled=true",
+                     "--traffic.binary.port=" + binaryPort,
+                     "--traffic.binary.io-threads=" + ioThreads,
+                     "--spring.data.redis.host=" + redis.host(),
+                     "--spring.data.redis.port=" + redis.port(),
+                     "--logging.level.root=WARN");
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(Executors.newVirtualThreadPerTaskExecutor())
+                     .build()) {
+            String base = "http://127.0.0.1:" + httpPort;
+            LoadTest.putRule(http, base);
+
+            LoadTest.Stats h = runHttp(http, base, connections * pipeline, warmup, duration);
+            report.add(row("http", connections * pipeline, h));
+            LoadTest.Stats b = runBinary(binaryPort, connections, pipeline, warmup, duration);
+            report.add(row("binary", connections * pipeline, b));
+        }
+
+        System.out.println();
+        System.out.println("protocol in-flight    req/s     p50 ms    p99 ms    max ms   allowed  limited  other");
+        report.forEach(System.out::println);
+        System.out.println("cores: " + Runtime.getRuntime().availableProcessors());
+    }
+
+    private static String row(String protocol, int inFlight, LoadTest.Stats s) {
+        return String.format("%-8s %9d %10.0f %9.2f %9.2f %9.2f %8d %8d %6d",
+                protocol, inFlight, s.throughput(), s.percentileMs(0.50), s.percentileMs(0.99),
+                s.maxMs(), s.allowed, s.limited, s.errors);
+    }
+
+    private static LoadTest.Stats runHttp(HttpClient http, String base, int clients, Duration warmup, Duration duration)
+            throws Exception {
+        HttpRequest.Builder enforce = HttpRequest.newBuilder(URI.create(base + "/v1/enforce"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30));
+
+        long warmupEnd = System.nanoTime() + warmup.toNanos();
+        long end = warmupEnd + duration.toNanos();
+
+        List<Future<LoadTest.Stats>> results = new ArrayList<>(clients);
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                String body = "{\"key\":\"apiKey:user" + c + "\",\"ruleId\":\"" + LoadTest.RULE_ID + "\",\"cost\":1}";
+                HttpRequest req = enforce.copy().POST(HttpRequest.BodyPublishers.ofString(body)).build();
+                results.add(pool.submit(() -> httpClient(http, req, warmupEnd, end)));
+            }
+        }
+        return total(results, duration);
+    }
+
+    private static LoadTest.Stats httpClient(HttpClient http, HttpRequest req, long warmupEnd, long end) {
+        LoadTest.Stats s = new LoadTest.Stats();
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            int status;
+            try {
+                status = http.send(req, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                status = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (now >= warmupEnd) s.record(status, System.nanoTime() - now);
+        }
+        return s;
+    }
+
+    private static LoadTest.Stats runBinary(int port, int connections, int pipeline, Duration warmup, Duration duration)
+            throws Exception {
+        long warmupEnd = System.nanoTime() + warmup.toNanos();
+        long end = warmupEnd + duration.toNanos();
+
+        List<Future<LoadTest.Stats>> results = new ArrayList<>(connections);
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < connections; c++) {
+                int conn = c;
+                results.add(pool.submit(() -> binaryConnection(port, conn, pipeline, warmupEnd, end)));
+            }
+        }
+        return total(results, duration);
+    }
+
+    // A writer keeps `pipeline` frames outstanding (flushing only when the window is
+    // full); the reader matches replies by id, since they may arrive out of order.
+    private static LoadTest.Stats binaryConnection(int port, int conn, int pipeline, long warmupEnd, long end)
+            throws Exception {
+        byte[] ruleId = LoadTest.RULE_ID.getBytes(StandardCharsets.UTF_8);
+        byte[][] keys = new byte[pipeline][];
+        for (int i = 0; i < pipeline; i++) {
+            keys[i] = ("apiKey:user" + (conn * pipeline + i)).getBytes(StandardCharsets.UTF_8);
+        }
+
+        int slots = Integer.highestOneBit(Math.max(1, pipeline) * 64) * 2;
+        long[] sentAt = new long[slots];
+        Semaphore window = new Semaphore(pipeline);
+        LoadTest.Stats s = new LoadTest.Stats();
+
+        try (Socket socket = new Socket("127.0.0.1", port);
+             ExecutorService reader = Executors.newVirtualThreadPerTaskExecutor()) {
+            socket.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+
+            Future<?> replies = reader.submit(() -> {
+                try {
+                    while (true) {
+                        in.readInt();                       // length
+                        int id = in.readInt();
+                        byte status = in.readByte();
+                        in.skipNBytes(24);                  // retryAfterMs, remaining, limit
+                        long sent = sentAt[id & (slots - 1)];
+                        if (sent >= warmupEnd && sent < end) s.record(httpStatus(status), System.nanoTime() - sent);
+                        window.release();
+                    }
+                } catch (EOFException e) {
+                    return null;
+                }
+            });
+
+            int id = 0;
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                if (!window.tryAcquire()) {
+                    out.flush();
+                    window.acquire();
+                    now = System.nanoTime();
+                }
+                byte[] key = keys[id % pipeline];
+                sentAt[id & (slots - 1)] = now;
+                out.writeInt(4 + 2 + ruleId.length + 2 + key.length + 4);
+                out.writeInt(id++);
+                out.writeShort(ruleId.length);
+                out.write(ruleId);
+                out.writeShort(key.length);
+                out.write(key);
+                out.writeInt(1);
+            }
+            out.flush();
+
+            window.acquire(pipeline);   // drain outstanding replies
+            socket.shutdownOutput();
+            replies.get();
+        }
+        return s;
+    }
+
+    private static int httpStatus(byte status) {
+        return switch (status) {
+            case BinaryProtocol.STATUS_ALLOWED -> 204;
+            case BinaryProtocol.STATUS_LIMITED, BinaryProtocol.STATUS_FAIL_CLOSED -> 429;
+            default -> 400;
+        };
+    }
+
+    private static LoadTest.Stats total(List<Future<LoadTest.Stats>> results, Duration duration) throws Exception {
+        LoadTest.Stats total = new LoadTest.Stats();
+        for (Future<LoadTest.Stats> f : results) total.add(f.get());
+        total.seconds = duration.toNanos() / 1e9;
+        return total;
+    }
+}
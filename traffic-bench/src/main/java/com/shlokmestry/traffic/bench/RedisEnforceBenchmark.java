@@ -0,0 +1,134 @@
+package com.shlokmestry.traffic.bench;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.ResponseEntity;
+
+import com.shlokmestry.traffic.api.CheckRateLimitRequest;
+import com.shlokmestry.traffic.api.EnforceController;
+import com.shlokmestry.traffic.enforce.Enforcer;
+import com.shlokmestry.traffic.observability.DecisionTracer;
+import com.shlokmestry.traffic.observability.DecisionAudit;
+import com.shlokmestry.traffic.observability.HeavyHitters;
+import com.shlokmestry.traffic.observability.RateLimitMetrics;
+import com.shlokmestry.traffic.ratelimit.AdaptiveLimits;
+import com.shlokmestry.traffic.ratelimit.CoalescingProperties;
+import com.shlokmestry.traffic.ratelimit.DenyCache;
+import com.shlokmestry.traffic.ratelimit.DenyCacheProperties;
+import com.shlokmestry.traffic.ratelimit.InMemoryProperties;
+import com.shlokmestry.traffic.ratelimit.LeaseProperties;
+import com.shlokmestry.traffic.ratelimit.RateLimiter;
+import com.shlokmestry.traffic.ratelimit.RedisCircuitBreaker;
+import com.shlokmestry.traffic.ratelimit.TokenBucketRateLimiter;
+import com.shlokmestry.traffic.redis.RedisShards;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+import com.shlokmestry.traffic.rules.RedisRuleStore;
+import com.shlokmestry.traffic.rules.RouteIndex;
+import com.shlokmestry.traffic.rules.RouteIndexProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Full decisions against a real Redis (see {@link LocalRedis}) with the default
+ * configuration: uncached rule lookup, one script call, then headers and metrics.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedisEnforceBenchmark {
+
+    private static final int BATCH_SIZE = 16;
+
+    @State(Scope.Benchmark)
+    public static class Service {
+        LocalRedis redis;
+        LettuceConnectionFactory factory;
+        TokenBucketRateLimiter limiter;
+        EnforceController controller;
+        RateLimitRule rule;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            redis = LocalRedis.start();
+            factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(redis.host(), redis.port()));
+            factory.afterPropertiesSet();
+            factory.start();
+            StringRedisTemplate template = new StringRedisTemplate(factory);
+
+            MeterRegistry registry = new SimpleMeterRegistry();
+            RedisShards shards = RedisShards.single(template);
+            RedisCircuitBreaker breaker = new RedisCircuitBreaker(Fixtures.breakerProperties(), registry);
+            limiter = new TokenBucketRateLimiter(
+                    shards,
+                    registry,
+                    new CoalescingProperties(false, 64, Duration.ofNanos(200_000), 10_000, 2, Duration.ofSeconds(1)),
+                    new LeaseProperties(Duration.ofMillis(250), Duration.ofMillis(100), Duration.ofSeconds(60)),
+                    new InMemoryProperties(64, 256, Duration.ofSeconds(30)),
+                    Fixtures.bucketProperties(),
+                    breaker,
+                    new AdaptiveLimits(shards, breaker, Fixtures.adaptiveProperties(), registry)
+            );
+
+            RedisRuleStore rules = new RedisRuleStore(template);
+            rule = Fixtures.rule();
+            rules.upsert(rule);
+
+            RateLimitMetrics metrics = new RateLimitMetrics(registry);
+            DenyCache denyCache = new DenyCache(new DenyCacheProperties(false, 100_000, Duration.ofSeconds(60)), registry);
+            HeavyHitters heavyHitters = new HeavyHitters(registry, Fixtures.heavyHitterProperties());
+            DecisionAudit audit = Fixtures.audit(registry);
+            Enforcer enforcer = new Enforcer(limiter, rules, metrics, denyCache,
+                    new DecisionTracer(registry, Fixtures.tracingProperties()), heavyHitters, audit, Optional.empty());
+
+            controller = new EnforceController(enforcer, limiter, rules, metrics, denyCache,
+                    new RouteIndex(rules, new RouteIndexProperties(Duration.ofSeconds(60))), heavyHitters, audit);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            factory.destroy();
+            redis.close();
+        }
+    }
+
+    @Benchmark
+    public RateLimiter.Result limiter(Service s, Fixtures.Keys keys) {
+        return s.limiter.checkAndConsume(s.rule, keys.next(), 1);
+    }
+
+    @Benchmark
+    public List<RateLimiter.Result> limiterBatch(Service s, Fixtures.Keys keys) {
+        List<RateLimiter.Check> checks = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            checks.add(new RateLimiter.Check(s.rule, keys.next(), 1));
+        }
+        return s.limiter.checkAndConsumeAll(checks);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> enforce(Service s, Fixtures.Keys keys) {
+        return s.controller.enforce(new CheckRateLimitRequest(keys.next(), s.rule.ruleId(), 1));
+    }
+}
@@ -0,0 +1,109 @@
+package com.shlokmestry.traffic.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shlokmestry.traffic.rules.RateLimitRule;
+import com.shlokmestry.traffic.rules.RouteTrie;
+
+/**
+ * Resolving method, path and plan to a rule, which {@code /v1/enforce:route} does
+ * before every decision. Rules look like a gateway's route table: services with
+ * resources, ids as wildcards, a catch-all per service and some per-method rules.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteTrieBenchmark {
+
+    private static final int SERVICES = 500;
+    private static final int PATHS = 1024;
+
+    @State(Scope.Benchmark)
+    public static class Routes {
+        @Param({"1000", "20000", "50000"})
+        int rules;
+
+        RouteTrie trie;
+        String[] exact;         // literal leaf
+        String[] withId;        // through a {id} segment
+        String[] fallback;      // only the service's /** matches
+        String[] miss;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            trie = new RouteTrie();
+            int resources = Math.max(1, rules / SERVICES / 2);
+
+            int n = 0;
+            for (int s = 0; s < SERVICES && n < rules; s++) {
+                trie.put(rule("svc" + s + "-all", "/api/svc" + s + "/**", "*"));
+                n++;
+                for (int r = 0; r < resources && n < rules; r++, n += 2) {
+                    trie.put(rule("svc" + s + "-res" + r, "/api/svc" + s + "/res" + r, "pro"));
+                    trie.put(rule("svc" + s + "-res" + r + "-id", "POST /api/svc" + s + "/res" + r + "/{id}", "*"));
+                }
+            }
+
+            exact = new String[PATHS];
+            withId = new String[PATHS];
+            fallback = new String[PATHS];
+            miss = new String[PATHS];
+            for (int i = 0; i < PATHS; i++) {
+                int s = (i * 7) % SERVICES;
+                int r = i % resources;
+                exact[i] = "/api/svc" + s + "/res" + r;
+                withId[i] = "/api/svc" + s + "/res" + r + "/" + (100_000 + i);
+                fallback[i] = "/api/svc" + s + "/other/" + i;
+                miss[i] = "/internal/svc" + s + "/res" + r;
+            }
+        }
+
+        private static RateLimitRule rule(String ruleId, String endpoint, String plan) {
+            return new RateLimitRule(ruleId, endpoint, plan, 100, 10.0, 100, 60000L, 1);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i;
+
+        int next() {
+            return i++ & (PATHS - 1);
+        }
+    }
+
+    @Benchmark
+    public RateLimitRule exact(Routes r, Cursor c) {
+        return r.trie.resolve("GET", r.exact[c.next()], "pro");
+    }
+
+    @Benchmark
+    public RateLimitRule withId(Routes r, Cursor c) {
+        return r.trie.resolve("POST", r.withId[c.next()], "pro");
+    }
+
+    @Benchmark
+    public RateLimitRule fallback(Routes r, Cursor c) {
+        return r.trie.resolve("GET", r.fallback[c.next()], "free");
+    }
+
+    @Benchmark
+    public RateLimitRule miss(Routes r, Cursor c) {
+        return r.trie.resolve("GET", r.miss[c.next()], "pro");
+    }
+}
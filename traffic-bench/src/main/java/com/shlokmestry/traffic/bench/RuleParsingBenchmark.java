@@ -0,0 +1,66 @@
+package com.shlokmestry.traffic.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shlokmestry.traffic.rules.Algorithm;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+import com.shlokmestry.traffic.rules.RedisRuleStore;
+
+/**
+ * Turning an HGETALL reply into a {@link RateLimitRule}, which happens on every
+ * enforce call that misses the rule cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleParsingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Hashes {
+        Map<Object, Object> current;
+        Map<Object, Object> legacy;     // stored before burst/lease/algorithm existed
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            legacy = new HashMap<>();
+            legacy.put("endpoint", "/v1/search");
+            legacy.put("plan", "pro");
+            legacy.put("capacity", "100");
+            legacy.put("refillTokensPerSecond", "10.0");
+            legacy.put("ttlMs", "60000");
+            legacy.put("maxCost", "10");
+
+            current = new HashMap<>(legacy);
+            current.put("burstCapacity", "150");
+            current.put("leaseSize", "0");
+            current.put("algorithm", Algorithm.TOKEN_BUCKET.name());
+        }
+    }
+
+    @Benchmark
+    public Optional<RateLimitRule> parseCurrent(Hashes h) {
+        return RedisRuleStore.parse("search-pro", h.current);
+    }
+
+    @Benchmark
+    public Optional<RateLimitRule> parseLegacy(Hashes h) {
+        return RedisRuleStore.parse("search-pro", h.legacy);
+    }
+}
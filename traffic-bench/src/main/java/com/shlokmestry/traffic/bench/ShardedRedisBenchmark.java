@@ -0,0 +1,104 @@
+package com.shlokmestry.traffic.bench;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shlokmestry.traffic.ratelimit.AdaptiveLimits;
+import com.shlokmestry.traffic.ratelimit.CoalescingProperties;
+import com.shlokmestry.traffic.ratelimit.InMemoryProperties;
+import com.shlokmestry.traffic.ratelimit.LeaseProperties;
+import com.shlokmestry.traffic.ratelimit.RateLimiter;
+import com.shlokmestry.traffic.ratelimit.RedisCircuitBreaker;
+import com.shlokmestry.traffic.ratelimit.TokenBucketRateLimiter;
+import com.shlokmestry.traffic.redis.RedisShards;
+import com.shlokmestry.traffic.redis.ShardProperties;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Decision throughput with bucket state spread over 1, 2 and 4 Redis nodes. Each
+ * node is its own {@code redis-server} process (so its own core); run with enough
+ * threads to saturate one node, e.g. {@code -t 64}, and the ops/ms should grow
+ * close to linearly with {@code nodes} until the client side runs out of cores.
+ *
+ * <p>{@code -Dtraffic.bench.redis.nodes=host:port,host:port,...} uses existing
+ * servers instead; the first {@code nodes} entries are taken.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardedRedisBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Shards {
+        @Param({"1", "2", "4"})
+        int nodes;
+
+        List<LocalRedis> servers = new ArrayList<>();
+        RedisShards shards;
+        TokenBucketRateLimiter limiter;
+        RateLimitRule rule;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            List<String> addresses = new ArrayList<>();
+            String existing = System.getProperty("traffic.bench.redis.nodes");
+            if (existing != null) {
+                addresses.addAll(Arrays.asList(existing.split(",")).subList(0, nodes));
+            } else {
+                for (int i = 0; i < nodes; i++) {
+                    LocalRedis r = LocalRedis.startServer();
+                    servers.add(r);
+                    addresses.add(r.host() + ":" + r.port());
+                }
+            }
+            shards = RedisShards.connect(new ShardProperties(addresses, 160, Duration.ofSeconds(2)));
+
+            MeterRegistry registry = new SimpleMeterRegistry();
+            RedisCircuitBreaker breaker = new RedisCircuitBreaker(Fixtures.breakerProperties(), registry);
+            limiter = new TokenBucketRateLimiter(
+                    shards,
+                    registry,
+                    new CoalescingProperties(false, 64, Duration.ofNanos(200_000), 10_000, 2, Duration.ofSeconds(1)),
+                    new LeaseProperties(Duration.ofMillis(250), Duration.ofMillis(100), Duration.ofSeconds(60)),
+                    new InMemoryProperties(64, 256, Duration.ofSeconds(30)),
+                    Fixtures.bucketProperties(),
+                    breaker,
+                    new AdaptiveLimits(shards, breaker, Fixtures.adaptiveProperties(), registry)
+            );
+            rule = Fixtures.rule();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            shards.close();
+            servers.forEach(LocalRedis::close);
+        }
+    }
+
+    @Benchmark
+    public RateLimiter.Result limiter(Shards s, Fixtures.Keys keys) {
+        return s.limiter.checkAndConsume(s.rule, keys.next(), 1);
+    }
+}
@@ -0,0 +1,362 @@
+package com.shlokmestry.traffic.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import com.shlokmestry.traffic.ratelimit.InMemoryProperties;
+import com.shlokmestry.traffic.ratelimit.InMemoryRateLimiter;
+import com.shlokmestry.traffic.ratelimit.RateLimiter;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+/**
+ * Replays an access-log trace against candidate rules offline, to see how many
+ * requests new capacity/refill/burst values would deny before they are set with
+ * {@code PUT /v1/rules/{ruleId}}.
+ *
+ * <pre>
+ * mvn -pl traffic-bench -am install -DskipTests
+ * mvn -pl traffic-bench exec:java -Dexec.mainClass=com.shlokmestry.traffic.bench.TraceReplay \
+ *     -Dexec.args="--trace=access.csv.gz --rules=rules.csv"
+ * </pre>
+ *
+ * The trace is CSV, {@code timestampMs,key,ruleId[,cost]} (cost defaults to 1), in
+ * time order as access logs are; {@code .gz} files are read compressed. Rules are
+ * CSV too, {@code ruleId,capacity,refillTokensPerSecond,burstCapacity,ttlMs[,maxCost]}.
+ * Lines starting with {@code #} are skipped in both; malformed trace lines are
+ * counted and skipped. A ruleId missing from the rules file gets
+ * {@link RateLimitRule#failClosed}, as the service would.
+ *
+ * <p>Decisions come from {@link InMemoryRateLimiter}, which has the arithmetic of
+ * {@code token_bucket.lua} (first request sees burstCapacity, idle buckets reset after
+ * ttlMs), on a clock that reads the trace's timestamps. Keys are partitioned by hash,
+ * one limiter and clock per partition, so each key's requests stay in order. The trace
+ * is streamed {@code --chunk-lines} at a time: each chunk is split into partitions that
+ * run as fork-join tasks while the next chunk is parsed. Memory is bounded by the
+ * chunk and by the keys active within a ttlMs, never by the trace length.
+ *
+ * <p>Options: {@code --trace}, {@code --rules} (required), {@code --partitions}
+ * (default: available processors), {@code --chunk-lines} (default 1000000).
+ */
+public final class TraceReplay {
+
+    private TraceReplay() {}
+
+    public static void main(String[] args) throws Exception {
+        Options opts = Options.parse(args);
+        Map<String, RateLimitRule> rules = readRules(opts.rules());
+
+        long start = System.nanoTime();
+        Replay replay = replay(opts.trace(), rules, opts.partitions(), opts.chunkLines());
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Map<String, RuleStats> stats = replay.stats();
+
+        long lines = 0;
+        System.out.println();
+        System.out.println("ruleId               requests    allowed     denied   deny%  tooHigh  retry p50 ms  p90 ms  p99 ms  max ms");
+        for (Map.Entry<String, RuleStats> e : new TreeMap<>(stats).entrySet()) {
+            RuleStats s = e.getValue();
+            lines += s.requests;
+            System.out.printf("%-18s %11d %10d %10d %7.2f %8d %13s %7s %7s %7s%n",
+                    e.getKey(), s.requests, s.allowed, s.denied(), s.denyPercent(), s.costTooHigh,
+                    s.retryAfter.percentile(0.50), s.retryAfter.percentile(0.90),
+                    s.retryAfter.percentile(0.99), s.retryAfter.max());
+        }
+        System.out.printf("%n%d requests in %.1f s (%.0f/s), %d malformed lines skipped%n",
+                lines, seconds, lines / seconds, replay.malformed());
+    }
+
+    /** Command line; {@code --name=value} only, and an unknown name is an error rather than ignored. */
+    record Options(Path trace, Path rules, int partitions, int chunkLines) {
+
+        static Options parse(String[] args) {
+            Map<String, String> opts = new HashMap<>();
+            for (String a : args) {
+                int eq = a.indexOf('=');
+                if (!a.startsWith("--") || eq < 0) throw new IllegalArgumentException("expected --name=value, got " + a);
+                String name = a.substring(2, eq);
+                if (!List.of("trace", "rules", "partitions", "chunk-lines").contains(name)) {
+                    throw new IllegalArgumentException("unknown option --" + name);
+                }
+                opts.put(name, a.substring(eq + 1));
+            }
+            return new Options(
+                    Path.of(required(opts, "trace")),
+                    Path.of(required(opts, "rules")),
+                    positive(opts, "partitions", Runtime.getRuntime().availableProcessors()),
+                    positive(opts, "chunk-lines", 1_000_000));
+        }
+
+        private static String required(Map<String, String> opts, String name) {
+            String v = opts.get(name);
+            if (v == null || v.isEmpty()) throw new IllegalArgumentException("--" + name + " is required");
+            return v;
+        }
+
+        private static int positive(Map<String, String> opts, String name, int defaultValue) {
+            String v = opts.get(name);
+            if (v == null) return defaultValue;
+            try {
+                int n = Integer.parseInt(v);
+                if (n > 0) return n;
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException("--" + name + " must be a positive integer, got " + v);
+        }
+    }
+
+    /** Per-rule counters plus the trace lines that could not be parsed. */
+    record Replay(Map<String, RuleStats> stats, long malformed) {}
+
+    static Replay replay(Path trace, Map<String, RateLimitRule> rules, int partitions, int chunkLines)
+            throws IOException {
+        Partition[] parts = new Partition[Math.max(1, partitions)];
+        for (int p = 0; p < parts.length; p++) parts[p] = new Partition(rules);
+
+        AtomicLong malformed = new AtomicLong();
+        ForkJoinPool pool = new ForkJoinPool(parts.length);
+        try (BufferedReader in = open(trace)) {
+            Chunk chunk = Chunk.read(in, parts.length, chunkLines, malformed);
+            while (chunk != null) {
+                Chunk current = chunk;
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(parts.length);
+                for (int p = 0; p < parts.length; p++) {
+                    int partition = p;
+                    tasks.add(pool.submit(() -> parts[partition].run(current.lines.get(partition))));
+                }
+                chunk = Chunk.read(in, parts.length, chunkLines, malformed);
+                for (ForkJoinTask<?> t : tasks) t.join();
+            }
+        } finally {
+            pool.shutdownNow();
+            for (Partition p : parts) p.limiter.shutdown();
+        }
+
+        Map<String, RuleStats> merged = new HashMap<>();
+        for (Partition p : parts) {
+            p.stats.forEach((ruleId, s) -> merged.computeIfAbsent(ruleId, id -> new RuleStats()).add(s));
+        }
+        return new Replay(merged, malformed.get());
+    }
+
+    /** One trace line, already parsed by the reader thread. */
+    private record Line(long timestampMs, String key, String ruleId, int cost) {}
+
+    /** Up to chunkLines trace lines, grouped by the partition of their key. */
+    private record Chunk(List<List<Line>> lines) {
+
+        static Chunk read(BufferedReader in, int partitions, int chunkLines, AtomicLong malformed) throws IOException {
+            List<List<Line>> lines = new ArrayList<>(partitions);
+            for (int p = 0; p < partitions; p++) lines.add(new ArrayList<>(chunkLines / partitions + 16));
+
+            int n = 0;
+            String raw;
+            while (n < chunkLines && (raw = in.readLine()) != null) {
+                if (raw.isEmpty() || raw.charAt(0) == '#') continue;
+                Line line = parse(raw);
+                if (line == null) {
+                    malformed.incrementAndGet();
+                    continue;
+                }
+                int h = line.key().hashCode();
+                lines.get(Math.floorMod(h ^ (h >>> 16), partitions)).add(line);
+                n++;
+            }
+            return n == 0 ? null : new Chunk(lines);
+        }
+
+        // Null for a line that is not timestampMs,key,ruleId[,cost] with a non-empty key and ruleId.
+        private static Line parse(String raw) {
+            int a = raw.indexOf(',');
+            int b = a < 0 ? -1 : raw.indexOf(',', a + 1);
+            if (b < 0) return null;
+            int c = raw.indexOf(',', b + 1);
+            String key = raw.substring(a + 1, b);
+            String ruleId = c < 0 ? raw.substring(b + 1) : raw.substring(b + 1, c);
+            if (key.isEmpty() || ruleId.isEmpty()) return null;
+            try {
+                long ts = Long.parseLong(raw, 0, a, 10);
+                int cost = c < 0 ? 1 : Integer.parseInt(raw, c + 1, raw.length(), 10);
+                return cost < 1 ? null : new Line(ts, key, ruleId, cost);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    /** A share of the keys: its own limiter, clock and counters, only ever run by one task at a time. */
+    private static final class Partition {
+        final Map<String, RateLimitRule> rules;
+        final TraceClock clock = new TraceClock();
+        final InMemoryRateLimiter limiter =
+                new InMemoryRateLimiter(clock, new InMemoryProperties(16, 1024, Duration.ofSeconds(5)));
+        final Map<String, RuleStats> stats = new HashMap<>();
+
+        Partition(Map<String, RateLimitRule> rules) {
+            this.rules = rules;
+        }
+
+        void run(List<Line> lines) {
+            for (Line line : lines) {
+                RateLimitRule rule = rules.get(line.ruleId());
+                if (rule == null) rule = RateLimitRule.failClosed(line.ruleId());
+                RuleStats s = stats.computeIfAbsent(line.ruleId(), id -> new RuleStats());
+
+                s.requests++;
+                if (line.cost() > rule.maxCost()) {
+                    s.costTooHigh++;
+                    continue;
+                }
+                clock.millis = line.timestampMs();
+                RateLimiter.Result r = limiter.checkAndConsume(rule, line.key(), line.cost());
+                if (r.allowed()) s.allowed++;
+                else s.retryAfter.record(r.retryAfterMs());
+            }
+        }
+    }
+
+    static final class RuleStats {
+        long requests;
+        long allowed;
+        long costTooHigh;
+        final Log2Histogram retryAfter = new Log2Histogram();
+
+        long denied() {
+            return retryAfter.count();
+        }
+
+        double denyPercent() {
+            return requests == 0 ? 0 : 100.0 * denied() / requests;
+        }
+
+        void add(RuleStats o) {
+            requests += o.requests;
+            allowed += o.allowed;
+            costTooHigh += o.costTooHigh;
+            retryAfter.add(o.retryAfter);
+        }
+    }
+
+    /**
+     * Retry-after values in power-of-two buckets: fixed size however many denials
+     * there are. Percentiles are reported as the bucket's upper bound, capped at the max.
+     */
+    static final class Log2Histogram {
+        private final long[] buckets = new long[64];
+        private long count;
+        private long max;
+
+        void record(long value) {
+            long v = Math.max(0, value);
+            buckets[64 - Long.numberOfLeadingZeros(v)]++;
+            count++;
+            max = Math.max(max, v);
+        }
+
+        long count() {
+            return count;
+        }
+
+        void add(Log2Histogram o) {
+            for (int i = 0; i < buckets.length; i++) buckets[i] += o.buckets[i];
+            count += o.count;
+            max = Math.max(max, o.max);
+        }
+
+        String percentile(double p) {
+            if (count == 0) return "-";
+            long rank = (long) Math.ceil(p * count);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen < rank) continue;
+                if (i == 0) return "0";
+                long bound = Math.min(max, (1L << i) - 1);
+                return bound == Long.MAX_VALUE ? format(bound) : "<=" + bound;
+            }
+            return format(max);
+        }
+
+        String max() {
+            return count == 0 ? "-" : format(max);
+        }
+
+        // A rule that never refills (failClosed) denies with Long.MAX_VALUE.
+        private static String format(long ms) {
+            return ms == Long.MAX_VALUE ? "never" : String.valueOf(ms);
+        }
+    }
+
+    /** Reads the timestamp of the line being decided; the limiter's sweeper may read it from its own thread. */
+    private static final class TraceClock extends Clock {
+        volatile long millis;
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+
+    static Map<String, RateLimitRule> readRules(Path path) throws IOException {
+        Map<String, RateLimitRule> rules = new HashMap<>();
+        for (String raw : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            String line = raw.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] f = line.split(",");
+            if (f.length < 5) throw new IllegalArgumentException("expected ruleId,capacity,refill,burst,ttlMs[,maxCost]: " + line);
+            String ruleId = f[0].trim();
+            rules.put(ruleId, new RateLimitRule(
+                    ruleId,
+                    "unknown",
+                    "default",
+                    Integer.parseInt(f[1].trim()),
+                    Double.parseDouble(f[2].trim()),
+                    Integer.parseInt(f[3].trim()),
+                    Long.parseLong(f[4].trim()),
+                    f.length > 5 ? Integer.parseInt(f[5].trim()) : Integer.MAX_VALUE
+            ));
+        }
+        return rules;
+    }
+
+    private static BufferedReader open(Path trace) throws IOException {
+        InputStream in = Files.newInputStream(trace);
+        if (trace.getFileName().toString().endsWith(".gz")) in = new GZIPInputStream(in, 1 << 16);
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+    }
+}
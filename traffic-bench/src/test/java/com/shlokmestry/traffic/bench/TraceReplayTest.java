@@ -0,0 +1,104 @@
+package com.shlokmestry.traffic.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+class TraceReplayTest {
+
+    // search: capacity 2, 1 token/s, first request sees 2 tokens, maxCost 3
+    private static final String RULES = """
+            # ruleId,capacity,refill,burst,ttlMs,maxCost
+            search,2,1.0,2,60000,3
+            """;
+
+    private static final String TRACE = """
+            # timestampMs,key,ruleId[,cost]
+            1000,alice,search
+            1000,alice,search
+            1000,alice,search
+            2000,alice,search
+            1000,bob,search,5
+            1500,carol,unknown
+
+            garbage
+            1000,alice
+            x,alice,search
+            1000,,search
+            1000,alice,search,zero
+            1000,alice,search,0
+            """;
+
+    @TempDir
+    Path dir;
+
+    private Map<String, RateLimitRule> rules() throws IOException {
+        return TraceReplay.readRules(Files.writeString(dir.resolve("rules.csv"), RULES));
+    }
+
+    @Test
+    void countsDecisionsPerRuleAndSkipsMalformedLines() throws IOException {
+        Path trace = Files.writeString(dir.resolve("trace.csv"), TRACE);
+
+        TraceReplay.Replay replay = TraceReplay.replay(trace, rules(), 2, 2);
+
+        assertThat(replay.malformed()).isEqualTo(6);
+        assertThat(replay.stats()).containsOnlyKeys("search", "unknown");
+
+        TraceReplay.RuleStats search = replay.stats().get("search");
+        assertThat(search.requests).isEqualTo(5);
+        assertThat(search.allowed).isEqualTo(3);
+        assertThat(search.denied()).isEqualTo(1);
+        assertThat(search.costTooHigh).isEqualTo(1);
+        assertThat(search.retryAfter.max()).isEqualTo("1000");
+
+        // Not in the rules file: fail closed, as the service would.
+        TraceReplay.RuleStats unknown = replay.stats().get("unknown");
+        assertThat(unknown.requests).isEqualTo(1);
+        assertThat(unknown.denied()).isEqualTo(1);
+        assertThat(unknown.retryAfter.max()).isEqualTo("never");
+    }
+
+    @Test
+    void gzippedTraceGivesTheSameCounts() throws IOException {
+        Path trace = dir.resolve("trace.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(trace))) {
+            out.write(TRACE.getBytes(StandardCharsets.UTF_8));
+        }
+
+        TraceReplay.Replay replay = TraceReplay.replay(trace, rules(), 1, 1_000);
+
+        assertThat(replay.malformed()).isEqualTo(6);
+        assertThat(replay.stats().get("search").allowed).isEqualTo(3);
+        assertThat(replay.stats().get("search").denied()).isEqualTo(1);
+    }
+
+    @Test
+    void optionsRejectUnknownMissingAndNonPositiveValues() {
+        TraceReplay.Options opts = TraceReplay.Options.parse(
+                new String[] {"--trace=t.csv", "--rules=r.csv", "--partitions=3"});
+        assertThat(opts.trace()).isEqualTo(Path.of("t.csv"));
+        assertThat(opts.partitions()).isEqualTo(3);
+        assertThat(opts.chunkLines()).isEqualTo(1_000_000);
+
+        assertThatThrownBy(() -> TraceReplay.Options.parse(new String[] {"--trace=t.csv"}))
+                .hasMessageContaining("--rules is required");
+        assertThatThrownBy(() -> TraceReplay.Options.parse(new String[] {"--trace=t.csv", "--rules=r.csv", "--chunk=5"}))
+                .hasMessageContaining("unknown option --chunk");
+        assertThatThrownBy(() -> TraceReplay.Options.parse(new String[] {"--trace=t.csv", "--rules=r.csv", "--partitions=0"}))
+                .hasMessageContaining("positive");
+        assertThatThrownBy(() -> TraceReplay.Options.parse(new String[] {"trace=t.csv"}))
+                .hasMessageContaining("--name=value");
+    }
+}
@@ -0,0 +1,32 @@
+package com.shlokmestry.traffic.client;
+
+import java.util.function.BiConsumer;
+
+import com.shlokmestry.traffic.ratelimit.RateLimiter;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+/**
+ * Outcome of one enforce call, independent of how it is sent back.
+ * {@code result} is null for COST_TOO_HIGH and FAIL_CLOSED.
+ */
+public record Decision(Status status, RateLimitRule rule, RateLimiter.Result result) {
+
+    public enum Status { ALLOWED, LIMITED, COST_TOO_HIGH, FAIL_CLOSED }
+
+    public static Decision of(RateLimitRule rule, RateLimiter.Result r) {
+        return new Decision(r.allowed() ? Status.ALLOWED : Status.LIMITED, rule, r);
+    }
+
+    public boolean allowed() {
+        return status == Status.ALLOWED;
+    }
+
+    /** The headers the service sends with this decision; none for COST_TOO_HIGH. */
+    public void headers(BiConsumer<String, String> header) {
+        switch (status) {
+            case ALLOWED, LIMITED -> RateLimitHeaders.decision(rule, result, header);
+            case FAIL_CLOSED -> RateLimitHeaders.failClosed(rule, header);
+            case COST_TOO_HIGH -> { }
+        }
+    }
+}
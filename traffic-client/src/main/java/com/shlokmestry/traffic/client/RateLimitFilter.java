@@ -0,0 +1,68 @@
+package com.shlokmestry.traffic.client;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet filter that rate-limits requests with a {@link TrafficClient}. Allowed
+ * requests continue with the {@code RateLimit-*} headers set; everything else is
+ * answered here with the status, headers and error body {@code /v1/enforce} uses.
+ *
+ * <pre>
+ * new RateLimitFilter(client, req -> new RateLimitFilter.Check("search-pro", "apiKey:" + req.getHeader("X-Api-Key"), 1))
+ * </pre>
+ *
+ * The mapper returns null for requests that are not limited.
+ */
+public class RateLimitFilter extends HttpFilter {
+
+    public record Check(String ruleId, String key, int cost) {}
+
+    private static final byte[] RATE_LIMITED = "{\"code\":\"rate_limited\",\"message\":\"Too many requests\"}"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] UNAVAILABLE = "{\"code\":\"rate_limited\",\"message\":\"Rate limiter unavailable\"}"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] COST_TOO_HIGH = "{\"code\":\"cost_too_high\",\"message\":\"cost exceeds maxCost\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final TrafficClient client;
+    private final Function<HttpServletRequest, Check> checks;
+
+    public RateLimitFilter(TrafficClient client, Function<HttpServletRequest, Check> checks) {
+        this.client = client;
+        this.checks = checks;
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+        Check check = checks.apply(req);
+        if (check == null) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        Decision d = client.check(check.ruleId(), check.key(), check.cost());
+        d.headers(res::setHeader);
+
+        switch (d.status()) {
+            case ALLOWED -> chain.doFilter(req, res);
+            case LIMITED -> reject(res, 429, RATE_LIMITED);
+            case FAIL_CLOSED -> reject(res, 429, UNAVAILABLE);
+            case COST_TOO_HIGH -> reject(res, HttpServletResponse.SC_BAD_REQUEST, COST_TOO_HIGH);
+        }
+    }
+
+    private static void reject(HttpServletResponse res, int status, byte[] body) throws IOException {
+        res.setStatus(status);
+        res.setContentType("application/json");
+        res.getOutputStream().write(body);
+    }
+}
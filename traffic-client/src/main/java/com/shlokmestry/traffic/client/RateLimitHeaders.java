@@ -0,0 +1,57 @@
+package com.shlokmestry.traffic.client;
+
+import java.util.function.BiConsumer;
+
+import com.shlokmestry.traffic.ratelimit.RateLimiter;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+/**
+ * The {@code RateLimit-*} and {@code Retry-After} headers of a decision, written
+ * through a setter so the service's controller and {@link RateLimitFilter} send
+ * exactly the same values.
+ */
+public final class RateLimitHeaders {
+
+    public static final String LIMIT = "RateLimit-Limit";
+    public static final String REMAINING = "RateLimit-Remaining";
+    public static final String RESET = "RateLimit-Reset";
+    public static final String RETRY_AFTER = "Retry-After";
+
+    public static final long FAIL_CLOSED_RETRY_AFTER_SECONDS = 1;
+    private static final long RETRY_AFTER_SECONDS_IF_NO_REFILL = 3600; // 1 hour
+    private static final long RETRY_AFTER_SECONDS_MAX = 86400; // 24 hours
+
+    private RateLimitHeaders() {}
+
+    /** Headers for an allowed (204) or rate-limited (429) decision. */
+    public static void decision(RateLimitRule rule, RateLimiter.Result r, BiConsumer<String, String> header) {
+        header.accept(LIMIT, String.valueOf(rule.capacity()));
+        header.accept(REMAINING, String.valueOf(Math.max(0, r.remaining())));
+
+        if (r.allowed()) {
+            header.accept(RESET, "0");
+            return;
+        }
+
+        String retryAfter = String.valueOf(retryAfterSeconds(rule, r));
+        header.accept(RETRY_AFTER, retryAfter);
+        header.accept(RESET, retryAfter);
+    }
+
+    /** Headers for a 429 sent because the limiter itself failed. */
+    public static void failClosed(RateLimitRule rule, BiConsumer<String, String> header) {
+        header.accept(LIMIT, String.valueOf(rule.capacity()));
+        header.accept(REMAINING, "0");
+        header.accept(RETRY_AFTER, String.valueOf(FAIL_CLOSED_RETRY_AFTER_SECONDS));
+        header.accept(RESET, String.valueOf(FAIL_CLOSED_RETRY_AFTER_SECONDS));
+    }
+
+    public static long retryAfterSeconds(RateLimitRule rule, RateLimiter.Result r) {
+        // Window rules have no refill; their counters reset when the window ends.
+        if (!rule.windowed() && rule.refillTokensPerSecond() <= 0.0) {
+            return RETRY_AFTER_SECONDS_IF_NO_REFILL;
+        }
+        long retryAfterSeconds = Math.max(1, (long) Math.ceil(r.retryAfterMs() / 1000.0));
+        return Math.min(retryAfterSeconds, RETRY_AFTER_SECONDS_MAX);
+    }
+}
@@ -0,0 +1,228 @@
+package com.shlokmestry.traffic.client;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.shlokmestry.traffic.ratelimit.AdaptiveLimits;
+import com.shlokmestry.traffic.ratelimit.AdaptiveProperties;
+import com.shlokmestry.traffic.ratelimit.BreakerProperties;
+import com.shlokmestry.traffic.ratelimit.BucketProperties;
+import com.shlokmestry.traffic.ratelimit.CoalescingProperties;
+import com.shlokmestry.traffic.ratelimit.DenyCache;
+import com.shlokmestry.traffic.ratelimit.DenyCacheProperties;
+import com.shlokmestry.traffic.ratelimit.InMemoryProperties;
+import com.shlokmestry.traffic.ratelimit.LeaseProperties;
+import com.shlokmestry.traffic.ratelimit.RateLimiter;
+import com.shlokmestry.traffic.ratelimit.RedisCircuitBreaker;
+import com.shlokmestry.traffic.ratelimit.TokenBucketRateLimiter;
+import com.shlokmestry.traffic.redis.RedisShards;
+import com.shlokmestry.traffic.redis.ShardProperties;
+import com.shlokmestry.traffic.rules.CachingRuleStore;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+import com.shlokmestry.traffic.rules.RedisRuleStore;
+import com.shlokmestry.traffic.rules.RuleCacheProperties;
+import com.shlokmestry.traffic.rules.RuleInvalidationListener;
+import com.shlokmestry.traffic.rules.RuleStore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Rate-limit decisions made in-process, straight against the traffic Redis, for
+ * services that would otherwise call {@code POST /v1/enforce}: same rules, scripts,
+ * fallbacks, deny cache and headers, without the HTTP hop and JSON. Rules come from
+ * a local cache kept fresh by the service's invalidation channel; concurrent
+ * decisions can be coalesced into one pipeline.
+ *
+ * <pre>
+ * TrafficClient client = TrafficClient.builder(connectionFactory)
+ *         .meterRegistry(registry)
+ *         .coalescing(new CoalescingProperties(true, 64, Duration.ofNanos(200_000), 10_000, 2, Duration.ofSeconds(1)))
+ *         .build();
+ * Decision d = client.check("search-pro", "apiKey:" + apiKey, 1);
+ * </pre>
+ *
+ * Rules are still managed through the service's {@code /v1/rules} API.
+ */
+public final class TrafficClient implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TrafficClient.class);
+
+    private final RuleStore rules;
+    private final TokenBucketRateLimiter limiter;
+    private final AdaptiveLimits adaptive;
+    private final DenyCache denyCache;
+    private final RedisShards shards;
+    private final RuleInvalidationListener invalidations;   // null without a rule cache
+
+    private TrafficClient(Builder b) {
+        StringRedisTemplate redis = new StringRedisTemplate(b.connectionFactory);
+        this.shards = b.shards.nodes().isEmpty() ? RedisShards.single(redis) : RedisShards.connect(b.shards);
+
+        this.denyCache = new DenyCache(b.denyCache, b.registry);
+
+        RedisRuleStore store = new RedisRuleStore(redis);
+        if (b.ruleCache.enabled()) {
+            CachingRuleStore cache = new CachingRuleStore(store, redis, b.ruleCache, b.registry);
+            this.rules = cache;
+            this.invalidations = new RuleInvalidationListener(
+                    b.connectionFactory, b.ruleCache.channel(), RuleInvalidationListener.RETRY_INTERVAL, ruleId -> {
+                        cache.invalidate(ruleId);
+                        denyCache.invalidateRule(ruleId);
+                    });
+            invalidations.start();
+        } else {
+            this.rules = store;
+            this.invalidations = null;
+        }
+
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker(b.breaker, b.registry);
+        this.adaptive = new AdaptiveLimits(shards, breaker, b.adaptive, b.registry);
+        this.limiter = new TokenBucketRateLimiter(shards, b.registry, b.coalescing, b.lease, b.memory, b.buckets, breaker, adaptive);
+    }
+
+    public static Builder builder(RedisConnectionFactory connectionFactory) {
+        return new Builder(connectionFactory);
+    }
+
+    /** The decision {@code POST /v1/enforce} would make for this request. Never throws. */
+    public Decision check(String ruleId, String key, int cost) {
+        // Already throttled within its retry window: answer from memory, Redis is not touched.
+        DenyCache.Hit cached = denyCache.check(ruleId, key, cost);
+        if (cached != null && cost <= cached.rule().maxCost()) {
+            return new Decision(Decision.Status.LIMITED, cached.rule(), cached.result());
+        }
+
+        RateLimitRule rule;
+        try {
+            rule = rules.get(ruleId).orElseGet(() -> RateLimitRule.failClosed(ruleId));
+        } catch (Exception e) {
+            rule = RateLimitRule.failClosed(ruleId);
+        }
+
+        if (cost > rule.maxCost()) {
+            return new Decision(Decision.Status.COST_TOO_HIGH, rule, null);
+        }
+
+        final RateLimiter.Result r;
+        try {
+            r = limiter.checkAndConsume(rule, key, cost);
+        } catch (Exception e) {
+            log.warn("ratelimit fail_closed reason=limiter_exception ruleId={} cost={}", ruleId, cost, e);
+            return new Decision(Decision.Status.FAIL_CLOSED, rule, null);
+        }
+
+        denyCache.record(rule, key, cost, r);
+        return Decision.of(rule, r);
+    }
+
+    /** Decisions for several requests, pipelined to Redis together; in input order. */
+    public List<RateLimiter.Result> checkAll(List<RateLimiter.Check> checks) {
+        return limiter.checkAndConsumeAll(checks);
+    }
+
+    /**
+     * How a downstream call admitted under {@code ruleId} went, for rules with a
+     * targetLatencyMs; other rules ignore it. Like {@code POST /v1/rules/{ruleId}/feedback}.
+     */
+    public void report(String ruleId, long latencyMs, boolean error) {
+        try {
+            rules.get(ruleId).ifPresent(rule -> adaptive.record(rule, latencyMs, error));
+        } catch (Exception e) {
+            // Feedback is best effort; a lost sample only delays the next adjustment.
+        }
+    }
+
+    @Override
+    public void close() {
+        if (invalidations != null) invalidations.close();
+        adaptive.close();
+        limiter.shutdown();
+        shards.close();
+    }
+
+    /** Defaults match the service's {@code application.yaml}. */
+    public static final class Builder {
+        private final RedisConnectionFactory connectionFactory;
+        private MeterRegistry registry = new SimpleMeterRegistry();
+        private RuleCacheProperties ruleCache =
+                new RuleCacheProperties(true, 10_000, Duration.ofSeconds(30), "traffic:rules:invalidate");
+        private CoalescingProperties coalescing =
+                new CoalescingProperties(false, 64, Duration.ofNanos(200_000), 10_000, 2, Duration.ofSeconds(1));
+        private LeaseProperties lease =
+                new LeaseProperties(Duration.ofMillis(250), Duration.ofMillis(100), Duration.ofSeconds(60));
+        private InMemoryProperties memory = new InMemoryProperties(64, 256, Duration.ofSeconds(30));
+        private BucketProperties buckets = new BucketProperties(true, false);
+        private DenyCacheProperties denyCache = new DenyCacheProperties(true, 100_000, Duration.ofSeconds(60));
+        private BreakerProperties breaker = new BreakerProperties(true, Duration.ofSeconds(10), 20, 0.5,
+                Duration.ofMillis(250), 0.5, Duration.ofSeconds(5), 10);
+        private ShardProperties shards = new ShardProperties(List.of(), 160, Duration.ofSeconds(2));
+        private AdaptiveProperties adaptive = new AdaptiveProperties(Duration.ofSeconds(1), 0.05, 0.5, 0.1, 1.0, 0.05,
+                Duration.ofMinutes(10));
+
+        private Builder(RedisConnectionFactory connectionFactory) {
+            this.connectionFactory = connectionFactory;
+        }
+
+        public Builder meterRegistry(MeterRegistry registry) {
+            this.registry = registry;
+            return this;
+        }
+
+        public Builder ruleCache(RuleCacheProperties ruleCache) {
+            this.ruleCache = ruleCache;
+            return this;
+        }
+
+        public Builder coalescing(CoalescingProperties coalescing) {
+            this.coalescing = coalescing;
+            return this;
+        }
+
+        public Builder lease(LeaseProperties lease) {
+            this.lease = lease;
+            return this;
+        }
+
+        public Builder memory(InMemoryProperties memory) {
+            this.memory = memory;
+            return this;
+        }
+
+        /** Same {@code traffic.ratelimit.buckets} key scheme as the service, or buckets will not be shared with it. */
+        public Builder buckets(BucketProperties buckets) {
+            this.buckets = buckets;
+            return this;
+        }
+
+        public Builder denyCache(DenyCacheProperties denyCache) {
+            this.denyCache = denyCache;
+            return this;
+        }
+
+        public Builder breaker(BreakerProperties breaker) {
+            this.breaker = breaker;
+            return this;
+        }
+
+        /** Same {@code traffic.redis} shard list as the service, or buckets will not be shared with it. */
+        public Builder shards(ShardProperties shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        public Builder adaptive(AdaptiveProperties adaptive) {
+            this.adaptive = adaptive;
+            return this;
+        }
+
+        public TrafficClient build() {
+            return new TrafficClient(this);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.shlokmestry.traffic.observability;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "traffic.observability.audit")
+public record AuditProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("file") Sink sink,
+        @DefaultValue("65536") int capacity,            // ring slots, rounded up to a power of two; full = drop
+        @DefaultValue("512") int batchSize,             // events handed to the sink per write
+        @DefaultValue("100ms") Duration maxWait,         // drainer sleep when the ring runs dry
+        @DefaultValue("0.01") double allowedSampleRate, // share of allowed decisions recorded; denials always are
+        @DefaultValue File file,
+        @DefaultValue Stream stream
+) {
+
+    public enum Sink { FILE, REDIS_STREAM }
+
+    /** Rolling NDJSON files: {@code decisions.ndjson}, then {@code .1} .. {@code .maxFiles} after it rolls. */
+    public record File(
+            @DefaultValue("audit") Path directory,
+            @DefaultValue("64MB") DataSize maxFileSize,
+            @DefaultValue("10") int maxFiles
+    ) {}
+
+    /** One pipelined {@code XADD} per batch, trimmed to about {@code maxLength} entries. */
+    public record Stream(
+            @DefaultValue("traffic:audit") String key,
+            @DefaultValue("1000000") long maxLength
+    ) {}
+}
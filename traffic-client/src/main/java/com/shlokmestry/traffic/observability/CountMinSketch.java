@@ -0,0 +1,63 @@
+package com.shlokmestry.traffic.observability;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch over int hashes: {@code depth} rows of {@code width} counters,
+ * updated with atomic adds, so any number of threads can count without locks in a
+ * fixed amount of memory. An estimate never undercounts; it overcounts by at most
+ * about {@code e / width} of the total weight with probability {@code 1 - e^-depth}.
+ */
+final class CountMinSketch {
+
+    private final int depth;
+    private final int mask;
+    private final AtomicLongArray counters;
+
+    CountMinSketch(int depth, int width) {
+        this.depth = Math.max(1, depth);
+        int w = Integer.highestOneBit(Math.max(2, width) - 1) << 1;
+        this.mask = w - 1;
+        this.counters = new AtomicLongArray(this.depth * w);
+    }
+
+    /** Adds {@code weight} and returns the new estimate, without a second pass. */
+    long add(int hash, long weight) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.addAndGet(index(hash, row), weight));
+        }
+        return estimate;
+    }
+
+    long estimate(int hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    // Each row mixes the full hash on its own. Deriving rows as h1 + row * h2 leaves only
+    // about 2 * log2(width) bits, and with millions of keys some collide with a heavy key in every row.
+    private int index(int hash, int row) {
+        return row * (mask + 1) + (mix(hash + row * 0x9E3779B9) & mask);
+    }
+
+    // Concurrent adds may land between a read and its halved write; counts are approximate anyway.
+    void halve() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.getAndUpdate(i, v -> v >> 1);
+        }
+    }
+
+    // Murmur3 finaliser: a bijection, so distinct hashes stay distinct within a row.
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
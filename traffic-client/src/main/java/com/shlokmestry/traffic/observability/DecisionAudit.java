@@ -0,0 +1,165 @@
+package com.shlokmestry.traffic.observability;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shlokmestry.traffic.observability.DecisionTrace.Outcome;
+import com.shlokmestry.traffic.ratelimit.RateLimiter;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Per-decision audit records without a log line per request. The request thread
+ * only writes the decision into a preallocated {@link DecisionRing} slot; one
+ * background thread drains it in batches of {@code batchSize} to a
+ * {@link DecisionSink}. Every denial, fail-closed and cost rejection is offered;
+ * allowed decisions are sampled at {@code allowedSampleRate}.
+ *
+ * <p>A full ring drops the event rather than blocking the request, counted as
+ * {@code ratelimit.audit.events{result=dropped}}; {@code written} and {@code failed}
+ * (sink errors) complete the picture, and {@code ratelimit.audit.queue.depth} shows
+ * how far the drainer is behind.
+ */
+public class DecisionAudit implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DecisionAudit.class);
+
+    private final boolean enabled;
+    private final double allowedSampleRate;
+    private final LongSupplier clock;
+    private final DecisionRing ring;
+    private final DecisionSink sink;
+    private final DecisionEvent[] batch;
+    private final long maxWaitNanos;
+
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+
+    private final Thread drainer;
+    private volatile boolean running = true;
+    private boolean failing;        // drainer thread only: log the first failure of a run
+
+    public DecisionAudit(MeterRegistry registry, AuditProperties props, DecisionSink sink) {
+        this(registry, props, sink, System::currentTimeMillis);
+    }
+
+    DecisionAudit(MeterRegistry registry, AuditProperties props, DecisionSink sink, LongSupplier clock) {
+        this.enabled = props.enabled() && sink != null;
+        this.allowedSampleRate = props.allowedSampleRate();
+        this.clock = clock;
+        this.sink = sink;
+        this.maxWaitNanos = Math.max(1, props.maxWait().toNanos());
+
+        if (!enabled) {
+            this.ring = null;
+            this.batch = null;
+            this.written = null;
+            this.dropped = null;
+            this.failed = null;
+            this.drainer = null;
+            return;
+        }
+
+        this.ring = new DecisionRing(props.capacity());
+        this.batch = new DecisionEvent[Math.max(1, props.batchSize())];
+        for (int i = 0; i < batch.length; i++) batch[i] = new DecisionEvent();
+
+        this.written = counter(registry, "written");
+        this.dropped = counter(registry, "dropped");
+        this.failed = counter(registry, "failed");
+        Gauge.builder("ratelimit.audit.queue.depth", ring, DecisionRing::size)
+                .description("Decision events waiting for the audit sink")
+                .register(registry);
+
+        this.drainer = new Thread(this::drainLoop, "ratelimit-audit-drain");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /** Allowed or limited by the limiter; {@code cached} for deny-cache answers. */
+    public void record(RateLimitRule rule, String key, int cost, RateLimiter.Result r, boolean cached) {
+        Outcome outcome = r.allowed() ? Outcome.ALLOWED : cached ? Outcome.CACHED : Outcome.LIMITED;
+        record(rule, key, cost, outcome, r.retryAfterMs(), r.remaining());
+    }
+
+    /** Decisions without a limiter result: FAIL_CLOSED and COST_TOO_HIGH. */
+    public void record(RateLimitRule rule, String key, int cost, Outcome outcome) {
+        record(rule, key, cost, outcome, 0, 0);
+    }
+
+    private void record(RateLimitRule rule, String key, int cost, Outcome outcome, long retryAfterMs, long remaining) {
+        if (!enabled) return;
+        if (outcome == Outcome.ALLOWED && ThreadLocalRandom.current().nextDouble() >= allowedSampleRate) return;
+
+        if (!ring.offer(clock.getAsLong(), rule.ruleId(), rule.endpoint(), rule.plan(), key, cost,
+                outcome, retryAfterMs, remaining)) {
+            dropped.increment();
+        }
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drainOnce() < batch.length) LockSupport.parkNanos(this, maxWaitNanos);
+        }
+        // Stopping: whatever is still queued gets one last chance.
+        while (drainOnce() > 0) {
+            // keep draining
+        }
+    }
+
+    private int drainOnce() {
+        int n = ring.drain(batch, batch.length);
+        if (n == 0) return 0;
+
+        List<DecisionEvent> events = Arrays.asList(batch).subList(0, n);
+        try {
+            sink.write(events);
+            written.increment(n);
+            failing = false;
+        } catch (Exception e) {
+            failed.increment(n);
+            if (!failing) log.warn("ratelimit audit sink failed events={}; dropping until it recovers", n, e);
+            failing = true;
+        }
+        for (int i = 0; i < n; i++) batch[i].clear();
+        return n;
+    }
+
+    private static Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("ratelimit.audit.events")
+                .description("Decision audit events by result: written to the sink, dropped (ring full) or failed (sink error)")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        if (!enabled) return;
+
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            sink.close();
+        } catch (Exception e) {
+            log.warn("ratelimit audit sink close failed", e);
+        }
+    }
+}
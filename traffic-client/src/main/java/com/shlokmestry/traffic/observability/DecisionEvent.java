@@ -0,0 +1,53 @@
+package com.shlokmestry.traffic.observability;
+
+import com.shlokmestry.traffic.observability.DecisionTrace.Outcome;
+
+/**
+ * One audited decision. Instances are preallocated ring slots and batch entries
+ * that {@link DecisionAudit} overwrites in place, so a {@link DecisionSink} must
+ * copy whatever it keeps beyond {@link DecisionSink#write}.
+ */
+public final class DecisionEvent {
+
+    private long timestampMs;
+    private String ruleId;
+    private String endpoint;
+    private String plan;
+    private String key;
+    private int cost;
+    private Outcome outcome;
+    private long retryAfterMs;
+    private long remaining;
+
+    void set(long timestampMs, String ruleId, String endpoint, String plan, String key, int cost,
+             Outcome outcome, long retryAfterMs, long remaining) {
+        this.timestampMs = timestampMs;
+        this.ruleId = ruleId;
+        this.endpoint = endpoint;
+        this.plan = plan;
+        this.key = key;
+        this.cost = cost;
+        this.outcome = outcome;
+        this.retryAfterMs = retryAfterMs;
+        this.remaining = remaining;
+    }
+
+    void copyFrom(DecisionEvent e) {
+        set(e.timestampMs, e.ruleId, e.endpoint, e.plan, e.key, e.cost, e.outcome, e.retryAfterMs, e.remaining);
+    }
+
+    // Drop references so a drained slot does not keep request strings alive.
+    void clear() {
+        ruleId = endpoint = plan = key = null;
+    }
+
+    public long timestampMs() { return timestampMs; }
+    public String ruleId() { return ruleId; }
+    public String endpoint() { return endpoint; }
+    public String plan() { return plan; }
+    public String key() { return key; }
+    public int cost() { return cost; }
+    public Outcome outcome() { return outcome; }
+    public long retryAfterMs() { return retryAfterMs; }
+    public long remaining() { return remaining; }
+}
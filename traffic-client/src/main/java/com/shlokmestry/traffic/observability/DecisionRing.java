@@ -0,0 +1,84 @@
+package com.shlokmestry.traffic.observability;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer queue of preallocated {@link DecisionEvent}
+ * slots. Each slot has a sequence number: a producer claims position {@code p} with
+ * one CAS when the slot's sequence is {@code p}, fills it and publishes {@code p + 1};
+ * the consumer reads it once it sees {@code p + 1} and hands the slot back as
+ * {@code p + capacity}. Offering never blocks or allocates; a full ring refuses.
+ */
+final class DecisionRing {
+
+    private final DecisionEvent[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;     // written by the consumer only
+
+    DecisionRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new DecisionEvent[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new DecisionEvent();
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /** False if the ring is full; the event is then dropped by the caller. */
+    boolean offer(long timestampMs, String ruleId, String endpoint, String plan, String key, int cost,
+                  DecisionTrace.Outcome outcome, long retryAfterMs, long remaining) {
+        long pos = tail.get();
+        int idx;
+        for (;;) {
+            idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) break;
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+
+        slots[idx].set(timestampMs, ruleId, endpoint, plan, key, cost, outcome, retryAfterMs, remaining);
+        sequences.lazySet(idx, pos + 1);
+        return true;
+    }
+
+    /**
+     * Copies up to {@code max} published events into {@code into} in order and frees
+     * their slots. Single consumer only.
+     */
+    int drain(DecisionEvent[] into, int max) {
+        long pos = head;
+        int n = 0;
+        while (n < max) {
+            int idx = (int) (pos & mask);
+            if (sequences.get(idx) != pos + 1) break;
+
+            DecisionEvent slot = slots[idx];
+            into[n++].copyFrom(slot);
+            slot.clear();
+            sequences.lazySet(idx, pos + slots.length);
+            pos++;
+        }
+        head = pos;
+        return n;
+    }
+
+    /** Claimed but not yet drained; approximate while producers are running. */
+    int size() {
+        return (int) Math.max(0, Math.min(slots.length, tail.get() - head));
+    }
+}
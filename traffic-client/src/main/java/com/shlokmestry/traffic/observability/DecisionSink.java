@@ -0,0 +1,18 @@
+package com.shlokmestry.traffic.observability;
+
+import java.util.List;
+
+/**
+ * Where {@link DecisionAudit} delivers decision events. Called from the single
+ * drainer thread only, so implementations need no locking; the events are reused
+ * after {@link #write} returns.
+ */
+public interface DecisionSink extends AutoCloseable {
+
+    /** A failure counts the whole batch as failed; the drainer carries on with the next one. */
+    void write(List<DecisionEvent> batch) throws Exception;
+
+    @Override
+    default void close() throws Exception {
+    }
+}
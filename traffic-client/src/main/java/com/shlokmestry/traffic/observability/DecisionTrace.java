@@ -0,0 +1,46 @@
+package com.shlokmestry.traffic.observability;
+
+/**
+ * Where the time of the decision the current thread is handling went. Started and
+ * finished by {@link DecisionTracer}; the rule store lookup and the limiter add their
+ * stages with {@link #record} without the trace being passed down. Outside a traced
+ * request (batch, benchmarks, background work) recording does nothing.
+ */
+public final class DecisionTrace {
+
+    public enum Stage { RULE_LOOKUP, SCRIPT, DECODE }
+
+    public enum Outcome { ALLOWED, LIMITED, CACHED, FAIL_CLOSED, COST_TOO_HIGH, ERROR }
+
+    static final Stage[] STAGES = Stage.values();
+
+    private static final ThreadLocal<DecisionTrace> CURRENT = new ThreadLocal<>();
+
+    final long startNanos;
+    final long[] stageNanos = new long[STAGES.length];
+    Outcome outcome = Outcome.ERROR;    // until the handler says otherwise
+
+    private DecisionTrace(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    static DecisionTrace start(long startNanos) {
+        DecisionTrace t = new DecisionTrace(startNanos);
+        CURRENT.set(t);
+        return t;
+    }
+
+    void end() {
+        CURRENT.remove();
+    }
+
+    public static void record(Stage stage, long nanos) {
+        DecisionTrace t = CURRENT.get();
+        if (t != null) t.stageNanos[stage.ordinal()] += nanos;
+    }
+
+    public static void outcome(Outcome outcome) {
+        DecisionTrace t = CURRENT.get();
+        if (t != null) t.outcome = outcome;
+    }
+}
@@ -0,0 +1,146 @@
+package com.shlokmestry.traffic.observability;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.shlokmestry.traffic.observability.DecisionTrace.Outcome;
+import com.shlokmestry.traffic.observability.DecisionTrace.Stage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Turns finished {@link DecisionTrace}s into {@code ratelimit.stage.duration} timers
+ * (tags stage, ruleId, outcome; percentile histograms published) and keeps the
+ * slowest of them in a ring buffer for {@link SlowDecisionsEndpoint}.
+ *
+ * <p>Only the first {@code maxTaggedRules} ruleIds get their own tag, later ones are
+ * counted under {@code _other}, so unknown or churning ruleIds cannot blow up the
+ * series count.
+ */
+@Component
+public class DecisionTracer {
+
+    static final String OTHER_RULES = "_other";
+    private static final String TOTAL_STAGE = "enforce";
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final MeterRegistry registry;
+    private final Clock clock;
+    private final LongSupplier nanoTime;
+    private final int maxTaggedRules;
+    private final long slowThresholdNanos;
+
+    // [outcome][stage], last stage = whole enforce call; registered on first use.
+    private final Map<String, Timer[][]> timersByRule = new ConcurrentHashMap<>();
+
+    private final AtomicReferenceArray<SlowDecision> slowLog;
+    private final AtomicLong slowLogNext = new AtomicLong();
+
+    @Autowired
+    public DecisionTracer(MeterRegistry registry, TracingProperties props) {
+        this(registry, Clock.systemUTC(), System::nanoTime, props);
+    }
+
+    DecisionTracer(MeterRegistry registry, Clock clock, LongSupplier nanoTime, TracingProperties props) {
+        this.registry = registry;
+        this.clock = clock;
+        this.nanoTime = nanoTime;
+        this.maxTaggedRules = props.maxTaggedRules();
+        this.slowThresholdNanos = props.slowThreshold().toNanos();
+        this.slowLog = new AtomicReferenceArray<>(Math.max(1, props.slowLogSize()));
+    }
+
+    public DecisionTrace begin() {
+        return DecisionTrace.start(nanoTime.getAsLong());
+    }
+
+    public void finish(DecisionTrace trace, String ruleId, int cost) {
+        long totalNanos = nanoTime.getAsLong() - trace.startNanos;
+        trace.end();
+
+        Timer[] timers = timers(ruleId)[trace.outcome.ordinal()];
+        for (int s = 0; s < DecisionTrace.STAGES.length; s++) {
+            long nanos = trace.stageNanos[s];
+            if (nanos > 0) timer(timers, ruleId, trace.outcome, s).record(nanos, TimeUnit.NANOSECONDS);
+        }
+        timer(timers, ruleId, trace.outcome, DecisionTrace.STAGES.length).record(totalNanos, TimeUnit.NANOSECONDS);
+
+        if (totalNanos >= slowThresholdNanos) {
+            long[] st = trace.stageNanos;
+            long other = totalNanos - st[Stage.RULE_LOOKUP.ordinal()] - st[Stage.SCRIPT.ordinal()] - st[Stage.DECODE.ordinal()];
+            SlowDecision d = new SlowDecision(
+                    clock.instant(),
+                    ruleId,
+                    cost,
+                    name(trace.outcome),
+                    millis(totalNanos),
+                    millis(st[Stage.RULE_LOOKUP.ordinal()]),
+                    millis(st[Stage.SCRIPT.ordinal()]),
+                    millis(st[Stage.DECODE.ordinal()]),
+                    millis(Math.max(0, other))
+            );
+            slowLog.set((int) (slowLogNext.getAndIncrement() % slowLog.length()), d);
+        }
+    }
+
+    /** Slow decisions still in the ring buffer, slowest first. */
+    public List<SlowDecision> slowDecisions() {
+        List<SlowDecision> out = new ArrayList<>(slowLog.length());
+        for (int i = 0; i < slowLog.length(); i++) {
+            SlowDecision d = slowLog.get(i);
+            if (d != null) out.add(d);
+        }
+        out.sort(Comparator.comparingDouble(SlowDecision::totalMs).reversed());
+        return out;
+    }
+
+    private Timer[][] timers(String ruleId) {
+        Timer[][] t = timersByRule.get(ruleId);
+        if (t != null) return t;
+
+        if (timersByRule.size() >= maxTaggedRules) {
+            return timersByRule.computeIfAbsent(OTHER_RULES, r -> new Timer[OUTCOMES.length][DecisionTrace.STAGES.length + 1]);
+        }
+        return timersByRule.computeIfAbsent(ruleId, r -> new Timer[OUTCOMES.length][DecisionTrace.STAGES.length + 1]);
+    }
+
+    // Racing threads may both register; the registry hands them the same timer.
+    private Timer timer(Timer[] timers, String ruleId, Outcome outcome, int stage) {
+        Timer t = timers[stage];
+        if (t != null) return t;
+
+        String ruleTag = timersByRule.containsKey(ruleId) ? ruleId : OTHER_RULES;
+        String stageTag = stage < DecisionTrace.STAGES.length ? name(DecisionTrace.STAGES[stage]) : TOTAL_STAGE;
+        return timers[stage] = Timer.builder("ratelimit.stage.duration")
+                .description("Time spent per stage of a /v1/enforce decision; stage=enforce is the whole call")
+                .tag("stage", stageTag)
+                .tag("ruleId", ruleTag)
+                .tag("outcome", name(outcome))
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1_000))
+                .maximumExpectedValue(Duration.ofSeconds(5))
+                .register(registry);
+    }
+
+    private static String name(Enum<?> e) {
+        return e.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
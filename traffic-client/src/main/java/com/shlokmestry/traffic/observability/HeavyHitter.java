@@ -0,0 +1,4 @@
+package com.shlokmestry.traffic.observability;
+
+/** One identity and its estimated (decayed) weight: tokens consumed, or requests denied. */
+public record HeavyHitter(String key, long estimate) {}
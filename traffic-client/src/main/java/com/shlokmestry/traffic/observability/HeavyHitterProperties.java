@@ -0,0 +1,17 @@
+package com.shlokmestry.traffic.observability;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "traffic.observability.heavy-hitters")
+public record HeavyHitterProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("20") int maxTrackedRules,     // further ruleIds share the "_other" tables
+        @DefaultValue("10") int topK,                // identities reported per rule and table
+        @DefaultValue("4") int depth,                // count-min rows
+        @DefaultValue("1024") int width,             // counters per row, rounded up to a power of two
+        @DefaultValue("60s") Duration decayInterval, // all counts are halved this often, so old bursts fade
+        @DefaultValue("3") int gaugeRanks            // top ranks exported as gauges per rule and table
+) {}
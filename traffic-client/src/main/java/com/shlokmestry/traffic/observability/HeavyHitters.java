@@ -0,0 +1,132 @@
+package com.shlokmestry.traffic.observability;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Which identities burn through each rule, without scanning bucket keys: every
+ * decision feeds two {@link TopKSketch}es per rule, tokens consumed by allowed
+ * requests and the number of denied requests. Memory is fixed by the properties,
+ * however many identities there are; counts are halved every {@code decayInterval}
+ * so the tables follow current traffic.
+ *
+ * <p>Like {@link DecisionTracer}, only the first {@code maxTrackedRules} ruleIds get
+ * their own tables; the rest share {@code _other}. The top {@code gaugeRanks} of each
+ * table are gauges tagged by rank, not by identity, so series stay bounded; the
+ * identities themselves are on {@code /actuator/heavyhitters}.
+ */
+@Component
+public class HeavyHitters implements AutoCloseable {
+
+    static final String OTHER_RULES = DecisionTracer.OTHER_RULES;
+
+    /** Top identities of one rule, heaviest first. */
+    public record RuleHeavyHitters(List<HeavyHitter> consumers, List<HeavyHitter> denied) {}
+
+    private final MeterRegistry registry;
+    private final HeavyHitterProperties props;
+    private final Map<String, Tables> byRule = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService decayer;
+
+    private final class Tables {
+        final TopKSketch consumed = sketch();
+        final TopKSketch denied = sketch();
+
+        Tables(String ruleId) {
+            for (int rank = 1; rank <= props.gaugeRanks(); rank++) {
+                gauge("ratelimit.heavyhitters.consumed", "Estimated tokens consumed by the identity at this rank",
+                        ruleId, rank, consumed);
+                gauge("ratelimit.heavyhitters.denied", "Estimated denials of the identity at this rank",
+                        ruleId, rank, denied);
+            }
+        }
+
+        private void gauge(String name, String description, String ruleId, int rank, TopKSketch table) {
+            Gauge.builder(name, table, t -> {
+                        List<HeavyHitter> top = t.top(rank);
+                        return top.size() < rank ? 0 : top.get(rank - 1).estimate();
+                    })
+                    .description(description)
+                    .tag("ruleId", ruleId)
+                    .tag("rank", String.valueOf(rank))
+                    .register(registry);
+        }
+    }
+
+    public HeavyHitters(MeterRegistry registry, HeavyHitterProperties props) {
+        this.registry = registry;
+        this.props = props;
+
+        this.decayer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ratelimit-heavyhitters-decay");
+            t.setDaemon(true);
+            return t;
+        });
+        long decayMs = Math.max(1, props.decayInterval().toMillis());
+        decayer.scheduleWithFixedDelay(this::decay, decayMs, decayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** One decision: allowed requests count their cost, denied ones count once. */
+    public void record(String ruleId, String key, int cost, boolean allowed) {
+        if (!props.enabled()) return;
+
+        Tables t = tables(ruleId);
+        if (allowed) t.consumed.add(key, cost);
+        else t.denied.add(key, 1);
+    }
+
+    /** Every tracked rule, by ruleId. */
+    public Map<String, RuleHeavyHitters> snapshot() {
+        Map<String, RuleHeavyHitters> out = new LinkedHashMap<>();
+        new TreeMap<>(byRule).forEach((ruleId, t) -> out.put(ruleId, snapshot(t)));
+        return out;
+    }
+
+    /** Null if the rule has not been seen or shares {@code _other}. */
+    public RuleHeavyHitters snapshot(String ruleId) {
+        Tables t = byRule.get(ruleId);
+        return t == null ? null : snapshot(t);
+    }
+
+    private RuleHeavyHitters snapshot(Tables t) {
+        return new RuleHeavyHitters(t.consumed.top(props.topK()), t.denied.top(props.topK()));
+    }
+
+    private Tables tables(String ruleId) {
+        Tables t = byRule.get(ruleId);
+        if (t != null) return t;
+
+        String tracked = byRule.size() < props.maxTrackedRules() ? ruleId : OTHER_RULES;
+        return byRule.computeIfAbsent(tracked, Tables::new);
+    }
+
+    // Slots beyond topK keep close runners-up, so the reported ranks are stable.
+    private TopKSketch sketch() {
+        return new TopKSketch(props.topK() * 4, props.depth(), props.width());
+    }
+
+    private void decay() {
+        for (Tables t : byRule.values()) {
+            t.consumed.decay();
+            t.denied.decay();
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        decayer.shutdownNow();
+    }
+}
@@ -0,0 +1,130 @@
+package com.shlokmestry.traffic.observability;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Appends one JSON object per decision to {@code <directory>/decisions.ndjson} and
+ * flushes after every batch. Once the file reaches {@code maxFileSize} it is renamed
+ * to {@code decisions.ndjson.1} (older files shift up, the one past {@code maxFiles}
+ * is deleted) and a new file is started. If the rename fails, the same file stays
+ * open for appending and the roll is tried again at the next event.
+ */
+public final class NdjsonFileSink implements DecisionSink {
+
+    static final String FILE_NAME = "decisions.ndjson";
+
+    private final Path directory;
+    private final Path active;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final StringBuilder line = new StringBuilder(256);
+
+    private OutputStream out;      // null only after a failed reopen; the next write retries it
+    private long written;
+
+    public NdjsonFileSink(Path directory, long maxFileSize, int maxFiles) throws IOException {
+        this.directory = directory;
+        this.active = directory.resolve(FILE_NAME);
+        this.maxFileSize = Math.max(1, maxFileSize);
+        this.maxFiles = Math.max(0, maxFiles);
+
+        Files.createDirectories(directory);
+        open();
+    }
+
+    @Override
+    public void write(List<DecisionEvent> batch) throws IOException {
+        if (out == null) open();
+        for (DecisionEvent e : batch) {
+            if (written >= maxFileSize) roll();
+
+            byte[] bytes = format(e).getBytes(StandardCharsets.UTF_8);
+            out.write(bytes);
+            written += bytes.length;
+        }
+        out.flush();
+    }
+
+    String format(DecisionEvent e) {
+        line.setLength(0);
+        line.append("{\"ts\":").append(e.timestampMs());
+        string("ruleId", e.ruleId());
+        string("endpoint", e.endpoint());
+        string("plan", e.plan());
+        string("key", e.key());
+        line.append(",\"cost\":").append(e.cost());
+        line.append(",\"outcome\":\"").append(e.outcome().name().toLowerCase(Locale.ROOT)).append('"');
+        line.append(",\"retryAfterMs\":").append(e.retryAfterMs());
+        line.append(",\"remaining\":").append(e.remaining());
+        return line.append("}\n").toString();
+    }
+
+    private void string(String name, String value) {
+        line.append(",\"").append(name).append("\":");
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) line.append(String.format("\\u%04x", (int) c));
+                    else line.append(c);
+                }
+            }
+        }
+        line.append('"');
+    }
+
+    private void open() throws IOException {
+        out = new BufferedOutputStream(Files.newOutputStream(active,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+        written = Files.size(active);
+    }
+
+    private void roll() throws IOException {
+        OutputStream old = out;
+        out = null;
+        try {
+            old.close();
+            if (maxFiles == 0) {
+                Files.delete(active);
+            } else {
+                Files.deleteIfExists(rolled(maxFiles));
+                for (int i = maxFiles - 1; i >= 1; i--) {
+                    Path from = rolled(i);
+                    if (Files.exists(from)) Files.move(from, rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.move(active, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            // Renamed or not, later batches need a stream: a fresh file, or the old one again.
+            open();
+        }
+    }
+
+    private Path rolled(int n) {
+        return directory.resolve(FILE_NAME + "." + n);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) out.close();
+    }
+}
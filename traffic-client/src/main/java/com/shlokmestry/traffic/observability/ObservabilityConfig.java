@@ -0,0 +1,31 @@
+package com.shlokmestry.traffic.observability;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+@EnableConfigurationProperties({TracingProperties.class, HeavyHitterProperties.class, AuditProperties.class})
+public class ObservabilityConfig {
+
+    @Bean
+    public DecisionAudit decisionAudit(MeterRegistry registry, AuditProperties props,
+                                       ObjectProvider<StringRedisTemplate> redis) throws IOException {
+        DecisionSink sink = null;
+        if (props.enabled()) {
+            sink = switch (props.sink()) {
+                case FILE -> new NdjsonFileSink(props.file().directory(),
+                        props.file().maxFileSize().toBytes(), props.file().maxFiles());
+                case REDIS_STREAM -> new RedisStreamSink(redis.getObject(),
+                        props.stream().key(), props.stream().maxLength());
+            };
+        }
+        return new DecisionAudit(registry, props, sink);
+    }
+}
@@ -0,0 +1,55 @@
+package com.shlokmestry.traffic.observability;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Appends each batch to a Redis Stream as one pipelined run of
+ * {@code XADD <key> MAXLEN ~ <maxLength> * ...}, so a batch costs one round trip and
+ * the stream stays bounded. Consumers read it with {@code XRANGE} / {@code XREAD}.
+ */
+public final class RedisStreamSink implements DecisionSink {
+
+    private final StringRedisTemplate redis;
+    private final String key;
+    private final XAddOptions options;
+
+    public RedisStreamSink(StringRedisTemplate redis, String key, long maxLength) {
+        this.redis = redis;
+        this.key = key;
+        this.options = XAddOptions.maxlen(maxLength).approximateTrimming(true);
+    }
+
+    @Override
+    public void write(List<DecisionEvent> batch) {
+        redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection c = (StringRedisConnection) connection;
+            for (DecisionEvent e : batch) {
+                c.xAdd(StreamRecords.string(fields(e)).withStreamKey(key), options);
+            }
+            return null;
+        });
+    }
+
+    private static Map<String, String> fields(DecisionEvent e) {
+        Map<String, String> f = new LinkedHashMap<>(16);
+        f.put("ts", Long.toString(e.timestampMs()));
+        f.put("ruleId", e.ruleId());
+        f.put("endpoint", e.endpoint());
+        f.put("plan", e.plan());
+        f.put("key", e.key());
+        f.put("cost", Integer.toString(e.cost()));
+        f.put("outcome", e.outcome().name().toLowerCase(Locale.ROOT));
+        f.put("retryAfterMs", Long.toString(e.retryAfterMs()));
+        f.put("remaining", Long.toString(e.remaining()));
+        return f;
+    }
+}
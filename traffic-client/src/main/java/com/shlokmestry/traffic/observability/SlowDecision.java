@@ -0,0 +1,19 @@
+package com.shlokmestry.traffic.observability;
+
+import java.time.Instant;
+
+/**
+ * One slow /v1/enforce call. {@code otherMs} is the part of {@code totalMs} outside
+ * the named stages: JVM, deny cache, metrics and response building.
+ */
+public record SlowDecision(
+        Instant at,
+        String ruleId,
+        int cost,
+        String outcome,
+        double totalMs,
+        double ruleLookupMs,
+        double scriptMs,
+        double decodeMs,
+        double otherMs
+) {}
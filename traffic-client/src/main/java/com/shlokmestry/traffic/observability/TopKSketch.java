@@ -0,0 +1,113 @@
+package com.shlokmestry.traffic.observability;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Approximate heaviest keys of a stream in fixed memory: a {@link CountMinSketch}
+ * estimates every key's weight, and a small table of candidate slots keeps the keys
+ * with the highest estimates seen. A key only touches the table once its estimate
+ * beats the lightest candidate, so the common case is the sketch update alone.
+ *
+ * <p>Lock-free: slots are swapped with CAS and counts raised with atomic max. Two
+ * threads may place the same new key in two slots; {@link #top} merges them.
+ */
+final class TopKSketch {
+
+    private static final class Candidate {
+        final String key;
+        final int hash;
+        final AtomicLong estimate;
+
+        Candidate(String key, int hash, long estimate) {
+            this.key = key;
+            this.hash = hash;
+            this.estimate = new AtomicLong(estimate);
+        }
+    }
+
+    private final CountMinSketch sketch;
+    private final AtomicReferenceArray<Candidate> slots;
+    private volatile long floor;        // lightest candidate once every slot is taken, else 0
+
+    TopKSketch(int slots, int depth, int width) {
+        this.sketch = new CountMinSketch(depth, width);
+        this.slots = new AtomicReferenceArray<>(Math.max(1, slots));
+    }
+
+    void add(String key, long weight) {
+        int hash = key.hashCode();
+        long estimate = sketch.add(hash, weight);
+        if (estimate <= floor) return;
+
+        // One pass: the key's own slot if it has one, else the lightest (empty first).
+        int lightest = -1;
+        Candidate lightestCandidate = null;
+        long lightestEstimate = Long.MAX_VALUE;
+        for (int i = 0; i < slots.length(); i++) {
+            Candidate c = slots.get(i);
+            if (c == null) {
+                if (lightestEstimate >= 0) {
+                    lightest = i;
+                    lightestCandidate = null;
+                    lightestEstimate = -1;
+                }
+                continue;
+            }
+            if (c.hash == hash && c.key.equals(key)) {
+                c.estimate.accumulateAndGet(estimate, Math::max);
+                return;
+            }
+            long e = c.estimate.get();
+            if (e < lightestEstimate) {
+                lightest = i;
+                lightestCandidate = c;
+                lightestEstimate = e;
+            }
+        }
+
+        if (estimate > lightestEstimate
+                && slots.compareAndSet(lightest, lightestCandidate, new Candidate(key, hash, estimate))) {
+            floor = lightestStillHeld();
+        }
+    }
+
+    /** Up to {@code n} keys, heaviest first. */
+    List<HeavyHitter> top(int n) {
+        Map<String, Long> merged = new HashMap<>();
+        for (int i = 0; i < slots.length(); i++) {
+            Candidate c = slots.get(i);
+            if (c != null) merged.merge(c.key, c.estimate.get(), Math::max);
+        }
+
+        List<HeavyHitter> out = new ArrayList<>(merged.size());
+        merged.forEach((key, estimate) -> out.add(new HeavyHitter(key, estimate)));
+        out.sort(Comparator.comparingLong(HeavyHitter::estimate).reversed().thenComparing(HeavyHitter::key));
+        return out.size() > n ? List.copyOf(out.subList(0, n)) : out;
+    }
+
+    /** Halves every count; candidates that reach zero give up their slot. */
+    void decay() {
+        sketch.halve();
+        for (int i = 0; i < slots.length(); i++) {
+            Candidate c = slots.get(i);
+            if (c != null && c.estimate.updateAndGet(v -> v >> 1) == 0) slots.compareAndSet(i, c, null);
+        }
+        floor = lightestStillHeld();
+    }
+
+    private long lightestStillHeld() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < slots.length(); i++) {
+            Candidate c = slots.get(i);
+            if (c == null) return 0;
+            min = Math.min(min, c.estimate.get());
+        }
+        return min;
+    }
+}
@@ -0,0 +1,13 @@
+package com.shlokmestry.traffic.observability;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "traffic.observability.tracing")
+public record TracingProperties(
+        @DefaultValue("20") int maxTaggedRules,       // further ruleIds share the "_other" tag
+        @DefaultValue("50ms") Duration slowThreshold,  // /v1/enforce calls at least this slow go to the slow log
+        @DefaultValue("128") int slowLogSize
+) {}
@@ -0,0 +1,186 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import com.shlokmestry.traffic.redis.RedisShards;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Effective-limit multipliers for adaptive rules ({@code targetLatencyMs > 0}).
+ * Callers report how the downstream behaved; a sample is bad if it failed or took
+ * longer than the rule's target. Every {@code interval} each instance adds its
+ * samples to {@code adaptive:{ruleId}} in Redis, where {@code adaptive_feedback.lua}
+ * takes one AIMD step per interval for the whole cluster and returns the multiplier.
+ *
+ * <p>The limiter scales capacity, burst and refill by the multiplier before they go
+ * into the bucket scripts. Until the first sync, or if Redis cannot be reached, the
+ * last known multiplier (initially 1.0) stays in force.
+ */
+@Component
+public class AdaptiveLimits implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveLimits.class);
+
+    private final RedisShards shards;
+    private final RedisCircuitBreaker breaker;
+    private final MeterRegistry registry;
+    private final Clock clock;
+    private final RedisScript<List> script;
+    private final ScriptPipeline pipeline;
+    private final AdaptiveProperties props;
+    private final String[] stepArgs;
+    private final Map<String, State> byRuleId = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService syncer;
+
+    private final class State {
+        final String ruleId;
+        final LongAdder good = new LongAdder();
+        final LongAdder bad = new LongAdder();
+        volatile RateLimitRule rule;
+        volatile double multiplier = 1.0;
+        volatile long lastUsedMs;
+        final List<Gauge> gauges;
+
+        State(RateLimitRule rule) {
+            this.ruleId = rule.ruleId();
+            this.rule = rule;
+            this.lastUsedMs = clock.millis();
+            this.gauges = List.of(
+                    gauge("ratelimit.adaptive.multiplier", "Current adaptive multiplier", s -> s.multiplier),
+                    gauge("ratelimit.adaptive.capacity", "Capacity after the adaptive multiplier",
+                            s -> s.rule.capacity() * s.multiplier),
+                    gauge("ratelimit.adaptive.refill", "Refill tokens per second after the adaptive multiplier",
+                            s -> s.rule.refillTokensPerSecond() * s.multiplier)
+            );
+        }
+
+        private Gauge gauge(String name, String description, ToDoubleFunction<State> f) {
+            return Gauge.builder(name, this, f)
+                    .description(description)
+                    .tag("ruleId", ruleId)
+                    .register(registry);
+        }
+    }
+
+    public AdaptiveLimits(RedisShards shards, RedisCircuitBreaker breaker, AdaptiveProperties props, MeterRegistry registry) {
+        this.shards = shards;
+        this.breaker = breaker;
+        this.registry = registry;
+        this.clock = Clock.systemUTC();
+        this.script = RedisScript.of(new ClassPathResource("lua/adaptive_feedback.lua"), List.class);
+        this.pipeline = new ScriptPipeline(shards);
+        this.props = props;
+        this.stepArgs = new String[] {
+                String.valueOf(props.interval().toMillis()),
+                String.valueOf(props.increase()),
+                String.valueOf(props.decrease()),
+                String.valueOf(props.minMultiplier()),
+                String.valueOf(props.maxMultiplier()),
+                String.valueOf(props.tolerance()),
+                String.valueOf(props.resetAfter().toMillis())
+        };
+
+        this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ratelimit-adaptive-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        long intervalMs = Math.max(1, props.interval().toMillis());
+        syncer.scheduleWithFixedDelay(this::sync, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** 1.0 for static rules; otherwise the multiplier last read from Redis. */
+    public double multiplier(RateLimitRule rule) {
+        if (!rule.adaptive()) return 1.0;
+        return state(rule).multiplier;
+    }
+
+    /** One downstream outcome for requests admitted under {@code rule}; ignored for static rules. */
+    public void record(RateLimitRule rule, long latencyMs, boolean error) {
+        if (!rule.adaptive()) return;
+
+        State s = state(rule);
+        if (error || latencyMs > rule.targetLatencyMs()) s.bad.increment();
+        else s.good.increment();
+    }
+
+    private State state(RateLimitRule rule) {
+        State s = byRuleId.get(rule.ruleId());
+        if (s == null) s = byRuleId.computeIfAbsent(rule.ruleId(), id -> new State(rule));
+        // A changed rule keeps its multiplier; the gauges follow the new limits.
+        if (s.rule != rule) s.rule = rule;
+        s.lastUsedMs = clock.millis();
+        return s;
+    }
+
+    private void sync() {
+        // Multipliers hold their last value meanwhile; samples wait for the next interval.
+        if (breaker.state() != RedisCircuitBreaker.State.CLOSED) return;
+
+        try {
+            long nowMs = clock.millis();
+            List<State> states = new ArrayList<>(byRuleId.size());
+            List<ScriptPipeline.Call> calls = new ArrayList<>(byRuleId.size());
+            for (State s : byRuleId.values()) {
+                if (nowMs - s.lastUsedMs > props.resetAfter().toMillis()) {
+                    evict(s);
+                    continue;
+                }
+                String[] args = new String[3 + stepArgs.length];
+                args[0] = String.valueOf(nowMs);
+                args[1] = String.valueOf(s.good.sumThenReset());
+                args[2] = String.valueOf(s.bad.sumThenReset());
+                System.arraycopy(stepArgs, 0, args, 3, stepArgs.length);
+                states.add(s);
+                calls.add(new ScriptPipeline.Call(script, key(s.ruleId), args));
+            }
+            if (calls.isEmpty()) return;
+
+            List<Object> replies = pipeline.execute(calls);
+            for (int i = 0; i < states.size() && i < replies.size(); i++) {
+                if (replies.get(i) instanceof List<?> res && !res.isEmpty() && res.get(0) instanceof String m) {
+                    states.get(i).multiplier = Double.parseDouble(m);
+                }
+            }
+        } catch (Exception e) {
+            // Samples of this interval are lost; the next one decides on its own.
+            log.warn("ratelimit adaptive sync failed", e);
+        }
+    }
+
+    private void evict(State s) {
+        if (byRuleId.remove(s.ruleId, s)) {
+            for (Gauge g : s.gauges) registry.remove(g);
+        }
+    }
+
+    // adaptive:{ruleId}: the rule id is the hash tag, so every instance reaches the same shard.
+    static String key(String ruleId) {
+        return "adaptive:{" + ruleId + "}";
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        syncer.shutdownNow();
+    }
+}
@@ -0,0 +1,17 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "traffic.ratelimit.adaptive")
+public record AdaptiveProperties(
+        @DefaultValue("1s") Duration interval,           // one AIMD step per rule per interval, cluster-wide
+        @DefaultValue("0.05") double increase,           // added to the multiplier after a healthy interval
+        @DefaultValue("0.5") double decrease,            // multiplier is scaled by this after an unhealthy one
+        @DefaultValue("0.1") double minMultiplier,       // floor, so a rule never drops to zero
+        @DefaultValue("1.0") double maxMultiplier,       // 1.0 = the configured rule is a ceiling
+        @DefaultValue("0.05") double tolerance,          // share of slow or failed samples an interval may have
+        @DefaultValue("10m") Duration resetAfter         // no feedback this long: back to the configured rule
+) {}
@@ -0,0 +1,18 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "traffic.ratelimit.breaker")
+public record BreakerProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10s") Duration window,                  // outcomes considered when deciding to open
+        @DefaultValue("20") int minimumCalls,                  // ...but only once the window holds this many
+        @DefaultValue("0.5") double failureRateThreshold,      // open at this share of failed calls
+        @DefaultValue("250ms") Duration slowCallDuration,      // a successful call slower than this counts as slow
+        @DefaultValue("0.5") double slowCallRateThreshold,     // open at this share of slow calls
+        @DefaultValue("5s") Duration openDuration,             // skip Redis this long before probing
+        @DefaultValue("10") int halfOpenProbes                 // successful probes needed to close again
+) {}
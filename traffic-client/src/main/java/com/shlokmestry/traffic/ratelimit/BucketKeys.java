@@ -0,0 +1,52 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Fixed-width stand-ins for the identity and the rule in compact bucket keys:
+ * hex prefixes of SHA-1, the digest scripts get from {@code redis.sha1hex}, so
+ * {@code enforce_by_rule.lua} spells the same keys. 64 bits of identity make an
+ * accidental shared bucket negligible, and a cryptographic digest means nobody
+ * can choose an identity that lands on someone else's bucket.
+ */
+final class BucketKeys {
+
+    static final int IDENTITY_HEX = 16;
+    static final int RULE_HEX = 12;
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final MessageDigest SHA1;
+
+    static {
+        try {
+            SHA1 = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private BucketKeys() {}
+
+    static String identity(String key) {
+        return digest(key, IDENTITY_HEX);
+    }
+
+    static String rule(String ruleId, String endpoint, String plan) {
+        return digest(ruleId + ":" + endpoint + ":" + plan, RULE_HEX);
+    }
+
+    // Cloning the prepared instance skips the provider lookup of getInstance on every decision.
+    private static String digest(String s, int hexChars) {
+        MessageDigest md;
+        try {
+            md = (MessageDigest) SHA1.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] hash = md.digest(s.getBytes(StandardCharsets.UTF_8));
+        return HEX.formatHex(hash, 0, hexChars / 2);
+    }
+}
@@ -0,0 +1,10 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "traffic.ratelimit.buckets")
+public record BucketProperties(
+        @DefaultValue("true") boolean compactKeys,      // tb:{<identity digest>}:<rule digest>; false = readable keys, for debugging
+        @DefaultValue("false") boolean expireWhenFull   // expire a bucket when it would be full again, if before ttlMs
+) {}
@@ -0,0 +1,125 @@
+package com.shlokmestry.traffic.ratelimit;
+
+/**
+ * Open-addressing (linear probing) map from identity to bucket state, stored in
+ * parallel primitive arrays so a decision never boxes or builds a key. Not
+ * thread-safe; {@link InMemoryRateLimiter} guards each table with a shard lock.
+ */
+final class BucketTable {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private String[] keys;
+    private int[] hashes;
+    private double[] tokens;
+    private long[] lastRefillMs;
+    private int mask;
+    private int size;
+
+    BucketTable(int initialCapacity) {
+        allocate(tableSizeFor(Math.max(MIN_CAPACITY, initialCapacity)));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Slot holding {@code key}, or -1. */
+    int find(String key, int hash) {
+        int i = mix(hash) & mask;
+        while (true) {
+            String k = keys[i];
+            if (k == null) return -1;
+            if (hashes[i] == hash && k.equals(key)) return i;
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Inserts an absent key and returns its slot. May purge entries idle for
+     * at least {@code ttlMs} and/or grow the table first, which moves slots.
+     */
+    int insert(String key, int hash, double initialTokens, long nowMs, long ttlMs) {
+        if ((size + 1) * 2 > keys.length) {
+            purge(nowMs, ttlMs);
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2, nowMs, Long.MAX_VALUE);
+            }
+        }
+
+        int i = mix(hash) & mask;
+        while (keys[i] != null) i = (i + 1) & mask;
+
+        keys[i] = key;
+        hashes[i] = hash;
+        tokens[i] = initialTokens;
+        lastRefillMs[i] = nowMs;
+        size++;
+        return i;
+    }
+
+    double tokens(int slot) {
+        return tokens[slot];
+    }
+
+    long lastRefillMs(int slot) {
+        return lastRefillMs[slot];
+    }
+
+    void set(int slot, double tokens, long lastRefillMs) {
+        this.tokens[slot] = tokens;
+        this.lastRefillMs[slot] = lastRefillMs;
+    }
+
+    /** Drops entries untouched for at least {@code ttlMs}, shrinking the table if it got sparse. */
+    void purge(long nowMs, long ttlMs) {
+        if (ttlMs <= 0) return;
+        int live = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && nowMs - lastRefillMs[i] < ttlMs) live++;
+        }
+        if (live == size) return;
+
+        int target = tableSizeFor(Math.max(MIN_CAPACITY, live * 4));
+        rehash(Math.min(target, keys.length), nowMs, ttlMs);
+    }
+
+    private void rehash(int newCapacity, long nowMs, long ttlMs) {
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        double[] oldTokens = tokens;
+        long[] oldLast = lastRefillMs;
+
+        allocate(newCapacity);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == null || nowMs - oldLast[j] >= ttlMs) continue;
+
+            int i = mix(oldHashes[j]) & mask;
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            hashes[i] = oldHashes[j];
+            tokens[i] = oldTokens[j];
+            lastRefillMs[i] = oldLast[j];
+            size++;
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        tokens = new double[capacity];
+        lastRefillMs = new long[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    // Shard selection uses the low bits of the hash; scramble before using them again here.
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int n) {
+        return Integer.highestOneBit(n - 1) << 1;
+    }
+}
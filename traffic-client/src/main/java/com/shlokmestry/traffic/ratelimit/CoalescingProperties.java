@@ -0,0 +1,16 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "traffic.ratelimit.coalescing")
+public record CoalescingProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("64") int maxBatchSize,        // flush as soon as this many calls are queued
+        @DefaultValue("200us") Duration maxWait,     // ...or when the oldest queued call has waited this long
+        @DefaultValue("10000") int queueCapacity,    // beyond this, callers run their script directly
+        @DefaultValue("2") int flushers,             // pipelines allowed in flight at once
+        @DefaultValue("1s") Duration timeout         // caller gives up and fails closed after this
+) {}
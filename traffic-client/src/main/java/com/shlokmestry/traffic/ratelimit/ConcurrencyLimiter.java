@@ -0,0 +1,166 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import com.shlokmestry.traffic.redis.RedisShards;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Caps requests in flight per key, cluster-wide. Under a rule, {@code capacity} is
+ * the number of permits and {@code ttlMs} the longest a permit may be held. Each
+ * permit is a lease in a Redis sorted set scored by its expiry; acquire and release
+ * are one script each, and leases of callers that never release simply run out.
+ *
+ * <p>Redis calls go through the same circuit breaker as the token buckets. There is
+ * no local fallback: an acquire that cannot reach Redis is denied.
+ */
+@Component
+public class ConcurrencyLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    private static final long FAIL_CLOSED_RETRY_AFTER_MS = 1000;
+
+    private final RedisShards shards;
+    private final RedisCircuitBreaker breaker;
+    private final Clock clock;
+    private final RedisScript<List> acquireScript;
+    private final RedisScript<List> releaseScript;
+
+    private final Counter expired;
+
+    /**
+     * {@code leaseId} is null unless acquired. {@code retryAfterMs} is when the oldest
+     * lease runs out if nobody releases; {@code available} counts permits left.
+     */
+    public record Permit(Status status, String leaseId, long leaseMs, long retryAfterMs, long available) {
+
+        public enum Status { ACQUIRED, LIMITED, UNAVAILABLE }
+
+        public boolean acquired() {
+            return status == Status.ACQUIRED;
+        }
+    }
+
+    public enum Release { RELEASED, UNKNOWN_LEASE, UNAVAILABLE }
+
+    public ConcurrencyLimiter(RedisShards shards, RedisCircuitBreaker breaker, MeterRegistry registry) {
+        this.shards = shards;
+        this.breaker = breaker;
+        this.clock = Clock.systemUTC();
+        this.acquireScript = RedisScript.of(new ClassPathResource("lua/concurrency_acquire.lua"), List.class);
+        this.releaseScript = RedisScript.of(new ClassPathResource("lua/concurrency_release.lua"), List.class);
+
+        this.expired = Counter.builder("ratelimit.concurrency.expired.total")
+                .description("In-flight leases that ran out instead of being released")
+                .register(registry);
+    }
+
+    /** One permit for up to {@code leaseMs}, capped at the rule's ttlMs; 0 or less means ttlMs. */
+    public Permit acquire(RateLimitRule rule, String key, long leaseMs) {
+        long lease = leaseMs <= 0 ? rule.ttlMs() : Math.min(leaseMs, rule.ttlMs());
+        if (!breaker.tryAcquire()) return failClosed(lease);
+
+        String leaseKey = leaseKey(rule, key);
+        String leaseId = leaseId();
+        long startNanos = System.nanoTime();
+        final List<?> res;
+        try {
+            res = shards.forKey(leaseKey).execute(
+                    acquireScript,
+                    List.of(leaseKey),
+                    String.valueOf(clock.millis()),
+                    String.valueOf(rule.capacity()),
+                    String.valueOf(lease),
+                    leaseId
+            );
+        } catch (RuntimeException e) {
+            breaker.onFailure(RedisCircuitBreaker.Failure.REDIS_ERROR);
+            log.warn("concurrency acquire failed ruleId={}", rule.ruleId(), e);
+            return failClosed(lease);
+        }
+
+        RedisCircuitBreaker.Failure failure = failureOf(res, 4);
+        if (failure != null) {
+            breaker.onFailure(failure);
+            return failClosed(lease);
+        }
+        breaker.onSuccess(System.nanoTime() - startNanos);
+
+        long expiredLeases = ((Number) res.get(3)).longValue();
+        if (expiredLeases > 0) expired.increment(expiredLeases);
+
+        boolean acquired = ((Number) res.get(0)).intValue() == 1;
+        return new Permit(
+                acquired ? Permit.Status.ACQUIRED : Permit.Status.LIMITED,
+                acquired ? leaseId : null,
+                lease,
+                ((Number) res.get(1)).longValue(),
+                ((Number) res.get(2)).longValue()
+        );
+    }
+
+    /** Gives a permit back. UNKNOWN_LEASE also covers leases that had already run out. */
+    public Release release(RateLimitRule rule, String key, String leaseId) {
+        if (!breaker.tryAcquire()) return Release.UNAVAILABLE;
+
+        String leaseKey = leaseKey(rule, key);
+        long startNanos = System.nanoTime();
+        final List<?> res;
+        try {
+            res = shards.forKey(leaseKey).execute(
+                    releaseScript,
+                    List.of(leaseKey),
+                    String.valueOf(clock.millis()),
+                    leaseId
+            );
+        } catch (RuntimeException e) {
+            // The lease still runs out on its own; the permit is only held longer.
+            breaker.onFailure(RedisCircuitBreaker.Failure.REDIS_ERROR);
+            log.warn("concurrency release failed ruleId={}", rule.ruleId(), e);
+            return Release.UNAVAILABLE;
+        }
+
+        RedisCircuitBreaker.Failure failure = failureOf(res, 1);
+        if (failure != null) {
+            breaker.onFailure(failure);
+            return Release.UNAVAILABLE;
+        }
+        breaker.onSuccess(System.nanoTime() - startNanos);
+
+        return ((Number) res.get(0)).intValue() == 1 ? Release.RELEASED : Release.UNKNOWN_LEASE;
+    }
+
+    // cc:{key}:ruleId:endpoint:plan, sharded by the client key. Always readable: only leases in flight are stored.
+    static String leaseKey(RateLimitRule rule, String key) {
+        return "cc:{" + key + TokenBucketRateLimiter.bucketKeySuffix(rule.ruleId(), rule.endpoint(), rule.plan());
+    }
+
+    private static String leaseId() {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        return Long.toHexString(r.nextLong()) + Long.toHexString(r.nextLong());
+    }
+
+    private static Permit failClosed(long leaseMs) {
+        return new Permit(Permit.Status.UNAVAILABLE, null, leaseMs, FAIL_CLOSED_RETRY_AFTER_MS, 0);
+    }
+
+    private static RedisCircuitBreaker.Failure failureOf(List<?> res, int size) {
+        if (res == null || res.size() < size) return RedisCircuitBreaker.Failure.BAD_RESPONSE;
+        for (int i = 0; i < size; i++) {
+            if (!(res.get(i) instanceof Number)) return RedisCircuitBreaker.Failure.BAD_TYPES;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,111 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Remembers recent denials until their retry window ends, so a client that is
+ * already throttled is answered from memory instead of hitting Redis again.
+ * A hit only applies to requests costing at least as much as the denied one:
+ * a cheaper request may fit sooner. An allowed decision for the same key, or a
+ * change to the rule, drops the denial.
+ */
+@Component
+public class DenyCache {
+
+    private final boolean enabled;
+    private final long maxTtlMs;
+    private final Clock clock;
+    private final Cache<Key, Denial> denials;
+    private final Counter hits;
+
+    private record Key(String ruleId, String key) {}
+
+    private record Denial(long untilMs, int cost, long remaining, RateLimitRule rule) {}
+
+    /** A cached denial and the rule it was decided under (for headers and metrics). */
+    public record Hit(RateLimitRule rule, RateLimiter.Result result) {}
+
+    @Autowired
+    public DenyCache(DenyCacheProperties props, MeterRegistry registry) {
+        this(Clock.systemUTC(), props, registry);
+    }
+
+    DenyCache(Clock clock, DenyCacheProperties props, MeterRegistry registry) {
+        this.enabled = props.enabled();
+        this.maxTtlMs = props.maxTtl().toMillis();
+        this.clock = clock;
+        this.denials = Caffeine.newBuilder()
+                .maximumSize(props.maximumSize())
+                .expireAfter(new Expiry<Key, Denial>() {
+                    @Override
+                    public long expireAfterCreate(Key k, Denial d, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, d.untilMs() - clock.millis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key k, Denial d, long currentTime, long currentDuration) {
+                        return expireAfterCreate(k, d, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key k, Denial d, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+
+        this.hits = Counter.builder("ratelimit.deny_cache.hits.total")
+                .description("Denials answered from the local deny cache without a limiter call")
+                .register(registry);
+
+        Gauge.builder("ratelimit.deny_cache.size", denials, Cache::estimatedSize)
+                .description("Keys currently held in the local deny cache")
+                .register(registry);
+    }
+
+    /** A denial with the remaining retry window, or null if the limiter has to decide. */
+    public Hit check(String ruleId, String key, int cost) {
+        if (!enabled) return null;
+
+        Denial d = denials.getIfPresent(new Key(ruleId, key));
+        if (d == null || cost < d.cost()) return null;
+
+        long retryAfterMs = d.untilMs() - clock.millis();
+        if (retryAfterMs <= 0) return null;
+
+        hits.increment();
+        return new Hit(d.rule(), new RateLimiter.Result(false, retryAfterMs, d.remaining()));
+    }
+
+    /** Records a limiter decision; only denials are kept, and an allow clears the key's denial. */
+    public void record(RateLimitRule rule, String key, int cost, RateLimiter.Result r) {
+        if (!enabled) return;
+        if (r.allowed()) {
+            // Usually empty: skip the key allocation on the common path.
+            if (denials.estimatedSize() > 0) denials.invalidate(new Key(rule.ruleId(), key));
+            return;
+        }
+        if (r.retryAfterMs() <= 0) return;
+
+        long windowMs = Math.min(r.retryAfterMs(), maxTtlMs);
+        denials.put(new Key(rule.ruleId(), key), new Denial(clock.millis() + windowMs, cost, r.remaining(), rule));
+    }
+
+    /** Drops every denial decided under {@code ruleId}; called when the rule changes. */
+    public void invalidateRule(String ruleId) {
+        denials.asMap().keySet().removeIf(k -> k.ruleId().equals(ruleId));
+    }
+}
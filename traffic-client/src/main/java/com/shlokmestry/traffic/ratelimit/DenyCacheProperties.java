@@ -0,0 +1,13 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "traffic.ratelimit.deny-cache")
+public record DenyCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("100000") long maximumSize,
+        @DefaultValue("60s") Duration maxTtl        // cap for huge retry windows (e.g. rules with no refill)
+) {}
@@ -0,0 +1,13 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "traffic.ratelimit.memory")
+public record InMemoryProperties(
+        @DefaultValue("64") int shards,                    // rounded up to a power of two
+        @DefaultValue("256") int initialShardCapacity,
+        @DefaultValue("30s") Duration sweepInterval        // idle buckets (older than the rule's ttlMs) are dropped
+) {}
@@ -0,0 +1,354 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.shlokmestry.traffic.rules.Algorithm;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Single-node engine: bucket state lives in this JVM, so a decision costs no
+ * network hop. Same arithmetic as {@code lua/token_bucket.lua}, including the
+ * first request seeing {@code burstCapacity} tokens and idle buckets resetting
+ * after the rule's {@code ttlMs}. State is not shared between instances.
+ * GCRA rules are decided the same way: GCRA only changes how Redis stores the
+ * bucket, not the decisions. Window rules count cost per window of {@code ttlMs}
+ * as {@code lua/fixed_window.lua} and {@code lua/sliding_window.lua} do.
+ */
+@Service
+@ConditionalOnProperty(name = "traffic.ratelimit.engine", havingValue = "memory")
+public class InMemoryRateLimiter implements RateLimiter {
+
+    private final Clock clock;
+    private final int shardCount;
+    private final int initialShardCapacity;
+    private final Map<String, RuleBuckets> byRule = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+
+    @Autowired
+    public InMemoryRateLimiter(InMemoryProperties props, MeterRegistry registry) {
+        this(Clock.systemUTC(), props);
+
+        Gauge.builder("ratelimit.memory.buckets", this, InMemoryRateLimiter::bucketCount)
+                .description("Token buckets held by the in-memory engine")
+                .register(registry);
+    }
+
+    /** Outside Spring, on a caller's clock (an offline replay on trace time, say); no gauge is registered. */
+    public InMemoryRateLimiter(Clock clock, InMemoryProperties props) {
+        this.clock = clock;
+        int shards = Math.max(1, props.shards());
+        this.shardCount = shards == 1 ? 1 : Integer.highestOneBit(shards - 1) << 1;
+        this.initialShardCapacity = props.initialShardCapacity();
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ratelimit-memory-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long sweepMs = Math.max(1, props.sweepInterval().toMillis());
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Result checkAndConsume(RateLimitRule rule, String key, int cost) {
+        return buckets(rule).consume(rule, key, cost, clock.millis());
+    }
+
+    /**
+     * Locks the shard of every check (in shard-id order, so concurrent multi-checks
+     * cannot deadlock), decides all of them, and writes only if all allow.
+     */
+    @Override
+    public MultiResult checkAndConsumeAtomically(List<Check> checks) {
+        int n = checks.size();
+        Shard[] shards = new Shard[n];
+        for (int i = 0; i < n; i++) {
+            Check c = checks.get(i);
+            RuleBuckets b = buckets(c.rule());
+            b.retentionMs = RuleBuckets.retentionMs(c.rule());
+            shards[i] = b.shard(c.key());
+        }
+        Shard[] lockOrder = Arrays.stream(shards).distinct().sorted(Comparator.comparingLong(s -> s.id)).toArray(Shard[]::new);
+
+        for (Shard s : lockOrder) s.lock.lock();
+        try {
+            long now = clock.millis();
+            double[] tokens = new double[n];
+            Result[] windows = new Result[n];
+            boolean allAllowed = true;
+            for (int i = 0; i < n; i++) {
+                Check c = checks.get(i);
+                BucketTable table = shards[i].table;
+                int hash = c.key().hashCode();
+                if (c.rule().windowed()) {
+                    windows[i] = RuleBuckets.window(table, c.key(), hash, c.rule(), c.cost(), now, false);
+                    if (!windows[i].allowed()) allAllowed = false;
+                } else {
+                    tokens[i] = RuleBuckets.available(table, table.find(c.key(), hash), c.rule(), now);
+                    if (tokens[i] < c.cost()) allAllowed = false;
+                }
+            }
+
+            List<Result> results = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                Check c = checks.get(i);
+                // Tables are looked up again: an insert for an earlier check may have resized a shared table.
+                BucketTable table = shards[i].table;
+                int hash = c.key().hashCode();
+                if (c.rule().windowed()) {
+                    Result w = windows[i];
+                    if (allAllowed) {
+                        w = RuleBuckets.window(table, c.key(), hash, c.rule(), c.cost(), now, true);
+                    } else if (w.allowed()) {
+                        // Nothing was counted: report the window as it is.
+                        w = new Result(true, 0, w.remaining() + c.cost());
+                    }
+                    results.add(w);
+                    continue;
+                }
+                if (allAllowed) {
+                    tokens[i] -= c.cost();
+                    RuleBuckets.store(table, table.find(c.key(), hash), c.key(), hash, c.rule(), tokens[i], now);
+                }
+                results.add(RuleBuckets.result(c.rule(), c.cost(), tokens[i], tokens[i] >= c.cost() || allAllowed));
+            }
+            return MultiResult.of(allAllowed, results);
+        } finally {
+            for (Shard s : lockOrder) s.lock.unlock();
+        }
+    }
+
+    private RuleBuckets buckets(RateLimitRule rule) {
+        RuleBuckets buckets = byRule.get(rule.ruleId());
+        if (buckets == null || !buckets.sameBucketSpace(rule)) {
+            // New rule, or endpoint/plan changed: the Redis engine would start a fresh key too.
+            buckets = byRule.compute(rule.ruleId(), (id, old) ->
+                    old != null && old.sameBucketSpace(rule) ? old : new RuleBuckets(rule, shardCount, initialShardCapacity));
+        }
+        return buckets;
+    }
+
+    long bucketCount() {
+        long n = 0;
+        for (RuleBuckets b : byRule.values()) n += b.size();
+        return n;
+    }
+
+    void sweep() {
+        long nowMs = clock.millis();
+        for (RuleBuckets b : byRule.values()) b.purge(nowMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    private static final class RuleBuckets {
+        // Second counter of a window key: same key, different stored hash, so no key is built.
+        private static final int ODD_WINDOW = 0x5bd1e995;
+
+        final String endpoint;
+        final String plan;
+        final Algorithm algorithm;
+        final Shard[] shards;
+        volatile long retentionMs;
+
+        RuleBuckets(RateLimitRule rule, int shardCount, int initialShardCapacity) {
+            this.endpoint = rule.endpoint();
+            this.plan = rule.plan();
+            this.algorithm = rule.algorithm();
+            this.retentionMs = retentionMs(rule);
+            this.shards = new Shard[shardCount];
+            for (int i = 0; i < shardCount; i++) shards[i] = new Shard(initialShardCapacity);
+        }
+
+        // A changed algorithm gets a fresh key prefix in Redis, so fresh state here too.
+        boolean sameBucketSpace(RateLimitRule rule) {
+            return Objects.equals(endpoint, rule.endpoint()) && Objects.equals(plan, rule.plan())
+                    && algorithm == rule.algorithm();
+        }
+
+        // How long an untouched entry matters. A sliding window counter is weighted for one
+        // window after its own ends; entries of window rules are stamped with their window's start.
+        static long retentionMs(RateLimitRule rule) {
+            return rule.algorithm() == Algorithm.SLIDING_WINDOW ? 2 * rule.ttlMs() : rule.ttlMs();
+        }
+
+        Shard shard(String key) {
+            int hash = key.hashCode();
+            return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+        }
+
+        Result consume(RateLimitRule rule, String key, int cost, long now) {
+            retentionMs = retentionMs(rule);
+            Shard shard = shard(key);
+
+            shard.lock.lock();
+            try {
+                BucketTable table = shard.table;
+                int hash = key.hashCode();
+                if (rule.windowed()) return window(table, key, hash, rule, cost, now, true);
+
+                int slot = table.find(key, hash);
+                double tokens = available(table, slot, rule, now);
+
+                boolean allowed = tokens >= cost;
+                if (allowed) tokens -= cost;
+
+                store(table, slot, key, hash, rule, tokens, now);
+                return result(rule, cost, tokens, allowed);
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+
+        // Tokens in the bucket at `now`, refill applied; slot < 0 = no entry. Caller holds the shard lock.
+        static double available(BucketTable table, int slot, RateLimitRule rule, long now) {
+            double tokens;
+            long lastRefill;
+            if (slot >= 0 && (rule.ttlMs() <= 0 || now - table.lastRefillMs(slot) < rule.ttlMs())) {
+                tokens = table.tokens(slot);
+                lastRefill = table.lastRefillMs(slot);
+            } else {
+                // Missing or expired (Redis would have dropped the key): start from burstCapacity.
+                tokens = rule.burstCapacity();
+                lastRefill = now;
+            }
+
+            long elapsedMs = Math.max(0, now - lastRefill);
+            double refill = (elapsedMs / 1000.0) * rule.refillTokensPerSecond();
+            return Math.min(rule.capacity(), tokens + refill);
+        }
+
+        static void store(BucketTable table, int slot, String key, int hash, RateLimitRule rule, double tokens, long now) {
+            if (slot < 0) slot = table.insert(key, hash, tokens, now, rule.ttlMs());
+            table.set(slot, tokens, now);
+        }
+
+        /**
+         * Window rules, as {@code fixed_window.lua} and {@code sliding_window.lua}: one counter per
+         * window of {@code ttlMs} (aligned to the epoch), the previous one weighted by its overlap
+         * for a sliding window. Windows alternate between two entries per key, each stamped with
+         * its window's start; a stale stamp reads as an empty counter. Counts only if
+         * {@code consume} and allowed. Caller holds the shard lock.
+         */
+        static Result window(BucketTable table, String key, int hash, RateLimitRule rule, int cost, long now, boolean consume) {
+            long window = rule.ttlMs();
+            if (window <= 0) {
+                // Rejected at rule upsert; deny rather than divide by zero.
+                return new Result(false, 0, 0);
+            }
+            int capacity = rule.capacity();
+            long index = Math.floorDiv(now, window);
+            long start = index * window;
+            long elapsed = now - start;
+            double current = count(table, key, windowHash(hash, index), start);
+
+            if (rule.algorithm() == Algorithm.FIXED_WINDOW) {
+                if (current + cost > capacity) {
+                    return new Result(false, start + window - now, (long) Math.max(0, capacity - current));
+                }
+                if (consume) setCount(table, key, windowHash(hash, index), start, current + cost, now, window);
+                return new Result(true, 0, (long) (capacity - current - cost));
+            }
+
+            double previous = count(table, key, windowHash(hash, index - 1), start - window);
+            double estimate = previous * (window - elapsed) / window + current;
+            if (estimate + cost <= capacity) {
+                if (consume) setCount(table, key, windowHash(hash, index), start, current + cost, now, 2 * window);
+                return new Result(true, 0, (long) Math.floor(capacity - estimate - cost + 1e-9));
+            }
+
+            // Earliest time the estimate leaves room for cost.
+            double retryAfterMs;
+            double room = capacity - cost - current;
+            if (room >= 0) {
+                // Later in this window, once enough of the previous one has slid out.
+                retryAfterMs = window * (1 - room / previous) - elapsed;
+            } else if (capacity - cost >= 0) {
+                // In the next window, where this window's count becomes the weighted one.
+                retryAfterMs = (window - elapsed) + window * (1 - (double) (capacity - cost) / current);
+            } else {
+                // cost exceeds capacity and never fits; report when both counters are gone.
+                retryAfterMs = 2 * window - elapsed;
+            }
+            return new Result(false, Math.max(1, (long) Math.ceil(retryAfterMs)),
+                    Math.max(0, (long) Math.floor(capacity - estimate + 1e-9)));
+        }
+
+        private static int windowHash(int hash, long index) {
+            return (index & 1) == 0 ? hash : hash ^ ODD_WINDOW;
+        }
+
+        private static double count(BucketTable table, String key, int hash, long windowStart) {
+            int slot = table.find(key, hash);
+            return slot >= 0 && table.lastRefillMs(slot) == windowStart ? table.tokens(slot) : 0;
+        }
+
+        private static void setCount(BucketTable table, String key, int hash, long windowStart, double count, long now, long retentionMs) {
+            int slot = table.find(key, hash);
+            if (slot < 0) slot = table.insert(key, hash, count, now, retentionMs);
+            table.set(slot, count, windowStart);
+        }
+
+        // `tokens` is what is left after the consume when allowed, what was there otherwise.
+        static Result result(RateLimitRule rule, int cost, double tokens, boolean allowed) {
+            long retryAfterMs = 0;
+            if (!allowed) {
+                double deficit = cost - tokens;
+                retryAfterMs = (long) Math.ceil((deficit / rule.refillTokensPerSecond()) * 1000.0);
+            }
+            return new Result(allowed, retryAfterMs, (long) Math.floor(tokens));
+        }
+
+        long size() {
+            long n = 0;
+            for (Shard s : shards) n += s.table.size();
+            return n;
+        }
+
+        void purge(long now) {
+            for (Shard s : shards) {
+                s.lock.lock();
+                try {
+                    s.table.purge(now, retentionMs);
+                } finally {
+                    s.lock.unlock();
+                }
+            }
+        }
+    }
+
+    private static final class Shard {
+        private static final AtomicLong IDS = new AtomicLong();
+
+        final long id = IDS.incrementAndGet();      // global lock order for multi-bucket checks
+        final ReentrantLock lock = new ReentrantLock();
+        final BucketTable table;
+
+        Shard(int initialCapacity) {
+            this.table = new BucketTable(initialCapacity);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "traffic.ratelimit.lease")
+public record LeaseProperties(
+        @DefaultValue("250ms") Duration expiry,          // local tokens are only served this long after a grant
+        @DefaultValue("100ms") Duration sweepInterval,   // how often expired leftovers are returned to Redis
+        @DefaultValue("60s") Duration idleEviction       // drop lease state for keys not seen this long
+) {}
@@ -0,0 +1,65 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+/**
+ * A rate-limit decision engine. Implementations must follow the refill, burst
+ * and cost semantics of {@code lua/token_bucket.lua}. Selected with
+ * {@code traffic.ratelimit.engine} ({@code redis} by default, or {@code memory}).
+ */
+public interface RateLimiter {
+
+    Result checkAndConsume(RateLimitRule rule, String key, int cost);
+
+    /** Decisions for several checks, in input order. */
+    default List<Result> checkAndConsumeAll(List<Check> checks) {
+        List<Result> out = new ArrayList<>(checks.size());
+        for (Check c : checks) {
+            out.add(checkAndConsume(c.rule(), c.key(), c.cost()));
+        }
+        return out;
+    }
+
+    /**
+     * One all-or-nothing decision across several buckets (e.g. per API key, per IP
+     * and a global ceiling): tokens are taken from every bucket only if every bucket
+     * allows, otherwise from none. Checks must name distinct (rule, key) pairs.
+     * Throws {@link IllegalArgumentException} for checks the limiter cannot decide
+     * atomically, e.g. buckets on different Redis shards.
+     */
+    MultiResult checkAndConsumeAtomically(List<Check> checks);
+
+    record Check(RateLimitRule rule, String key, int cost) {}
+
+    /**
+     * {@code results} are each bucket's own view, in input order: remaining after
+     * the consume if allowed, before it otherwise. {@code limiting} is the check
+     * that decided: the denying one with the longest retry, or, when allowed, the
+     * one with the least remaining.
+     */
+    record MultiResult(boolean allowed, long retryAfterMs, int limiting, List<Result> results) {
+
+        static MultiResult of(boolean allowed, List<Result> results) {
+            int limiting = 0;
+            for (int i = 1; i < results.size(); i++) {
+                Result r = results.get(i);
+                Result best = results.get(limiting);
+                if (allowed ? r.remaining() < best.remaining()
+                        : !r.allowed() && (best.allowed() || r.retryAfterMs() > best.retryAfterMs())) {
+                    limiting = i;
+                }
+            }
+            return new MultiResult(allowed, allowed ? 0 : results.get(limiting).retryAfterMs(), limiting, results);
+        }
+
+        public Result limitingResult() {
+            Result r = results.get(limiting);
+            return new Result(allowed, retryAfterMs, r.remaining());
+        }
+    }
+
+    record Result(boolean allowed, long retryAfterMs, long remaining) {}
+}
@@ -0,0 +1,17 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({
+        CoalescingProperties.class,
+        LeaseProperties.class,
+        InMemoryProperties.class,
+        DenyCacheProperties.class,
+        BreakerProperties.class,
+        AdaptiveProperties.class,
+        BucketProperties.class
+})
+public class RateLimiterConfig {
+}
@@ -0,0 +1,251 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Shared breaker in front of every limiter call to Redis. Opens when, over the
+ * last {@code window}, enough calls failed or were slow; while open, callers skip
+ * Redis and apply the rule's {@link com.shlokmestry.traffic.rules.Fallback}.
+ * After {@code openDuration} it lets {@code halfOpenProbes} calls through and
+ * closes once they all succeed in time, or opens again on the first bad one.
+ *
+ * <p>Every Redis outcome is counted in {@code ratelimit.breaker.calls.total}
+ * (this replaces {@code ratelimit.fail_closed.total}); state changes are counted
+ * in {@code ratelimit.breaker.transitions.total} and the current state is the
+ * {@code ratelimit.breaker.state} gauge (0 closed, 1 half-open, 2 open).
+ */
+@Component
+public class RedisCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+    private static final int WINDOW_BUCKETS = 10;
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    /** Why a call counts as failed. */
+    public enum Failure { REDIS_ERROR, BAD_RESPONSE, BAD_TYPES }
+
+    private final Clock clock;
+    private final boolean enabled;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final double slowCallRateThreshold;
+    private final long openDurationMs;
+    private final int halfOpenProbes;
+    private final long bucketMs;
+    private final Bucket[] buckets = new Bucket[WINDOW_BUCKETS];
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private volatile long openedAtMs;
+    private final AtomicInteger probesIssued = new AtomicInteger();
+    private final AtomicInteger probesSucceeded = new AtomicInteger();
+
+    private final Counter successes;
+    private final Counter slowCalls;
+    private final Counter notPermitted;
+    private final Map<Failure, Counter> failures = new EnumMap<>(Failure.class);
+    private final Map<State, Map<State, Counter>> transitions = new EnumMap<>(State.class);
+
+    @Autowired
+    public RedisCircuitBreaker(BreakerProperties props, MeterRegistry registry) {
+        this(Clock.systemUTC(), props, registry);
+    }
+
+    RedisCircuitBreaker(Clock clock, BreakerProperties props, MeterRegistry registry) {
+        this.clock = clock;
+        this.enabled = props.enabled();
+        this.minimumCalls = Math.max(1, props.minimumCalls());
+        this.failureRateThreshold = props.failureRateThreshold();
+        this.slowCallNanos = props.slowCallDuration().toNanos();
+        this.slowCallRateThreshold = props.slowCallRateThreshold();
+        this.openDurationMs = props.openDuration().toMillis();
+        this.halfOpenProbes = Math.max(1, props.halfOpenProbes());
+        this.bucketMs = Math.max(1, props.window().toMillis() / WINDOW_BUCKETS);
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new Bucket();
+
+        this.successes = calls(registry, "success");
+        this.slowCalls = calls(registry, "slow");
+        this.notPermitted = calls(registry, "not_permitted");
+        for (Failure f : Failure.values()) {
+            failures.put(f, calls(registry, f.name().toLowerCase(Locale.ROOT)));
+        }
+
+        transition(registry, State.CLOSED, State.OPEN);
+        transition(registry, State.OPEN, State.HALF_OPEN);
+        transition(registry, State.HALF_OPEN, State.OPEN);
+        transition(registry, State.HALF_OPEN, State.CLOSED);
+
+        Gauge.builder("ratelimit.breaker.state", state, s -> s.get().ordinal())
+                .description("Redis circuit breaker state: 0 closed, 1 half-open, 2 open")
+                .register(registry);
+    }
+
+    /**
+     * False while open (or half-open with all probes handed out): do not call
+     * Redis. Every true must be followed by {@link #onSuccess} or {@link #onFailure}.
+     */
+    public boolean tryAcquire() {
+        if (!enabled) return true;
+
+        State s = state.get();
+        if (s == State.CLOSED) return true;
+
+        if (s == State.OPEN) {
+            if (clock.millis() - openedAtMs < openDurationMs) {
+                notPermitted.increment();
+                return false;
+            }
+            if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                transitioned(State.OPEN, State.HALF_OPEN);
+            }
+        }
+
+        if (state.get() == State.HALF_OPEN && probesIssued.incrementAndGet() <= halfOpenProbes) {
+            return true;
+        }
+        notPermitted.increment();
+        return false;
+    }
+
+    public void onSuccess(long elapsedNanos) {
+        boolean slow = elapsedNanos > slowCallNanos;
+        (slow ? slowCalls : successes).increment();
+        if (!enabled) return;
+
+        if (state.get() == State.HALF_OPEN) {
+            if (slow) {
+                trip(State.HALF_OPEN);
+            } else if (probesSucceeded.incrementAndGet() >= halfOpenProbes
+                    && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                for (Bucket b : buckets) b.clear();
+                transitioned(State.HALF_OPEN, State.CLOSED);
+            }
+            return;
+        }
+
+        Bucket b = bucket(clock.millis());
+        b.calls.increment();
+        if (slow) {
+            b.slow.increment();
+            evaluate();
+        }
+    }
+
+    public void onFailure(Failure reason) {
+        failures.get(reason).increment();
+        if (!enabled) return;
+
+        if (state.get() == State.HALF_OPEN) {
+            trip(State.HALF_OPEN);
+            return;
+        }
+
+        Bucket b = bucket(clock.millis());
+        b.calls.increment();
+        b.failures.increment();
+        evaluate();
+    }
+
+    public State state() {
+        return state.get();
+    }
+
+    // Only failures and slow calls can push a rate over its threshold, so only they evaluate.
+    private void evaluate() {
+        if (state.get() != State.CLOSED) return;
+
+        long nowMs = clock.millis();
+        long calls = 0, failed = 0, slow = 0;
+        for (Bucket b : buckets) {
+            if (nowMs - b.startMs >= bucketMs * WINDOW_BUCKETS) continue; // outside the window
+            calls += b.calls.sum();
+            failed += b.failures.sum();
+            slow += b.slow.sum();
+        }
+        if (calls < minimumCalls) return;
+
+        if ((double) failed / calls >= failureRateThreshold || (double) slow / calls >= slowCallRateThreshold) {
+            trip(State.CLOSED);
+        }
+    }
+
+    private void trip(State from) {
+        openedAtMs = clock.millis();
+        probesIssued.set(0);
+        probesSucceeded.set(0);
+        if (state.compareAndSet(from, State.OPEN)) {
+            transitioned(from, State.OPEN);
+        }
+    }
+
+    private Bucket bucket(long nowMs) {
+        long start = nowMs - (nowMs % bucketMs);
+        Bucket b = buckets[(int) ((nowMs / bucketMs) % WINDOW_BUCKETS)];
+        if (b.startMs != start) {
+            b.lock.lock();
+            try {
+                if (b.startMs != start) {
+                    b.clear();
+                    b.startMs = start;
+                }
+            } finally {
+                b.lock.unlock();
+            }
+        }
+        return b;
+    }
+
+    private void transitioned(State from, State to) {
+        transitions.get(from).get(to).increment();
+        log.warn("ratelimit breaker {} -> {}", from, to);
+    }
+
+    private static Counter calls(MeterRegistry registry, String outcome) {
+        return Counter.builder("ratelimit.breaker.calls.total")
+                .description("Limiter calls to Redis by outcome; not_permitted = skipped while the breaker was open")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private void transition(MeterRegistry registry, State from, State to) {
+        Counter c = Counter.builder("ratelimit.breaker.transitions.total")
+                .description("Redis circuit breaker state changes")
+                .tag("from", from.name().toLowerCase(Locale.ROOT))
+                .tag("to", to.name().toLowerCase(Locale.ROOT))
+                .register(registry);
+        transitions.computeIfAbsent(from, s -> new EnumMap<>(State.class)).put(to, c);
+    }
+
+    // One slice of the window; reset lazily when the clock moves into its next turn.
+    private static final class Bucket {
+        final ReentrantLock lock = new ReentrantLock();
+        final LongAdder calls = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder slow = new LongAdder();
+        volatile long startMs = Long.MIN_VALUE;
+
+        void clear() {
+            calls.reset();
+            failures.reset();
+            slow.reset();
+        }
+    }
+}
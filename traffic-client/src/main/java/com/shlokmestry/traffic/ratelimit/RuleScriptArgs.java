@@ -0,0 +1,104 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import com.shlokmestry.traffic.rules.Fallback;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+/**
+ * The parts of a script call that only depend on the rule, encoded once: the
+ * bucket key around the client key (readable, or compact: see {@link BucketKeys})
+ * and the stringified limits. Per decision only the client key,
+ * the cost and the clock still have to be turned into strings. Limits are those of
+ * the effective rule, i.e. after an adaptive multiplier. Also holds the scaled-down
+ * rule used for {@link Fallback#LOCAL} while Redis is unavailable.
+ */
+final class RuleScriptArgs {
+
+    private static final String[] SMALL_INTS = new String[129];
+
+    static {
+        for (int i = 0; i < SMALL_INTS.length; i++) {
+            SMALL_INTS[i] = String.valueOf(i);
+        }
+    }
+
+    final String keyPrefix;     // up to and including the '{' of the hash tag
+    final String keySuffix;     // from the closing '}' on
+    final boolean compactKeys;
+    final String capacity;
+    final String refillTokensPerSecond;
+    final String burstCapacity;
+    final String ttlMs;
+    final double multiplier;
+    final RateLimitRule effectiveRule;
+    final RateLimitRule fallbackRule;
+
+    RuleScriptArgs(RateLimitRule rule, double multiplier) {
+        this(rule, multiplier, false);
+    }
+
+    RuleScriptArgs(RateLimitRule rule, double multiplier, boolean compactKeys) {
+        RateLimitRule effective = multiplier == 1.0 ? rule : scaled(rule, multiplier);
+        this.keyPrefix = TokenBucketRateLimiter.bucketKeyPrefix(rule.algorithm());
+        this.keySuffix = compactKeys
+                ? "}:" + BucketKeys.rule(rule.ruleId(), rule.endpoint(), rule.plan())
+                : TokenBucketRateLimiter.bucketKeySuffix(rule.ruleId(), rule.endpoint(), rule.plan());
+        this.compactKeys = compactKeys;
+        this.capacity = String.valueOf(effective.capacity());
+        this.refillTokensPerSecond = String.valueOf(effective.refillTokensPerSecond());
+        this.burstCapacity = String.valueOf(effective.burstCapacity());
+        this.ttlMs = String.valueOf(rule.ttlMs());
+        this.multiplier = multiplier;
+        this.effectiveRule = effective;
+        this.fallbackRule = fallbackRule(effective);
+    }
+
+    // Same rule with capacity, burst and refill scaled by an adaptive multiplier; at least one token,
+    // and a new bucket still starts with one unless the rule itself starts buckets empty.
+    private static RateLimitRule scaled(RateLimitRule rule, double m) {
+        return new RateLimitRule(
+                rule.ruleId(),
+                rule.endpoint(),
+                rule.plan(),
+                Math.max(1, (int) (rule.capacity() * m)),
+                rule.refillTokensPerSecond() * m,
+                rule.burstCapacity() > 0 ? Math.max(1, (int) (rule.burstCapacity() * m)) : 0,
+                rule.ttlMs(),
+                rule.maxCost(),
+                rule.leaseSize(),
+                rule.algorithm(),
+                rule.fallback(),
+                rule.fallbackFraction(),
+                rule.targetLatencyMs()
+        );
+    }
+
+    // This instance's share of the rule: capacity, burst and refill scaled by fallbackFraction.
+    // A window rule keeps its window; only its capacity is shared out.
+    private static RateLimitRule fallbackRule(RateLimitRule rule) {
+        double f = rule.fallbackFraction();
+        return new RateLimitRule(
+                rule.ruleId(),
+                rule.endpoint(),
+                rule.plan(),
+                Math.max(1, (int) Math.ceil(rule.capacity() * f)),
+                rule.refillTokensPerSecond() * f,
+                (int) Math.ceil(rule.burstCapacity() * f),
+                rule.ttlMs(),
+                rule.maxCost(),
+                0,
+                rule.algorithm(),
+                Fallback.FAIL_CLOSED,
+                0.0,
+                0L
+        );
+    }
+
+    String bucketKey(String key) {
+        return keyPrefix + (compactKeys ? BucketKeys.identity(key) : key) + keySuffix;
+    }
+
+    // Costs are almost always small; avoid a fresh String for each one.
+    static String cost(int cost) {
+        return (cost >= 0 && cost < SMALL_INTS.length) ? SMALL_INTS[cost] : String.valueOf(cost);
+    }
+}
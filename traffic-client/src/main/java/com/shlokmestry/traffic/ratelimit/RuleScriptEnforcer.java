@@ -0,0 +1,152 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Clock;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import com.shlokmestry.traffic.observability.DecisionTrace;
+import com.shlokmestry.traffic.redis.RedisShards;
+import com.shlokmestry.traffic.rules.Algorithm;
+import com.shlokmestry.traffic.rules.Fallback;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+/**
+ * Resolves the rule and runs the token bucket in one script call
+ * ({@code lua/enforce_by_rule.lua}), so a decision costs a single round trip
+ * and cannot see a rule that changed between lookup and consume.
+ * Enabled with {@code traffic.ratelimit.server-side-rules=true} (Redis engine only).
+ *
+ * <p>Standalone nodes only: the script builds the bucket key from rule fields, so it
+ * cannot declare it in KEYS, and on Redis Cluster that key would usually live in
+ * another slot than {@code rule:{ruleId}}. A Cluster connection is rejected at startup.
+ */
+@Component
+@ConditionalOnProperty(name = "traffic.ratelimit.server-side-rules", havingValue = "true")
+public class RuleScriptEnforcer {
+
+    private static final String RULE_PREFIX = "rule:";
+
+    private final RedisShards shards;
+    private final Clock clock;
+    private final RedisScript<List> script;
+    private final RedisCircuitBreaker breaker;
+    private final boolean compactKeys;
+    private final String compactKeysArg;
+    private final String expireWhenFullArg;
+
+    /**
+     * UNAVAILABLE: the breaker is open, nothing was sent; the caller takes the regular
+     * rule lookup + limiter path, which applies the rule's fallback.
+     * RULE_NOT_ON_NODE: the bucket's node has no copy of the rule; nothing was consumed
+     * and the caller takes the regular path, which reads the rule where it is stored.
+     */
+    public enum Status { DECIDED, COST_TOO_HIGH, LOCAL, UNAVAILABLE, RULE_NOT_ON_NODE }
+
+    /** {@code result} is only meaningful for {@link Status#DECIDED}; both are null for UNAVAILABLE and RULE_NOT_ON_NODE. */
+    public record Outcome(Status status, RateLimitRule rule, RateLimiter.Result result) {}
+
+    public RuleScriptEnforcer(RedisShards shards, RedisCircuitBreaker breaker, BucketProperties buckets) {
+        for (StringRedisTemplate node : shards.nodes()) {
+            if (node.getConnectionFactory() instanceof LettuceConnectionFactory f && f.isClusterAware()) {
+                throw new IllegalStateException("traffic.ratelimit.server-side-rules needs standalone Redis nodes: "
+                        + "enforce_by_rule.lua writes a bucket key it cannot declare, which Redis Cluster rejects");
+            }
+        }
+        this.shards = shards;
+        this.clock = Clock.systemUTC();
+        this.script = RedisScript.of(new ClassPathResource("lua/enforce_by_rule.lua"), List.class);
+        this.breaker = breaker;
+        this.compactKeys = buckets.compactKeys();
+        this.compactKeysArg = buckets.compactKeys() ? "1" : "0";
+        this.expireWhenFullArg = buckets.expireWhenFull() ? "1" : "0";
+    }
+
+    /**
+     * Returns null if Redis failed or the reply could not be decoded; the caller takes the
+     * regular rule lookup + limiter path, which applies the rule's fallback.
+     */
+    public Outcome enforce(String ruleId, String key, int cost) {
+        if (!breaker.tryAcquire()) {
+            return new Outcome(Status.UNAVAILABLE, null, null);
+        }
+
+        long startNanos = System.nanoTime();
+        final List<?> res;
+        try {
+            // The shard of the bucket key tb:{<tag>}:...; every shard has a copy of the rule.
+            String tag = compactKeys ? BucketKeys.identity(key) : key;
+            res = shards.forKey("{" + tag + "}").execute(
+                    script,
+                    List.of(RULE_PREFIX + ruleId),
+                    ruleId,
+                    key,
+                    String.valueOf(cost),
+                    String.valueOf(clock.millis()),
+                    compactKeysArg,
+                    expireWhenFullArg
+            );
+        } catch (Exception e) {
+            breaker.onFailure(RedisCircuitBreaker.Failure.REDIS_ERROR);
+            return null;
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        DecisionTrace.record(DecisionTrace.Stage.SCRIPT, elapsedNanos);
+
+        if (res == null || res.size() < 16) {
+            breaker.onFailure(RedisCircuitBreaker.Failure.BAD_RESPONSE);
+            return null;
+        }
+        if (res.get(0) instanceof Number code && code.intValue() == 4) {
+            breaker.onSuccess(elapsedNanos);
+            return new Outcome(Status.RULE_NOT_ON_NODE, null, null);
+        }
+
+        final Outcome outcome;
+        long decodeStart = System.nanoTime();
+        try {
+            RateLimitRule rule = new RateLimitRule(
+                    ruleId,
+                    (String) res.get(10),
+                    (String) res.get(11),
+                    ((Number) res.get(4)).intValue(),
+                    Double.parseDouble((String) res.get(5)),
+                    ((Number) res.get(6)).intValue(),
+                    ((Number) res.get(7)).longValue(),
+                    ((Number) res.get(8)).intValue(),
+                    ((Number) res.get(9)).intValue(),
+                    Algorithm.valueOf((String) res.get(12)),
+                    Fallback.valueOf((String) res.get(13)),
+                    Double.parseDouble((String) res.get(14)),
+                    ((Number) res.get(15)).longValue()
+            );
+
+            Status status = switch (((Number) res.get(0)).intValue()) {
+                case 0 -> Status.DECIDED;
+                case 2 -> Status.COST_TOO_HIGH;
+                case 3 -> Status.LOCAL;
+                default -> throw new IllegalStateException("unknown status " + res.get(0));
+            };
+
+            RateLimiter.Result result = new RateLimiter.Result(
+                    ((Number) res.get(1)).intValue() == 1,
+                    ((Number) res.get(2)).longValue(),
+                    ((Number) res.get(3)).longValue()
+            );
+            outcome = new Outcome(status, rule, result);
+        } catch (RuntimeException e) {
+            breaker.onFailure(RedisCircuitBreaker.Failure.BAD_TYPES);
+            return null;
+        }
+
+        DecisionTrace.record(DecisionTrace.Stage.DECODE, System.nanoTime() - decodeStart);
+
+        breaker.onSuccess(elapsedNanos);
+        return outcome;
+    }
+}
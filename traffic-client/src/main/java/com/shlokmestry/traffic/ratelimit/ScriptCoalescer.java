@@ -0,0 +1,167 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Coalesces script calls from many request threads into pipelines. A flusher
+ * sends whatever is queued once {@code maxBatchSize} calls are waiting or the
+ * first one has waited {@code maxWait}, then completes each caller's future
+ * with its own reply (or the per-call Exception). A caller that stops waiting
+ * withdraws its call; a withdrawn call is never sent, so it consumes nothing.
+ */
+final class ScriptCoalescer implements AutoCloseable {
+
+    private final ScriptPipeline pipeline;
+    private final BlockingQueue<Pending> queue;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final List<Thread> flushers = new ArrayList<>();
+
+    private final DistributionSummary batchSize;
+    private final Timer flushLatency;
+    private final Counter queueFull;
+
+    private volatile boolean running = true;
+
+    private record Pending(ScriptPipeline.Call call, Reply reply) {}
+
+    /** A queued call's reply. The flusher takes the call before sending it; a caller that gave up withdraws it. */
+    static final class Reply extends CompletableFuture<Object> {
+        private final AtomicBoolean taken = new AtomicBoolean();
+
+        /**
+         * True if the call will never be sent (the reply is cancelled); false if a flusher
+         * already has it, in which case its reply is on the way.
+         */
+        boolean withdraw() {
+            if (!taken.compareAndSet(false, true)) return false;
+            cancel(false);
+            return true;
+        }
+
+        private boolean take() {
+            return taken.compareAndSet(false, true);
+        }
+    }
+
+    ScriptCoalescer(ScriptPipeline pipeline, CoalescingProperties props, MeterRegistry registry) {
+        this.pipeline = pipeline;
+        this.queue = new ArrayBlockingQueue<>(props.queueCapacity());
+        this.maxBatchSize = props.maxBatchSize();
+        this.maxWaitNanos = props.maxWait().toNanos();
+
+        this.batchSize = DistributionSummary.builder("ratelimit.coalescer.batch.size")
+                .description("Script calls sent per coalesced pipeline")
+                .publishPercentileHistogram()
+                .register(registry);
+
+        this.flushLatency = Timer.builder("ratelimit.coalescer.flush.latency")
+                .description("Round trip of one coalesced pipeline")
+                .publishPercentileHistogram()
+                .register(registry);
+
+        this.queueFull = Counter.builder("ratelimit.coalescer.queue_full.total")
+                .description("Calls that bypassed the coalescer because its queue was full")
+                .register(registry);
+
+        Gauge.builder("ratelimit.coalescer.queue.depth", queue, BlockingQueue::size)
+                .description("Script calls waiting to be flushed")
+                .register(registry);
+
+        for (int i = 0; i < props.flushers(); i++) {
+            Thread t = new Thread(this::flushLoop, "ratelimit-coalescer-" + i);
+            t.setDaemon(true);
+            t.start();
+            flushers.add(t);
+        }
+    }
+
+    /** Returns null when the queue is full; the caller should then run the script itself. */
+    Reply submit(ScriptPipeline.Call call) {
+        Reply reply = new Reply();
+        if (!queue.offer(new Pending(call, reply))) {
+            queueFull.increment();
+            return null;
+        }
+        return reply;
+    }
+
+    private void flushLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) continue;
+
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) break;
+
+                    Pending next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> queued) {
+        List<Pending> batch = new ArrayList<>(queued.size());
+        for (Pending p : queued) {
+            if (p.reply().take()) batch.add(p);
+        }
+        if (batch.isEmpty()) return;
+
+        List<ScriptPipeline.Call> calls = new ArrayList<>(batch.size());
+        for (Pending p : batch) calls.add(p.call());
+
+        batchSize.record(batch.size());
+        long start = System.nanoTime();
+
+        final List<Object> replies;
+        try {
+            replies = pipeline.execute(calls);
+        } catch (Exception e) {
+            for (Pending p : batch) p.reply().completeExceptionally(e);
+            return;
+        } finally {
+            flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).reply().complete(i < replies.size() ? replies.get(i) : null);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        flushers.forEach(Thread::interrupt);
+
+        Pending p;
+        while ((p = queue.poll()) != null) {
+            p.reply().completeExceptionally(new IllegalStateException("coalescer closed"));
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.shlokmestry.traffic.redis.RedisShards;
+
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+/**
+ * Runs many Lua script invocations in a single pipelined round trip per shard.
+ * Each element of the returned list is either the script reply or the Exception
+ * Redis returned for that invocation, so callers can fail closed per item.
+ * A call goes to the shard of its first key; with several shards involved the
+ * per-shard pipelines run concurrently.
+ */
+final class ScriptPipeline {
+
+    private final RedisShards shards;
+    private final List<Set<String>> loaded = new ArrayList<>();    // per shard
+    private final ExecutorService fanOut;                          // null for a single shard
+
+    ScriptPipeline(RedisShards shards) {
+        this.shards = shards;
+        for (int i = 0; i < shards.size(); i++) loaded.add(ConcurrentHashMap.newKeySet());
+        this.fanOut = shards.size() > 1 ? Executors.newVirtualThreadPerTaskExecutor() : null;
+    }
+
+    record Call(RedisScript<?> script, List<String> keys, String... args) {
+        Call(RedisScript<?> script, String key, String... args) {
+            this(script, List.of(key), args);
+        }
+    }
+
+    List<Object> execute(List<Call> calls) {
+        if (fanOut == null) return execute(0, calls);
+
+        Map<Integer, List<Integer>> byShard = new LinkedHashMap<>();
+        for (int i = 0; i < calls.size(); i++) {
+            byShard.computeIfAbsent(shards.shardOf(calls.get(i).keys().get(0)), s -> new ArrayList<>()).add(i);
+        }
+        if (byShard.size() == 1) return execute(byShard.keySet().iterator().next(), calls);
+
+        Map<Integer, CompletableFuture<List<Object>>> pending = new LinkedHashMap<>();
+        for (Map.Entry<Integer, List<Integer>> e : byShard.entrySet()) {
+            List<Call> shardCalls = new ArrayList<>(e.getValue().size());
+            for (int i : e.getValue()) shardCalls.add(calls.get(i));
+            pending.put(e.getKey(), CompletableFuture.supplyAsync(() -> execute(e.getKey(), shardCalls), fanOut));
+        }
+
+        Object[] out = new Object[calls.size()];
+        for (Map.Entry<Integer, List<Integer>> e : byShard.entrySet()) {
+            List<Integer> indexes = e.getValue();
+            List<Object> shardResults;
+            try {
+                shardResults = pending.get(e.getKey()).join();
+            } catch (RuntimeException ex) {
+                // A failed shard fails only its own calls.
+                shardResults = null;
+                for (int i : indexes) out[i] = ex;
+            }
+            for (int j = 0; shardResults != null && j < indexes.size(); j++) {
+                out[indexes.get(j)] = j < shardResults.size() ? shardResults.get(j) : null;
+            }
+        }
+        return Arrays.asList(out);
+    }
+
+    private List<Object> execute(int shard, List<Call> calls) {
+        StringRedisTemplate redis = shards.node(shard);
+        load(redis, loaded.get(shard), calls, false);
+
+        List<Object> results = run(redis, calls);
+
+        // Script cache was flushed (restart/failover): reload once and replay only the calls that
+        // got NOSCRIPT. The others already ran, and running them again would charge them twice.
+        List<Integer> retry = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            if (isNoScript(results.get(i))) retry.add(i);
+        }
+        if (retry.isEmpty()) return results;
+
+        List<Call> retryCalls = new ArrayList<>(retry.size());
+        for (int i : retry) retryCalls.add(calls.get(i));
+        load(redis, loaded.get(shard), retryCalls, true);
+        List<Object> replayed = run(redis, retryCalls);
+
+        List<Object> merged = new ArrayList<>(results);
+        for (int j = 0; j < retry.size(); j++) {
+            merged.set(retry.get(j), j < replayed.size() ? replayed.get(j) : null);
+        }
+        return merged;
+    }
+
+    // Lettuce's async commands instead of executePipelined: commands are still written without
+    // waiting for replies, but one failed call (NOSCRIPT after a flush, say) no longer throws away
+    // the replies of the others, so the caller knows exactly which calls ran.
+    private static List<Object> run(StringRedisTemplate redis, List<Call> calls) {
+        return redis.execute((RedisCallback<List<Object>>) connection -> {
+            @SuppressWarnings("unchecked")
+            RedisClusterAsyncCommands<byte[], byte[]> async =
+                    (RedisClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+
+            List<RedisFuture<Object>> futures = new ArrayList<>(calls.size());
+            for (Call call : calls) {
+                futures.add(evalSha(async, call));
+            }
+
+            List<Object> results = new ArrayList<>(futures.size());
+            for (RedisFuture<Object> future : futures) {
+                try {
+                    results.add(decode(future.get()));
+                } catch (ExecutionException e) {
+                    results.add(e.getCause() instanceof Exception cause ? cause : e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.add(e);
+                }
+            }
+            return results;
+        });
+    }
+
+    private static RedisFuture<Object> evalSha(RedisClusterAsyncCommands<byte[], byte[]> async, Call call) {
+        byte[][] keys = new byte[call.keys().size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = call.keys().get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        byte[][] args = new byte[call.args().length][];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = call.args()[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return async.evalsha(call.script().getSha1(), ScriptOutputType.MULTI, keys, args);
+    }
+
+    // Bulk strings as Strings, as StringRedisTemplate would deserialize them.
+    private static Object decode(Object reply) {
+        if (reply instanceof byte[] bytes) return new String(bytes, StandardCharsets.UTF_8);
+        if (reply instanceof List<?> list) {
+            List<Object> out = new ArrayList<>(list.size());
+            for (Object o : list) out.add(decode(o));
+            return out;
+        }
+        return reply;
+    }
+
+    private static void load(StringRedisTemplate redis, Set<String> loaded, List<Call> calls, boolean force) {
+        Map<String, RedisScript<?>> missing = new LinkedHashMap<>();
+        for (Call call : calls) {
+            String sha = call.script().getSha1();
+            if (force || !loaded.contains(sha)) missing.putIfAbsent(sha, call.script());
+        }
+        if (missing.isEmpty()) return;
+
+        redis.execute((RedisCallback<Object>) connection -> {
+            for (RedisScript<?> script : missing.values()) {
+                connection.scriptingCommands().scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        loaded.addAll(missing.keySet());
+    }
+
+    private static boolean isNoScript(Object result) {
+        return result instanceof Exception e
+                && e.getMessage() != null
+                && e.getMessage().contains("NOSCRIPT");
+    }
+}
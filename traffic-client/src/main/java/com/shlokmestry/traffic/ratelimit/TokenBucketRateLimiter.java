@@ -0,0 +1,440 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import com.shlokmestry.traffic.observability.DecisionTrace;
+import com.shlokmestry.traffic.redis.RedisShards;
+import com.shlokmestry.traffic.rules.Algorithm;
+import com.shlokmestry.traffic.rules.Fallback;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+@Service
+@ConditionalOnProperty(name = "traffic.ratelimit.engine", havingValue = "redis", matchIfMissing = true)
+public class TokenBucketRateLimiter implements RateLimiter {
+
+    private static final long FAIL_CLOSED_RETRY_AFTER_MS = 1000;
+    private static final int MAX_CACHED_RULES = 10_000;
+
+    private final RedisShards shards;
+    private final Clock clock;
+    private final Map<Algorithm, RedisScript<List>> scripts = new EnumMap<>(Algorithm.class);
+    private final RedisScript<List> multiScript;
+    private final ScriptPipeline pipeline;
+    private final ScriptCoalescer coalescer;     // null unless traffic.ratelimit.coalescing.enabled
+    private final long coalescingTimeoutMs;
+    private final TokenLeases leases;
+    private final Map<RateLimitRule, RuleScriptArgs> argsByRule = new ConcurrentHashMap<>();
+    private final boolean compactKeys;
+    private final String expireWhenFull;         // "1" or "0", passed to every bucket script
+
+    private final RedisCircuitBreaker breaker;
+    private final InMemoryRateLimiter fallbackBuckets;   // Fallback.LOCAL rules while Redis is unavailable
+    private final AdaptiveLimits adaptive;
+
+    private final Counter localFallbacks;
+    private final Counter failClosedFallbacks;
+
+    public TokenBucketRateLimiter(
+            RedisShards shards,
+            MeterRegistry registry,
+            CoalescingProperties coalescing,
+            LeaseProperties lease,
+            InMemoryProperties memory,
+            BucketProperties buckets,
+            RedisCircuitBreaker breaker,
+            AdaptiveLimits adaptive
+    ) {
+        this.shards = shards;
+        this.clock = Clock.systemUTC();
+        this.scripts.put(Algorithm.TOKEN_BUCKET, RedisScript.of(new ClassPathResource("lua/token_bucket.lua"), List.class));
+        this.scripts.put(Algorithm.GCRA, RedisScript.of(new ClassPathResource("lua/gcra.lua"), List.class));
+        this.scripts.put(Algorithm.FIXED_WINDOW, RedisScript.of(new ClassPathResource("lua/fixed_window.lua"), List.class));
+        this.scripts.put(Algorithm.SLIDING_WINDOW, RedisScript.of(new ClassPathResource("lua/sliding_window.lua"), List.class));
+        this.multiScript = RedisScript.of(new ClassPathResource("lua/token_bucket_multi.lua"), List.class);
+        this.pipeline = new ScriptPipeline(shards);
+        this.coalescer = coalescing.enabled() ? new ScriptCoalescer(pipeline, coalescing, registry) : null;
+        this.coalescingTimeoutMs = coalescing.timeout().toMillis();
+        this.breaker = breaker;
+        this.leases = new TokenLeases(shards, clock, lease, breaker, registry);
+        this.fallbackBuckets = new InMemoryRateLimiter(clock, memory);
+        this.adaptive = adaptive;
+        this.compactKeys = buckets.compactKeys();
+        this.expireWhenFull = buckets.expireWhenFull() ? "1" : "0";
+
+        this.localFallbacks = Counter.builder("ratelimit.breaker.fallback.total")
+                .description("Decisions made without Redis, by the rule's fallback")
+                .tag("fallback", "local")
+                .register(registry);
+
+        this.failClosedFallbacks = Counter.builder("ratelimit.breaker.fallback.total")
+                .description("Decisions made without Redis, by the rule's fallback")
+                .tag("fallback", "fail_closed")
+                .register(registry);
+    }
+
+    /**
+     * Decision for one request under {@code rule}. The rule's algorithm picks the
+     * script; token-bucket rules with a leaseSize are served from local leases.
+     * If Redis is skipped (breaker open) or fails, the rule's fallback decides.
+     */
+    @Override
+    public Result checkAndConsume(RateLimitRule rule, String key, int cost) {
+        if (isLeased(rule)) {
+            return checkLeased(rule, key, cost);
+        }
+        if (!breaker.tryAcquire()) {
+            return unavailable(rule, key, cost);
+        }
+
+        ScriptPipeline.Call call = call(rule, key, cost, clock.millis());
+        long startNanos = System.nanoTime();
+        Object reply = execute(call);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        DecisionTrace.record(DecisionTrace.Stage.SCRIPT, elapsedNanos);
+
+        RedisCircuitBreaker.Failure failure = failureOf(reply);
+        if (failure != null) {
+            breaker.onFailure(failure);
+            return unavailable(rule, key, cost);
+        }
+        breaker.onSuccess(elapsedNanos);
+
+        long decodeStart = System.nanoTime();
+        Result r = decode((List<?>) reply);
+        DecisionTrace.record(DecisionTrace.Stage.DECODE, System.nanoTime() - decodeStart);
+        return r;
+    }
+
+    public Result checkAndConsume(
+            String key,
+            String ruleId,
+            String endpoint,
+            String plan,
+            int capacity,
+            double refillTokensPerSecond,
+            int burstCapacity,
+            int cost,
+            long ttlMs
+    ) {
+        return checkAndConsume(
+                new RateLimitRule(ruleId, endpoint, plan, capacity, refillTokensPerSecond, burstCapacity, ttlMs, cost),
+                key,
+                cost
+        );
+    }
+
+    // The script reply, or the exception that stands in for it.
+    private Object execute(ScriptPipeline.Call call) {
+        try {
+            if (coalescer != null) {
+                ScriptCoalescer.Reply reply = coalescer.submit(call);
+                if (reply != null) return coalesced(reply);
+                // Queue full: fall through and pay for our own round trip.
+            }
+            return shards.forKey(call.keys().get(0)).execute(call.script(), call.keys(), (Object[]) call.args());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return e;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    // Past the timeout a call still queued is withdrawn, so a caller answered "unavailable" is never
+    // charged later. One already in a pipeline has run or is running; its reply is awaited instead.
+    private Object coalesced(ScriptCoalescer.Reply reply) throws Exception {
+        try {
+            return reply.get(coalescingTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return reply.withdraw() ? e : reply.get();
+        }
+    }
+
+    // Every algorithm script takes the same KEYS/ARGV layout and returns {allowed, retryAfterMs, remaining}.
+    // Window scripts treat the key as a prefix and append the window index; the hash tag, and so the shard, is unchanged.
+    ScriptPipeline.Call call(RateLimitRule rule, String key, int cost, long nowMs) {
+        RuleScriptArgs a = args(rule);
+        return new ScriptPipeline.Call(
+                scripts.get(rule.algorithm()),
+                a.bucketKey(key),
+                String.valueOf(nowMs),
+                a.capacity,
+                a.refillTokensPerSecond,
+                a.burstCapacity,
+                RuleScriptArgs.cost(cost),
+                a.ttlMs,
+                expireWhenFull
+        );
+    }
+
+    /**
+     * The Redis key that holds {@code key}'s state under {@code rule}: compact or readable, as
+     * {@code traffic.ratelimit.buckets.compact-keys} says. Lets an operator find a bucket with redis-cli.
+     */
+    public String bucketKey(RateLimitRule rule, String key) {
+        return args(rule).bucketKey(key);
+    }
+
+    // Every path to Redis or the local fallback takes its limits from here, so an adaptive
+    // multiplier applies to all of them. It changes at most once per adaptive interval.
+    private RuleScriptArgs args(RateLimitRule rule) {
+        double multiplier = adaptive.multiplier(rule);
+        RuleScriptArgs a = argsByRule.get(rule);
+        if (a != null && a.multiplier == multiplier) return a;
+
+        // Old rule versions and fail-closed stand-ins accumulate; start over rather than grow without bound.
+        if (argsByRule.size() >= MAX_CACHED_RULES) argsByRule.clear();
+        a = new RuleScriptArgs(rule, multiplier, compactKeys);
+        argsByRule.put(rule, a);
+        return a;
+    }
+
+    /**
+     * Same decision as {@link #checkAndConsume} for every check, but all script
+     * invocations share one pipelined round trip. Results are in input order and
+     * each item falls back on its own.
+     */
+    @Override
+    public List<Result> checkAndConsumeAll(List<Check> checks) {
+        if (checks.isEmpty()) return List.of();
+
+        long nowMs = clock.millis();
+        Result[] out = new Result[checks.size()];
+        List<Integer> pipelinedIndexes = new ArrayList<>(checks.size());
+        List<ScriptPipeline.Call> calls = new ArrayList<>(checks.size());
+        for (int i = 0; i < checks.size(); i++) {
+            Check c = checks.get(i);
+            RateLimitRule rule = c.rule();
+            if (isLeased(rule)) {
+                out[i] = checkLeased(rule, c.key(), c.cost());
+                continue;
+            }
+            pipelinedIndexes.add(i);
+            calls.add(call(rule, c.key(), c.cost(), nowMs));
+        }
+
+        // One permit and one breaker outcome per pipeline: it fails if any reply is unusable.
+        List<Object> raw = null;
+        if (!calls.isEmpty() && breaker.tryAcquire()) {
+            long startNanos = System.nanoTime();
+            RedisCircuitBreaker.Failure failure = null;
+            try {
+                raw = pipeline.execute(calls);
+                for (int j = 0; j < calls.size() && failure == null; j++) {
+                    failure = j < raw.size() ? failureOf(raw.get(j)) : RedisCircuitBreaker.Failure.BAD_RESPONSE;
+                }
+            } catch (Exception e) {
+                raw = null;
+                failure = RedisCircuitBreaker.Failure.REDIS_ERROR;
+            }
+            if (failure != null) breaker.onFailure(failure);
+            else breaker.onSuccess(System.nanoTime() - startNanos);
+        }
+
+        for (int j = 0; j < pipelinedIndexes.size(); j++) {
+            int i = pipelinedIndexes.get(j);
+            Check c = checks.get(i);
+            Object item = (raw != null && j < raw.size()) ? raw.get(j) : null;
+            out[i] = (raw == null || failureOf(item) != null)
+                    ? unavailable(c.rule(), c.key(), c.cost())
+                    : decode((List<?>) item);
+        }
+        return List.of(out);
+    }
+
+    /**
+     * All-or-nothing decision across every check in one script call, so a request
+     * denied by one dimension does not spend tokens in the others. Leases are
+     * bypassed: the script reads the bucket hash directly. Without Redis the checks
+     * fall back together: locally if every rule is {@link Fallback#LOCAL}, otherwise
+     * all are denied.
+     *
+     * <p>Each bucket key keeps its own client key as hash tag, so the buckets are the
+     * same ones single checks use. One script can only be atomic on one node: with
+     * several shards, checks whose keys land on different nodes are rejected with
+     * {@link IllegalArgumentException} rather than decided node by node.
+     */
+    @Override
+    public MultiResult checkAndConsumeAtomically(List<Check> checks) {
+        int n = checks.size();
+        List<String> keys = new ArrayList<>(n);
+        for (Check c : checks) {
+            keys.add(args(c.rule()).bucketKey(c.key()));
+        }
+        int shard = shards.shardOf(keys.get(0));
+        for (int i = 1; i < n; i++) {
+            if (shards.shardOf(keys.get(i)) != shard) {
+                throw new IllegalArgumentException("multi-dimension check spans Redis shards: "
+                        + checks.get(0).key() + " and " + checks.get(i).key() + " are on different nodes");
+            }
+        }
+
+        if (!breaker.tryAcquire()) {
+            return unavailable(checks);
+        }
+
+        ScriptPipeline.Call call = multiCall(checks, keys, String.valueOf(clock.millis()));
+        long startNanos = System.nanoTime();
+        Object reply;
+        try {
+            reply = shards.node(shard).execute(call.script(), call.keys(), (Object[]) call.args());
+        } catch (Exception e) {
+            reply = e;
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        RedisCircuitBreaker.Failure failure = multiFailureOf(reply, n);
+        if (failure != null) {
+            breaker.onFailure(failure);
+            return unavailable(checks);
+        }
+        breaker.onSuccess(elapsedNanos);
+
+        List<?> res = (List<?>) reply;
+        boolean allAllowed = ((Number) res.get(0)).intValue() == 1;
+        Result[] results = new Result[n];
+        for (int i = 0; i < n; i++) {
+            Result r = decode(res.subList(1 + i * 3, 4 + i * 3));
+            // The script reports an allowing dimension's remaining after the cost; nothing was taken,
+            // so give back the cost to report the bucket as it is, like the memory engine.
+            if (!allAllowed && r.allowed()) r = new Result(true, r.retryAfterMs(), r.remaining() + checks.get(i).cost());
+            results[i] = r;
+        }
+        return MultiResult.of(allAllowed, List.of(results));
+    }
+
+    private ScriptPipeline.Call multiCall(List<Check> checks, List<String> keys, String nowMs) {
+        String[] args = new String[2 + checks.size() * 6];
+        args[0] = nowMs;
+        args[1] = expireWhenFull;
+        for (int j = 0; j < checks.size(); j++) {
+            Check c = checks.get(j);
+            RuleScriptArgs a = args(c.rule());
+            int base = 2 + j * 6;
+            args[base] = c.rule().algorithm().name();
+            args[base + 1] = a.capacity;
+            args[base + 2] = a.refillTokensPerSecond;
+            args[base + 3] = a.burstCapacity;
+            args[base + 4] = RuleScriptArgs.cost(c.cost());
+            args[base + 5] = a.ttlMs;
+        }
+        return new ScriptPipeline.Call(multiScript, keys, args);
+    }
+
+    private MultiResult unavailable(List<Check> checks) {
+        boolean allLocal = true;
+        for (Check c : checks) {
+            if (c.rule().fallback() != Fallback.LOCAL) allLocal = false;
+        }
+        if (allLocal) {
+            localFallbacks.increment();
+            List<Check> scaled = new ArrayList<>(checks.size());
+            for (Check c : checks) {
+                scaled.add(new Check(args(c.rule()).fallbackRule, c.key(), c.cost()));
+            }
+            return fallbackBuckets.checkAndConsumeAtomically(scaled);
+        }
+        failClosedFallbacks.increment();
+        List<Result> results = new ArrayList<>(checks.size());
+        for (int i = 0; i < checks.size(); i++) results.add(failClosed());
+        return MultiResult.of(false, results);
+    }
+
+    // Leases carve tokens out of the token-bucket hash; other algorithms always go to Redis.
+    private static boolean isLeased(RateLimitRule rule) {
+        return rule.leaseSize() > 0 && rule.algorithm() == Algorithm.TOKEN_BUCKET;
+    }
+
+    private Result checkLeased(RateLimitRule rule, String key, int cost) {
+        RuleScriptArgs a = args(rule);
+        Result r = leases.checkAndConsume(a.effectiveRule, a.bucketKey(key), cost);
+        return r != null ? r : unavailable(rule, key, cost);
+    }
+
+    // Redis was skipped (breaker open) or failed: a LOCAL rule falls back to this instance's
+    // share of the bucket, anything else is denied as before.
+    private Result unavailable(RateLimitRule rule, String key, int cost) {
+        if (rule.fallback() == Fallback.LOCAL) {
+            localFallbacks.increment();
+            return fallbackBuckets.checkAndConsume(args(rule).fallbackRule, key, cost);
+        }
+        failClosedFallbacks.increment();
+        return failClosed();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (coalescer != null) coalescer.close();
+        leases.close();
+        fallbackBuckets.shutdown();
+    }
+
+    // Null when the reply can be decoded.
+    private static RedisCircuitBreaker.Failure failureOf(Object reply) {
+        if (reply instanceof Exception) return RedisCircuitBreaker.Failure.REDIS_ERROR;
+        if (!(reply instanceof List<?> res) || res.size() < 3) return RedisCircuitBreaker.Failure.BAD_RESPONSE;
+        for (int i = 0; i < 3; i++) {
+            if (!(res.get(i) instanceof Number)) return RedisCircuitBreaker.Failure.BAD_TYPES;
+        }
+        return null;
+    }
+
+    private static RedisCircuitBreaker.Failure multiFailureOf(Object reply, int checks) {
+        if (reply instanceof Exception) return RedisCircuitBreaker.Failure.REDIS_ERROR;
+        if (!(reply instanceof List<?> res) || res.size() != 1 + checks * 3) return RedisCircuitBreaker.Failure.BAD_RESPONSE;
+        for (Object o : res) {
+            if (!(o instanceof Number)) return RedisCircuitBreaker.Failure.BAD_TYPES;
+        }
+        return null;
+    }
+
+    private static Result decode(List<?> res) {
+        boolean allowed = ((Number) res.get(0)).intValue() == 1;
+        long retryAfterMs = ((Number) res.get(1)).longValue();
+        long remaining = ((Number) res.get(2)).longValue();
+        return new Result(allowed, retryAfterMs, remaining);
+    }
+
+    private static Result failClosed() {
+        return new Result(false, FAIL_CLOSED_RETRY_AFTER_MS, 0);
+    }
+
+    // Keys are tb:{<16 hex>}:<12 hex> by default (compact keys, built by RuleScriptArgs from BucketKeys digests of the
+    // client key and of ruleId:endpoint:plan). This builds the readable form, tb:{key}:ruleId:endpoint:plan, used with
+    // traffic.ratelimit.buckets.compact-keys=false. Either way the client key is the hash tag, so it picks the shard
+    // (and, on Redis Cluster, the slot): one client's buckets for different rules sit together and can share a script
+    // call. The tag comes first so a '{' in an endpoint such as /v1/users/{id} cannot take its place.
+    static String bucketKey(Algorithm algorithm, String ruleId, String endpoint, String plan, String key) {
+        return bucketKeyPrefix(algorithm) + key + bucketKeySuffix(ruleId, endpoint, plan);
+    }
+
+    static String bucketKeyPrefix(Algorithm algorithm) {
+        // Distinct prefixes: switching a rule's algorithm must not hit a key of the other Redis type.
+        return switch (algorithm) {
+            case TOKEN_BUCKET -> "tb:{";
+            case GCRA -> "gcra:{";
+            case FIXED_WINDOW -> "fw:{";
+            case SLIDING_WINDOW -> "sw:{";
+        };
+    }
+
+    static String bucketKeySuffix(String ruleId, String endpoint, String plan) {
+        return "}:" + ruleId + ":" + endpoint + ":" + plan;
+    }
+}
@@ -0,0 +1,209 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.shlokmestry.traffic.redis.RedisShards;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Serves hot keys from locally leased tokens. A lease is a chunk of up to
+ * {@code rule.leaseSize()} tokens taken atomically from the shared bucket; it is
+ * spent with a CAS loop and never used past its expiry. Unused tokens go back
+ * with the next grant or, for idle keys, from the sweeper. Over-admission is
+ * bounded by leaseSize per instance per key.
+ */
+final class TokenLeases implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenLeases.class);
+
+    private final RedisShards shards;
+    private final Clock clock;
+    private final RedisScript<List> leaseScript;
+    private final RedisScript<List> returnScript;
+    private final ScriptPipeline pipeline;
+    private final RedisCircuitBreaker breaker;
+    private final long expiryMs;
+    private final long idleEvictionMs;
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+
+    private final Counter servedLocally;
+    private final Counter leasesGranted;
+
+    private static final class Lease {
+        final AtomicLong tokens = new AtomicLong();
+        final ReentrantLock renew = new ReentrantLock();
+        final int capacity;
+        volatile long expiresAtMs;
+        volatile long lastUsedMs;
+
+        Lease(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    TokenLeases(RedisShards shards, Clock clock, LeaseProperties props, RedisCircuitBreaker breaker, MeterRegistry registry) {
+        this.shards = shards;
+        this.clock = clock;
+        this.leaseScript = RedisScript.of(new ClassPathResource("lua/token_lease.lua"), List.class);
+        this.returnScript = RedisScript.of(new ClassPathResource("lua/token_lease_return.lua"), List.class);
+        this.pipeline = new ScriptPipeline(shards);
+        this.breaker = breaker;
+        this.expiryMs = props.expiry().toMillis();
+        this.idleEvictionMs = props.idleEviction().toMillis();
+
+        this.servedLocally = Counter.builder("ratelimit.lease.local.total")
+                .description("Decisions served from a local token lease without a Redis call")
+                .register(registry);
+        this.leasesGranted = Counter.builder("ratelimit.lease.grants.total")
+                .description("Token leases taken from Redis")
+                .register(registry);
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ratelimit-lease-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long sweepMs = Math.max(1, props.sweepInterval().toMillis());
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns null if a renewal was needed but Redis was skipped (breaker open) or
+     * failed; the caller applies the rule's fallback.
+     */
+    RateLimiter.Result checkAndConsume(RateLimitRule rule, String bucketKey, int cost) {
+        Lease lease = leases.computeIfAbsent(bucketKey, k -> new Lease(rule.capacity()));
+        long nowMs = clock.millis();
+        lease.lastUsedMs = nowMs;
+
+        RateLimiter.Result local = tryLocal(lease, cost, nowMs);
+        if (local != null) return local;
+
+        lease.renew.lock();
+        try {
+            // Another thread may have renewed while we waited.
+            nowMs = clock.millis();
+            local = tryLocal(lease, cost, nowMs);
+            if (local != null) return local;
+
+            if (!breaker.tryAcquire()) return null;
+
+            long leftover = lease.tokens.getAndSet(0);
+            long startNanos = System.nanoTime();
+            final List<?> res;
+            try {
+                res = shards.forKey(bucketKey).execute(
+                        leaseScript,
+                        List.of(bucketKey),
+                        String.valueOf(nowMs),
+                        String.valueOf(rule.capacity()),
+                        String.valueOf(rule.refillTokensPerSecond()),
+                        String.valueOf(rule.burstCapacity()),
+                        String.valueOf(Math.max(rule.leaseSize(), cost)),
+                        String.valueOf(cost),
+                        String.valueOf(rule.ttlMs()),
+                        String.valueOf(leftover)
+                );
+            } catch (RuntimeException e) {
+                lease.tokens.addAndGet(leftover); // still ours; expiry keeps them from being served late
+                breaker.onFailure(RedisCircuitBreaker.Failure.REDIS_ERROR);
+                return null;
+            }
+
+            if (res == null || res.size() < 3) {
+                breaker.onFailure(RedisCircuitBreaker.Failure.BAD_RESPONSE);
+                return null;
+            }
+            final long granted, retryAfterMs, remaining;
+            try {
+                granted = ((Number) res.get(0)).longValue();
+                retryAfterMs = ((Number) res.get(1)).longValue();
+                remaining = ((Number) res.get(2)).longValue();
+            } catch (RuntimeException e) {
+                breaker.onFailure(RedisCircuitBreaker.Failure.BAD_TYPES);
+                return null;
+            }
+            breaker.onSuccess(System.nanoTime() - startNanos);
+
+            if (granted <= 0) {
+                return new RateLimiter.Result(false, retryAfterMs, remaining);
+            }
+
+            leasesGranted.increment();
+            lease.expiresAtMs = nowMs + expiryMs;
+            lease.tokens.set(granted - cost);
+            return new RateLimiter.Result(true, 0, granted - cost);
+        } finally {
+            lease.renew.unlock();
+        }
+    }
+
+    private RateLimiter.Result tryLocal(Lease lease, int cost, long nowMs) {
+        if (nowMs >= lease.expiresAtMs) return null;
+
+        while (true) {
+            long t = lease.tokens.get();
+            if (t < cost) return null;
+            if (lease.tokens.compareAndSet(t, t - cost)) {
+                servedLocally.increment();
+                // Remaining is what this instance still holds locally, a lower bound of the shared bucket.
+                return new RateLimiter.Result(true, 0, t - cost);
+            }
+        }
+    }
+
+    private void sweep() {
+        // Leftovers also go back with the next grant, so there is no point queueing returns against a breaker that is not closed.
+        if (breaker.state() != RedisCircuitBreaker.State.CLOSED) return;
+
+        try {
+            long nowMs = clock.millis();
+            List<ScriptPipeline.Call> returns = new ArrayList<>();
+
+            for (Map.Entry<String, Lease> e : leases.entrySet()) {
+                Lease lease = e.getValue();
+                if (nowMs < lease.expiresAtMs || !lease.renew.tryLock()) continue;
+                try {
+                    long leftover = lease.tokens.getAndSet(0);
+                    if (leftover > 0) {
+                        returns.add(new ScriptPipeline.Call(returnScript, e.getKey(),
+                                String.valueOf(lease.capacity), String.valueOf(leftover)));
+                    }
+                    if (nowMs - lease.lastUsedMs > idleEvictionMs) {
+                        leases.remove(e.getKey(), lease);
+                    }
+                } finally {
+                    lease.renew.unlock();
+                }
+            }
+
+            if (!returns.isEmpty()) pipeline.execute(returns);
+        } catch (Exception e) {
+            // Unreturned tokens are only under-admission; the bucket refills on its own.
+            log.warn("ratelimit lease sweep failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+}
@@ -0,0 +1,66 @@
+package com.shlokmestry.traffic.redis;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Consistent hash ring: every node owns {@code virtualNodes} points, a key goes to
+ * the first point at or after its own hash. Points depend only on the node's name,
+ * so adding a node to N others moves about 1/(N+1) of the keys and no key moves
+ * between two nodes that were already there.
+ */
+final class HashRing {
+
+    private final long[] points;    // sorted
+    private final int[] owners;     // owners[i] = node index of points[i]
+
+    HashRing(List<String> nodeNames, int virtualNodes) {
+        int n = nodeNames.size() * virtualNodes;
+        long[][] pairs = new long[n][];
+        int p = 0;
+        for (int node = 0; node < nodeNames.size(); node++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                pairs[p++] = new long[] {hash(nodeNames.get(node) + "#" + v), node};
+            }
+        }
+        // Ties (vanishingly rare) are broken by node index so every instance builds the same ring.
+        Arrays.sort(pairs, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        this.points = new long[n];
+        this.owners = new int[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = pairs[i][0];
+            owners[i] = (int) pairs[i][1];
+        }
+    }
+
+    int nodeFor(CharSequence key) {
+        return nodeFor(key, 0, key.length());
+    }
+
+    // Node for key[from, to), so a hash tag can be placed without cutting it out of the key.
+    int nodeFor(CharSequence key, int from, int to) {
+        int i = Arrays.binarySearch(points, hash(key, from, to));
+        if (i < 0) i = -i - 1;
+        return owners[i == points.length ? 0 : i];
+    }
+
+    // FNV-1a over the chars, then the murmur3 finalizer to spread nearby inputs ("node#1", "node#2").
+    static long hash(CharSequence s) {
+        return hash(s, 0, s.length());
+    }
+
+    static long hash(CharSequence s, int from, int to) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb3fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,99 @@
+package com.shlokmestry.traffic.redis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * The Redis nodes that hold bucket state. A key is placed by its hash tag (the part
+ * between the first {@code '{'} and the next {@code '}'}, as in Redis Cluster) on a
+ * {@link HashRing}, so keys that share a tag share a node and can be used together
+ * in one script. Rules stay on the {@code spring.data.redis} node.
+ *
+ * <p>With no {@code traffic.redis.nodes} configured there is one shard, the
+ * {@code spring.data.redis} node itself, and no hashing happens.
+ */
+public final class RedisShards implements AutoCloseable {
+
+    private final List<StringRedisTemplate> nodes;
+    private final HashRing ring;                            // null for a single node
+    private final List<LettuceConnectionFactory> owned;     // factories this instance created
+
+    private RedisShards(List<StringRedisTemplate> nodes, HashRing ring, List<LettuceConnectionFactory> owned) {
+        this.nodes = List.copyOf(nodes);
+        this.ring = ring;
+        this.owned = owned;
+    }
+
+    public static RedisShards single(StringRedisTemplate redis) {
+        return new RedisShards(List.of(redis), null, List.of());
+    }
+
+    /** One connection per {@code host:port} in {@code props.nodes()}. */
+    public static RedisShards connect(ShardProperties props) {
+        LettuceClientConfiguration client = LettuceClientConfiguration.builder()
+                .commandTimeout(props.timeout())
+                .build();
+
+        List<StringRedisTemplate> templates = new ArrayList<>();
+        List<LettuceConnectionFactory> factories = new ArrayList<>();
+        for (String node : props.nodes()) {
+            int colon = node.lastIndexOf(':');
+            if (colon <= 0) throw new IllegalArgumentException("traffic.redis.nodes: expected host:port, got " + node);
+
+            LettuceConnectionFactory factory = new LettuceConnectionFactory(
+                    new RedisStandaloneConfiguration(node.substring(0, colon), Integer.parseInt(node.substring(colon + 1))),
+                    client);
+            factory.afterPropertiesSet();
+            factory.start();
+            factories.add(factory);
+            templates.add(new StringRedisTemplate(factory));
+        }
+        HashRing ring = templates.size() > 1 ? new HashRing(props.nodes(), props.virtualNodes()) : null;
+        return new RedisShards(templates, ring, factories);
+    }
+
+    /**
+     * True when the nodes are the {@code traffic.redis.nodes} connections, even just one,
+     * rather than the {@code spring.data.redis} node that also holds the rules.
+     */
+    public boolean ownsConnections() {
+        return !owned.isEmpty();
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public StringRedisTemplate node(int shard) {
+        return nodes.get(shard);
+    }
+
+    public List<StringRedisTemplate> nodes() {
+        return nodes;
+    }
+
+    public int shardOf(String key) {
+        if (ring == null) return 0;
+
+        // Redis Cluster's rule: hash only the tag if there is a non-empty {...}, else the whole key.
+        int open = key.indexOf('{');
+        int close = open < 0 ? -1 : key.indexOf('}', open + 1);
+        return close > open + 1
+                ? ring.nodeFor(key, open + 1, close)
+                : ring.nodeFor(key);
+    }
+
+    public StringRedisTemplate forKey(String key) {
+        return nodes.get(shardOf(key));
+    }
+
+    @Override
+    public void close() {
+        for (LettuceConnectionFactory f : owned) f.destroy();
+    }
+}
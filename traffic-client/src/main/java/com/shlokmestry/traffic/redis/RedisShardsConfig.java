@@ -0,0 +1,16 @@
+package com.shlokmestry.traffic.redis;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+@Configuration
+@EnableConfigurationProperties(ShardProperties.class)
+public class RedisShardsConfig {
+
+    @Bean(destroyMethod = "close")
+    RedisShards redisShards(StringRedisTemplate redis, ShardProperties props) {
+        return props.nodes().isEmpty() ? RedisShards.single(redis) : RedisShards.connect(props);
+    }
+}
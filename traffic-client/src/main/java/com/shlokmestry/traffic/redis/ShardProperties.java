@@ -0,0 +1,14 @@
+package com.shlokmestry.traffic.redis;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "traffic.redis")
+public record ShardProperties(
+        @DefaultValue List<String> nodes,           // host:port of each bucket node; empty = spring.data.redis only
+        @DefaultValue("160") int virtualNodes,      // ring points per node
+        @DefaultValue("2s") Duration timeout
+) {}
@@ -0,0 +1,21 @@
+package com.shlokmestry.traffic.rules;
+
+/** How a rule's buckets are represented and decided in Redis. */
+public enum Algorithm {
+    /** Hash with tokens + last_refill_ms ({@code lua/token_bucket.lua}). */
+    TOKEN_BUCKET,
+    /** Single theoretical-arrival-time value ({@code lua/gcra.lua}); same decisions, less memory per key. */
+    GCRA,
+    /**
+     * {@code capacity} per window of {@code ttlMs}, one integer counter per window
+     * ({@code lua/fixed_window.lua}); refill and burst are not used. Cheapest, but a
+     * client can spend two windows' worth around a window boundary.
+     */
+    FIXED_WINDOW,
+    /**
+     * Like {@link #FIXED_WINDOW}, with the previous window's counter weighted by its
+     * overlap with the last {@code ttlMs} ({@code lua/sliding_window.lua}), which
+     * smooths out the boundary burst.
+     */
+    SLIDING_WINDOW
+}
@@ -0,0 +1,115 @@
+package com.shlokmestry.traffic.rules;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Keeps parsed rules on-heap so a decision does not pay an extra HGETALL.
+ * Writes go straight to the delegate and are broadcast on a Redis channel so
+ * every instance drops its copy; the TTL bounds staleness if a message is lost.
+ */
+public class CachingRuleStore implements RuleStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingRuleStore.class);
+
+    private final RuleStore delegate;
+    private final StringRedisTemplate redis;
+    private final String channel;
+
+    // Optional.empty() is cached too: unknown ruleIds would otherwise hit Redis on every call.
+    private final Cache<String, Optional<RateLimitRule>> cache;
+
+    // Bumped before every invalidation, so a bulk load can tell that one overlapped it.
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CachingRuleStore(RuleStore delegate, StringRedisTemplate redis, RuleCacheProperties props, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.redis = redis;
+        this.channel = props.channel();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(props.maximumSize())
+                .expireAfterWrite(props.ttl())
+                .recordStats()
+                .build();
+
+        // Exposes cache.gets{result=hit|miss}, cache.evictions, cache.size tagged cache=rules
+        CaffeineCacheMetrics.monitor(registry, cache, "rules");
+    }
+
+    @Override
+    public void upsert(RateLimitRule rule) {
+        delegate.upsert(rule);
+        invalidate(rule.ruleId());
+
+        try {
+            redis.convertAndSend(channel, rule.ruleId());
+        } catch (Exception e) {
+            // Rule is already persisted; peers will pick it up when their entry expires.
+            log.warn("rule cache invalidation publish failed ruleId={} channel={}", rule.ruleId(), channel, e);
+        }
+    }
+
+    @Override
+    public Optional<RateLimitRule> get(String ruleId) {
+        // Loaded inside the cache: an invalidation of this ruleId waits for the load and then drops
+        // its result, instead of landing between the read and a put. A Redis failure propagates
+        // and caches nothing.
+        return cache.get(ruleId, delegate::get);
+    }
+
+    @Override
+    public Map<String, RateLimitRule> getAll(Collection<String> ruleIds) {
+        Map<String, RateLimitRule> out = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+
+        for (String ruleId : ruleIds) {
+            Optional<RateLimitRule> cached = cache.getIfPresent(ruleId);
+            if (cached == null) {
+                misses.add(ruleId);
+            } else {
+                cached.ifPresent(rule -> out.put(ruleId, rule));
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            long generation = invalidations.get();
+            Map<String, RateLimitRule> loaded = delegate.getAll(misses);
+            for (String ruleId : misses) {
+                RateLimitRule rule = loaded.get(ruleId);
+                Optional<RateLimitRule> value = Optional.ofNullable(rule);
+                cache.put(ruleId, value);
+                // An invalidation during the load may have been for this rule: take the entry back.
+                // One arriving after this check removes it itself, as it runs after its bump.
+                if (invalidations.get() != generation) cache.asMap().remove(ruleId, value);
+                if (rule != null) out.put(ruleId, rule);
+            }
+        }
+        return out;
+    }
+
+    // Always from the delegate: a listing cannot tell which cached entries are stale.
+    @Override
+    public List<RateLimitRule> all() {
+        return delegate.all();
+    }
+
+    public void invalidate(String ruleId) {
+        invalidations.incrementAndGet();
+        cache.invalidate(ruleId);
+    }
+}
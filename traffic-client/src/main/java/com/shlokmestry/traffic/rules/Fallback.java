@@ -0,0 +1,9 @@
+package com.shlokmestry.traffic.rules;
+
+/** What a rule does while Redis is unavailable (call failed, or the circuit breaker is open). */
+public enum Fallback {
+    /** Deny, as the limiter always has. */
+    FAIL_CLOSED,
+    /** Per-instance token bucket sized to {@code fallbackFraction} of the rule. */
+    LOCAL
+}
@@ -0,0 +1,45 @@
+package com.shlokmestry.traffic.rules;
+
+public record RateLimitRule(
+        String ruleId,
+        String endpoint,
+        String plan,
+        int capacity,
+        double refillTokensPerSecond,
+        int burstCapacity,
+        long ttlMs,                 // bucket expiry; the window length for FIXED_WINDOW and SLIDING_WINDOW
+        int maxCost,
+        int leaseSize,              // 0 = every decision goes to Redis; >0 = tokens leased per instance
+        Algorithm algorithm,
+        Fallback fallback,          // behaviour while Redis is unavailable
+        double fallbackFraction,    // LOCAL only: share of capacity/burst/refill each instance may admit on its own
+        long targetLatencyMs        // 0 = static limits; >0 = adaptive, scaled down while feedback exceeds it
+) {
+    public RateLimitRule(
+            String ruleId,
+            String endpoint,
+            String plan,
+            int capacity,
+            double refillTokensPerSecond,
+            int burstCapacity,
+            long ttlMs,
+            int maxCost
+    ) {
+        this(ruleId, endpoint, plan, capacity, refillTokensPerSecond, burstCapacity, ttlMs, maxCost,
+                0, Algorithm.TOKEN_BUCKET, Fallback.FAIL_CLOSED, 0.0, 0L);
+    }
+
+    public boolean adaptive() {
+        return targetLatencyMs > 0;
+    }
+
+    /** Counts cost per window of ttlMs instead of refilling; refill and burst are not used. */
+    public boolean windowed() {
+        return algorithm == Algorithm.FIXED_WINDOW || algorithm == Algorithm.SLIDING_WINDOW;
+    }
+
+    /** Stand-in used when the rule is missing or the store is unreachable: one token, no refill. */
+    public static RateLimitRule failClosed(String ruleId) {
+        return new RateLimitRule(ruleId, "unknown", "default", 1, 0.0, 0, 60000L, 1);
+    }
+}
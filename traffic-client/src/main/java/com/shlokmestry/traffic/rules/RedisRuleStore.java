@@ -0,0 +1,265 @@
+package com.shlokmestry.traffic.rules;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+public class RedisRuleStore implements RuleStore, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisRuleStore.class);
+    private static final String PREFIX = "rule:";
+    private static final String VERSION = "version";
+    private static final String DEFAULT_ENDPOINT = "unknown";
+    private static final String DEFAULT_PLAN = "default";
+    private static final int SCAN_BATCH = 1000;
+
+    /** How often copies that failed are tried again. */
+    public static final Duration COPY_RETRY_INTERVAL = Duration.ofSeconds(1);
+
+    private static final RedisScript<Long> WRITE = RedisScript.of(new ClassPathResource("lua/rule_write.lua"), Long.class);
+
+    private final StringRedisTemplate redis;
+    private final List<StringRedisTemplate> replicas;
+    private final Set<PendingCopy> pending = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService retrier;     // null without replicas
+
+    private record PendingCopy(String ruleId, int node) {}
+
+    public RedisRuleStore(StringRedisTemplate redis) {
+        this(redis, List.of());
+    }
+
+    /**
+     * Rules are read from {@code redis}; upserts also go to every replica, so scripts
+     * running on a bucket shard (server-side rules) find the rule on their own node.
+     * A failed copy does not fail the upsert: the replica's old copy is deleted if the
+     * node still answers (its scripts then take the regular rule lookup), and the copy
+     * is retried every {@link #COPY_RETRY_INTERVAL} until it lands. Copies carry the
+     * rule's version and never replace a newer one.
+     */
+    public RedisRuleStore(StringRedisTemplate redis, List<StringRedisTemplate> replicas) {
+        this.redis = redis;
+        this.replicas = List.copyOf(replicas);
+        if (this.replicas.isEmpty()) {
+            this.retrier = null;
+        } else {
+            this.retrier = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "rule-copy-retry");
+                t.setDaemon(true);
+                return t;
+            });
+            long ms = COPY_RETRY_INTERVAL.toMillis();
+            retrier.scheduleWithFixedDelay(this::retryPendingCopies, ms, ms, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static String key(String ruleId) {
+        return PREFIX + ruleId;
+    }
+
+    @Override
+    public void upsert(RateLimitRule rule) {
+        Map<String, String> fields = fields(rule);
+        Long version = redis.execute(WRITE, List.of(key(rule.ruleId())), args("", fields));
+        fields.put(VERSION, String.valueOf(version));
+        for (int i = 0; i < replicas.size(); i++) copy(rule.ruleId(), fields, i);
+    }
+
+    /**
+     * Copies every stored rule to every replica: rules written before a node was added,
+     * or whose copy failed, reach it. Returns the number of rules copied.
+     */
+    public int copyToReplicas() {
+        if (replicas.isEmpty()) return 0;
+        int copied = 0;
+        for (RateLimitRule rule : all()) {
+            Map<String, String> fields = stored(rule.ruleId());
+            if (fields.isEmpty()) continue;
+            for (int i = 0; i < replicas.size(); i++) copy(rule.ruleId(), fields, i);
+            copied++;
+        }
+        return copied;
+    }
+
+    /** Copies queued by failed writes, re-read from the rule store so they carry the latest version. */
+    void retryPendingCopies() {
+        for (PendingCopy p : pending) {
+            try {
+                Map<String, String> fields = stored(p.ruleId());
+                if (!fields.isEmpty()) write(p.ruleId(), fields, p.node());
+                pending.remove(p);
+            } catch (Exception e) {
+                // Rule store unreachable: keep the copy queued.
+            }
+        }
+    }
+
+    private void copy(String ruleId, Map<String, String> fields, int node) {
+        try {
+            write(ruleId, fields, node);
+            pending.remove(new PendingCopy(ruleId, node));
+        } catch (Exception e) {
+            log.warn("rule copy to bucket node failed ruleId={} node={}; retrying", ruleId, node, e);
+            pending.add(new PendingCopy(ruleId, node));
+            try {
+                // An outdated copy would be enforced until the retry lands; no copy means the regular lookup.
+                replicas.get(node).delete(key(ruleId));
+            } catch (Exception ignored) {
+                // Node unreachable: its scripts fail too, and the retry overwrites the copy.
+            }
+        }
+    }
+
+    // A replica that already has a newer version keeps it (the script returns -1).
+    private void write(String ruleId, Map<String, String> fields, int node) {
+        replicas.get(node).execute(WRITE, List.of(key(ruleId)), args(fields.getOrDefault(VERSION, "0"), fields));
+    }
+
+    private static Object[] args(String version, Map<String, String> fields) {
+        List<String> args = new ArrayList<>(1 + 2 * fields.size());
+        args.add(version);
+        fields.forEach((field, value) -> {
+            if (!field.equals(VERSION)) {
+                args.add(field);
+                args.add(value);
+            }
+        });
+        return args.toArray();
+    }
+
+    // The stored hash as is, version included; empty if the rule is gone.
+    private Map<String, String> stored(String ruleId) {
+        Map<String, String> fields = new HashMap<>();
+        redis.opsForHash().entries(key(ruleId)).forEach((k, v) -> fields.put((String) k, (String) v));
+        return fields;
+    }
+
+    @Override
+    public void close() {
+        if (retrier != null) retrier.shutdownNow();
+    }
+
+    private static Map<String, String> fields(RateLimitRule rule) {
+        // Map.of() rejects nulls, so build a mutable map safely.
+        Map<String, String> fields = new HashMap<>();
+        fields.put("endpoint", rule.endpoint() == null ? DEFAULT_ENDPOINT : rule.endpoint());
+        fields.put("plan", rule.plan() == null ? DEFAULT_PLAN : rule.plan());
+        fields.put("capacity", String.valueOf(rule.capacity()));
+        fields.put("refillTokensPerSecond", String.valueOf(rule.refillTokensPerSecond()));
+        fields.put("burstCapacity", String.valueOf(rule.burstCapacity()));
+        fields.put("ttlMs", String.valueOf(rule.ttlMs()));
+        fields.put("maxCost", String.valueOf(rule.maxCost()));
+        fields.put("leaseSize", String.valueOf(rule.leaseSize()));
+        fields.put("algorithm", rule.algorithm().name());
+        fields.put("fallback", rule.fallback().name());
+        fields.put("fallbackFraction", String.valueOf(rule.fallbackFraction()));
+        fields.put("targetLatencyMs", String.valueOf(rule.targetLatencyMs()));
+        return fields;
+    }
+
+    @Override
+    public Optional<RateLimitRule> get(String ruleId) {
+        Map<Object, Object> m = redis.opsForHash().entries(key(ruleId));
+        return parse(ruleId, m);
+    }
+
+    @Override
+    public Map<String, RateLimitRule> getAll(Collection<String> ruleIds) {
+        List<String> ids = new ArrayList<>(ruleIds);
+        if (ids.isEmpty()) return Map.of();
+
+        // One pipelined round trip of HGETALLs instead of one per rule.
+        List<Object> hashes = redis.executePipelined((RedisCallback<Object>) connection -> {
+            for (String ruleId : ids) {
+                connection.hashCommands().hGetAll(key(ruleId).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+
+        Map<String, RateLimitRule> out = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Map<Object, Object> m = (Map<Object, Object>) hashes.get(i);
+            String ruleId = ids.get(i);
+            parse(ruleId, m).ifPresent(rule -> out.put(ruleId, rule));
+        }
+        return out;
+    }
+
+    @Override
+    public List<RateLimitRule> all() {
+        // SCAN, not KEYS: the rule keyspace shares the node with live traffic.
+        List<RateLimitRule> out = new ArrayList<>();
+        List<String> batch = new ArrayList<>(SCAN_BATCH);
+        ScanOptions options = ScanOptions.scanOptions().match(PREFIX + "*").count(SCAN_BATCH).build();
+        try (Cursor<String> keys = redis.scan(options)) {
+            while (keys.hasNext()) {
+                batch.add(keys.next().substring(PREFIX.length()));
+                if (batch.size() == SCAN_BATCH) {
+                    out.addAll(getAll(batch).values());
+                    batch.clear();
+                }
+            }
+        }
+        out.addAll(getAll(batch).values());
+        return out;
+    }
+
+    /**
+     * The rule in an HGETALL reply of a rule hash, or empty if there is none. Fields added
+     * since the first release get their defaults when a stored rule predates them.
+     */
+    public static Optional<RateLimitRule> parse(String ruleId, Map<Object, Object> m) {
+        if (m == null || m.isEmpty()) return Optional.empty();
+
+        // Backward-compatible defaults if older rules were stored without new fields
+        String endpoint = (String) m.getOrDefault("endpoint", DEFAULT_ENDPOINT);
+        String plan = (String) m.getOrDefault("plan", DEFAULT_PLAN);
+
+        int capacity = Integer.parseInt((String) m.get("capacity"));
+        double refill = Double.parseDouble((String) m.get("refillTokensPerSecond"));
+        long ttlMs = Long.parseLong((String) m.get("ttlMs"));
+        int maxCost = Integer.parseInt((String) m.get("maxCost"));
+
+        String burstStr = (String) m.get("burstCapacity");
+        int burst = (burstStr == null) ? capacity : Integer.parseInt(burstStr);
+
+        String leaseStr = (String) m.get("leaseSize");
+        int leaseSize = (leaseStr == null) ? 0 : Integer.parseInt(leaseStr);
+
+        String algorithmStr = (String) m.get("algorithm");
+        Algorithm algorithm = (algorithmStr == null) ? Algorithm.TOKEN_BUCKET : Algorithm.valueOf(algorithmStr);
+
+        String fallbackStr = (String) m.get("fallback");
+        Fallback fallback = (fallbackStr == null) ? Fallback.FAIL_CLOSED : Fallback.valueOf(fallbackStr);
+
+        String fractionStr = (String) m.get("fallbackFraction");
+        double fallbackFraction = (fractionStr == null) ? 0.0 : Double.parseDouble(fractionStr);
+
+        String targetStr = (String) m.get("targetLatencyMs");
+        long targetLatencyMs = (targetStr == null) ? 0L : Long.parseLong(targetStr);
+
+        return Optional.of(new RateLimitRule(
+                ruleId, endpoint, plan, capacity, refill, burst, ttlMs, maxCost, leaseSize, algorithm,
+                fallback, fallbackFraction, targetLatencyMs));
+    }
+}
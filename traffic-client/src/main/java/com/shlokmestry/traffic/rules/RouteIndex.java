@@ -0,0 +1,104 @@
+package com.shlokmestry.traffic.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps a {@link RouteTrie} of every stored rule. Upserts on this instance are
+ * applied as they happen, changes on other instances arrive through the rule
+ * invalidation channel, and the whole trie is rebuilt from the store every
+ * {@code refresh-interval} in case a message was missed.
+ */
+@Component
+public class RouteIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteIndex.class);
+
+    private final RuleStore store;
+    private final ScheduledExecutorService refresher;
+
+    private volatile RouteTrie trie = new RouteTrie();
+    private volatile boolean loaded;
+    private List<Consumer<RouteTrie>> changedDuringRebuild;  // puts and removals, in order; guarded by this; null when no rebuild runs
+
+    public RouteIndex(RuleStore store, RouteIndexProperties props) {
+        this.store = store;
+
+        long refreshMs = props.refreshInterval().toMillis();
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rules-route-refresher");
+            t.setDaemon(true);
+            return t;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, 0, refreshMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** The most specific rule for this request, or null; see {@link RouteTrie} for the rules. */
+    public RateLimitRule resolve(String method, String path, String plan) {
+        return trie.resolve(method, path, plan);
+    }
+
+    /** False until the first full load has succeeded; an empty index then means "no rules", not "unknown". */
+    public boolean loaded() {
+        return loaded;
+    }
+
+    public synchronized void put(RateLimitRule rule) {
+        trie.put(rule);
+        if (changedDuringRebuild != null) changedDuringRebuild.add(t -> t.put(rule));
+    }
+
+    public synchronized void remove(String ruleId) {
+        trie.remove(ruleId);
+        if (changedDuringRebuild != null) changedDuringRebuild.add(t -> t.remove(ruleId));
+    }
+
+    /** Re-reads one rule after another instance changed it. */
+    public void reload(String ruleId) {
+        try {
+            store.get(ruleId).ifPresentOrElse(this::put, () -> remove(ruleId));
+        } catch (Exception e) {
+            // The next full refresh picks it up.
+            log.warn("route index reload failed ruleId={}", ruleId, e);
+        }
+    }
+
+    void refresh() {
+        synchronized (this) {
+            changedDuringRebuild = new ArrayList<>();
+        }
+        try {
+            List<RateLimitRule> rules = store.all();
+            RouteTrie next = new RouteTrie();
+            rules.forEach(next::put);
+
+            synchronized (this) {
+                // Upserts and removals that raced with the listing must not be lost in the swap.
+                changedDuringRebuild.forEach(change -> change.accept(next));
+                trie = next;
+            }
+            loaded = true;
+        } catch (Exception e) {
+            log.warn("route index refresh failed; keeping {} routes", trie.size(), e);
+        } finally {
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,11 @@
+package com.shlokmestry.traffic.rules;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "traffic.rules.routes")
+public record RouteIndexProperties(
+        @DefaultValue("60s") Duration refreshInterval   // full rebuild; bounds staleness if an invalidation is missed
+) {}
@@ -0,0 +1,245 @@
+package com.shlokmestry.traffic.rules;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Path trie over rule endpoints, so a request can be matched to a rule by method,
+ * path and plan instead of by ruleId.
+ *
+ * <p>An endpoint is an optional method and a path pattern, e.g. {@code "GET /v1/items/{id}"}
+ * or {@code "/v1/files/**"}. Segments are literals, {@code *} or {@code {name}} (exactly
+ * one segment), or a trailing {@code **} (any remainder, including none). A plan of
+ * {@code *} matches every plan. Endpoints that are not paths ({@code "unknown"}) are
+ * not indexed.
+ *
+ * <p>The most specific rule wins: segment by segment a literal beats a single-segment
+ * wildcard, which beats {@code **}; at the matched node an exact plan beats {@code *},
+ * then an exact method beats any method.
+ *
+ * <p>Lookups are lock-free and can run during updates; updates are serialised.
+ */
+public final class RouteTrie {
+
+    public static final String ANY = "*";
+
+    private final Node root = new Node();
+    private final Map<String, Placement> placed = new HashMap<>();    // ruleId -> where it sits; guarded by this
+
+    /** Where a rule is stored, so a later upsert or removal can find it. */
+    private record Placement(Node node, String plan, String method) {}
+
+    /** Adds or moves a rule; a rule whose endpoint is not a path pattern is removed. */
+    public synchronized void put(RateLimitRule rule) {
+        remove(rule.ruleId());
+
+        Route route = Route.parse(rule.endpoint());
+        if (route == null) return;
+
+        Node node = root;
+        for (int i = 0; i < route.segments().length; i++) {
+            String seg = route.segments()[i];
+            if (seg.equals("**")) {
+                if (node.rest == null) node.rest = new Node();
+                node = node.rest;
+            } else if (seg.equals(ANY) || (seg.startsWith("{") && seg.endsWith("}"))) {
+                if (node.param == null) node.param = new Node();
+                node = node.param;
+            } else {
+                node = node.literal(seg);
+            }
+        }
+
+        String plan = rule.plan() == null ? ANY : rule.plan();
+        node.plans.compute(plan, (p, m) -> (m == null ? Methods.EMPTY : m).with(route.method(), rule));
+        placed.put(rule.ruleId(), new Placement(node, plan, route.method()));
+    }
+
+    // Empty nodes are left in place; they cost a lookup nothing but a failed branch.
+    public synchronized void remove(String ruleId) {
+        Placement p = placed.remove(ruleId);
+        if (p == null) return;
+
+        p.node().plans.computeIfPresent(p.plan(), (plan, m) -> m.without(p.method(), ruleId));
+    }
+
+    public synchronized int size() {
+        return placed.size();
+    }
+
+    /** The most specific rule for this request, or null. A query string on the path is ignored. */
+    public RateLimitRule resolve(String method, String path, String plan) {
+        int end = path.indexOf('?');
+        return match(root, path, 0, end < 0 ? path.length() : end, method, plan);
+    }
+
+    private static RateLimitRule match(Node node, String path, int from, int end, String method, String plan) {
+        int start = from;
+        while (start < end && path.charAt(start) == '/') start++;
+
+        Node rest = node.rest;
+        if (start == end) {
+            RateLimitRule r = node.rule(method, plan);
+            if (r == null && rest != null) r = rest.rule(method, plan);
+            return r;
+        }
+
+        int segEnd = path.indexOf('/', start);
+        if (segEnd < 0 || segEnd > end) segEnd = end;
+
+        Node literal = node.literals.get(path, start, segEnd);
+        if (literal != null) {
+            RateLimitRule r = match(literal, path, segEnd, end, method, plan);
+            if (r != null) return r;
+        }
+
+        Node param = node.param;
+        if (param != null) {
+            RateLimitRule r = match(param, path, segEnd, end, method, plan);
+            if (r != null) return r;
+        }
+
+        return rest == null ? null : rest.rule(method, plan);
+    }
+
+    private static final class Node {
+        volatile Literals literals = Literals.EMPTY;
+        volatile Node param;
+        volatile Node rest;
+        final Map<String, Methods> plans = new ConcurrentHashMap<>();
+
+        // Writers hold the trie lock.
+        Node literal(String segment) {
+            Node child = literals.get(segment, 0, segment.length());
+            if (child == null) {
+                child = new Node();
+                literals = literals.with(segment, child);
+            }
+            return child;
+        }
+
+        RateLimitRule rule(String method, String plan) {
+            Methods m = plans.get(plan);
+            RateLimitRule r = m == null ? null : m.get(method);
+            if (r != null) return r;
+
+            m = plans.get(ANY);
+            return m == null ? null : m.get(method);
+        }
+    }
+
+    /**
+     * Literal children as an immutable open-addressing table, looked up by a region
+     * of the request path so matching does not cut a substring per segment.
+     * Replaced on every insert, which only happens on rule upserts.
+     */
+    private static final class Literals {
+        static final Literals EMPTY = new Literals(new String[1], new Node[1], 0);
+
+        private final String[] keys;
+        private final Node[] nodes;
+        private final int size;
+
+        private Literals(String[] keys, Node[] nodes, int size) {
+            this.keys = keys;
+            this.nodes = nodes;
+            this.size = size;
+        }
+
+        Node get(String path, int start, int end) {
+            int mask = keys.length - 1;
+            int len = end - start;
+            for (int i = hash(path, start, end) & mask; ; i = (i + 1) & mask) {
+                String k = keys[i];
+                if (k == null) return null;
+                if (k.length() == len && k.regionMatches(0, path, start, len)) return nodes[i];
+            }
+        }
+
+        Literals with(String key, Node node) {
+            // Load factor at most 1/2, so probes stay short and there is always a free slot.
+            int capacity = keys.length;
+            while (capacity < (size + 1) * 2) capacity <<= 1;
+
+            Literals copy = new Literals(new String[capacity], new Node[capacity], size + 1);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) copy.insert(keys[i], nodes[i]);
+            }
+            copy.insert(key, node);
+            return copy;
+        }
+
+        private void insert(String key, Node node) {
+            int mask = keys.length - 1;
+            int i = hash(key, 0, key.length()) & mask;
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i] = key;
+            nodes[i] = node;
+        }
+
+        private static int hash(String s, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) h = 31 * h + s.charAt(i);
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /** Rules at one node for one plan; immutable, replaced on every change. */
+    private record Methods(RateLimitRule any, Map<String, RateLimitRule> byMethod) {
+        static final Methods EMPTY = new Methods(null, Map.of());
+
+        RateLimitRule get(String method) {
+            RateLimitRule r = byMethod.get(method);
+            return r != null ? r : any;
+        }
+
+        Methods with(String method, RateLimitRule rule) {
+            if (method.equals(ANY)) return new Methods(rule, byMethod);
+
+            Map<String, RateLimitRule> copy = new HashMap<>(byMethod);
+            copy.put(method, rule);
+            return new Methods(any, Map.copyOf(copy));
+        }
+
+        // Only if it is still this rule: another rule may have taken the slot since.
+        Methods without(String method, String ruleId) {
+            if (method.equals(ANY)) {
+                return any != null && any.ruleId().equals(ruleId) ? new Methods(null, byMethod) : this;
+            }
+            RateLimitRule current = byMethod.get(method);
+            if (current == null || !current.ruleId().equals(ruleId)) return this;
+
+            Map<String, RateLimitRule> copy = new HashMap<>(byMethod);
+            copy.remove(method);
+            return new Methods(any, Map.copyOf(copy));
+        }
+    }
+
+    private record Route(String method, String[] segments) {
+
+        // Null if the endpoint is not a path pattern, or puts ** anywhere but last.
+        static Route parse(String endpoint) {
+            if (endpoint == null) return null;
+
+            String method = ANY;
+            String path = endpoint.trim();
+            int space = path.indexOf(' ');
+            if (space > 0) {
+                method = path.substring(0, space).toUpperCase(Locale.ROOT);
+                path = path.substring(space + 1).trim();
+            }
+            if (!path.startsWith("/")) return null;
+
+            String[] segments = Arrays.stream(path.split("/"))
+                    .filter(s -> !s.isEmpty())
+                    .toArray(String[]::new);
+            for (int i = 0; i < segments.length - 1; i++) {
+                if (segments[i].equals("**")) return null;
+            }
+            return new Route(method, segments);
+        }
+    }
+}
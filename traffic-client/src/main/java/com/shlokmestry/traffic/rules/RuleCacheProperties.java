@@ -0,0 +1,14 @@
+package com.shlokmestry.traffic.rules;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "traffic.rules.cache")
+public record RuleCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("30s") Duration ttl,              // upper bound on staleness if an invalidation is missed
+        @DefaultValue("traffic:rules:invalidate") String channel
+) {}
@@ -0,0 +1,112 @@
+package com.shlokmestry.traffic.rules;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Subscribes to the rule invalidation channel without making Redis a startup
+ * dependency. The container's start blocks until the subscription is registered and
+ * throws when Redis is unreachable, so it runs on a daemon thread and is retried every
+ * {@code retryInterval} until it succeeds; meanwhile cached rules still expire after
+ * their TTL. Once subscribed, the container recovers from later disconnects itself.
+ */
+public class RuleInvalidationListener implements SmartLifecycle, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RuleInvalidationListener.class);
+
+    /** How often a failed subscription (Redis down at startup) is retried. */
+    public static final Duration RETRY_INTERVAL = Duration.ofSeconds(5);
+
+    private final RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    private final String channel;
+    private final long retryMs;
+    private final ScheduledExecutorService subscriber;
+
+    private volatile boolean running;
+    private boolean warned;
+
+    public RuleInvalidationListener(
+            RedisConnectionFactory connectionFactory,
+            String channel,
+            Duration retryInterval,
+            Consumer<String> onInvalidate
+    ) {
+        this.channel = channel;
+        this.retryMs = Math.max(1, retryInterval.toMillis());
+
+        container.setConnectionFactory(connectionFactory);
+        container.setAutoStartup(false);
+        container.addMessageListener(
+                (message, pattern) -> onInvalidate.accept(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(channel));
+        container.afterPropertiesSet();
+
+        this.subscriber = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ratelimit-rule-invalidation");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public void start() {
+        if (running) return;
+        running = true;
+        subscriber.execute(this::subscribe);
+    }
+
+    private synchronized void subscribe() {
+        if (!running) return;
+        try {
+            container.start();
+            if (warned) log.info("rule cache invalidation subscribed channel={}", channel);
+        } catch (Exception e) {
+            // Reset so the next attempt starts from scratch rather than from a half-started container.
+            container.stop();
+            if (!warned) {
+                log.warn("rule cache invalidation subscribe failed channel={}; retrying every {} ms",
+                        channel, retryMs, e);
+                warned = true;
+            }
+            subscriber.schedule(this::subscribe, retryMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** True once the subscription is registered. */
+    public boolean isListening() {
+        return container.isListening();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        container.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        stop();
+        subscriber.shutdownNow();
+        try {
+            container.destroy();
+        } catch (Exception e) {
+            log.warn("rule cache invalidation listener did not stop cleanly channel={}", channel, e);
+        }
+    }
+}
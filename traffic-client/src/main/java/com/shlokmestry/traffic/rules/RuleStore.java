@@ -0,0 +1,24 @@
+package com.shlokmestry.traffic.rules;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface RuleStore {
+    void upsert(RateLimitRule rule);
+    Optional<RateLimitRule> get(String ruleId);
+
+    /** Every stored rule, in no particular order; for building indexes, not per-request use. */
+    List<RateLimitRule> all();
+
+    /** Resolves several rules at once; unknown ruleIds are absent from the result. */
+    default Map<String, RateLimitRule> getAll(Collection<String> ruleIds) {
+        Map<String, RateLimitRule> out = new HashMap<>();
+        for (String ruleId : ruleIds) {
+            get(ruleId).ifPresent(rule -> out.put(ruleId, rule));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,66 @@
+package com.shlokmestry.traffic.rules;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.shlokmestry.traffic.ratelimit.DenyCache;
+import com.shlokmestry.traffic.redis.RedisShards;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+@EnableConfigurationProperties({RuleCacheProperties.class, RouteIndexProperties.class})
+public class RuleStoreConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(RuleStoreConfig.class);
+
+    @Bean
+    @ConditionalOnProperty(name = "traffic.rules.cache.enabled", havingValue = "true", matchIfMissing = true)
+    CachingRuleStore cachingRuleStore(StringRedisTemplate redis, RedisShards shards, RuleCacheProperties props, MeterRegistry registry) {
+        return new CachingRuleStore(ruleStore(redis, shards), redis, props, registry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "traffic.rules.cache.enabled", havingValue = "false")
+    RedisRuleStore redisRuleStore(StringRedisTemplate redis, RedisShards shards) {
+        return ruleStore(redis, shards);
+    }
+
+    // Rules live on spring.data.redis; bucket nodes from traffic.redis.nodes (one or more) get copies
+    // for server-side rule scripts, refreshed at startup so a node added since the last upsert has every rule.
+    private static RedisRuleStore ruleStore(StringRedisTemplate redis, RedisShards shards) {
+        RedisRuleStore store = new RedisRuleStore(redis, shards.ownsConnections() ? shards.nodes() : List.of());
+        try {
+            int copied = store.copyToReplicas();
+            if (copied > 0) log.info("copied {} rules to {} bucket nodes", copied, shards.size());
+        } catch (Exception e) {
+            // Scripts on nodes without a rule take the regular lookup; the next upsert copies it.
+            log.warn("rule copy to bucket nodes failed at startup", e);
+        }
+        return store;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "traffic.rules.cache.enabled", havingValue = "true", matchIfMissing = true)
+    RuleInvalidationListener ruleInvalidationListener(
+            RedisConnectionFactory connectionFactory,
+            CachingRuleStore cache,
+            RouteIndex routes,
+            DenyCache denyCache,
+            RuleCacheProperties props
+    ) {
+        return new RuleInvalidationListener(connectionFactory, props.channel(), RuleInvalidationListener.RETRY_INTERVAL, ruleId -> {
+            cache.invalidate(ruleId);
+            routes.reload(ruleId);
+            denyCache.invalidateRule(ruleId);
+        });
+    }
+}
@@ -0,0 +1,65 @@
+-- AIMD step for one adaptive rule, shared by every instance.
+-- KEYS[1] = adaptive:{ruleId} (hash: multiplier, good, bad, window_start_ms)
+-- ARGV[1] = nowMs
+-- ARGV[2] = good samples since this instance's last call
+-- ARGV[3] = bad samples (slower than the rule's targetLatencyMs, or failed)
+-- ARGV[4] = intervalMs
+-- ARGV[5] = increase (additive)
+-- ARGV[6] = decrease (multiplicative)
+-- ARGV[7] = minMultiplier
+-- ARGV[8] = maxMultiplier
+-- ARGV[9] = tolerance (share of bad samples an interval may have)
+-- ARGV[10] = resetAfterMs
+--
+-- Samples from all instances add up in the hash; once intervalMs has passed since the
+-- window opened, the first caller closes it and moves the multiplier one step, so the
+-- rule changes once per interval however many instances report.
+--
+-- Returns { multiplier (string) }
+
+local key = KEYS[1]
+
+local now = tonumber(ARGV[1])
+local good = tonumber(ARGV[2])
+local bad = tonumber(ARGV[3])
+local intervalMs = tonumber(ARGV[4])
+local increase = tonumber(ARGV[5])
+local decrease = tonumber(ARGV[6])
+local minMultiplier = tonumber(ARGV[7])
+local maxMultiplier = tonumber(ARGV[8])
+local tolerance = tonumber(ARGV[9])
+local resetAfterMs = tonumber(ARGV[10])
+
+local state = redis.call('HMGET', key, 'multiplier', 'good', 'bad', 'window_start_ms')
+local multiplier = tonumber(state[1]) or maxMultiplier
+good = good + (tonumber(state[2]) or 0)
+bad = bad + (tonumber(state[3]) or 0)
+local windowStart = tonumber(state[4]) or now
+
+if now - windowStart >= intervalMs then
+  local total = good + bad
+  if total > 0 then
+    if bad / total > tolerance then
+      multiplier = math.max(minMultiplier, multiplier * decrease)
+    else
+      multiplier = math.min(maxMultiplier, multiplier + increase)
+    end
+  end
+  good = 0
+  bad = 0
+  windowStart = now
+end
+
+-- The bounds may have been changed since the multiplier was stored.
+multiplier = math.min(maxMultiplier, math.max(minMultiplier, multiplier))
+
+-- Numbers go in as strings: a Lua number reply would be truncated to an integer.
+local m = string.format('%.4f', multiplier)
+redis.call('HSET', key, 'multiplier', m, 'good', good, 'bad', bad, 'window_start_ms', windowStart)
+
+-- Only reported samples extend the state; without feedback the rule returns to its configured limits.
+if ARGV[2] ~= '0' or ARGV[3] ~= '0' or redis.call('PTTL', key) < 0 then
+  redis.call('PEXPIRE', key, resetAfterMs)
+end
+
+return { m }
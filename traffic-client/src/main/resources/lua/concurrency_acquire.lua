@@ -0,0 +1,37 @@
+-- Takes one in-flight permit. Leases are sorted-set members scored by their expiry,
+-- so permits held by crashed callers free themselves once the lease runs out.
+-- KEYS[1] = lease set: cc:{key}:ruleId:endpoint:plan
+-- ARGV[1] = nowMs
+-- ARGV[2] = limit (max leases in flight)
+-- ARGV[3] = leaseMs
+-- ARGV[4] = leaseId
+--
+-- Returns { acquired (0/1), retryAfterMs, available, expired }
+
+local key = KEYS[1]
+local now = tonumber(ARGV[1])
+local limit = tonumber(ARGV[2])
+local leaseMs = tonumber(ARGV[3])
+local leaseId = ARGV[4]
+
+local expired = redis.call('ZREMRANGEBYSCORE', key, '-inf', now)
+local inFlight = redis.call('ZCARD', key)
+
+if inFlight >= limit then
+  -- Earliest a permit can free up without a release: the oldest lease running out.
+  local oldest = redis.call('ZRANGE', key, 0, 0, 'WITHSCORES')
+  local retryAfterMs = 0
+  if oldest[2] then
+    retryAfterMs = math.max(0, tonumber(oldest[2]) - now)
+  end
+  return { 0, retryAfterMs, 0, expired }
+end
+
+local expiresAt = now + leaseMs
+redis.call('ZADD', key, expiresAt, leaseId)
+
+-- The set lives as long as its longest lease.
+local last = redis.call('ZRANGE', key, -1, -1, 'WITHSCORES')
+redis.call('PEXPIRE', key, math.max(1, tonumber(last[2]) - now))
+
+return { 1, 0, limit - inFlight - 1, expired }
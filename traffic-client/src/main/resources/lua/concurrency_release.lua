@@ -0,0 +1,21 @@
+-- Returns an in-flight permit.
+-- KEYS[1] = lease set: cc:{key}:ruleId:endpoint:plan
+-- ARGV[1] = nowMs
+-- ARGV[2] = leaseId
+--
+-- Returns { released (0/1) }; 0 if the lease is unknown or had already expired.
+
+local key = KEYS[1]
+local now = tonumber(ARGV[1])
+local leaseId = ARGV[2]
+
+local expiresAt = redis.call('ZSCORE', key, leaseId)
+if not expiresAt then
+  return { 0 }
+end
+
+redis.call('ZREM', key, leaseId)
+if tonumber(expiresAt) <= now then
+  return { 0 }
+end
+return { 1 }
@@ -0,0 +1,122 @@
+-- Rule lookup + token bucket in one atomic call.
+-- KEYS[1] = rule hash: rule:{ruleId}
+-- ARGV[1] = ruleId
+-- ARGV[2] = identity (client key)
+-- ARGV[3] = cost (integer)
+-- ARGV[4] = nowMs
+-- ARGV[5] = compactKeys ('1' or '0'): tb:{<identity digest>}:<rule digest>, as RuleScriptArgs builds them
+-- ARGV[6] = expireWhenFull ('1' or '0'), as in token_bucket.lua
+--
+-- The bucket key (tb:{<16 hex>}:<12 hex>, or readable tb:{key}:ruleId:endpoint:plan) depends on fields of the rule, so it is
+-- built here rather than passed in KEYS. That is fine on standalone nodes (with
+-- traffic.redis.nodes the caller runs this on the client key's shard, which holds a
+-- copy of every rule) but not on Redis Cluster, where RuleScriptEnforcer refuses to start.
+--
+-- Return: { status, allowed, retryAfterMs, remaining,
+--           capacity, refillTokensPerSecond (string), burstCapacity, ttlMs, maxCost, leaseSize,
+--           endpoint, plan, algorithm, fallback, fallbackFraction (string), targetLatencyMs }
+-- status: 0 = decided, 2 = cost exceeds maxCost (nothing consumed),
+--         3 = rule is leased, adaptive or not a token bucket; the caller decides through
+--             the regular limiter (nothing consumed)
+--         4 = no copy of the rule on this node (written before the node was added, or the
+--             copy failed); the caller looks the rule up itself (nothing consumed)
+
+local ruleId = ARGV[1]
+local identity = ARGV[2]
+local cost = tonumber(ARGV[3])
+local now = tonumber(ARGV[4])
+local compactKeys = ARGV[5] == '1'
+local expireWhenFull = ARGV[6] == '1'
+
+local fields = redis.call('HGETALL', KEYS[1])
+local rule = {}
+for i = 1, #fields, 2 do
+  rule[fields[i]] = fields[i + 1]
+end
+
+-- Defaults for fields that rules stored by older versions do not have.
+local endpoint = rule['endpoint'] or 'unknown'
+local plan = rule['plan'] or 'default'
+local capacity = tonumber(rule['capacity'] or '1')
+local refillStr = rule['refillTokensPerSecond'] or '0.0'
+local refillPerSec = tonumber(refillStr)
+local ttlMs = tonumber(rule['ttlMs'] or '60000')
+local maxCost = tonumber(rule['maxCost'] or '1')
+local leaseSize = tonumber(rule['leaseSize'] or '0')
+local algorithm = rule['algorithm'] or 'TOKEN_BUCKET'
+local fallback = rule['fallback'] or 'FAIL_CLOSED'
+local fallbackFraction = rule['fallbackFraction'] or '0.0'
+local targetLatencyMs = tonumber(rule['targetLatencyMs'] or '0')
+local burst_capacity = tonumber(rule['burstCapacity'] or tostring(capacity))
+
+local function reply(status, allowed, retryAfterMs, remaining)
+  return { status, allowed, retryAfterMs, remaining,
+           capacity, refillStr, burst_capacity, ttlMs, maxCost, leaseSize,
+           endpoint, plan, algorithm, fallback, fallbackFraction, targetLatencyMs }
+end
+
+if #fields == 0 then
+  return reply(4, 0, 0, 0)
+end
+
+if cost > maxCost then
+  return reply(2, 0, 0, 0)
+end
+
+-- Adaptive limits are scaled on the instance, which only the regular path does.
+if leaseSize > 0 or targetLatencyMs > 0 or algorithm ~= 'TOKEN_BUCKET' then
+  return reply(3, 0, 0, 0)
+end
+
+local key
+if compactKeys then
+  -- Same digests as BucketKeys: 16 and 12 hex digits of SHA-1.
+  key = 'tb:{' .. string.sub(redis.sha1hex(identity), 1, 16) .. '}:'
+      .. string.sub(redis.sha1hex(ruleId .. ':' .. endpoint .. ':' .. plan), 1, 12)
+else
+  key = 'tb:{' .. identity .. '}:' .. ruleId .. ':' .. endpoint .. ':' .. plan
+end
+
+local tokensStr = redis.call('HGET', key, 'tokens')
+local lastRefillStr = redis.call('HGET', key, 'last_refill_ms')
+
+local tokens = tokensStr and tonumber(tokensStr) or burst_capacity
+local lastRefill = lastRefillStr and tonumber(lastRefillStr) or now
+
+local elapsedMs = now - lastRefill
+if elapsedMs < 0 then
+  elapsedMs = 0
+end
+
+local refill = (elapsedMs / 1000.0) * refillPerSec
+tokens = math.min(capacity, tokens + refill)
+
+local allowed = 0
+local remaining = tokens
+
+if tokens >= cost then
+  allowed = 1
+  tokens = tokens - cost
+  remaining = tokens
+end
+
+redis.call('HSET', key, 'tokens', tokens, 'last_refill_ms', now)
+
+local expireMs = ttlMs
+if expireWhenFull and refillPerSec > 0 and burst_capacity >= capacity then
+  local fullInMs = math.max(1, math.ceil(((capacity - tokens) / refillPerSec) * 1000.0))
+  if not expireMs or expireMs <= 0 or fullInMs < expireMs then
+    expireMs = fullInMs
+  end
+end
+if expireMs and expireMs > 0 then
+  redis.call('PEXPIRE', key, expireMs)
+end
+
+local retryAfterMs = 0
+if allowed == 0 then
+  local deficit = cost - tokens
+  retryAfterMs = math.ceil((deficit / refillPerSec) * 1000.0)
+end
+
+return reply(0, allowed, retryAfterMs, math.floor(remaining))
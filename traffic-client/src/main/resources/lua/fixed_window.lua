@@ -0,0 +1,38 @@
+-- Fixed window: one counter per key and window, no refill arithmetic.
+-- KEYS[1] = key prefix (string): fw:{<16 hex>}:<12 hex> (readable fw:{key}:ruleId:endpoint:plan); the counter is KEYS[1]:<window index>
+-- ARGV[1] = nowMs
+-- ARGV[2] = capacity (integer) - cost allowed per window
+-- ARGV[3] = refillTokensPerSecond (unused)
+-- ARGV[4] = burstCapacity (unused)
+-- ARGV[5] = cost (integer)
+-- ARGV[6] = ttlMs (integer) - window length; windows are aligned to the epoch
+-- ARGV[7] = expireWhenFull (unused; counters always expire with their window)
+--
+-- The counter shares the hash tag of KEYS[1], so it is on the same node (and Cluster slot).
+-- It expires when its window ends. Denied requests add nothing.
+
+local now = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local cost = tonumber(ARGV[5])
+local window = tonumber(ARGV[6])
+
+if window <= 0 then
+  -- Rejected at rule upsert; deny rather than divide by zero.
+  return { 0, 0, 0 }
+end
+
+local index = math.floor(now / window)
+local key = KEYS[1] .. ':' .. string.format('%d', index)
+local resetInMs = (index + 1) * window - now
+
+local used = tonumber(redis.call('GET', key) or '0')
+if used + cost > capacity then
+  return { 0, resetInMs, math.max(0, capacity - used) }
+end
+
+used = redis.call('INCRBY', key, cost)
+if used == cost then
+  redis.call('PEXPIRE', key, resetInMs)
+end
+
+return { 1, 0, capacity - used }
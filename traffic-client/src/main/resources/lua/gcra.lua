@@ -0,0 +1,73 @@
+-- GCRA (generic cell rate algorithm): token-bucket decisions from a single value per key.
+-- KEYS[1] = bucket key (string): gcra:{<16 hex>}:<12 hex>, or readable gcra:{key}:ruleId:endpoint:plan
+-- ARGV[1] = nowMs
+-- ARGV[2] = capacity (integer) - tokens the bucket can hold
+-- ARGV[3] = refillTokensPerSecond (number, must be > 0)
+-- ARGV[4] = burstCapacity (integer) - tokens a new key starts with (capped at capacity)
+-- ARGV[5] = cost (integer)
+-- ARGV[6] = ttlMs (integer)
+-- ARGV[7] = expireWhenFull ('1' or '0')
+--
+-- The stored value is the theoretical arrival time (TAT, ms). Tokens available at `now`
+-- are (now + capacity * interval - max(TAT, now)) / interval, i.e. the same quantity the
+-- token bucket tracks explicitly.
+
+local key = KEYS[1]
+
+local now = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local refillPerSec = tonumber(ARGV[3])
+local burst_capacity = tonumber(ARGV[4])
+local cost = tonumber(ARGV[5])
+local ttlMs = tonumber(ARGV[6])
+local expireWhenFull = ARGV[7] == '1'
+
+if refillPerSec <= 0 then
+  -- Rejected at rule upsert; deny rather than divide by zero.
+  return { 0, 0, 0 }
+end
+
+local interval = 1000.0 / refillPerSec         -- ms per token
+local tolerance = capacity * interval          -- ms of credit a full bucket represents
+
+local tatStr = redis.call('GET', key)
+local tat
+if tatStr then
+  tat = math.max(tonumber(tatStr), now)
+else
+  -- New key starts with burstCapacity tokens, like the token bucket.
+  tat = now + (capacity - math.min(capacity, burst_capacity)) * interval
+end
+
+local newTat = tat + cost * interval
+local allowAt = newTat - tolerance
+
+local allowed = 0
+local retryAfterMs = 0
+local remaining
+
+if allowAt <= now then
+  allowed = 1
+  tat = newTat
+  remaining = (now + tolerance - tat) / interval
+else
+  retryAfterMs = math.ceil(allowAt - now)
+  remaining = (now + tolerance - tat) / interval
+end
+
+-- The bucket is full again at TAT; with burstCapacity >= capacity a new key starts there too.
+local expireMs = ttlMs
+if expireWhenFull and burst_capacity >= capacity then
+  local fullInMs = math.max(1, math.ceil(tat - now))
+  if not expireMs or expireMs <= 0 or fullInMs < expireMs then
+    expireMs = fullInMs
+  end
+end
+
+if expireMs and expireMs > 0 then
+  redis.call('SET', key, string.format('%.3f', tat), 'PX', expireMs)
+else
+  redis.call('SET', key, string.format('%.3f', tat))
+end
+
+return { allowed, retryAfterMs, math.floor(remaining + 1e-9) }
@@ -0,0 +1,31 @@
+-- Writes a rule hash stamped with a version, so an older copy never replaces a newer one.
+-- KEYS[1] = rule hash: rule:{ruleId}
+-- ARGV[1] = version to write, or '' for the next version of this key (an upsert on the rule store)
+-- ARGV[2..] = field, value, field, value, ...
+--
+-- Bucket nodes get copies with the version the rule store assigned. A copy that arrives late
+-- (a retry after a failed write, say) finds a newer version there and changes nothing.
+-- Rules stored before versions existed count as version 0.
+--
+-- Return: the version written, or -1 if the stored version is newer (nothing written).
+
+local key = KEYS[1]
+local stored = tonumber(redis.call('HGET', key, 'version') or '0')
+
+local version
+if ARGV[1] == '' then
+  version = stored + 1
+else
+  version = tonumber(ARGV[1])
+  if version < stored then
+    return -1
+  end
+end
+
+local fields = {}
+for i = 2, #ARGV do
+  fields[#fields + 1] = ARGV[i]
+end
+
+redis.call('HSET', key, 'version', version, unpack(fields))
+return version
@@ -0,0 +1,58 @@
+-- Sliding window counter: fixed-window counters, with the previous window weighted by
+-- how much of it still overlaps the last ttlMs.
+-- KEYS[1] = key prefix (string): sw:{<16 hex>}:<12 hex> (readable sw:{key}:ruleId:endpoint:plan); counters are KEYS[1]:<window index>
+-- ARGV[1] = nowMs
+-- ARGV[2] = capacity (integer) - cost allowed per sliding window
+-- ARGV[3] = refillTokensPerSecond (unused)
+-- ARGV[4] = burstCapacity (unused)
+-- ARGV[5] = cost (integer)
+-- ARGV[6] = ttlMs (integer) - window length; windows are aligned to the epoch
+-- ARGV[7] = expireWhenFull (unused; counters always expire with their window)
+--
+-- estimate = previous * (window - elapsed) / window + current. Counters share the hash tag
+-- of KEYS[1], so they are on the same node (and Cluster slot), and expire one window after
+-- their own ends, once nothing weights them any more. Denied requests add nothing.
+
+local now = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local cost = tonumber(ARGV[5])
+local window = tonumber(ARGV[6])
+
+if window <= 0 then
+  -- Rejected at rule upsert; deny rather than divide by zero.
+  return { 0, 0, 0 }
+end
+
+local index = math.floor(now / window)
+local currentKey = KEYS[1] .. ':' .. string.format('%d', index)
+local previousKey = KEYS[1] .. ':' .. string.format('%d', index - 1)
+local elapsed = now - index * window
+
+local counts = redis.call('MGET', previousKey, currentKey)
+local previous = tonumber(counts[1] or '0')
+local current = tonumber(counts[2] or '0')
+local estimate = previous * (window - elapsed) / window + current
+
+if estimate + cost <= capacity then
+  current = redis.call('INCRBY', currentKey, cost)
+  if current == cost then
+    redis.call('PEXPIRE', currentKey, 2 * window - elapsed)
+  end
+  return { 1, 0, math.floor(capacity - estimate - cost + 1e-9) }
+end
+
+-- Earliest time the estimate leaves room for cost.
+local retryAfterMs
+local room = capacity - cost - current
+if room >= 0 then
+  -- Later in this window, once enough of the previous one has slid out.
+  retryAfterMs = window * (1 - room / previous) - elapsed
+elseif capacity - cost >= 0 then
+  -- In the next window, where this window's count becomes the weighted one.
+  retryAfterMs = (window - elapsed) + window * (1 - (capacity - cost) / current)
+else
+  -- cost exceeds capacity and never fits; report when both counters are gone.
+  retryAfterMs = 2 * window - elapsed
+end
+
+return { 0, math.max(1, math.ceil(retryAfterMs)), math.max(0, math.floor(capacity - estimate + 1e-9)) }
@@ -1,10 +1,11 @@
--- KEYS[1] = bucket key (hash): tb:ruleId:endpoint:plan:key
+-- KEYS[1] = bucket key (hash): tb:{<16 hex>}:<12 hex>, or readable tb:{key}:ruleId:endpoint:plan
 -- ARGV[1] = nowMs
 -- ARGV[2] = capacity (integer)
 -- ARGV[3] = refillTokensPerSecond (number, can be fractional)  
 -- ARGV[4] = burstCapacity (integer) - PHASE 5 NEW
 -- ARGV[5] = cost (integer)
 -- ARGV[6] = ttlMs (integer)
+-- ARGV[7] = expireWhenFull ('1' or '0')
 
 local key = KEYS[1]
 
@@ -14,6 +15,7 @@ local refillPerSec = tonumber(ARGV[3])
 local burst_capacity = tonumber(ARGV[4])  -- PHASE 5: Burst allowance
 local cost = tonumber(ARGV[5])
 local ttlMs = tonumber(ARGV[6])
+local expireWhenFull = ARGV[7] == '1'
 
 local tokensStr = redis.call('HGET', key, 'tokens')
 local lastRefillStr = redis.call('HGET', key, 'last_refill_ms')
@@ -43,8 +45,17 @@ end
 redis.call('HSET', key, 'tokens', tokens, 'last_refill_ms', now)
 
 -- Ensure the bucket expires so Redis doesn't grow forever.
-if ttlMs and ttlMs > 0 then
-  redis.call('PEXPIRE', key, ttlMs)
+-- With expireWhenFull, sooner: once it would have refilled to capacity, a bucket created
+-- afresh (at burstCapacity >= capacity) decides exactly the same, so it need not be kept.
+local expireMs = ttlMs
+if expireWhenFull and refillPerSec > 0 and burst_capacity >= capacity then
+  local fullInMs = math.max(1, math.ceil(((capacity - tokens) / refillPerSec) * 1000.0))
+  if not expireMs or expireMs <= 0 or fullInMs < expireMs then
+    expireMs = fullInMs
+  end
+end
+if expireMs and expireMs > 0 then
+  redis.call('PEXPIRE', key, expireMs)
 end
 
 -- Compute retryAfterMs if not allowed
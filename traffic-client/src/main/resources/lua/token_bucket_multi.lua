@@ -0,0 +1,164 @@
+-- All-or-nothing decision across several buckets (e.g. per API key + per IP + global).
+-- KEYS[i] = bucket key of dimension i (tb:... hash, gcra:... string, or fw:/sw: counter prefix)
+-- ARGV[1] = nowMs
+-- ARGV[2] = expireWhenFull ('1' or '0'), as in token_bucket.lua and gcra.lua
+-- Then 6 values per dimension i, starting at ARGV[3 + (i - 1) * 6]:
+--   algorithm (TOKEN_BUCKET | GCRA | FIXED_WINDOW | SLIDING_WINDOW), capacity, refillTokensPerSecond,
+--   burstCapacity, cost, ttlMs
+--
+-- Every bucket is evaluated first; state is written only if every one allows, so a
+-- denied request takes nothing from any bucket. Same semantics as token_bucket.lua,
+-- gcra.lua, fixed_window.lua and sliding_window.lua.
+--
+-- Touches several keys in one call, so all KEYS must live on one node. Keys hash on
+-- their own client key in the {tag}, so with traffic.redis.nodes the caller rejects
+-- checks whose keys land on different nodes instead of splitting them.
+--
+-- Returns { allAllowed, allowed_1, retryAfterMs_1, remaining_1, ..., allowed_n, retryAfterMs_n, remaining_n }
+
+local now = tonumber(ARGV[1])
+local expireWhenFull = ARGV[2] == '1'
+local n = #KEYS
+
+local state = {}
+local allAllowed = 1
+
+for i = 1, n do
+  local base = 3 + (i - 1) * 6
+  local d = {
+    key = KEYS[i],
+    algorithm = ARGV[base],
+    capacity = tonumber(ARGV[base + 1]),
+    refillPerSec = tonumber(ARGV[base + 2]),
+    burst = tonumber(ARGV[base + 3]),
+    cost = tonumber(ARGV[base + 4]),
+    ttlMs = tonumber(ARGV[base + 5]),
+    allowed = 0,
+    retryAfterMs = 0,
+    remaining = 0,
+  }
+
+  if d.algorithm == 'FIXED_WINDOW' or d.algorithm == 'SLIDING_WINDOW' then
+    local window = d.ttlMs
+    if window and window > 0 then
+      local index = math.floor(now / window)
+      local elapsed = now - index * window
+      d.counterKey = d.key .. ':' .. string.format('%d', index)
+      local used = tonumber(redis.call('GET', d.counterKey) or '0')
+      local previous = 0
+      if d.algorithm == 'FIXED_WINDOW' then
+        d.expireMs = window - elapsed
+      else
+        previous = tonumber(redis.call('GET', d.key .. ':' .. string.format('%d', index - 1)) or '0')
+        d.expireMs = 2 * window - elapsed
+      end
+      local estimate = previous * (window - elapsed) / window + used
+      if estimate + d.cost <= d.capacity then
+        d.allowed = 1
+        d.remaining = math.floor(d.capacity - estimate - d.cost + 1e-9)
+      else
+        d.remaining = math.max(0, math.floor(d.capacity - estimate + 1e-9))
+        local room = d.capacity - d.cost - used
+        if d.algorithm == 'FIXED_WINDOW' or d.capacity < d.cost then
+          d.retryAfterMs = d.expireMs
+        elseif room >= 0 then
+          d.retryAfterMs = math.max(1, math.ceil(window * (1 - room / previous) - elapsed))
+        else
+          d.retryAfterMs = math.ceil((window - elapsed) + window * (1 - (d.capacity - d.cost) / used))
+        end
+      end
+    end
+    -- ttlMs <= 0 is rejected at rule upsert; deny rather than divide by zero.
+  elseif d.algorithm == 'GCRA' then
+    if d.refillPerSec > 0 then
+      local interval = 1000.0 / d.refillPerSec
+      local tolerance = d.capacity * interval
+      local tatStr = redis.call('GET', d.key)
+      local tat
+      if tatStr then
+        tat = math.max(tonumber(tatStr), now)
+      else
+        tat = now + (d.capacity - math.min(d.capacity, d.burst)) * interval
+      end
+      local newTat = tat + d.cost * interval
+      local allowAt = newTat - tolerance
+      if allowAt <= now then
+        d.allowed = 1
+        d.tat = newTat
+      else
+        d.retryAfterMs = math.ceil(allowAt - now)
+        d.tat = tat
+      end
+      d.remaining = math.floor((now + tolerance - d.tat) / interval + 1e-9)
+    end
+    -- refill <= 0 is rejected at rule upsert; deny rather than divide by zero.
+  else
+    local tokensStr = redis.call('HGET', d.key, 'tokens')
+    local lastRefillStr = redis.call('HGET', d.key, 'last_refill_ms')
+    local tokens = tokensStr and tonumber(tokensStr) or d.burst
+    local lastRefill = lastRefillStr and tonumber(lastRefillStr) or now
+    local elapsedMs = now - lastRefill
+    if elapsedMs < 0 then
+      elapsedMs = 0
+    end
+    tokens = math.min(d.capacity, tokens + (elapsedMs / 1000.0) * d.refillPerSec)
+    if tokens >= d.cost then
+      d.allowed = 1
+      d.tokens = tokens - d.cost
+    else
+      d.retryAfterMs = math.ceil(((d.cost - tokens) / d.refillPerSec) * 1000.0)
+      d.tokens = tokens
+    end
+    d.remaining = math.floor(d.tokens)
+  end
+
+  if d.allowed == 0 then
+    allAllowed = 0
+  end
+  state[i] = d
+end
+
+-- ttlMs, or with expireWhenFull the time until the bucket is full if that is sooner.
+local function expiry(d, fullInMs)
+  if not expireWhenFull or d.refillPerSec <= 0 or d.burst < d.capacity then
+    return d.ttlMs
+  end
+  fullInMs = math.max(1, math.ceil(fullInMs))
+  if not d.ttlMs or d.ttlMs <= 0 or fullInMs < d.ttlMs then
+    return fullInMs
+  end
+  return d.ttlMs
+end
+
+if allAllowed == 1 then
+  for i = 1, n do
+    local d = state[i]
+    if d.counterKey then
+      if redis.call('INCRBY', d.counterKey, d.cost) == d.cost then
+        redis.call('PEXPIRE', d.counterKey, d.expireMs)
+      end
+    elseif d.algorithm == 'GCRA' then
+      local expireMs = expiry(d, d.tat - now)
+      if expireMs and expireMs > 0 then
+        redis.call('SET', d.key, string.format('%.3f', d.tat), 'PX', expireMs)
+      else
+        redis.call('SET', d.key, string.format('%.3f', d.tat))
+      end
+    else
+      redis.call('HSET', d.key, 'tokens', d.tokens, 'last_refill_ms', now)
+      local expireMs = expiry(d, ((d.capacity - d.tokens) / d.refillPerSec) * 1000.0)
+      if expireMs and expireMs > 0 then
+        redis.call('PEXPIRE', d.key, expireMs)
+      end
+    end
+  end
+end
+
+local out = { allAllowed }
+for i = 1, n do
+  local d = state[i]
+  out[#out + 1] = d.allowed
+  out[#out + 1] = d.retryAfterMs
+  out[#out + 1] = d.remaining
+end
+return out
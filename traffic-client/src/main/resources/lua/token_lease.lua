@@ -0,0 +1,61 @@
+-- Takes a chunk of tokens out of a token bucket so one instance can serve them locally.
+-- KEYS[1] = bucket key (hash): tb:{<16 hex>}:<12 hex>, or readable tb:{key}:ruleId:endpoint:plan  (same bucket as token_bucket.lua)
+-- ARGV[1] = nowMs
+-- ARGV[2] = capacity (integer)
+-- ARGV[3] = refillTokensPerSecond (number, can be fractional)
+-- ARGV[4] = burstCapacity (integer)
+-- ARGV[5] = leaseSize (integer) - tokens wanted for the lease, always >= cost
+-- ARGV[6] = cost (integer) - the request that triggered the lease must fit in the grant
+-- ARGV[7] = ttlMs (integer)
+-- ARGV[8] = returned (integer) - unused tokens from this instance's previous lease
+
+local key = KEYS[1]
+
+local now = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local refillPerSec = tonumber(ARGV[3])
+local burst_capacity = tonumber(ARGV[4])
+local leaseSize = tonumber(ARGV[5])
+local cost = tonumber(ARGV[6])
+local ttlMs = tonumber(ARGV[7])
+local returned = tonumber(ARGV[8])
+
+local tokensStr = redis.call('HGET', key, 'tokens')
+local lastRefillStr = redis.call('HGET', key, 'last_refill_ms')
+
+local tokens = tokensStr and tonumber(tokensStr) or burst_capacity
+local lastRefill = lastRefillStr and tonumber(lastRefillStr) or now
+
+local elapsedMs = now - lastRefill
+if elapsedMs < 0 then
+  elapsedMs = 0
+end
+
+local refill = (elapsedMs / 1000.0) * refillPerSec
+tokens = math.min(capacity, tokens + refill)
+
+-- Leftovers go back before the new grant so they are never double counted.
+if returned and returned > 0 then
+  tokens = math.min(capacity, tokens + returned)
+end
+
+local granted = 0
+if tokens >= cost then
+  granted = math.min(math.floor(tokens), leaseSize)
+  tokens = tokens - granted
+end
+
+redis.call('HSET', key, 'tokens', tokens, 'last_refill_ms', now)
+
+if ttlMs and ttlMs > 0 then
+  redis.call('PEXPIRE', key, ttlMs)
+end
+
+local retryAfterMs = 0
+if granted == 0 then
+  local deficit = cost - tokens
+  retryAfterMs = math.ceil((deficit / refillPerSec) * 1000.0)
+end
+
+-- Return: granted, retryAfterMs, tokens left in the shared bucket
+return { granted, retryAfterMs, math.floor(tokens) }
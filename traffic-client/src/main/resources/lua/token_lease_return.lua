@@ -0,0 +1,19 @@
+-- Gives unused lease tokens back to a token bucket.
+-- KEYS[1] = bucket key (hash)
+-- ARGV[1] = capacity (integer)
+-- ARGV[2] = returned (integer)
+
+local key = KEYS[1]
+local capacity = tonumber(ARGV[1])
+local returned = tonumber(ARGV[2])
+
+local tokensStr = redis.call('HGET', key, 'tokens')
+if not tokensStr then
+  -- Bucket already expired, i.e. it is full again; nothing to return.
+  return { 0 }
+end
+
+local tokens = math.min(capacity, tonumber(tokensStr) + returned)
+redis.call('HSET', key, 'tokens', tokens)
+
+return { 1 }
@@ -0,0 +1,54 @@
+package com.shlokmestry.traffic.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import com.shlokmestry.traffic.ratelimit.RateLimiter;
+import com.shlokmestry.traffic.rules.Algorithm;
+import com.shlokmestry.traffic.rules.Fallback;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+class RateLimitHeadersTest {
+
+    private static final RateLimitRule RULE = new RateLimitRule("r", "/search", "pro", 10, 2.0, 10, 60000L, 5);
+
+    @Test
+    void allowedSendsLimitRemainingAndZeroReset() {
+        Map<String, String> h = new LinkedHashMap<>();
+        RateLimitHeaders.decision(RULE, new RateLimiter.Result(true, 0, 7), h::put);
+
+        assertThat(h).containsExactly(
+                Map.entry("RateLimit-Limit", "10"),
+                Map.entry("RateLimit-Remaining", "7"),
+                Map.entry("RateLimit-Reset", "0"));
+    }
+
+    @Test
+    void limitedRoundsRetryUpToWholeSeconds() {
+        Map<String, String> h = new LinkedHashMap<>();
+        RateLimitHeaders.decision(RULE, new RateLimiter.Result(false, 1200, 0), h::put);
+
+        assertThat(h).containsEntry("Retry-After", "2").containsEntry("RateLimit-Reset", "2");
+    }
+
+    @Test
+    void noRefillRetriesAfterAnHour() {
+        Map<String, String> h = new LinkedHashMap<>();
+        RateLimitHeaders.decision(RateLimitRule.failClosed("r"), new RateLimiter.Result(false, 0, 0), h::put);
+
+        assertThat(h).containsEntry("Retry-After", "3600").containsEntry("RateLimit-Limit", "1");
+    }
+
+    @Test
+    void windowRuleRetriesWhenTheScriptSaysDespiteNoRefill() {
+        RateLimitRule hourly = new RateLimitRule(
+                "r", "/search", "pro", 10_000, 0.0, 0, 3_600_000L, 5, 0, Algorithm.FIXED_WINDOW, Fallback.FAIL_CLOSED, 0.0, 0L);
+        Map<String, String> h = new LinkedHashMap<>();
+        RateLimitHeaders.decision(hourly, new RateLimiter.Result(false, 90_500, 0), h::put);
+
+        assertThat(h).containsEntry("Retry-After", "91").containsEntry("RateLimit-Limit", "10000");
+    }
+}
@@ -0,0 +1,88 @@
+package com.shlokmestry.traffic.observability;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import com.shlokmestry.traffic.observability.DecisionTrace.Outcome;
+import com.shlokmestry.traffic.ratelimit.RateLimiter;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DecisionAuditTest {
+
+    private static final RateLimitRule RULE = new RateLimitRule("r", "/v1/search", "free", 10, 1.0, 10, 60_000, 5);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void denialsAreAlwaysWrittenAndAllowedDecisionsSampled() {
+        List<String> written = new ArrayList<>();
+        // Sink events are reused after write returns, so keep copies.
+        DecisionSink sink = batch -> batch.forEach(e -> written.add(e.key() + ":" + e.outcome()));
+        DecisionAudit audit = new DecisionAudit(registry, props(1024, 0.0), sink, () -> 42L);
+
+        audit.record(RULE, "a", 1, new RateLimiter.Result(true, 0, 9), false);
+        audit.record(RULE, "b", 1, new RateLimiter.Result(false, 500, 0), false);
+        audit.record(RULE, "c", 1, new RateLimiter.Result(false, 400, 0), true);
+        audit.record(RULE, "d", 20, Outcome.COST_TOO_HIGH);
+        audit.close();
+
+        assertThat(written).containsExactly("b:LIMITED", "c:CACHED", "d:COST_TOO_HIGH");
+        assertThat(registry.get("ratelimit.audit.events").tag("result", "written").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void fullRingRefusesInsteadOfBlocking() {
+        DecisionRing ring = new DecisionRing(3);     // rounded up to 4
+        for (int i = 0; i < 4; i++) {
+            assertThat(ring.offer(i, "r", "/", "p", "k" + i, 1, Outcome.LIMITED, 0, 0)).isTrue();
+        }
+        assertThat(ring.offer(4, "r", "/", "p", "k4", 1, Outcome.LIMITED, 0, 0)).isFalse();
+
+        DecisionEvent[] batch = {new DecisionEvent(), new DecisionEvent(), new DecisionEvent()};
+        assertThat(ring.drain(batch, 2)).isEqualTo(2);
+        assertThat(batch[0].key()).isEqualTo("k0");
+        assertThat(batch[1].key()).isEqualTo("k1");
+
+        // Freed slots are reused in order after the wrap.
+        assertThat(ring.offer(5, "r", "/", "p", "k5", 1, Outcome.LIMITED, 0, 0)).isTrue();
+        assertThat(ring.drain(batch, 3)).isEqualTo(3);
+        assertThat(batch[0].key()).isEqualTo("k2");
+        assertThat(batch[2].key()).isEqualTo("k5");
+        assertThat(ring.size()).isEqualTo(0);
+    }
+
+    @Test
+    void ndjsonSinkEscapesStringsAndRollsBySize(@TempDir Path dir) throws IOException {
+        DecisionEvent e = new DecisionEvent();
+        e.set(1000, "r", "/v1/search", "free", "say \"hi\"\n", 2, Outcome.LIMITED, 250, 0);
+
+        // Every line is over one byte, so each write after the first rolls; two old files are kept.
+        NdjsonFileSink sink = new NdjsonFileSink(dir, 1, 2);
+        for (int i = 0; i < 4; i++) sink.write(List.of(e));
+        sink.close();
+
+        assertThat(Files.readString(dir.resolve("decisions.ndjson"))).isEqualTo(
+                "{\"ts\":1000,\"ruleId\":\"r\",\"endpoint\":\"/v1/search\",\"plan\":\"free\",\"key\":\"say \\\"hi\\\"\\n\","
+                        + "\"cost\":2,\"outcome\":\"limited\",\"retryAfterMs\":250,\"remaining\":0}\n");
+        assertThat(dir.resolve("decisions.ndjson.2")).exists();
+        assertThat(dir.resolve("decisions.ndjson.3")).doesNotExist();
+    }
+
+    private static AuditProperties props(int capacity, double allowedSampleRate) {
+        return new AuditProperties(true, AuditProperties.Sink.FILE, capacity, 16, Duration.ofMillis(5),
+                allowedSampleRate,
+                new AuditProperties.File(Path.of("audit"), DataSize.ofMegabytes(1), 1),
+                new AuditProperties.Stream("traffic:audit", 1000));
+    }
+}
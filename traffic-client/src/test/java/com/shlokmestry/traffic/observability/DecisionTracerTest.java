@@ -0,0 +1,55 @@
+package com.shlokmestry.traffic.observability;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DecisionTracerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong nanos = new AtomicLong();
+    // 2 tagged ruleIds, everything slow, 3 slow-log entries; call time is whatever the test advances
+    private final DecisionTracer tracer = new DecisionTracer(registry,
+            Clock.fixed(Instant.EPOCH, ZoneOffset.UTC), nanos::get,
+            new TracingProperties(2, Duration.ZERO, 3));
+
+    @Test
+    void slowLogKeepsStageBreakdownOfLatestEntriesSlowestFirst() {
+        for (long scriptMs : new long[] {5, 40, 10, 20}) {
+            DecisionTrace t = tracer.begin();
+            nanos.addAndGet(Duration.ofMillis(scriptMs + 1).toNanos());
+            DecisionTrace.record(DecisionTrace.Stage.SCRIPT, Duration.ofMillis(scriptMs).toNanos());
+            DecisionTrace.outcome(DecisionTrace.Outcome.ALLOWED);
+            tracer.finish(t, "r", 1);
+        }
+
+        // The 5ms entry was overwritten by the latest three, which are listed by total time.
+        assertThat(tracer.slowDecisions().stream().map(SlowDecision::scriptMs).toList())
+                .containsExactly(40.0, 20.0, 10.0);
+        assertThat(tracer.slowDecisions().get(0).totalMs()).isEqualTo(41.0);
+        assertThat(tracer.slowDecisions().get(0).otherMs()).isEqualTo(1.0);
+        assertThat(tracer.slowDecisions().get(0).outcome()).isEqualTo("allowed");
+    }
+
+    @Test
+    void recordingOutsideATraceIsIgnoredAndRuleTagsAreCapped() {
+        DecisionTrace.record(DecisionTrace.Stage.SCRIPT, 1_000);
+
+        for (String ruleId : new String[] {"a", "b", "c", "d"}) {
+            tracer.finish(tracer.begin(), ruleId, 1);
+        }
+
+        assertThat(registry.find("ratelimit.stage.duration").tag("stage", "script").timers()).isEmpty();
+        assertThat(registry.find("ratelimit.stage.duration").tag("stage", "enforce").timers().stream()
+                .map(t -> t.getId().getTag("ruleId"))
+                .toList())
+                .containsExactlyInAnyOrder("a", "b", DecisionTracer.OTHER_RULES);
+    }
+}
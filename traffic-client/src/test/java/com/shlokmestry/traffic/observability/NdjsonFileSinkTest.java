@@ -0,0 +1,96 @@
+package com.shlokmestry.traffic.observability;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.shlokmestry.traffic.observability.DecisionTrace.Outcome;
+
+class NdjsonFileSinkTest {
+
+    @TempDir
+    Path dir;
+
+    private static DecisionEvent event(String key) {
+        DecisionEvent e = new DecisionEvent();
+        e.set(1000, "r", "/v1/search", "free", key, 1, Outcome.LIMITED, 250, 0);
+        return e;
+    }
+
+    private List<String> keys(String file) throws IOException {
+        List<String> keys = new ArrayList<>();
+        for (String line : Files.readAllLines(dir.resolve(file))) {
+            int start = line.indexOf("\"key\":\"") + 7;
+            keys.add(line.substring(start, line.indexOf('"', start)));
+        }
+        return keys;
+    }
+
+    // Every event formats to the same length, so the file size counts whole lines.
+    private long lines(NdjsonFileSink sink, int n) {
+        return (long) n * sink.format(event("k0")).length();
+    }
+
+    @Test
+    void rollsAtMaxFileSizeAndKeepsMaxFiles() throws IOException {
+        NdjsonFileSink probe = new NdjsonFileSink(dir.resolve("probe"), 1, 0);
+        long twoLines = lines(probe, 2);
+        probe.close();
+
+        NdjsonFileSink sink = new NdjsonFileSink(dir, twoLines, 2);
+        for (int i = 0; i < 7; i++) sink.write(List.of(event("k" + i)));
+        sink.close();
+
+        assertThat(keys("decisions.ndjson")).containsExactly("k6");
+        assertThat(keys("decisions.ndjson.1")).containsExactly("k4", "k5");
+        assertThat(keys("decisions.ndjson.2")).containsExactly("k2", "k3");
+        assertThat(dir.resolve("decisions.ndjson.3")).doesNotExist();
+
+        // A restarted sink appends to the active file and counts what is already there.
+        sink = new NdjsonFileSink(dir, twoLines, 2);
+        sink.write(List.of(event("k7"), event("k8")));
+        sink.close();
+
+        assertThat(keys("decisions.ndjson")).containsExactly("k8");
+        assertThat(keys("decisions.ndjson.1")).containsExactly("k6", "k7");
+        assertThat(keys("decisions.ndjson.2")).containsExactly("k4", "k5");
+    }
+
+    @Test
+    void noOldFilesKeptWhenMaxFilesIsZero() throws IOException {
+        NdjsonFileSink sink = new NdjsonFileSink(dir, 1, 0);
+        sink.write(List.of(event("k0"), event("k1"), event("k2")));
+        sink.close();
+
+        assertThat(keys("decisions.ndjson")).containsExactly("k2");
+        assertThat(dir.resolve("decisions.ndjson.1")).doesNotExist();
+    }
+
+    @Test
+    void failedRollKeepsTheSinkWritable() throws IOException {
+        NdjsonFileSink sink = new NdjsonFileSink(dir, 1, 1);
+        sink.write(List.of(event("k0")));
+
+        // A non-empty directory where the rolled file goes: the roll fails.
+        Path blocker = Files.createDirectories(dir.resolve("decisions.ndjson.1"));
+        Files.writeString(blocker.resolve("x"), "x");
+        assertThatThrownBy(() -> sink.write(List.of(event("k1")))).isInstanceOf(IOException.class);
+        assertThat(keys("decisions.ndjson")).containsExactly("k0");
+
+        // Once the rename can succeed, the next write rolls and carries on.
+        Files.delete(blocker.resolve("x"));
+        Files.delete(blocker);
+        sink.write(List.of(event("k2")));
+        sink.close();
+
+        assertThat(keys("decisions.ndjson")).containsExactly("k2");
+        assertThat(keys("decisions.ndjson.1")).containsExactly("k0");
+    }
+}
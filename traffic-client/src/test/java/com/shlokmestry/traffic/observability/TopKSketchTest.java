@@ -0,0 +1,35 @@
+package com.shlokmestry.traffic.observability;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+class TopKSketchTest {
+
+    @Test
+    void heavyKeysRiseAboveLongTail() {
+        TopKSketch sketch = new TopKSketch(8, 4, 1024);
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add("user" + i, 1);
+            if (i % 10 == 0) sketch.add("heavy", 1);
+            if (i % 20 == 0) sketch.add("medium", 1);
+        }
+
+        assertThat(sketch.top(2)).extracting(HeavyHitter::key).containsExactly("heavy", "medium");
+        // Never below the true count; over it by at most a few times total / width.
+        assertThat(sketch.top(1).get(0).estimate()).isBetween(10_000L, 10_000L + 3 * 120_000L / 1024);
+    }
+
+    @Test
+    void countsAreWeightedAndDecayByHalf() {
+        TopKSketch sketch = new TopKSketch(4, 4, 64);
+        sketch.add("a", 5);
+        sketch.add("b", 3);
+        sketch.add("a", 1);
+
+        assertThat(sketch.top(10)).containsExactly(new HeavyHitter("a", 6), new HeavyHitter("b", 3));
+
+        sketch.decay();
+        sketch.decay();
+        assertThat(sketch.top(10)).containsExactly(new HeavyHitter("a", 1));
+    }
+}
@@ -0,0 +1,74 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+class BucketExpiryTest extends RedisScriptTest {
+
+    private static final String KEY = "tb:{alice}:r:/search:pro";
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void expireWhenFullExpiresOnceTheBucketHasRefilled() {
+        // 5 of 10 taken at 10/s: full again in 500ms, well before the 60s ttl.
+        assertThat(run("token_bucket", List.of(KEY), NOW, 10, 10.0, 10, 5, 60_000, 1)).containsExactly(1L, 0L, 5L);
+        assertThat(pttl(KEY)).isBetween(1L, 500L);
+    }
+
+    @Test
+    void withoutExpireWhenFullTheBucketLivesForTtl() {
+        run("token_bucket", List.of(KEY), NOW, 10, 10.0, 10, 5, 60_000, 0);
+        assertThat(pttl(KEY)).isBetween(59_000L, 60_000L);
+    }
+
+    @Test
+    void expireWhenFullKeepsBucketsThatWouldNotBeRecreatedFull() {
+        // A fresh bucket starts at burst 5, below capacity: dropping it early would change decisions.
+        run("token_bucket", List.of(KEY), NOW, 10, 10.0, 5, 1, 60_000, 1);
+        assertThat(pttl(KEY)).isBetween(59_000L, 60_000L);
+
+        // No refill never gets full again.
+        redis.delete(KEY);
+        run("token_bucket", List.of(KEY), NOW, 10, 0, 10, 1, 60_000, 1);
+        assertThat(pttl(KEY)).isBetween(59_000L, 60_000L);
+    }
+
+    @Test
+    void limiterWritesCompactKeysThatExpireWhenFull() {
+        RateLimitRule rule = new RateLimitRule("r", "/search", "pro", 10, 10.0, 10, 60_000, 5);
+        TokenBucketRateLimiter limiter = limiter(
+                new CoalescingProperties(false, 64, Duration.ofMillis(1), 1000, 1, Duration.ofSeconds(1)),
+                new BucketProperties(true, true));
+        try {
+            assertThat(limiter.checkAndConsume(rule, "alice", 5).allowed()).isTrue();
+        } finally {
+            limiter.shutdown();
+        }
+
+        String compact = new RuleScriptArgs(rule, 1.0, true).bucketKey("alice");
+        assertThat(compact).matches("tb:\\{[0-9a-f]{16}}:[0-9a-f]{12}");
+        assertThat(redis.keys("*")).containsExactly(compact);
+        assertThat(pttl(compact)).isBetween(1L, 500L);
+    }
+
+    @Test
+    void limiterWritesReadableKeysWhenCompactKeysAreOff() {
+        RateLimitRule rule = new RateLimitRule("r", "/search", "pro", 10, 10.0, 10, 60_000, 5);
+        TokenBucketRateLimiter limiter = limiter(
+                new CoalescingProperties(false, 64, Duration.ofMillis(1), 1000, 1, Duration.ofSeconds(1)),
+                new BucketProperties(false, false));
+        try {
+            assertThat(limiter.checkAndConsume(rule, "alice", 5).allowed()).isTrue();
+        } finally {
+            limiter.shutdown();
+        }
+
+        assertThat(redis.keys("*")).containsExactly(KEY);
+        assertThat(pttl(KEY)).isBetween(59_000L, 60_000L);
+    }
+}
@@ -0,0 +1,37 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/** Compact keys are spelled in Java and in enforce_by_rule.lua; both must give the same digests. */
+class BucketKeysScriptTest extends RedisScriptTest {
+
+    private static final RedisScript<String> SHA1_PREFIX =
+            RedisScript.of("return string.sub(redis.sha1hex(ARGV[1]), 1, tonumber(ARGV[2]))", String.class);
+
+    private static final List<String> IDENTITIES = List.of(
+            "", "k", "alice", "user:42", "10.0.0.1", "{tag}", "ünïcødé-ключ-鍵", "x".repeat(1000));
+
+    private static String sha1Prefix(String s, int hexChars) {
+        return redis.execute(SHA1_PREFIX, List.of(), s, String.valueOf(hexChars));
+    }
+
+    @Test
+    void identityDigestMatchesRedisSha1hex() {
+        for (String identity : IDENTITIES) {
+            assertThat(BucketKeys.identity(identity)).as(identity)
+                    .isEqualTo(sha1Prefix(identity, BucketKeys.IDENTITY_HEX));
+        }
+    }
+
+    @Test
+    void ruleDigestMatchesRedisSha1hex() {
+        assertThat(BucketKeys.rule("r", "/search", "pro")).isEqualTo(sha1Prefix("r:/search:pro", BucketKeys.RULE_HEX));
+        assertThat(BucketKeys.rule("orders", "/v1/orders/{id}", "free"))
+                .isEqualTo(sha1Prefix("orders:/v1/orders/{id}:free", BucketKeys.RULE_HEX));
+        assertThat(BucketKeys.rule("ü", "/ä", "ö")).isEqualTo(sha1Prefix("ü:/ä:ö", BucketKeys.RULE_HEX));
+    }
+}
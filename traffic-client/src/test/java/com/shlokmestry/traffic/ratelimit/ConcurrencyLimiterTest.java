@@ -0,0 +1,63 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConcurrencyLimiterTest extends RedisScriptTest {
+
+    private static final String KEY = "cc:{alice}:r:/export:pro";
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void acquiresUpToTheLimitThenReportsWhenTheOldestLeaseEnds() {
+        assertThat(run("concurrency_acquire", List.of(KEY), NOW, 2, 30_000, "a")).containsExactly(1L, 0L, 1L, 0L);
+        assertThat(run("concurrency_acquire", List.of(KEY), NOW + 1_000, 2, 30_000, "b")).containsExactly(1L, 0L, 0L, 0L);
+
+        // Full: "a" runs out first, 29s from now.
+        assertThat(run("concurrency_acquire", List.of(KEY), NOW + 1_000, 2, 30_000, "c")).containsExactly(0L, 29_000L, 0L, 0L);
+        // The set lives as long as its longest lease.
+        assertThat(pttl(KEY)).isBetween(29_000L, 30_000L);
+    }
+
+    @Test
+    void releaseFreesAPermitOnce() {
+        run("concurrency_acquire", List.of(KEY), NOW, 1, 30_000, "a");
+
+        assertThat(run("concurrency_release", List.of(KEY), NOW + 10, "a")).containsExactly(1L);
+        assertThat(run("concurrency_release", List.of(KEY), NOW + 10, "a")).containsExactly(0L);
+        assertThat(run("concurrency_acquire", List.of(KEY), NOW + 20, 1, 30_000, "b").get(0)).isEqualTo(1L);
+    }
+
+    @Test
+    void expiredLeasesFreeTheirPermitsByThemselves() {
+        run("concurrency_acquire", List.of(KEY), NOW, 2, 1_000, "a");
+        run("concurrency_acquire", List.of(KEY), NOW, 2, 1_000, "b");
+
+        // A crashed holder never releases; past the lease both permits are back.
+        assertThat(run("concurrency_acquire", List.of(KEY), NOW + 1_000, 2, 1_000, "c")).containsExactly(1L, 0L, 1L, 2L);
+        // Releasing a lease that already ran out reports it as unknown.
+        assertThat(run("concurrency_release", List.of(KEY), NOW + 1_000, "a")).containsExactly(0L);
+    }
+
+    @Test
+    void limiterHandsOutLeaseIdsThatReleaseTheirPermit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(shards(), breaker(), new SimpleMeterRegistry());
+        RateLimitRule rule = new RateLimitRule("r", "/export", "pro", 1, 1.0, 1, 60_000, 1);
+
+        ConcurrencyLimiter.Permit first = limiter.acquire(rule, "alice", 30_000);
+        assertThat(first.acquired()).isTrue();
+        assertThat(limiter.acquire(rule, "alice", 30_000).status()).isEqualTo(ConcurrencyLimiter.Permit.Status.LIMITED);
+        // Another client has its own permits.
+        assertThat(limiter.acquire(rule, "bob", 30_000).acquired()).isTrue();
+
+        assertThat(limiter.release(rule, "alice", first.leaseId())).isEqualTo(ConcurrencyLimiter.Release.RELEASED);
+        assertThat(limiter.release(rule, "alice", first.leaseId())).isEqualTo(ConcurrencyLimiter.Release.UNKNOWN_LEASE);
+        assertThat(limiter.acquire(rule, "alice", 30_000).acquired()).isTrue();
+    }
+}
@@ -0,0 +1,84 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DenyCacheTest {
+
+    private static final RateLimitRule RULE = new RateLimitRule("r", "/search", "free", 10, 1.0, 10, 60_000, 5);
+
+    private final MutableClock clock = new MutableClock();
+    private final DenyCache cache = new DenyCache(clock,
+            new DenyCacheProperties(true, 1000, Duration.ofSeconds(60)), new SimpleMeterRegistry());
+
+    @Test
+    void hitsOnlyRequestsCostingAtLeastTheDeniedOne() {
+        cache.record(RULE, "alice", 3, new RateLimiter.Result(false, 2000, 1));
+
+        assertThat(cache.check("r", "alice", 2)).isNull();          // might fit in the 1 token left
+        assertThat(cache.check("r", "alice", 3)).isNotNull();
+        DenyCache.Hit hit = cache.check("r", "alice", 5);
+        assertThat(hit.rule()).isEqualTo(RULE);
+        assertThat(hit.result()).isEqualTo(new RateLimiter.Result(false, 2000, 1));
+        assertThat(cache.check("r", "bob", 5)).isNull();
+    }
+
+    @Test
+    void expiresWhenTheRetryWindowEnds() {
+        cache.record(RULE, "alice", 1, new RateLimiter.Result(false, 1500, 0));
+
+        clock.advance(1000);
+        assertThat(cache.check("r", "alice", 1).result().retryAfterMs()).isEqualTo(500);
+
+        clock.advance(500);
+        assertThat(cache.check("r", "alice", 1)).isNull();
+    }
+
+    @Test
+    void windowIsCappedAtMaxTtl() {
+        cache.record(RULE, "alice", 1, new RateLimiter.Result(false, 3_600_000, 0));
+
+        clock.advance(59_999);
+        assertThat(cache.check("r", "alice", 1)).isNotNull();
+        clock.advance(1);
+        assertThat(cache.check("r", "alice", 1)).isNull();
+    }
+
+    @Test
+    void allowedDecisionClearsTheKeysDenial() {
+        cache.record(RULE, "alice", 3, new RateLimiter.Result(false, 2000, 1));
+        cache.record(RULE, "bob", 3, new RateLimiter.Result(false, 2000, 1));
+
+        // A cheaper request went to the limiter and was allowed: the bucket is no longer what the denial saw.
+        cache.record(RULE, "alice", 1, new RateLimiter.Result(true, 0, 0));
+
+        assertThat(cache.check("r", "alice", 3)).isNull();
+        assertThat(cache.check("r", "bob", 3)).isNotNull();
+    }
+
+    @Test
+    void ruleChangeDropsItsDenials() {
+        RateLimitRule other = new RateLimitRule("other", "/search", "pro", 10, 1.0, 10, 60_000, 5);
+        cache.record(RULE, "alice", 1, new RateLimiter.Result(false, 2000, 0));
+        cache.record(other, "alice", 1, new RateLimiter.Result(false, 2000, 0));
+
+        cache.invalidateRule("r");
+
+        assertThat(cache.check("r", "alice", 1)).isNull();
+        assertThat(cache.check("other", "alice", 1)).isNotNull();
+    }
+
+    @Test
+    void disabledCacheNeverHits() {
+        DenyCache off = new DenyCache(clock, new DenyCacheProperties(false, 1000, Duration.ofSeconds(60)), new SimpleMeterRegistry());
+        off.record(RULE, "alice", 1, new RateLimiter.Result(false, 2000, 0));
+
+        assertThat(off.check("r", "alice", 1)).isNull();
+    }
+}
@@ -0,0 +1,173 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.shlokmestry.traffic.rules.Algorithm;
+import com.shlokmestry.traffic.rules.Fallback;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+class InMemoryRateLimiterTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final InMemoryRateLimiter limiter =
+            new InMemoryRateLimiter(clock, new InMemoryProperties(4, 16, Duration.ofHours(1)));
+
+    @AfterEach
+    void tearDown() {
+        limiter.shutdown();
+    }
+
+    @Test
+    void startsAtBurstThenRefillsUpToCapacity() {
+        // capacity 5, 1 token/s, first request sees 3 tokens
+        RateLimitRule rule = new RateLimitRule("r", "e", "p", 5, 1.0, 3, 60_000L, 5);
+
+        assertThat(limiter.checkAndConsume(rule, "k", 3).remaining()).isEqualTo(0);
+
+        RateLimiter.Result denied = limiter.checkAndConsume(rule, "k", 2);
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.retryAfterMs()).isEqualTo(2000);
+
+        clock.advance(10_000); // would be 10 tokens, capped at capacity
+        RateLimiter.Result allowed = limiter.checkAndConsume(rule, "k", 1);
+        assertThat(allowed.allowed()).isTrue();
+        assertThat(allowed.remaining()).isEqualTo(4);
+    }
+
+    @Test
+    void idleBucketResetsAfterTtl() {
+        RateLimitRule rule = new RateLimitRule("r", "e", "p", 2, 0.0, 2, 1_000L, 2);
+
+        assertThat(limiter.checkAndConsume(rule, "k", 2).allowed()).isTrue();
+        assertThat(limiter.checkAndConsume(rule, "k", 1).allowed()).isFalse();
+
+        clock.advance(1_000);
+        assertThat(limiter.checkAndConsume(rule, "k", 2).allowed()).isTrue();
+    }
+
+    @Test
+    void keepsIdentitiesApartAcrossGrowthAndSweep() {
+        RateLimitRule rule = new RateLimitRule("r", "e", "p", 1, 0.0, 1, 1_000L, 1);
+
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(limiter.checkAndConsume(rule, "user-" + i, 1).allowed()).isTrue();
+        }
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(limiter.checkAndConsume(rule, "user-" + i, 1).allowed()).isFalse();
+        }
+        assertThat(limiter.bucketCount()).isEqualTo(1_000);
+
+        clock.advance(1_000);
+        limiter.sweep();
+        assertThat(limiter.bucketCount()).isZero();
+    }
+
+    @Test
+    void atomicChecksConsumeFromAllOrNone() {
+        RateLimitRule perUser = new RateLimitRule("user", "e", "p", 5, 0.0, 5, 60_000L, 5);
+        RateLimitRule global = new RateLimitRule("global", "e", "p", 2, 0.0, 2, 60_000L, 5);
+        List<RateLimiter.Check> checks = List.of(
+                new RateLimiter.Check(perUser, "alice", 2),
+                new RateLimiter.Check(global, "all", 2));
+
+        RateLimiter.MultiResult first = limiter.checkAndConsumeAtomically(checks);
+        assertThat(first.allowed()).isTrue();
+        assertThat(first.limiting()).isEqualTo(1);
+
+        // Global is empty: denied, and alice keeps her 3 tokens.
+        RateLimiter.MultiResult second = limiter.checkAndConsumeAtomically(checks);
+        assertThat(second.allowed()).isFalse();
+        assertThat(second.limiting()).isEqualTo(1);
+        assertThat(limiter.checkAndConsume(perUser, "alice", 3).allowed()).isTrue();
+    }
+
+    // The test clock starts on a 10s boundary, so windows of 10s begin at t = 0.
+    private static RateLimitRule window(Algorithm algorithm, int capacity) {
+        return window(algorithm.name(), algorithm, capacity);
+    }
+
+    private static RateLimitRule window(String ruleId, Algorithm algorithm, int capacity) {
+        return new RateLimitRule(ruleId, "e", "p", capacity, 0.0, 0, 10_000L, 10, 0, algorithm, Fallback.FAIL_CLOSED, 0.0, 0L);
+    }
+
+    @Test
+    void fixedWindowCountsCostUntilTheWindowEnds() {
+        RateLimitRule rule = window(Algorithm.FIXED_WINDOW, 3);
+
+        assertThat(limiter.checkAndConsume(rule, "k", 1).remaining()).isEqualTo(2);
+        assertThat(limiter.checkAndConsume(rule, "k", 2).remaining()).isEqualTo(0);
+
+        RateLimiter.Result denied = limiter.checkAndConsume(rule, "k", 1);
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.retryAfterMs()).isEqualTo(10_000);
+
+        clock.advance(4_000);
+        assertThat(limiter.checkAndConsume(rule, "k", 1).retryAfterMs()).isEqualTo(6_000);
+
+        clock.advance(6_000);
+        RateLimiter.Result next = limiter.checkAndConsume(rule, "k", 1);
+        assertThat(next.allowed()).isTrue();
+        assertThat(next.remaining()).isEqualTo(2);
+        // Other keys have their own counters.
+        assertThat(limiter.checkAndConsume(rule, "other", 3).allowed()).isTrue();
+    }
+
+    @Test
+    void slidingWindowWeightsThePreviousWindow() {
+        RateLimitRule rule = window(Algorithm.SLIDING_WINDOW, 10);
+
+        assertThat(limiter.checkAndConsume(rule, "k", 10).remaining()).isEqualTo(0);
+        // Fits again once 9/10 of this window's count has slid out, one second into the next.
+        assertThat(limiter.checkAndConsume(rule, "k", 1).retryAfterMs()).isEqualTo(11_000);
+
+        clock.advance(10_000);
+        RateLimiter.Result denied = limiter.checkAndConsume(rule, "k", 1);
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.retryAfterMs()).isEqualTo(1_000);
+
+        clock.advance(1_000);   // estimate 10 * 0.9 = 9
+        RateLimiter.Result allowed = limiter.checkAndConsume(rule, "k", 1);
+        assertThat(allowed.allowed()).isTrue();
+        assertThat(allowed.remaining()).isEqualTo(0);
+
+        clock.advance(9_000);   // a full window later only the 1 counted since weighs in
+        assertThat(limiter.checkAndConsume(rule, "k", 1).remaining()).isEqualTo(8);
+    }
+
+    @Test
+    void windowCountersLiveTwoWindowsForSlidingAndOneForFixed() {
+        limiter.checkAndConsume(window(Algorithm.SLIDING_WINDOW, 10), "k", 1);
+        limiter.checkAndConsume(window("f", Algorithm.FIXED_WINDOW, 10), "k", 1);
+        assertThat(limiter.bucketCount()).isEqualTo(2);
+
+        clock.advance(10_000);
+        limiter.sweep();
+        assertThat(limiter.bucketCount()).isEqualTo(1);
+
+        clock.advance(10_000);
+        limiter.sweep();
+        assertThat(limiter.bucketCount()).isZero();
+    }
+
+    @Test
+    void atomicChecksCountWindowsOnlyWhenAllAllow() {
+        RateLimitRule bucket = new RateLimitRule("tb", "e", "p", 1, 0.0, 1, 60_000L, 5);
+        RateLimitRule fixed = window(Algorithm.FIXED_WINDOW, 5);
+        List<RateLimiter.Check> checks = List.of(
+                new RateLimiter.Check(bucket, "alice", 1), new RateLimiter.Check(fixed, "alice", 1));
+
+        assertThat(limiter.checkAndConsumeAtomically(checks).allowed()).isTrue();
+
+        // The token bucket is empty: the window is left alone and reports its count as it is.
+        RateLimiter.MultiResult denied = limiter.checkAndConsumeAtomically(checks);
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.limiting()).isZero();
+        assertThat(denied.results().get(1).remaining()).isEqualTo(4);
+        assertThat(limiter.checkAndConsume(fixed, "alice", 4).allowed()).isTrue();
+    }
+}
@@ -0,0 +1,90 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import com.shlokmestry.traffic.ratelimit.RedisCircuitBreaker.Failure;
+import com.shlokmestry.traffic.ratelimit.RedisCircuitBreaker.State;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RedisCircuitBreakerTest {
+
+    private static final long FAST = Duration.ofMillis(1).toNanos();
+    private static final long SLOW = Duration.ofMillis(200).toNanos();
+
+    private final MutableClock clock = new MutableClock();
+    // 10s window, at least 4 calls, 50% failed or slow (>100ms) opens, 5s open, 2 probes
+    private final RedisCircuitBreaker breaker = new RedisCircuitBreaker(clock,
+            new BreakerProperties(true, Duration.ofSeconds(10), 4, 0.5, Duration.ofMillis(100), 0.5, Duration.ofSeconds(5), 2),
+            new SimpleMeterRegistry());
+
+    @Test
+    void opensOnceFailureRateReachesThreshold() {
+        for (int i = 0; i < 3; i++) breaker.onSuccess(FAST);
+        breaker.onFailure(Failure.REDIS_ERROR);
+        breaker.onFailure(Failure.REDIS_ERROR);
+        assertThat(breaker.state()).isEqualTo(State.CLOSED); // 2 of 5
+
+        breaker.onFailure(Failure.BAD_RESPONSE);             // 3 of 6
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void opensOnSlowCalls() {
+        for (int i = 0; i < 4; i++) breaker.onSuccess(SLOW);
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void failuresOutsideTheWindowDoNotCount() {
+        for (int i = 0; i < 3; i++) breaker.onFailure(Failure.REDIS_ERROR);
+        clock.advance(10_000);
+        breaker.onFailure(Failure.REDIS_ERROR);
+
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void probesAfterOpenDurationThenCloses() {
+        trip();
+
+        clock.advance(4_999);
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        clock.advance(1);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isFalse(); // only 2 probes
+
+        breaker.onSuccess(FAST);
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+        breaker.onSuccess(FAST);
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void failedProbeReopens() {
+        trip();
+        clock.advance(5_000);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onFailure(Failure.REDIS_ERROR);
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+        clock.advance(5_000);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    private void trip() {
+        for (int i = 0; i < 4; i++) breaker.onFailure(Failure.REDIS_ERROR);
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+    }
+}
@@ -0,0 +1,103 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import com.shlokmestry.traffic.redis.RedisShards;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * A real Redis for the Lua scripts, which cannot be exercised any other way. Each test
+ * starts from an empty database; scripts get an explicit {@code nowMs}, so time only
+ * moves when a test says so. Skipped where Docker is unavailable.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+abstract class RedisScriptTest {
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+            .withExposedPorts(6379);
+
+    static LettuceConnectionFactory factory;
+    static StringRedisTemplate redis;
+
+    @BeforeAll
+    static void connect() {
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        factory.afterPropertiesSet();
+        factory.start();
+        redis = new StringRedisTemplate(factory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        factory.destroy();
+    }
+
+    @BeforeEach
+    void flush() {
+        redis.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    /** Runs {@code lua/<name>.lua} and returns its reply as numbers. */
+    @SuppressWarnings("unchecked")
+    static List<Long> run(String name, List<String> keys, Object... args) {
+        RedisScript<List> script = RedisScript.of(new ClassPathResource("lua/" + name + ".lua"), List.class);
+        String[] argv = new String[args.length];
+        for (int i = 0; i < args.length; i++) argv[i] = String.valueOf(args[i]);
+        return (List<Long>) redis.execute(script, keys, (Object[]) argv);
+    }
+
+    static long pttl(String key) {
+        return redis.getExpire(key, TimeUnit.MILLISECONDS);
+    }
+
+    static RedisCircuitBreaker breaker() {
+        return new RedisCircuitBreaker(
+                new BreakerProperties(true, Duration.ofSeconds(10), 20, 0.5, Duration.ofSeconds(5), 0.5, Duration.ofSeconds(5), 10),
+                new SimpleMeterRegistry());
+    }
+
+    static RedisShards shards() {
+        return RedisShards.single(redis);
+    }
+
+    /** A limiter on this Redis with default leases, memory fallback and adaptive settings. */
+    static TokenBucketRateLimiter limiter(CoalescingProperties coalescing, BucketProperties buckets) {
+        return limiter(shards(), coalescing, buckets);
+    }
+
+    static TokenBucketRateLimiter limiter(RedisShards shards, CoalescingProperties coalescing, BucketProperties buckets) {
+        RedisCircuitBreaker breaker = breaker();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        return new TokenBucketRateLimiter(
+                shards,
+                registry,
+                coalescing,
+                new LeaseProperties(Duration.ofMillis(250), Duration.ofMillis(100), Duration.ofSeconds(60)),
+                new InMemoryProperties(64, 256, Duration.ofSeconds(30)),
+                buckets,
+                breaker,
+                new AdaptiveLimits(shards, breaker,
+                        new AdaptiveProperties(Duration.ofSeconds(1), 0.05, 0.5, 0.1, 1.0, 0.05, Duration.ofMinutes(10)), registry));
+    }
+}
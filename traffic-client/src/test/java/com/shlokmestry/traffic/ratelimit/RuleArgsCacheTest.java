@@ -0,0 +1,59 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import com.shlokmestry.traffic.rules.Algorithm;
+import com.shlokmestry.traffic.rules.Fallback;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+/** The limiter caches script ARGV per rule; a changed rule or multiplier must not reuse stale values. */
+class RuleArgsCacheTest extends RedisScriptTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private static TokenBucketRateLimiter limiter() {
+        return limiter(new CoalescingProperties(false, 64, Duration.ofMillis(1), 1000, 1, Duration.ofSeconds(1)),
+                new BucketProperties(false, false));
+    }
+
+    @Test
+    void upsertedRuleGetsFreshArgs() {
+        TokenBucketRateLimiter limiter = limiter();
+        RateLimitRule v1 = new RateLimitRule("r", "/search", "pro", 10, 1.0, 10, 60_000L, 5);
+        RateLimitRule v2 = new RateLimitRule("r", "/search", "pro", 20, 2.0, 15, 30_000L, 5);
+
+        assertThat(limiter.call(v1, "alice", 1, NOW).args()).containsExactly(
+                String.valueOf(NOW), "10", "1.0", "10", "1", "60000", "0");
+        assertThat(limiter.call(v2, "alice", 1, NOW).args()).containsExactly(
+                String.valueOf(NOW), "20", "2.0", "15", "1", "30000", "0");
+        // The old version is still answered with its own limits, not the newer ones.
+        assertThat(limiter.call(v1, "alice", 1, NOW).args()[1]).isEqualTo("10");
+    }
+
+    @Test
+    void changedAdaptiveMultiplierGetsFreshArgs() throws InterruptedException {
+        TokenBucketRateLimiter limiter = limiter();
+        RateLimitRule adaptive = new RateLimitRule(
+                "adaptive", "/search", "pro", 100, 10.0, 100, 60_000L, 5, 0, Algorithm.TOKEN_BUCKET, Fallback.FAIL_CLOSED, 0.0, 200L);
+
+        assertThat(limiter.call(adaptive, "alice", 1, NOW).args()[1]).isEqualTo("100");
+
+        // Another instance halved the rule; the next sync (every second) picks it up.
+        redis.opsForHash().putAll(AdaptiveLimits.key("adaptive"), Map.of(
+                "multiplier", "0.5000", "good", "0", "bad", "0",
+                "window_start_ms", String.valueOf(System.currentTimeMillis() + 60_000)));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        String[] args = limiter.call(adaptive, "alice", 1, NOW).args();
+        while (args[1].equals("100") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            args = limiter.call(adaptive, "alice", 1, NOW).args();
+        }
+
+        assertThat(args).containsExactly(String.valueOf(NOW), "50", "5.0", "50", "1", "60000", "0");
+    }
+}
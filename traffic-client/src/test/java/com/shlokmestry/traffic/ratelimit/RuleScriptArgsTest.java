@@ -0,0 +1,75 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import com.shlokmestry.traffic.rules.Algorithm;
+import com.shlokmestry.traffic.rules.Fallback;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+class RuleScriptArgsTest {
+
+    private static final RateLimitRule ADAPTIVE = new RateLimitRule(
+            "r", "/search", "pro", 100, 10.0, 50, 60_000L, 5, 0, Algorithm.TOKEN_BUCKET, Fallback.LOCAL, 0.5, 200L);
+
+    @Test
+    void multiplierOfOneKeepsTheRule() {
+        RuleScriptArgs a = new RuleScriptArgs(ADAPTIVE, 1.0);
+
+        assertThat(a.effectiveRule).isSameAs(ADAPTIVE);
+        assertThat(a.capacity).isEqualTo("100");
+        assertThat(a.refillTokensPerSecond).isEqualTo("10.0");
+        assertThat(a.burstCapacity).isEqualTo("50");
+    }
+
+    @Test
+    void multiplierScalesLimitsAndLocalFallback() {
+        RuleScriptArgs a = new RuleScriptArgs(ADAPTIVE, 0.5);
+
+        assertThat(a.capacity).isEqualTo("50");
+        assertThat(a.refillTokensPerSecond).isEqualTo("5.0");
+        assertThat(a.burstCapacity).isEqualTo("25");
+        assertThat(a.ttlMs).isEqualTo("60000");
+        assertThat(a.bucketKey("k")).isEqualTo("tb:{k}:r:/search:pro");
+        // The LOCAL share is taken of the reduced limits.
+        assertThat(a.fallbackRule.capacity()).isEqualTo(25);
+    }
+
+    @Test
+    void capacityNeverDropsBelowOneToken() {
+        RateLimitRule small = new RateLimitRule("r", "/search", "pro", 1, 1.0, 1, 60_000L, 1);
+
+        assertThat(new RuleScriptArgs(small, 0.1).capacity).isEqualTo("1");
+    }
+
+    @Test
+    void burstNeverDropsBelowOneTokenUnlessTheRuleStartsEmpty() {
+        // At the 0.1 floor a burst of 5 would round down to 0 and deny every new key until refill.
+        RateLimitRule smallBurst = new RateLimitRule("r", "/search", "pro", 100, 10.0, 5, 60_000L, 1);
+        assertThat(new RuleScriptArgs(smallBurst, 0.1).burstCapacity).isEqualTo("1");
+
+        RateLimitRule startsEmpty = new RateLimitRule("r", "/search", "pro", 100, 10.0, 0, 60_000L, 1);
+        assertThat(new RuleScriptArgs(startsEmpty, 0.1).burstCapacity).isEqualTo("0");
+    }
+
+    @Test
+    void compactKeysAreSha1PrefixesAsEnforceByRuleSpellsThem() {
+        RateLimitRule rule = new RateLimitRule("r", "/search", "pro", 100, 10.0, 50, 60_000L, 5);
+
+        // sha1("k") and sha1("r:/search:pro"), as redis.sha1hex returns them.
+        assertThat(new RuleScriptArgs(rule, 1.0, true).bucketKey("k")).isEqualTo("tb:{13fbd79c3d390e5d}:85f99ce4b7d7");
+    }
+
+    @Test
+    void windowRuleFallsBackToASmallerWindow() {
+        RateLimitRule hourly = new RateLimitRule(
+                "r", "/search", "pro", 10_000, 0.0, 0, 3_600_000L, 5, 0, Algorithm.FIXED_WINDOW, Fallback.LOCAL, 0.5, 0L);
+
+        RuleScriptArgs a = new RuleScriptArgs(hourly, 1.0);
+
+        assertThat(a.bucketKey("k")).isEqualTo("fw:{k}:r:/search:pro");
+        assertThat(a.fallbackRule.algorithm()).isEqualTo(Algorithm.FIXED_WINDOW);
+        assertThat(a.fallbackRule.capacity()).isEqualTo(5_000);
+        assertThat(a.fallbackRule.ttlMs()).isEqualTo(3_600_000L);
+    }
+}
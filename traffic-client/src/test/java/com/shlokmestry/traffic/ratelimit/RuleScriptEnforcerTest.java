@@ -0,0 +1,223 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.shlokmestry.traffic.redis.RedisShards;
+import com.shlokmestry.traffic.rules.Algorithm;
+import com.shlokmestry.traffic.rules.Fallback;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+import com.shlokmestry.traffic.rules.RedisRuleStore;
+
+class RuleScriptEnforcerTest extends RedisScriptTest {
+
+    private static final RateLimitRule SEARCH = new RateLimitRule("search", "/orders/{id}", "pro", 2, 0.5, 2, 60_000L, 3);
+
+    private static RuleScriptEnforcer enforcer(boolean compactKeys) {
+        return new RuleScriptEnforcer(shards(), breaker(), new BucketProperties(compactKeys, false));
+    }
+
+    @Test
+    void decidesWithTheStoredRule() {
+        new RedisRuleStore(redis).upsert(SEARCH);
+        RuleScriptEnforcer enforcer = enforcer(false);
+
+        RuleScriptEnforcer.Outcome first = enforcer.enforce("search", "alice", 1);
+        assertThat(first.status()).isEqualTo(RuleScriptEnforcer.Status.DECIDED);
+        assertThat(first.rule()).isEqualTo(SEARCH);
+        assertThat(first.result().allowed()).isTrue();
+        assertThat(first.result().remaining()).isEqualTo(1);
+
+        assertThat(enforcer.enforce("search", "alice", 1).result().allowed()).isTrue();
+
+        RuleScriptEnforcer.Outcome denied = enforcer.enforce("search", "alice", 1);
+        assertThat(denied.status()).isEqualTo(RuleScriptEnforcer.Status.DECIDED);
+        assertThat(denied.result().allowed()).isFalse();
+        assertThat(denied.result().retryAfterMs()).isBetween(1L, 2000L);
+        assertThat(denied.result().remaining()).isZero();
+    }
+
+    @Test
+    void costAboveMaxCostConsumesNothing() {
+        new RedisRuleStore(redis).upsert(SEARCH);
+
+        RuleScriptEnforcer.Outcome o = enforcer(false).enforce("search", "alice", 4);
+
+        assertThat(o.status()).isEqualTo(RuleScriptEnforcer.Status.COST_TOO_HIGH);
+        assertThat(o.rule()).isEqualTo(SEARCH);
+        assertThat(redis.keys("tb:*")).isEmpty();
+    }
+
+    @Test
+    void leasedAdaptiveAndNonTokenBucketRulesGoToTheRegularPath() {
+        RedisRuleStore store = new RedisRuleStore(redis);
+        RateLimitRule leased = new RateLimitRule(
+                "leased", "/search", "pro", 100, 10.0, 100, 60_000L, 5, 10, Algorithm.TOKEN_BUCKET, Fallback.FAIL_CLOSED, 0.0, 0L);
+        RateLimitRule adaptive = new RateLimitRule(
+                "adaptive", "/search", "pro", 100, 10.0, 100, 60_000L, 5, 0, Algorithm.TOKEN_BUCKET, Fallback.LOCAL, 0.5, 200L);
+        RateLimitRule gcra = new RateLimitRule(
+                "gcra", "/search", "pro", 100, 10.0, 100, 60_000L, 5, 0, Algorithm.GCRA, Fallback.FAIL_CLOSED, 0.0, 0L);
+        store.upsert(leased);
+        store.upsert(adaptive);
+        store.upsert(gcra);
+        RuleScriptEnforcer enforcer = enforcer(false);
+
+        for (RateLimitRule rule : new RateLimitRule[] {leased, adaptive, gcra}) {
+            RuleScriptEnforcer.Outcome o = enforcer.enforce(rule.ruleId(), "alice", 1);
+            assertThat(o.status()).isEqualTo(RuleScriptEnforcer.Status.LOCAL);
+            assertThat(o.rule()).isEqualTo(rule);
+        }
+        assertThat(redis.keys("*")).containsExactlyInAnyOrder("rule:leased", "rule:adaptive", "rule:gcra");
+    }
+
+    @Test
+    void ruleMissingOnTheNodeIsHandedBackWithoutConsuming() {
+        RuleScriptEnforcer.Outcome o = enforcer(false).enforce("nope", "alice", 1);
+
+        assertThat(o.status()).isEqualTo(RuleScriptEnforcer.Status.RULE_NOT_ON_NODE);
+        assertThat(o.rule()).isNull();
+        assertThat(redis.keys("*")).isEmpty();
+    }
+
+    // The rule store on database 1; this test's database 0 plays the bucket node.
+    private static LettuceConnectionFactory rulesFactory() {
+        RedisStandaloneConfiguration db1 = new RedisStandaloneConfiguration(factory.getHostName(), factory.getPort());
+        db1.setDatabase(1);
+        LettuceConnectionFactory rulesFactory = new LettuceConnectionFactory(db1);
+        rulesFactory.afterPropertiesSet();
+        rulesFactory.start();
+        return rulesFactory;
+    }
+
+    /** The bucket node, with writes from the rule store's scripts failing while {@code failing} is set. */
+    private static final class FlakyNode extends StringRedisTemplate {
+        volatile boolean failing;
+
+        FlakyNode() {
+            super(factory);
+        }
+
+        @Override
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            if (failing) throw new RedisSystemException("node unavailable", null);
+            return super.execute(script, keys, args);
+        }
+    }
+
+    @Test
+    void copyToReplicasFillsANodeThatMissedTheUpsert() {
+        LettuceConnectionFactory rulesFactory = rulesFactory();
+        try {
+            StringRedisTemplate rulesRedis = new StringRedisTemplate(rulesFactory);
+            new RedisRuleStore(rulesRedis).upsert(SEARCH);
+            RuleScriptEnforcer enforcer = enforcer(false);
+
+            assertThat(enforcer.enforce("search", "alice", 1).status()).isEqualTo(RuleScriptEnforcer.Status.RULE_NOT_ON_NODE);
+
+            assertThat(new RedisRuleStore(rulesRedis, List.of(redis)).copyToReplicas()).isEqualTo(1);
+
+            RuleScriptEnforcer.Outcome o = enforcer.enforce("search", "alice", 1);
+            assertThat(o.status()).isEqualTo(RuleScriptEnforcer.Status.DECIDED);
+            assertThat(o.rule()).isEqualTo(SEARCH);
+        } finally {
+            rulesFactory.destroy();
+        }
+    }
+
+    @Test
+    void readableBucketKeyMatchesTheLimiters() {
+        new RedisRuleStore(redis).upsert(SEARCH);
+
+        enforcer(false).enforce("search", "user:42", 1);
+
+        String expected = new RuleScriptArgs(SEARCH, 1.0, false).bucketKey("user:42");
+        assertThat(expected).isEqualTo(TokenBucketRateLimiter.bucketKey(Algorithm.TOKEN_BUCKET, "search", "/orders/{id}", "pro", "user:42"));
+        assertThat(redis.keys("tb:*")).isEqualTo(Set.of(expected));
+    }
+
+    @Test
+    void compactBucketKeyMatchesTheLimiters() {
+        new RedisRuleStore(redis).upsert(SEARCH);
+
+        enforcer(true).enforce("search", "user:42", 1);
+
+        String expected = new RuleScriptArgs(SEARCH, 1.0, true).bucketKey("user:42");
+        assertThat(expected).isEqualTo("tb:{" + BucketKeys.identity("user:42") + "}:"
+                + BucketKeys.rule("search", "/orders/{id}", "pro"));
+        assertThat(redis.keys("tb:*")).isEqualTo(Set.of(expected));
+    }
+
+    @Test
+    void redisClusterIsRejectedAtStartup() {
+        // Never connected: the check only looks at how the factory is configured.
+        LettuceConnectionFactory cluster = new LettuceConnectionFactory(new RedisClusterConfiguration(List.of("127.0.0.1:7000")));
+        RedisShards shards = RedisShards.single(new StringRedisTemplate(cluster));
+
+        assertThatThrownBy(() -> new RuleScriptEnforcer(shards, breaker(), new BucketProperties(true, false)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("standalone");
+    }
+
+    @Test
+    void failedCopyRemovesTheOutdatedRuleAndIsRetried() throws InterruptedException {
+        LettuceConnectionFactory rulesFactory = rulesFactory();
+        FlakyNode node = new FlakyNode();
+        RedisRuleStore store = new RedisRuleStore(new StringRedisTemplate(rulesFactory), List.of(node));
+        try {
+            RuleScriptEnforcer enforcer = enforcer(false);
+            store.upsert(SEARCH);
+            assertThat(enforcer.enforce("search", "alice", 1).rule()).isEqualTo(SEARCH);
+
+            RateLimitRule raised = new RateLimitRule("search", "/orders/{id}", "pro", 5, 0.5, 5, 60_000L, 3);
+            node.failing = true;
+            store.upsert(raised);
+
+            // The node answers but missed the write: no copy is better than the outdated one.
+            assertThat(enforcer.enforce("search", "alice", 1).status()).isEqualTo(RuleScriptEnforcer.Status.RULE_NOT_ON_NODE);
+
+            // The background retry copies the rule once the node takes writes again.
+            node.failing = false;
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (node.opsForHash().get("rule:search", "version") == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            RuleScriptEnforcer.Outcome o = enforcer.enforce("search", "alice", 1);
+            assertThat(o.status()).isEqualTo(RuleScriptEnforcer.Status.DECIDED);
+            assertThat(o.rule()).isEqualTo(raised);
+            assertThat(node.opsForHash().get("rule:search", "version")).isEqualTo("2");
+        } finally {
+            store.close();
+            rulesFactory.destroy();
+        }
+    }
+
+    @Test
+    void copyNeverReplacesANewerVersion() {
+        LettuceConnectionFactory rulesFactory = rulesFactory();
+        RedisRuleStore store = new RedisRuleStore(new StringRedisTemplate(rulesFactory), List.of(redis));
+        try {
+            store.upsert(SEARCH);
+            // A later upsert already reached the node (through another instance, say).
+            redis.opsForHash().put("rule:search", "version", "7");
+            redis.opsForHash().put("rule:search", "capacity", "9");
+
+            store.copyToReplicas();
+
+            assertThat(redis.opsForHash().get("rule:search", "capacity")).isEqualTo("9");
+            assertThat(redis.opsForHash().get("rule:search", "version")).isEqualTo("7");
+        } finally {
+            store.close();
+            rulesFactory.destroy();
+        }
+    }
+}
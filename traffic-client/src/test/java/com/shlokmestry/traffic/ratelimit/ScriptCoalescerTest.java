@@ -0,0 +1,114 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ScriptCoalescerTest extends RedisScriptTest {
+
+    private static final RedisScript<List> TOKEN_BUCKET = RedisScript.of(new ClassPathResource("lua/token_bucket.lua"), List.class);
+
+    @Test
+    void queuedCallsShareAPipelineAndEachGetsItsOwnDecision() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // 5ms of waiting lets a burst of submits pile up into a few pipelines.
+        try (ScriptCoalescer coalescer = new ScriptCoalescer(new ScriptPipeline(shards()),
+                new CoalescingProperties(true, 64, Duration.ofMillis(5), 1000, 1, Duration.ofSeconds(1)), registry)) {
+
+            long now = System.currentTimeMillis();
+            List<CompletableFuture<Object>> replies = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                // capacity 10, no refill, so the shared bucket runs dry after ten
+                replies.add(coalescer.submit(new ScriptPipeline.Call(TOKEN_BUCKET, "tb:{a}:r:/x:p", String.valueOf(now), "10", "0", "10", "1", "60000", "0")));
+            }
+            replies.add(coalescer.submit(new ScriptPipeline.Call(TOKEN_BUCKET, "tb:{b}:r:/x:p", String.valueOf(now), "10", "0", "10", "1", "60000", "0")));
+
+            int allowed = 0;
+            for (int i = 0; i < 30; i++) {
+                List<?> r = (List<?>) replies.get(i).get(5, TimeUnit.SECONDS);
+                if (((Number) r.get(0)).intValue() == 1) allowed++;
+            }
+            assertThat(allowed).isEqualTo(10);
+            // Another key in the same pipeline has its own bucket.
+            assertThat(((List<?>) replies.get(30).get(5, TimeUnit.SECONDS)).get(0)).isEqualTo(1L);
+
+            assertThat(registry.get("ratelimit.coalescer.batch.size").summary().max()).isGreaterThan(1);
+        }
+    }
+
+    @Test
+    void coalescedLimiterDeniesOnceTheBucketIsEmpty() throws Exception {
+        TokenBucketRateLimiter limiter = limiter(
+                new CoalescingProperties(true, 64, Duration.ofMillis(1), 1000, 2, Duration.ofSeconds(1)),
+                new BucketProperties(false, false));
+        try {
+            RateLimitRule rule = new RateLimitRule("r", "/x", "p", 5, 0.001, 5, 60_000, 1);
+
+            List<CompletableFuture<RateLimiter.Result>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                results.add(CompletableFuture.supplyAsync(() -> limiter.checkAndConsume(rule, "alice", 1)));
+            }
+            int allowed = 0;
+            for (CompletableFuture<RateLimiter.Result> f : results) {
+                RateLimiter.Result r = f.get(5, TimeUnit.SECONDS);
+                if (r.allowed()) {
+                    allowed++;
+                } else {
+                    assertThat(r.retryAfterMs()).isPositive();
+                }
+            }
+            assertThat(allowed).isEqualTo(5);
+        } finally {
+            limiter.shutdown();
+        }
+    }
+
+    @Test
+    void withdrawnCallsAreNeverSent() throws Exception {
+        // The flusher holds the first call for a second, waiting for company.
+        try (ScriptCoalescer coalescer = new ScriptCoalescer(new ScriptPipeline(shards()),
+                new CoalescingProperties(true, 64, Duration.ofSeconds(1), 1000, 1, Duration.ofSeconds(1)), new SimpleMeterRegistry())) {
+            String now = String.valueOf(System.currentTimeMillis());
+            ScriptCoalescer.Reply withdrawn = coalescer.submit(new ScriptPipeline.Call(TOKEN_BUCKET, "tb:{a}:r:/x:p", now, "10", "0", "10", "1", "60000", "0"));
+            ScriptCoalescer.Reply kept = coalescer.submit(new ScriptPipeline.Call(TOKEN_BUCKET, "tb:{b}:r:/x:p", now, "10", "0", "10", "1", "60000", "0"));
+
+            assertThat(withdrawn.withdraw()).isTrue();
+
+            assertThat(((List<?>) kept.get(5, TimeUnit.SECONDS)).get(0)).isEqualTo(1L);
+            assertThat(withdrawn.isCancelled()).isTrue();
+            assertThat(redis.hasKey("tb:{a}:r:/x:p")).isFalse();
+            // Once sent, a call can no longer be withdrawn.
+            assertThat(kept.withdraw()).isFalse();
+        }
+    }
+
+    @Test
+    void callerThatTimedOutIsNotChargedLater() throws Exception {
+        // Replies are awaited for 50ms, but the flusher waits a second before sending.
+        TokenBucketRateLimiter limiter = limiter(
+                new CoalescingProperties(true, 64, Duration.ofSeconds(1), 1000, 1, Duration.ofMillis(50)),
+                new BucketProperties(false, false));
+        try {
+            RateLimitRule rule = new RateLimitRule("r", "/x", "p", 5, 0.001, 5, 60_000, 1);
+
+            RateLimiter.Result r = limiter.checkAndConsume(rule, "alice", 1);
+            assertThat(r.allowed()).isFalse();
+
+            Thread.sleep(1_500);
+            assertThat(redis.keys("tb:*")).isEmpty();
+        } finally {
+            limiter.shutdown();
+        }
+    }
+}
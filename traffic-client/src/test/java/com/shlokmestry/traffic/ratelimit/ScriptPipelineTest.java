@@ -0,0 +1,68 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.script.RedisScript;
+
+class ScriptPipelineTest extends RedisScriptTest {
+
+    private static final RedisScript<List> TOKEN_BUCKET = RedisScript.of(new ClassPathResource("lua/token_bucket.lua"), List.class);
+    private static final RedisScript<List> GCRA = RedisScript.of(new ClassPathResource("lua/gcra.lua"), List.class);
+    private static final String NOW = "1700000000000";
+
+    private static List<ScriptPipeline.Call> batch() {
+        return List.of(
+                new ScriptPipeline.Call(TOKEN_BUCKET, "tb:{a}:r:/x:p", NOW, "10", "0", "10", "1", "60000", "0"),
+                new ScriptPipeline.Call(GCRA, "gcra:{a}:g:/x:p", NOW, "10", "1", "10", "1", "60000", "0"),
+                new ScriptPipeline.Call(TOKEN_BUCKET, "tb:{b}:r:/x:p", NOW, "10", "0", "10", "1", "60000", "0"));
+    }
+
+    private static void scriptFlush() {
+        redis.execute((RedisCallback<Object>) connection -> {
+            connection.scriptingCommands().scriptFlush();
+            return null;
+        });
+    }
+
+    private static void scriptLoad(RedisScript<?> script) {
+        redis.execute((RedisCallback<Object>) connection ->
+                connection.scriptingCommands().scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void onlyCallsThatGotNoScriptAreReplayed() {
+        ScriptPipeline pipeline = new ScriptPipeline(shards());
+        assertThat(pipeline.execute(batch())).allSatisfy(r -> assertThat(r).isInstanceOf(List.class));
+
+        // The script cache loses GCRA but still has the token bucket: the token bucket calls run on
+        // the first attempt and must not be charged again when the GCRA call is replayed.
+        scriptFlush();
+        scriptLoad(TOKEN_BUCKET);
+
+        List<Object> results = pipeline.execute(batch());
+
+        assertThat(results).hasSize(3).allSatisfy(r -> assertThat(r).isInstanceOf(List.class));
+        assertThat(((List<?>) results.get(0)).get(2)).isEqualTo(8L);
+        assertThat(((List<?>) results.get(1)).get(0)).isEqualTo(1L);
+        assertThat(((List<?>) results.get(2)).get(2)).isEqualTo(8L);
+        assertThat(redis.opsForHash().get("tb:{a}:r:/x:p", "tokens")).isEqualTo("8");
+        assertThat(redis.opsForHash().get("tb:{b}:r:/x:p", "tokens")).isEqualTo("8");
+    }
+
+    @Test
+    void wholeBatchIsReplayedAfterAFullFlush() {
+        ScriptPipeline pipeline = new ScriptPipeline(shards());
+        pipeline.execute(batch());
+        scriptFlush();
+
+        List<Object> results = pipeline.execute(batch());
+
+        assertThat(results).hasSize(3).allSatisfy(r -> assertThat(r).isInstanceOf(List.class));
+        assertThat(redis.opsForHash().get("tb:{a}:r:/x:p", "tokens")).isEqualTo("8");
+    }
+}
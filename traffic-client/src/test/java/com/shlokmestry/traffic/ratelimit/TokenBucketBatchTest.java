@@ -0,0 +1,78 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import com.shlokmestry.traffic.rules.Algorithm;
+import com.shlokmestry.traffic.rules.Fallback;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TokenBucketBatchTest extends RedisScriptTest {
+
+    private static final CoalescingProperties NO_COALESCING =
+            new CoalescingProperties(false, 64, Duration.ofMillis(1), 1000, 1, Duration.ofSeconds(1));
+
+    private static final RateLimitRule TWO = new RateLimitRule("two", "/search", "free", 2, 0.0, 2, 60_000, 5);
+    private static final RateLimitRule GCRA = new RateLimitRule("gcra", "/search", "pro", 1, 0.001, 1, 60_000, 5,
+            0, Algorithm.GCRA, Fallback.FAIL_CLOSED, 0.0, 0L);
+
+    @Test
+    void resultsFollowInputOrderAcrossRulesAndKeys() {
+        TokenBucketRateLimiter limiter = limiter(NO_COALESCING, new BucketProperties(true, false));
+        try {
+            List<RateLimiter.Result> r = limiter.checkAndConsumeAll(List.of(
+                    new RateLimiter.Check(TWO, "alice", 1),
+                    new RateLimiter.Check(GCRA, "alice", 1),
+                    new RateLimiter.Check(TWO, "bob", 2),
+                    new RateLimiter.Check(TWO, "alice", 1),
+                    new RateLimiter.Check(GCRA, "alice", 1),
+                    new RateLimiter.Check(TWO, "alice", 1),
+                    new RateLimiter.Check(TWO, "bob", 1)));
+
+            // Same-bucket items run in order within the pipeline, so later ones see earlier consumption.
+            assertThat(r).extracting(RateLimiter.Result::allowed)
+                    .containsExactly(true, true, true, true, false, false, false);
+            assertThat(r).extracting(RateLimiter.Result::remaining).containsExactly(1L, 0L, 0L, 0L, 0L, 0L, 0L);
+            assertThat(r.get(4).retryAfterMs()).isPositive();
+        } finally {
+            limiter.shutdown();
+        }
+    }
+
+    @Test
+    void openBreakerFailsEveryItemByItsOwnFallback() {
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker(
+                new BreakerProperties(true, Duration.ofSeconds(10), 1, 0.5, Duration.ofSeconds(1), 0.5, Duration.ofMinutes(5), 1),
+                new SimpleMeterRegistry());
+        breaker.onFailure(RedisCircuitBreaker.Failure.REDIS_ERROR);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(shards(), registry, NO_COALESCING,
+                new LeaseProperties(Duration.ofMillis(250), Duration.ofMillis(100), Duration.ofSeconds(60)),
+                new InMemoryProperties(4, 16, Duration.ofSeconds(30)),
+                new BucketProperties(true, false),
+                breaker,
+                new AdaptiveLimits(shards(), breaker,
+                        new AdaptiveProperties(Duration.ofSeconds(1), 0.05, 0.5, 0.1, 1.0, 0.05, Duration.ofMinutes(10)), registry));
+        RateLimitRule local = new RateLimitRule("local", "/search", "pro", 10, 0.0, 10, 60_000, 5,
+                0, Algorithm.TOKEN_BUCKET, Fallback.LOCAL, 0.5, 0L);
+        try {
+            List<RateLimiter.Result> r = limiter.checkAndConsumeAll(List.of(
+                    new RateLimiter.Check(TWO, "alice", 1),
+                    new RateLimiter.Check(local, "alice", 1),
+                    new RateLimiter.Check(GCRA, "bob", 1)));
+
+            assertThat(r).extracting(RateLimiter.Result::allowed).containsExactly(false, true, false);
+            assertThat(r.get(0).retryAfterMs()).isEqualTo(1000);
+            assertThat(r.get(1).remaining()).isEqualTo(4);      // half of 10, less the cost
+            assertThat(redis.keys("*")).isEmpty();
+        } finally {
+            limiter.shutdown();
+        }
+    }
+}
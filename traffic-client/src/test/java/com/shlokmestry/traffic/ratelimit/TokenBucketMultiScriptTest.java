@@ -0,0 +1,122 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+
+import com.shlokmestry.traffic.redis.RedisShards;
+import com.shlokmestry.traffic.redis.ShardProperties;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+class TokenBucketMultiScriptTest extends RedisScriptTest {
+
+    private static final String PER_KEY = "tb:{alice}:perKey:/search:pro";
+    private static final String GLOBAL = "tb:{alice}:global:/search:pro";
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void allAllowedTakesFromEveryBucket() {
+        List<Long> r = run("token_bucket_multi", List.of(PER_KEY, GLOBAL), NOW, 0,
+                "TOKEN_BUCKET", 10, 1.0, 10, 2, 60_000,
+                "TOKEN_BUCKET", 100, 10.0, 100, 2, 30_000);
+
+        assertThat(r).containsExactly(1L, 1L, 0L, 8L, 1L, 0L, 98L);
+        assertThat(redis.opsForHash().get(PER_KEY, "tokens")).isEqualTo("8");
+        assertThat(redis.opsForHash().get(GLOBAL, "tokens")).isEqualTo("98");
+        assertThat(pttl(PER_KEY)).isBetween(59_000L, 60_000L);
+        assertThat(pttl(GLOBAL)).isBetween(29_000L, 30_000L);
+    }
+
+    @Test
+    void oneDenialTakesNothingAnywhere() {
+        // The global bucket has 1 token; a cost of 2 is denied there, so the per-key bucket keeps all 10.
+        List<Long> r = run("token_bucket_multi", List.of(PER_KEY, GLOBAL), NOW, 0,
+                "TOKEN_BUCKET", 10, 1.0, 10, 2, 60_000,
+                "TOKEN_BUCKET", 1, 1.0, 1, 2, 60_000);
+
+        assertThat(r).containsExactly(0L, 1L, 0L, 8L, 0L, 1000L, 1L);
+        assertThat(redis.hasKey(PER_KEY)).isFalse();
+        assertThat(redis.hasKey(GLOBAL)).isFalse();
+    }
+
+    @Test
+    void windowDimensionsCountOnlyWhenEveryDimensionAllows() {
+        String fixed = "fw:{alice}:hourly:/search:pro";
+        String sliding = "sw:{alice}:minute:/search:pro";
+        List<String> keys = List.of(PER_KEY, fixed, sliding);
+
+        Object[] args = {NOW, 0,
+                "TOKEN_BUCKET", 2, 0.001, 2, 1, 60_000,
+                "FIXED_WINDOW", 100, 0, 0, 1, 3_600_000,
+                "SLIDING_WINDOW", 100, 0, 0, 1, 60_000};
+        String fixedCounter = fixed + ":" + NOW / 3_600_000;
+        String slidingCounter = sliding + ":" + NOW / 60_000;
+
+        assertThat(run("token_bucket_multi", keys, args).get(0)).isEqualTo(1L);
+        assertThat(run("token_bucket_multi", keys, args).get(0)).isEqualTo(1L);
+        assertThat(redis.opsForValue().get(fixedCounter)).isEqualTo("2");
+        assertThat(redis.opsForValue().get(slidingCounter)).isEqualTo("2");
+        assertThat(pttl(fixedCounter)).isPositive();
+
+        // The token bucket is empty now: the windows are left alone.
+        assertThat(run("token_bucket_multi", keys, args).get(0)).isEqualTo(0L);
+        assertThat(redis.opsForValue().get(fixedCounter)).isEqualTo("2");
+        assertThat(redis.opsForValue().get(slidingCounter)).isEqualTo("2");
+        assertThat(redis.hasKey(sliding + ":" + (NOW / 60_000 - 1))).isFalse();
+    }
+
+    @Test
+    void limiterReportsTheDenyingDimension() {
+        TokenBucketRateLimiter limiter = limiter(
+                new CoalescingProperties(false, 64, Duration.ofMillis(1), 1000, 1, Duration.ofSeconds(1)),
+                new BucketProperties(false, false));
+        try {
+            RateLimitRule perKey = new RateLimitRule("perKey", "/search", "pro", 10, 1.0, 10, 60_000, 5);
+            RateLimitRule global = new RateLimitRule("global", "/search", "pro", 1, 0.5, 1, 60_000, 5);
+            List<RateLimiter.Check> checks = List.of(
+                    new RateLimiter.Check(perKey, "alice", 1), new RateLimiter.Check(global, "alice", 1));
+
+            assertThat(limiter.checkAndConsumeAtomically(checks).allowed()).isTrue();
+
+            RateLimiter.MultiResult denied = limiter.checkAndConsumeAtomically(checks);
+            assertThat(denied.allowed()).isFalse();
+            assertThat(denied.limiting()).isEqualTo(1);
+            assertThat(denied.results().get(0).remaining()).isEqualTo(9);   // untouched by the denied call
+        } finally {
+            limiter.shutdown();
+        }
+    }
+
+    @Test
+    void checksOnDifferentShardsAreRejectedBeforeAnythingIsTaken() {
+        // The second node is never contacted: the limiter refuses before calling Redis.
+        String node = factory.getHostName() + ":" + factory.getPort();
+        try (RedisShards shards = RedisShards.connect(new ShardProperties(
+                List.of(node, "unreachable.invalid:6379"), 160, Duration.ofSeconds(1)))) {
+            TokenBucketRateLimiter limiter = limiter(shards,
+                    new CoalescingProperties(false, 64, Duration.ofMillis(1), 1000, 1, Duration.ofSeconds(1)),
+                    new BucketProperties(false, false));
+            try {
+                RateLimitRule perKey = new RateLimitRule("perKey", "/search", "pro", 10, 1.0, 10, 60_000, 5);
+                RateLimitRule perIp = new RateLimitRule("perIp", "/search", "pro", 10, 1.0, 10, 60_000, 5);
+                String ip = "10.0.0.1";
+                int aliceShard = shards.shardOf(TokenBucketRateLimiter.bucketKey(perKey.algorithm(), "perKey", "/search", "pro", "alice"));
+                for (int i = 2; shards.shardOf(TokenBucketRateLimiter.bucketKey(perIp.algorithm(), "perIp", "/search", "pro", ip)) == aliceShard; i++) {
+                    ip = "10.0.0." + i;
+                }
+                List<RateLimiter.Check> checks = List.of(
+                        new RateLimiter.Check(perKey, "alice", 1), new RateLimiter.Check(perIp, ip, 1));
+
+                assertThatThrownBy(() -> limiter.checkAndConsumeAtomically(checks))
+                        .isInstanceOf(IllegalArgumentException.class)
+                        .hasMessageContaining("spans Redis shards");
+                assertThat(redis.keys("*")).isEmpty();
+            } finally {
+                limiter.shutdown();
+            }
+        }
+    }
+}
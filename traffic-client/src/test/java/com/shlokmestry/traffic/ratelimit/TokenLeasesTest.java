@@ -0,0 +1,79 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import com.shlokmestry.traffic.rules.Algorithm;
+import com.shlokmestry.traffic.rules.Fallback;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TokenLeasesTest extends RedisScriptTest {
+
+    private static final String KEY = "tb:{alice}:r:/search:pro";
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void leaseTakesUpToLeaseSizeAndLeavesTheRest() {
+        // capacity 10, 1/s, burst 10, lease 4, cost 1, ttl 60s, nothing returned
+        assertThat(run("token_lease", List.of(KEY), NOW, 10, 1.0, 10, 4, 1, 60_000, 0)).containsExactly(4L, 0L, 6L);
+        assertThat(redis.opsForHash().get(KEY, "tokens")).isEqualTo("6");
+        assertThat(pttl(KEY)).isBetween(59_000L, 60_000L);
+
+        // Only 2 left after two more: the grant shrinks to what is there.
+        run("token_lease", List.of(KEY), NOW, 10, 1.0, 10, 4, 1, 60_000, 0);
+        assertThat(run("token_lease", List.of(KEY), NOW, 10, 1.0, 10, 4, 1, 60_000, 0)).containsExactly(2L, 0L, 0L);
+    }
+
+    @Test
+    void leaseIsDeniedWhenTheCostDoesNotFit() {
+        run("token_lease", List.of(KEY), NOW, 10, 2.0, 10, 10, 1, 60_000, 0);    // empties the bucket
+
+        // 3 tokens missing at 2/s: 1.5s.
+        assertThat(run("token_lease", List.of(KEY), NOW, 10, 2.0, 10, 10, 3, 60_000, 0)).containsExactly(0L, 1500L, 0L);
+    }
+
+    @Test
+    void leftoversGoBackBeforeTheNextGrant() {
+        run("token_lease", List.of(KEY), NOW, 10, 0.001, 10, 10, 1, 60_000, 0);   // all 10 leased
+
+        // 3 unused come back with the renewal and are leased out again at once.
+        assertThat(run("token_lease", List.of(KEY), NOW, 10, 0.001, 10, 10, 1, 60_000, 3)).containsExactly(3L, 0L, 0L);
+    }
+
+    @Test
+    void returnAddsBackUpToCapacityButNeverRecreatesAnExpiredBucket() {
+        run("token_lease", List.of(KEY), NOW, 10, 1.0, 10, 4, 1, 60_000, 0);    // 6 left
+
+        assertThat(run("token_lease_return", List.of(KEY), 10, 3)).containsExactly(1L);
+        assertThat(redis.opsForHash().get(KEY, "tokens")).isEqualTo("9");
+        run("token_lease_return", List.of(KEY), 10, 5);
+        assertThat(redis.opsForHash().get(KEY, "tokens")).isEqualTo("10");
+
+        redis.delete(KEY);
+        assertThat(run("token_lease_return", List.of(KEY), 10, 5)).containsExactly(0L);
+        assertThat(redis.hasKey(KEY)).isFalse();
+    }
+
+    @Test
+    void leasedTokensAreServedLocallyUntilTheLeaseExpires() {
+        MutableClock clock = new MutableClock();
+        RateLimitRule rule = new RateLimitRule("r", "/search", "pro", 10, 0.001, 10, 60_000, 1, 4, Algorithm.TOKEN_BUCKET, Fallback.FAIL_CLOSED, 0.0, 0L);
+        try (TokenLeases leases = new TokenLeases(shards(), clock,
+                new LeaseProperties(Duration.ofMillis(250), Duration.ofHours(1), Duration.ofHours(1)), breaker(), new SimpleMeterRegistry())) {
+
+            for (int i = 0; i < 4; i++) assertThat(leases.checkAndConsume(rule, KEY, 1).allowed()).isTrue();
+            // One grant of 4 covered all four requests.
+            assertThat(redis.opsForHash().get(KEY, "tokens")).isEqualTo("6");
+
+            // Past the lease expiry a new grant is taken from Redis.
+            clock.advance(300);
+            assertThat(leases.checkAndConsume(rule, KEY, 1).allowed()).isTrue();
+            assertThat(Double.parseDouble((String) redis.opsForHash().get(KEY, "tokens"))).isLessThan(3);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.shlokmestry.traffic.ratelimit;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import com.shlokmestry.traffic.rules.Algorithm;
+import com.shlokmestry.traffic.rules.Fallback;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+class WindowScriptsTest extends RedisScriptTest {
+
+    private static final long WINDOW = 60_000;
+    private static final long INDEX = 28_333_334;
+    /** Start of window {@link #INDEX}. */
+    private static final long T0 = INDEX * WINDOW;
+
+    private static final String FIXED = "fw:{alice}:r:/search:pro";
+    private static final String SLIDING = "sw:{alice}:r:/search:pro";
+
+    @Test
+    void fixedWindowAllowsCapacityThenDeniesUntilTheWindowEnds() {
+        List<String> keys = List.of(FIXED);
+        long now = T0 + 15_000;
+
+        assertThat(run("fixed_window", keys, now, 3, 0, 0, 1, WINDOW, 0)).containsExactly(1L, 0L, 2L);
+        run("fixed_window", keys, now, 3, 0, 0, 1, WINDOW, 0);
+        assertThat(run("fixed_window", keys, now, 3, 0, 0, 1, WINDOW, 0)).containsExactly(1L, 0L, 0L);
+
+        assertThat(run("fixed_window", keys, now, 3, 0, 0, 1, WINDOW, 0)).containsExactly(0L, 45_000L, 0L);
+        assertThat(redis.opsForValue().get(FIXED + ":" + INDEX)).isEqualTo("3");
+        // The counter goes when its window does.
+        assertThat(pttl(FIXED + ":" + INDEX)).isBetween(44_000L, 45_000L);
+
+        assertThat(run("fixed_window", List.of(FIXED), T0 + WINDOW, 3, 0, 0, 1, WINDOW, 0))
+                .containsExactly(1L, 0L, 2L);
+    }
+
+    @Test
+    void slidingWindowWeighsThePreviousWindowByItsOverlap() {
+        List<String> keys = List.of(SLIDING);
+        redis.opsForValue().set(SLIDING + ":" + (INDEX - 1), "8");
+
+        // A quarter in, 3/4 of the previous 8 still count: 6.
+        long now = T0 + 15_000;
+        assertThat(run("sliding_window", keys, now, 8, 0, 0, 1, WINDOW, 0)).containsExactly(1L, 0L, 1L);
+        assertThat(run("sliding_window", keys, now, 8, 0, 0, 1, WINDOW, 0)).containsExactly(1L, 0L, 0L);
+        // Kept until it stops being the weighted previous window.
+        assertThat(pttl(SLIDING + ":" + INDEX)).isBetween(104_000L, 105_000L);
+
+        // 6 + 2 is full; one more fits once the previous weighs 5, 22.5s in.
+        assertThat(run("sliding_window", keys, now, 8, 0, 0, 1, WINDOW, 0)).containsExactly(0L, 7_500L, 0L);
+        assertThat(redis.opsForValue().get(SLIDING + ":" + INDEX)).isEqualTo("2");
+        assertThat(run("sliding_window", keys, T0 + 22_500, 8, 0, 0, 1, WINDOW, 0)).containsExactly(1L, 0L, 0L);
+    }
+
+    @Test
+    void slidingWindowRetryFallsInTheNextWindowWhenThisOneIsFull() {
+        List<String> keys = List.of(SLIDING);
+        redis.opsForValue().set(SLIDING + ":" + INDEX, "8");
+
+        // 45s to the next window, where these 8 must weigh 4 or less: another 30s.
+        assertThat(run("sliding_window", keys, T0 + 15_000, 8, 0, 0, 4, WINDOW, 0)).containsExactly(0L, 75_000L, 0L);
+        // A cost over capacity never fits; the answer is when both counters are gone.
+        assertThat(run("sliding_window", keys, T0 + 15_000, 8, 0, 0, 9, WINDOW, 0)).containsExactly(0L, 105_000L, 0L);
+    }
+
+    @Test
+    void limiterCountsFixedWindowRulesInRedis() {
+        TokenBucketRateLimiter limiter = limiter(
+                new CoalescingProperties(false, 64, Duration.ofMillis(1), 1000, 1, Duration.ofSeconds(1)),
+                new BucketProperties(false, false));
+        try {
+            // An hour-long window, so the test does not straddle a boundary.
+            RateLimitRule rule = new RateLimitRule(
+                    "r", "/search", "pro", 2, 0, 0, 3_600_000, 1, 0, Algorithm.FIXED_WINDOW, Fallback.FAIL_CLOSED, 0.0, 0L);
+
+            assertThat(limiter.checkAndConsume(rule, "alice", 1).allowed()).isTrue();
+            assertThat(limiter.checkAndConsume(rule, "alice", 1).allowed()).isTrue();
+            RateLimiter.Result denied = limiter.checkAndConsume(rule, "alice", 1);
+            assertThat(denied.allowed()).isFalse();
+            assertThat(denied.retryAfterMs()).isPositive();
+        } finally {
+            limiter.shutdown();
+        }
+    }
+}
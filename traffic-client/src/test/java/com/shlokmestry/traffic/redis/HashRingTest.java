@@ -0,0 +1,49 @@
+package com.shlokmestry.traffic.redis;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+class HashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void spreadsKeysEvenly() {
+        HashRing ring = new HashRing(List.of("r1:6379", "r2:6379", "r3:6379", "r4:6379"), 160);
+
+        int[] perNode = new int[4];
+        for (int i = 0; i < KEYS; i++) perNode[ring.nodeFor("apiKey:user" + i)]++;
+
+        for (int n : perNode) {
+            assertThat((double) n / KEYS).isBetween(0.18, 0.32);
+        }
+    }
+
+    @Test
+    void addingANodeMovesAboutItsShareAndOnlyToIt() {
+        HashRing four = new HashRing(List.of("r1:6379", "r2:6379", "r3:6379", "r4:6379"), 160);
+        HashRing five = new HashRing(List.of("r1:6379", "r2:6379", "r3:6379", "r4:6379", "r5:6379"), 160);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "apiKey:user" + i;
+            int before = four.nodeFor(key);
+            int after = five.nodeFor(key);
+            if (before != after) {
+                moved++;
+                assertThat(after).isEqualTo(4);
+            }
+        }
+        assertThat((double) moved / KEYS).isBetween(0.15, 0.25);
+    }
+
+    @Test
+    void hashesOnlyTheGivenRange() {
+        HashRing ring = new HashRing(List.of("r1:6379", "r2:6379", "r3:6379"), 160);
+
+        String key = "tb:{apiKey:user1}:search:/v1/search:pro";
+        assertThat(ring.nodeFor(key, 4, 16)).isEqualTo(ring.nodeFor("apiKey:user1"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.shlokmestry.traffic.rules;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CachingRuleStoreTest {
+
+    private static final RateLimitRule V1 = new RateLimitRule("r", "/search", "pro", 10, 1.0, 10, 60_000L, 5);
+    private static final RateLimitRule V2 = new RateLimitRule("r", "/search", "pro", 20, 2.0, 20, 60_000L, 5);
+
+    /** Serves {@code current}; a load can be held after it has read, to let an invalidation overtake it. */
+    private static final class SlowStore implements RuleStore {
+        volatile RateLimitRule current = V1;
+        volatile CountDownLatch read = new CountDownLatch(0);
+        volatile CountDownLatch release = new CountDownLatch(0);
+        volatile RuntimeException failure;
+
+        @Override
+        public void upsert(RateLimitRule rule) {
+            current = rule;
+        }
+
+        @Override
+        public Optional<RateLimitRule> get(String ruleId) {
+            if (failure != null) throw failure;
+            Optional<RateLimitRule> value = Optional.of(current);
+            hold();
+            return value;
+        }
+
+        @Override
+        public Map<String, RateLimitRule> getAll(Collection<String> ruleIds) {
+            Map<String, RateLimitRule> value = Map.of("r", current);
+            hold();
+            return value;
+        }
+
+        @Override
+        public List<RateLimitRule> all() {
+            return List.of(current);
+        }
+
+        void holdNextLoad() {
+            read = new CountDownLatch(1);
+            release = new CountDownLatch(1);
+        }
+
+        private void hold() {
+            read.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final SlowStore store = new SlowStore();
+    private final CachingRuleStore cache = new CachingRuleStore(store, null,
+            new RuleCacheProperties(true, 100, Duration.ofMinutes(5), "c"), new SimpleMeterRegistry());
+
+    @Test
+    void invalidationDuringALoadIsNotLost() throws Exception {
+        store.holdNextLoad();
+        CompletableFuture<Optional<RateLimitRule>> load = CompletableFuture.supplyAsync(() -> cache.get("r"));
+        assertThat(store.read.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // The rule changes after the load has read V1 but before it is cached.
+        store.current = V2;
+        CompletableFuture<Void> invalidation = CompletableFuture.runAsync(() -> cache.invalidate("r"));
+        store.release.countDown();
+
+        assertThat(load.get(5, TimeUnit.SECONDS)).contains(V1);
+        invalidation.get(5, TimeUnit.SECONDS);
+        assertThat(cache.get("r")).contains(V2);
+    }
+
+    @Test
+    void invalidationDuringABulkLoadIsNotLost() throws Exception {
+        store.holdNextLoad();
+        CompletableFuture<Map<String, RateLimitRule>> load = CompletableFuture.supplyAsync(() -> cache.getAll(List.of("r")));
+        assertThat(store.read.await(5, TimeUnit.SECONDS)).isTrue();
+
+        store.current = V2;
+        cache.invalidate("r");
+        store.release.countDown();
+
+        assertThat(load.get(5, TimeUnit.SECONDS)).containsEntry("r", V1);
+        assertThat(cache.getAll(List.of("r"))).containsEntry("r", V2);
+        assertThat(cache.get("r")).contains(V2);
+    }
+
+    @Test
+    void loadFailuresAreNotCached() {
+        store.failure = new IllegalStateException("redis down");
+        assertThatThrownBy(() -> cache.get("r")).hasMessage("redis down");
+
+        store.failure = null;
+        assertThat(cache.get("r")).contains(V1);
+    }
+}
@@ -0,0 +1,73 @@
+package com.shlokmestry.traffic.rules;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+class RouteIndexTest {
+
+    private static final RateLimitRule ITEMS = new RateLimitRule("items", "/v1/items/{id}", "pro", 10, 1.0, 10, 60000L, 1);
+    private static final RateLimitRule ORDERS = new RateLimitRule("orders", "/v1/orders/{id}", "pro", 10, 1.0, 10, 60000L, 1);
+
+    /** The first listing is held after it has read the rules, so changes can race with it. */
+    private static final class SlowStore implements RuleStore {
+        final Map<String, RateLimitRule> rules = new ConcurrentHashMap<>();
+        final CountDownLatch listed = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void upsert(RateLimitRule rule) {
+            rules.put(rule.ruleId(), rule);
+        }
+
+        @Override
+        public Optional<RateLimitRule> get(String ruleId) {
+            return Optional.ofNullable(rules.get(ruleId));
+        }
+
+        @Override
+        public List<RateLimitRule> all() {
+            List<RateLimitRule> snapshot = List.copyOf(rules.values());
+            listed.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return snapshot;
+        }
+    }
+
+    @Test
+    void changesDuringARebuildSurviveTheSwap() throws Exception {
+        SlowStore store = new SlowStore();
+        store.upsert(ITEMS);
+        RouteIndex index = new RouteIndex(store, new RouteIndexProperties(Duration.ofHours(1)));
+        try {
+            assertThat(store.listed.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Deleted and added on another instance while the listing still has the old set.
+            store.rules.remove("items");
+            index.reload("items");
+            store.upsert(ORDERS);
+            index.reload("orders");
+            store.release.countDown();
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (!index.loaded() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+
+            assertThat(index.loaded()).isTrue();
+            assertThat(index.resolve("GET", "/v1/items/1", "pro")).isNull();
+            assertThat(index.resolve("GET", "/v1/orders/1", "pro")).isEqualTo(ORDERS);
+        } finally {
+            index.shutdown();
+        }
+    }
+}
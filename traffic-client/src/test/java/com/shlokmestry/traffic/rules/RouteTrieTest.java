@@ -0,0 +1,63 @@
+package com.shlokmestry.traffic.rules;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+class RouteTrieTest {
+
+    private static RateLimitRule rule(String ruleId, String endpoint, String plan) {
+        return new RateLimitRule(ruleId, endpoint, plan, 10, 1.0, 10, 60000L, 1);
+    }
+
+    private static String resolve(RouteTrie trie, String method, String path, String plan) {
+        RateLimitRule r = trie.resolve(method, path, plan);
+        return r == null ? null : r.ruleId();
+    }
+
+    @Test
+    void literalBeatsWildcardBeatsRest() {
+        RouteTrie trie = new RouteTrie();
+        trie.put(rule("all", "/v1/**", "pro"));
+        trie.put(rule("item", "/v1/items/{id}", "pro"));
+        trie.put(rule("featured", "/v1/items/featured", "pro"));
+
+        assertThat(resolve(trie, "GET", "/v1/items/featured", "pro")).isEqualTo("featured");
+        assertThat(resolve(trie, "GET", "/v1/items/42?x=1", "pro")).isEqualTo("item");
+        assertThat(resolve(trie, "GET", "/v1/items/42/reviews", "pro")).isEqualTo("all");
+        assertThat(resolve(trie, "GET", "/v1", "pro")).isEqualTo("all");
+        assertThat(resolve(trie, "GET", "/v2/items", "pro")).isNull();
+    }
+
+    @Test
+    void backtracksWhenTheLiteralBranchDeadEnds() {
+        RouteTrie trie = new RouteTrie();
+        trie.put(rule("literal", "/v1/items/featured/top", "pro"));
+        trie.put(rule("param", "/v1/items/{id}/reviews", "pro"));
+
+        assertThat(resolve(trie, "GET", "/v1/items/featured/reviews", "pro")).isEqualTo("param");
+    }
+
+    @Test
+    void exactPlanThenExactMethodWin() {
+        RouteTrie trie = new RouteTrie();
+        trie.put(rule("any", "/v1/search", "*"));
+        trie.put(rule("pro", "/v1/search", "pro"));
+        trie.put(rule("pro-post", "POST /v1/search", "pro"));
+
+        assertThat(resolve(trie, "POST", "/v1/search", "pro")).isEqualTo("pro-post");
+        assertThat(resolve(trie, "GET", "/v1/search", "pro")).isEqualTo("pro");
+        assertThat(resolve(trie, "GET", "/v1/search", "free")).isEqualTo("any");
+    }
+
+    @Test
+    void upsertMovesARuleAndIgnoresNonPaths() {
+        RouteTrie trie = new RouteTrie();
+        trie.put(rule("r", "/v1/a", "pro"));
+        trie.put(rule("r", "/v1/b", "pro"));
+        trie.put(rule("legacy", "unknown", "default"));
+
+        assertThat(resolve(trie, "GET", "/v1/a", "pro")).isNull();
+        assertThat(resolve(trie, "GET", "/v1/b", "pro")).isEqualTo("r");
+        assertThat(trie.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,46 @@
+package com.shlokmestry.traffic.rules;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+class RuleInvalidationListenerTest {
+
+    @Test
+    void startReturnsAtOnceAndKeepsRetryingWhileRedisIsDown() throws Exception {
+        // Nothing listens on this port.
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", 6390));
+        factory.afterPropertiesSet();
+        factory.start();
+
+        AtomicInteger attempts = new AtomicInteger();
+        RedisConnectionFactory counting = (RedisConnectionFactory) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {RedisConnectionFactory.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getConnection")) attempts.incrementAndGet();
+                    return method.invoke(factory, args);
+                });
+
+        RuleInvalidationListener listener = new RuleInvalidationListener(counting, "c", Duration.ofMillis(50), ruleId -> { });
+        try {
+            long start = System.nanoTime();
+            listener.start();
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(500));
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (attempts.get() < 3 && System.nanoTime() < deadline) Thread.sleep(20);
+
+            assertThat(attempts.get()).isGreaterThanOrEqualTo(3);
+            assertThat(listener.isRunning()).isTrue();
+            assertThat(listener.isListening()).isFalse();
+        } finally {
+            listener.close();
+            factory.destroy();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.shlokmestry.traffic.api;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+
+public record ConcurrencyAcquireRequest(
+        @NotBlank String key,           // e.g., apiKey:user123
+        @NotBlank String ruleId,        // e.g., exports
+        @Min(1) Long leaseMs            // optional; defaults to and is capped at the rule's ttlMs
+) {}
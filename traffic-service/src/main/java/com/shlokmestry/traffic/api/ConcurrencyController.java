@@ -0,0 +1,95 @@
+package com.shlokmestry.traffic.api;
+
+import java.util.Optional;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.shlokmestry.traffic.client.RateLimitHeaders;
+import com.shlokmestry.traffic.observability.RateLimitMetrics;
+import com.shlokmestry.traffic.ratelimit.ConcurrencyLimiter;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+import com.shlokmestry.traffic.rules.RuleStore;
+
+import jakarta.validation.Valid;
+
+/**
+ * In-flight limits: a caller acquires a permit before starting work and releases it
+ * when done. Permits that are never released expire after their lease.
+ */
+@RestController
+@RequestMapping("/v1/concurrency")
+public class ConcurrencyController {
+
+    private final ConcurrencyLimiter limiter;
+    private final RuleStore rules;
+    private final RateLimitMetrics metrics;
+
+    public ConcurrencyController(ConcurrencyLimiter limiter, RuleStore rules, RateLimitMetrics metrics) {
+        this.limiter = limiter;
+        this.rules = rules;
+        this.metrics = metrics;
+    }
+
+    @PostMapping("/acquire")
+    public ResponseEntity<?> acquire(@Valid @RequestBody ConcurrencyAcquireRequest req) {
+        // FAIL-CLOSED: an unknown or unreadable rule gets the conservative one
+        RateLimitRule rule = lookup(req.ruleId()).orElseGet(() -> RateLimitRule.failClosed(req.ruleId()));
+
+        ConcurrencyLimiter.Permit p = limiter.acquire(rule, req.key(), req.leaseMs() == null ? 0 : req.leaseMs());
+        metrics.decision(rule, p.acquired());
+
+        return switch (p.status()) {
+            case ACQUIRED -> ResponseEntity.ok()
+                    .header(RateLimitHeaders.LIMIT, String.valueOf(rule.capacity()))
+                    .header(RateLimitHeaders.REMAINING, String.valueOf(p.available()))
+                    .body(new AcquireResponse(p.leaseId(), p.leaseMs()));
+            case LIMITED -> ResponseEntity.status(429)
+                    .header(RateLimitHeaders.LIMIT, String.valueOf(rule.capacity()))
+                    .header(RateLimitHeaders.REMAINING, "0")
+                    .header(RateLimitHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(p.retryAfterMs())))
+                    .body(new ErrorBody("rate_limited", "Too many requests in flight"));
+            case UNAVAILABLE -> ResponseEntity.status(429)
+                    .header(RateLimitHeaders.RETRY_AFTER, String.valueOf(RateLimitHeaders.FAIL_CLOSED_RETRY_AFTER_SECONDS))
+                    .body(new ErrorBody("rate_limited", "Rate limiter unavailable"));
+        };
+    }
+
+    @PostMapping("/release")
+    public ResponseEntity<?> release(@Valid @RequestBody ConcurrencyReleaseRequest req) {
+        // Without the rule the lease key is unknown; the lease will expire on its own.
+        Optional<RateLimitRule> rule = lookup(req.ruleId());
+        if (rule.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new ErrorBody("limiter_unavailable", "Rule " + req.ruleId() + " could not be resolved"));
+        }
+
+        return switch (limiter.release(rule.get(), req.key(), req.leaseId())) {
+            case RELEASED -> ResponseEntity.noContent().build();
+            case UNKNOWN_LEASE -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ErrorBody("lease_not_found", "Lease is unknown or has expired"));
+            case UNAVAILABLE -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new ErrorBody("limiter_unavailable", "Rate limiter unavailable"));
+        };
+    }
+
+    private Optional<RateLimitRule> lookup(String ruleId) {
+        try {
+            return rules.get(ruleId);
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    private static long retryAfterSeconds(long retryAfterMs) {
+        return Math.max(1, (retryAfterMs + 999) / 1000);
+    }
+
+    private record AcquireResponse(String leaseId, long leaseMs) {}
+
+    private record ErrorBody(String code, String message) {}
+}
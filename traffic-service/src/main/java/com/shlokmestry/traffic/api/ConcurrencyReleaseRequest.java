@@ -0,0 +1,9 @@
+package com.shlokmestry.traffic.api;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record ConcurrencyReleaseRequest(
+        @NotBlank String key,
+        @NotBlank String ruleId,
+        @NotBlank String leaseId        // from the acquire response
+) {}
@@ -0,0 +1,12 @@
+package com.shlokmestry.traffic.api;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+public record EnforceBatchRequest(
+        @NotEmpty @Size(max = 1000) List<@NotNull @Valid CheckRateLimitRequest> requests
+) {}
@@ -0,0 +1,22 @@
+package com.shlokmestry.traffic.api;
+
+import java.util.List;
+
+public record EnforceBatchResponse(List<Decision> decisions) {
+
+    /**
+     * One entry per request, in request order. {@code status} is what
+     * /v1/enforce would have returned; the remaining fields mirror its
+     * RateLimit-* and Retry-After headers (retryAfter is null when allowed).
+     */
+    public record Decision(
+            int status,
+            String code,
+            boolean allowed,
+            long retryAfterMs,
+            long limit,
+            long remaining,
+            long reset,
+            Long retryAfter
+    ) {}
+}
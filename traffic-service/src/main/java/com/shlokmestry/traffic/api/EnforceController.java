@@ -1,5 +1,12 @@
 package com.shlokmestry.traffic.api;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
@@ -8,12 +15,19 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.shlokmestry.traffic.client.Decision;
+import com.shlokmestry.traffic.client.RateLimitHeaders;
+import com.shlokmestry.traffic.enforce.Enforcer;
+import com.shlokmestry.traffic.observability.DecisionAudit;
+import com.shlokmestry.traffic.observability.DecisionTrace;
+import com.shlokmestry.traffic.observability.HeavyHitters;
 import com.shlokmestry.traffic.observability.RateLimitMetrics;
-import com.shlokmestry.traffic.ratelimit.TokenBucketRateLimiter;
+import com.shlokmestry.traffic.ratelimit.DenyCache;
+import com.shlokmestry.traffic.ratelimit.RateLimiter;
 import com.shlokmestry.traffic.rules.RateLimitRule;
+import com.shlokmestry.traffic.rules.RouteIndex;
 import com.shlokmestry.traffic.rules.RuleStore;
 
 import jakarta.validation.Valid;
@@ -24,120 +38,253 @@ public class EnforceController {
 
     private static final Logger log = LoggerFactory.getLogger(EnforceController.class);
 
-    private static final long RETRY_AFTER_SECONDS_IF_NO_REFILL = 3600; // 1 hour
-    private static final long RETRY_AFTER_SECONDS_MAX = 86400; // 24 hours
-    private static final long FAIL_CLOSED_RETRY_AFTER_SECONDS = 1; // 1 second
-
-    private final TokenBucketRateLimiter limiter;
+    private final Enforcer enforcer;
+    private final RateLimiter limiter;
     private final RuleStore rules;
     private final RateLimitMetrics metrics;
+    private final DenyCache denyCache;
+    private final RouteIndex routes;
+    private final HeavyHitters heavyHitters;
+    private final DecisionAudit audit;
 
-    public EnforceController(TokenBucketRateLimiter limiter, RuleStore rules, RateLimitMetrics metrics) {
+    public EnforceController(
+            Enforcer enforcer,
+            RateLimiter limiter,
+            RuleStore rules,
+            RateLimitMetrics metrics,
+            DenyCache denyCache,
+            RouteIndex routes,
+            HeavyHitters heavyHitters,
+            DecisionAudit audit
+    ) {
+        this.enforcer = enforcer;
         this.limiter = limiter;
         this.rules = rules;
         this.metrics = metrics;
+        this.denyCache = denyCache;
+        this.routes = routes;
+        this.heavyHitters = heavyHitters;
+        this.audit = audit;
     }
 
     @PostMapping("/enforce")
     public ResponseEntity<ErrorBody> enforce(@Valid @RequestBody CheckRateLimitRequest req) {
-        // FAIL-CLOSED #1: Always have a rule (even if RedisRuleStore fails)
-        RateLimitRule rule;
+        return response(enforcer.enforce(req.ruleId(), req.key(), req.cost().intValue()));
+    }
+
+    /**
+     * Like /v1/enforce, but the rule is the most specific one whose endpoint pattern
+     * and plan match the request, so callers do not need to know ruleIds.
+     */
+    @PostMapping("/enforce:route")
+    public ResponseEntity<ErrorBody> enforceRoute(@Valid @RequestBody EnforceRouteRequest req) {
+        // Rules could not be listed yet: an empty index would let everything through unlimited.
+        if (!routes.loaded()) {
+            RateLimitRule failClosed = RateLimitRule.failClosed("route");
+            audit.record(failClosed, req.key(), req.cost().intValue(), DecisionTrace.Outcome.FAIL_CLOSED);
+            return response(new Decision(Decision.Status.FAIL_CLOSED, failClosed, null));
+        }
+
+        RateLimitRule rule = routes.resolve(req.method().toUpperCase(Locale.ROOT), req.path(), req.plan());
+        if (rule == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ErrorBody("no_matching_rule", "No rule matches " + req.method() + " " + req.path()));
+        }
+        return response(enforcer.enforce(rule.ruleId(), req.key(), req.cost().intValue()));
+    }
+
+    private static ResponseEntity<ErrorBody> response(Decision d) {
+        HttpHeaders h = new HttpHeaders();
+        d.headers(h::set);
+
+        return switch (d.status()) {
+            case ALLOWED -> ResponseEntity.noContent().headers(h).build();
+            case LIMITED -> ResponseEntity.status(429)
+                    .headers(h)
+                    .body(new ErrorBody("rate_limited", "Too many requests"));
+            case FAIL_CLOSED -> ResponseEntity.status(429)
+                    .headers(h)
+                    .body(new ErrorBody("rate_limited", "Rate limiter unavailable"));
+            case COST_TOO_HIGH -> ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ErrorBody("cost_too_high", "cost exceeds maxCost"));
+        };
+    }
+
+    /**
+     * Enforces many requests at once: rules are resolved together and all limiter
+     * scripts go to Redis in one pipelined round trip. Every item gets the decision
+     * and header values /v1/enforce would have produced for it on its own.
+     */
+    @PostMapping("/enforce:batch")
+    public EnforceBatchResponse enforceBatch(@Valid @RequestBody EnforceBatchRequest batch) {
+        List<CheckRateLimitRequest> reqs = batch.requests();
+
+        Set<String> ruleIds = new LinkedHashSet<>();
+        for (CheckRateLimitRequest req : reqs) ruleIds.add(req.ruleId());
+
+        // FAIL-CLOSED #1: a failed or partial lookup falls back to the conservative rule per item
+        Map<String, RateLimitRule> resolved;
         try {
-            rule = rules.get(req.ruleId())
-                    .orElseThrow(() -> new RuleNotFound(req.ruleId()));
+            resolved = rules.getAll(ruleIds);
         } catch (Exception e) {
-            // RedisRuleStore.get() failed → ultra-conservative defaults
-            rule = new RateLimitRule(
-                    req.ruleId(),
-                    "unknown",
-                    "default",
-                    1,
-                    0.0,
-                    0,
-                    60000L,
-                    1
-            );
+            resolved = Map.of();
         }
 
-        int cost = req.cost().intValue();
-        if (cost > rule.maxCost()) {
-            metrics.costTooHigh(rule);
+        EnforceBatchResponse.Decision[] decisions = new EnforceBatchResponse.Decision[reqs.size()];
+        List<RateLimiter.Check> checks = new ArrayList<>(reqs.size());
+        List<Integer> checkIndexes = new ArrayList<>(reqs.size());
+        List<RateLimiter.Result> cachedDenials = new ArrayList<>(reqs.size());
 
-            log.info("ratelimit reject reason=cost_too_high ruleId={} endpoint={} plan={} cost={} maxCost={}",
-                    rule.ruleId(), rule.endpoint(), rule.plan(), cost, rule.maxCost());
+        for (int i = 0; i < reqs.size(); i++) {
+            CheckRateLimitRequest req = reqs.get(i);
+            RateLimitRule rule = resolved.get(req.ruleId());
+            if (rule == null) rule = RateLimitRule.failClosed(req.ruleId());
 
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(new ErrorBody("cost_too_high", "cost exceeds maxCost"));
+            int cost = req.cost().intValue();
+            if (cost > rule.maxCost()) {
+                rejectCostTooHigh(rule, req.key(), cost);
+                decisions[i] = new EnforceBatchResponse.Decision(
+                        HttpStatus.BAD_REQUEST.value(), "cost_too_high", false, 0, rule.capacity(), 0, 0, null);
+                continue;
+            }
+
+            checks.add(new RateLimiter.Check(rule, req.key(), cost));
+            checkIndexes.add(i);
+            DenyCache.Hit hit = denyCache.check(rule.ruleId(), req.key(), cost);
+            cachedDenials.add(hit == null ? null : hit.result());
+        }
+
+        List<RateLimiter.Check> toLimiter = new ArrayList<>(checks.size());
+        for (int j = 0; j < checks.size(); j++) {
+            if (cachedDenials.get(j) == null) toLimiter.add(checks.get(j));
         }
 
-        // FAIL-CLOSED #2: Limiter failures (your existing logic)
-        final TokenBucketRateLimiter.Result r;
+        // FAIL-CLOSED #2: the limiter fails closed per item; a thrown exception fails the whole batch closed
+        List<RateLimiter.Result> limited;
         try {
-            r = limiter.checkAndConsume(
-                    req.key(),
-                    rule.ruleId(),
-                    rule.endpoint(),
-                    rule.plan(),
-                    rule.capacity(),
-                    rule.refillTokensPerSecond(),
-                    rule.burstCapacity(),
-                    cost,
-                    rule.ttlMs()
-            );
+            limited = limiter.checkAndConsumeAll(toLimiter);
         } catch (Exception e) {
-            HttpHeaders h = new HttpHeaders();
-            h.set("RateLimit-Limit", String.valueOf(rule.capacity()));
-            h.set("RateLimit-Remaining", "0");
-            h.set(HttpHeaders.RETRY_AFTER, String.valueOf(FAIL_CLOSED_RETRY_AFTER_SECONDS));
-            h.set("RateLimit-Reset", String.valueOf(FAIL_CLOSED_RETRY_AFTER_SECONDS));
+            log.warn("ratelimit fail_closed reason=limiter_exception batchSize={}", toLimiter.size(), e);
+            limited = null;
+        }
 
-            log.warn("ratelimit fail_closed reason=limiter_exception ruleId={} endpoint={} plan={} cost={}",
-                    rule.ruleId(), rule.endpoint(), rule.plan(), cost, e);
+        int next = 0;
+        for (int j = 0; j < checks.size(); j++) {
+            RateLimiter.Check c = checks.get(j);
+            RateLimitRule rule = c.rule();
 
-            return ResponseEntity.status(429)
-                    .headers(h)
-                    .body(new ErrorBody("rate_limited", "Rate limiter unavailable"));
+            RateLimiter.Result r = cachedDenials.get(j);
+            boolean cached = r != null;
+            if (r == null && limited != null) {
+                r = limited.get(next++);
+                denyCache.record(rule, c.key(), c.cost(), r);
+            }
+
+            if (r == null) {
+                audit.record(rule, c.key(), c.cost(), DecisionTrace.Outcome.FAIL_CLOSED);
+                long retryAfterSeconds = RateLimitHeaders.FAIL_CLOSED_RETRY_AFTER_SECONDS;
+                decisions[checkIndexes.get(j)] = new EnforceBatchResponse.Decision(
+                        429, "rate_limited", false, retryAfterSeconds * 1000, rule.capacity(), 0,
+                        retryAfterSeconds, retryAfterSeconds);
+                continue;
+            }
+
+            recordDecision(rule, c.key(), c.cost(), r, cached);
+
+            long remaining = Math.max(0, r.remaining());
+            if (r.allowed()) {
+                decisions[checkIndexes.get(j)] = new EnforceBatchResponse.Decision(
+                        HttpStatus.NO_CONTENT.value(), "allowed", true, 0, rule.capacity(), remaining, 0, null);
+            } else {
+                long retryAfterSeconds = RateLimitHeaders.retryAfterSeconds(rule, r);
+                decisions[checkIndexes.get(j)] = new EnforceBatchResponse.Decision(
+                        429, "rate_limited", false, r.retryAfterMs(), rule.capacity(), remaining,
+                        retryAfterSeconds, retryAfterSeconds);
+            }
         }
 
-        metrics.decision(rule, r.allowed());
+        return new EnforceBatchResponse(List.of(decisions));
+    }
 
-        log.info("ratelimit decision ruleId={} endpoint={} plan={} cost={} allowed={} retryAfterMs={} remaining={}",
-                rule.ruleId(), rule.endpoint(), rule.plan(), cost, r.allowed(), r.retryAfterMs(), r.remaining());
+    /**
+     * One decision across several rules (e.g. per API key, per IP and a global
+     * ceiling): the request is allowed only if every dimension allows, and tokens are
+     * taken from all of them or from none. Headers describe the limiting dimension.
+     */
+    @PostMapping("/enforce:multi")
+    public ResponseEntity<ErrorBody> enforceMulti(@Valid @RequestBody EnforceMultiRequest req) {
+        int cost = req.cost().intValue();
+        List<EnforceMultiRequest.Dimension> dims = req.dimensions();
 
-        long remaining = Math.max(0, r.remaining());
+        Set<String> ruleIds = new LinkedHashSet<>();
+        for (EnforceMultiRequest.Dimension d : dims) ruleIds.add(d.ruleId());
 
-        // Common headers (sent on both 204 and 429)
-        HttpHeaders h = new HttpHeaders();
-        h.set("RateLimit-Limit", String.valueOf(rule.capacity()));
-        h.set("RateLimit-Remaining", String.valueOf(remaining));
+        // FAIL-CLOSED #1: a failed or partial lookup falls back to the conservative rule per dimension
+        Map<String, RateLimitRule> resolved;
+        try {
+            resolved = rules.getAll(ruleIds);
+        } catch (Exception e) {
+            resolved = Map.of();
+        }
 
-        if (r.allowed()) {
-            h.set("RateLimit-Reset", "0");
-            return ResponseEntity.noContent().headers(h).build();
+        List<RateLimiter.Check> checks = new ArrayList<>(dims.size());
+        for (EnforceMultiRequest.Dimension d : dims) {
+            RateLimitRule rule = resolved.get(d.ruleId());
+            if (rule == null) rule = RateLimitRule.failClosed(d.ruleId());
+
+            if (cost > rule.maxCost()) {
+                rejectCostTooHigh(rule, d.key(), cost);
+                return response(new Decision(Decision.Status.COST_TOO_HIGH, rule, null));
+            }
+            checks.add(new RateLimiter.Check(rule, d.key(), cost));
         }
 
-        long retryAfterSeconds;
-        if (rule.refillTokensPerSecond() <= 0.0) {
-            retryAfterSeconds = RETRY_AFTER_SECONDS_IF_NO_REFILL;
-        } else {
-            retryAfterSeconds = Math.max(1, (long) Math.ceil(r.retryAfterMs() / 1000.0));
-            retryAfterSeconds = Math.min(retryAfterSeconds, RETRY_AFTER_SECONDS_MAX);
+        // Any dimension still inside its retry window denies the whole request without Redis.
+        for (RateLimiter.Check c : checks) {
+            DenyCache.Hit hit = denyCache.check(c.rule().ruleId(), c.key(), cost);
+            if (hit != null) {
+                recordDecision(c.rule(), c.key(), cost, hit.result(), true);
+                return response(Decision.of(c.rule(), hit.result()));
+            }
         }
 
-        h.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
-        h.set("RateLimit-Reset", String.valueOf(retryAfterSeconds));
+        // FAIL-CLOSED #2
+        final RateLimiter.MultiResult m;
+        try {
+            m = limiter.checkAndConsumeAtomically(checks);
+        } catch (IllegalArgumentException e) {
+            // Not a limiter failure: these dimensions cannot be decided atomically on this deployment.
+            log.warn("ratelimit multi rejected reason=dimensions_span_shards dimensions={}: {}", checks.size(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ErrorBody("dimensions_span_shards", e.getMessage()));
+        } catch (Exception e) {
+            log.warn("ratelimit fail_closed reason=limiter_exception dimensions={} cost={}", checks.size(), cost, e);
+            for (RateLimiter.Check c : checks) {
+                audit.record(c.rule(), c.key(), cost, DecisionTrace.Outcome.FAIL_CLOSED);
+            }
+            return response(new Decision(Decision.Status.FAIL_CLOSED, checks.get(0).rule(), null));
+        }
 
-        return ResponseEntity.status(429)
-                .headers(h)
-                .body(new ErrorBody("rate_limited", "Too many requests"));
+        RateLimiter.Result decision = m.limitingResult();
+        for (RateLimiter.Check c : checks) {
+            recordDecision(c.rule(), c.key(), cost, decision, false);
+        }
+        RateLimiter.Check limiting = checks.get(m.limiting());
+        denyCache.record(limiting.rule(), limiting.key(), cost, m.results().get(m.limiting()));
+        return response(Decision.of(limiting.rule(), decision));
     }
 
-    private record ErrorBody(String code, String message) {}
+    private void rejectCostTooHigh(RateLimitRule rule, String key, int cost) {
+        metrics.costTooHigh(rule);
+        audit.record(rule, key, cost, DecisionTrace.Outcome.COST_TOO_HIGH);
+    }
 
-    @ResponseStatus(HttpStatus.NOT_FOUND)
-    private static class RuleNotFound extends RuntimeException {
-        RuleNotFound(String ruleId) {
-            super("Rule not found: " + ruleId);
-        }
+    // No per-request log line: the audit ring takes the record and a background thread writes it.
+    private void recordDecision(RateLimitRule rule, String key, int cost, RateLimiter.Result r, boolean cached) {
+        metrics.decision(rule, r.allowed());
+        heavyHitters.record(rule.ruleId(), key, cost, r.allowed());
+        audit.record(rule, key, cost, r, cached);
     }
+
+    private record ErrorBody(String code, String message) {}
 }
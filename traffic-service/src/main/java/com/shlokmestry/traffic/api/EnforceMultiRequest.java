@@ -0,0 +1,34 @@
+package com.shlokmestry.traffic.api;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+public record EnforceMultiRequest(
+        @NotEmpty @Size(max = 16) List<@NotNull @Valid Dimension> dimensions,  // e.g., per API key, per IP, global
+        @NotNull @Min(1) Integer cost                                          // taken from every dimension
+) {
+
+    public record Dimension(
+            @NotBlank String ruleId,
+            @NotBlank String key
+    ) {}
+
+    @AssertTrue(message = "dimensions must name distinct (ruleId, key) pairs")
+    public boolean isDistinct() {
+        if (dimensions == null) return true;
+        Set<Dimension> seen = new HashSet<>();
+        for (Dimension d : dimensions) {
+            if (d != null && !seen.add(d)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,13 @@
+package com.shlokmestry.traffic.api;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+public record EnforceRouteRequest(
+        @NotBlank String method,        // e.g., GET
+        @NotBlank String path,          // e.g., /v1/items/42; a query string is ignored
+        @NotBlank String plan,          // e.g., pro
+        @NotBlank String key,           // e.g., apiKey:user123
+        @NotNull @Min(1) Integer cost
+) {}
@@ -1,6 +1,7 @@
 package com.shlokmestry.traffic.api;
 
-import com.shlokmestry.traffic.ratelimit.TokenBucketRateLimiter;
+import com.shlokmestry.traffic.ratelimit.DenyCache;
+import com.shlokmestry.traffic.ratelimit.RateLimiter;
 import com.shlokmestry.traffic.rules.RateLimitRule;
 import com.shlokmestry.traffic.rules.RuleStore;
 import jakarta.validation.Valid;
@@ -11,12 +12,14 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/v1")
 public class RateLimitController {
 
-    private final TokenBucketRateLimiter limiter;
+    private final RateLimiter limiter;
     private final RuleStore rules;
+    private final DenyCache denyCache;
 
-    public RateLimitController(TokenBucketRateLimiter limiter, RuleStore rules) {
+    public RateLimitController(RateLimiter limiter, RuleStore rules, DenyCache denyCache) {
         this.limiter = limiter;
         this.rules = rules;
+        this.denyCache = denyCache;
     }
 
     @PostMapping("/check")
@@ -29,18 +32,15 @@ public class RateLimitController {
             throw new CostTooHigh("cost " + cost + " exceeds maxCost " + rule.maxCost());
         }
 
-        TokenBucketRateLimiter.Result r =
-                limiter.checkAndConsume(
-                        req.key(),
-                        rule.ruleId(),
-                        rule.endpoint(),
-                        rule.plan(),
-                        rule.capacity(),
-                        rule.refillTokensPerSecond(),
-                        rule.burstCapacity(),
-                        cost,
-                        rule.ttlMs()
-                );
+        DenyCache.Hit cached = denyCache.check(rule.ruleId(), req.key(), cost);
+
+        RateLimiter.Result r;
+        if (cached != null) {
+            r = cached.result();
+        } else {
+            r = limiter.checkAndConsume(rule, req.key(), cost);
+            denyCache.record(rule, req.key(), cost, r);
+        }
 
         return new CheckRateLimitResponse(r.allowed(), r.retryAfterMs(), r.remaining());
     }
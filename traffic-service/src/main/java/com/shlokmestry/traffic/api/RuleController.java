@@ -1,6 +1,11 @@
 package com.shlokmestry.traffic.api;
 
+import com.shlokmestry.traffic.ratelimit.AdaptiveLimits;
+import com.shlokmestry.traffic.ratelimit.DenyCache;
+import com.shlokmestry.traffic.rules.Algorithm;
+import com.shlokmestry.traffic.rules.Fallback;
 import com.shlokmestry.traffic.rules.RateLimitRule;
+import com.shlokmestry.traffic.rules.RouteIndex;
 import com.shlokmestry.traffic.rules.RuleStore;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
@@ -12,9 +17,15 @@ import org.springframework.web.bind.annotation.*;
 public class RuleController {
 
     private final RuleStore store;
+    private final RouteIndex routes;
+    private final AdaptiveLimits adaptive;
+    private final DenyCache denyCache;
 
-    public RuleController(RuleStore store) {
+    public RuleController(RuleStore store, RouteIndex routes, AdaptiveLimits adaptive, DenyCache denyCache) {
         this.store = store;
+        this.routes = routes;
+        this.adaptive = adaptive;
+        this.denyCache = denyCache;
     }
 
     @PutMapping("/{ruleId}")
@@ -31,10 +42,18 @@ public class RuleController {
                 req.refillTokensPerSecond(),
                 req.burstCapacity(),
                 req.ttlMs(),
-                req.maxCost()
+                req.maxCost(),
+                req.leaseSize() == null ? 0 : req.leaseSize(),
+                req.algorithm() == null ? Algorithm.TOKEN_BUCKET : req.algorithm(),
+                req.fallback() == null ? Fallback.FAIL_CLOSED : req.fallback(),
+                req.fallbackFraction() == null ? 0.0 : req.fallbackFraction(),
+                req.targetLatencyMs() == null ? 0L : req.targetLatencyMs()
         );
 
         store.upsert(rule);
+        routes.put(rule);
+        // Peers drop theirs on the invalidation message; this also covers a disabled rule cache.
+        denyCache.invalidateRule(ruleId);
 
         return new RuleResponse(
                 rule.ruleId(),
@@ -44,7 +63,12 @@ public class RuleController {
                 rule.refillTokensPerSecond(),
                 rule.burstCapacity(),
                 rule.ttlMs(),
-                rule.maxCost()
+                rule.maxCost(),
+                rule.leaseSize(),
+                rule.algorithm(),
+                rule.fallback(),
+                rule.fallbackFraction(),
+                rule.targetLatencyMs()
         );
     }
 
@@ -61,7 +85,28 @@ public class RuleController {
                 rule.refillTokensPerSecond(),
                 rule.burstCapacity(),
                 rule.ttlMs(),
-                rule.maxCost()
+                rule.maxCost(),
+                rule.leaseSize(),
+                rule.algorithm(),
+                rule.fallback(),
+                rule.fallbackFraction(),
+                rule.targetLatencyMs()
         );
     }
+
+    /**
+     * One downstream outcome for a request admitted under this rule. Only rules with a
+     * targetLatencyMs use it; for others it is accepted and ignored.
+     */
+    @PostMapping("/{ruleId}/feedback")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void feedback(
+            @PathVariable @NotBlank String ruleId,
+            @Valid @RequestBody RuleFeedbackRequest req
+    ) {
+        RateLimitRule rule = store.get(ruleId)
+                .orElseThrow(() -> new RuleNotFoundException(ruleId));
+
+        adaptive.record(rule, req.latencyMs(), Boolean.TRUE.equals(req.error()));
+    }
 }
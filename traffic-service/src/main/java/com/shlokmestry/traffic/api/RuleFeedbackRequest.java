@@ -0,0 +1,9 @@
+package com.shlokmestry.traffic.api;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+public record RuleFeedbackRequest(
+        @NotNull @Min(0) Long latencyMs,    // downstream time for the admitted request
+        Boolean error                       // optional; omitted = false
+) {}
@@ -1,5 +1,8 @@
 package com.shlokmestry.traffic.api;
 
+import com.shlokmestry.traffic.rules.Algorithm;
+import com.shlokmestry.traffic.rules.Fallback;
+
 public record RuleResponse(
         String ruleId,
         String endpoint,
@@ -8,5 +11,10 @@ public record RuleResponse(
         double refillTokensPerSecond,
         int burstCapacity,
         long ttlMs,
-        int maxCost
+        int maxCost,
+        int leaseSize,
+        Algorithm algorithm,
+        Fallback fallback,
+        double fallbackFraction,
+        long targetLatencyMs
 ) {}
@@ -1,5 +1,10 @@
 package com.shlokmestry.traffic.api;
 
+import com.shlokmestry.traffic.rules.Algorithm;
+import com.shlokmestry.traffic.rules.Fallback;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -11,6 +16,21 @@ public record UpsertRuleRequest(
         @NotNull @Min(1) Integer capacity,
         @NotNull @DecimalMin("0.0") Double refillTokensPerSecond,
         @NotNull @Min(0) Integer burstCapacity,
-        @NotNull @Min(1) Long ttlMs,
-        @NotNull @Min(1) Integer maxCost
-) {}
+        @NotNull @Min(1) Long ttlMs,     // window length for FIXED_WINDOW / SLIDING_WINDOW
+        @NotNull @Min(1) Integer maxCost,
+        @Min(0) Integer leaseSize,       // optional; omitted = 0 (no local leasing)
+        Algorithm algorithm,             // optional; omitted = TOKEN_BUCKET
+        Fallback fallback,               // optional; omitted = FAIL_CLOSED
+        @DecimalMin("0.0") @DecimalMax("1.0") Double fallbackFraction,  // required > 0 for LOCAL
+        @Min(0) Long targetLatencyMs     // optional; omitted = 0 (static limits)
+) {
+    @AssertTrue(message = "GCRA needs refillTokensPerSecond > 0")
+    public boolean isRefillValidForAlgorithm() {
+        return algorithm != Algorithm.GCRA || refillTokensPerSecond == null || refillTokensPerSecond > 0.0;
+    }
+
+    @AssertTrue(message = "LOCAL fallback needs fallbackFraction > 0")
+    public boolean isFallbackFractionValid() {
+        return fallback != Fallback.LOCAL || (fallbackFraction != null && fallbackFraction > 0.0);
+    }
+}
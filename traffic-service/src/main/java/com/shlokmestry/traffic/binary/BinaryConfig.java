@@ -0,0 +1,9 @@
+package com.shlokmestry.traffic.binary;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(BinaryProperties.class)
+public class BinaryConfig {
+}
@@ -0,0 +1,85 @@
+package com.shlokmestry.traffic.binary;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shlokmestry.traffic.client.Decision;
+import com.shlokmestry.traffic.enforce.Enforcer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+/**
+ * One per connection. Frames are decoded on the event loop and decided on
+ * {@code executor} (limiter calls block on Redis), so many requests from one
+ * connection are in flight at once. Past {@code maxInFlight} the connection stops
+ * reading until replies drain; the in-flight count is only touched on the event loop.
+ * Every request gets exactly one reply, a fail-closed frame if deciding it threw or
+ * could not be scheduled, so the count always drains.
+ */
+final class BinaryEnforceHandler extends SimpleChannelInboundHandler<ByteBuf> {
+
+    private static final Logger log = LoggerFactory.getLogger(BinaryEnforceHandler.class);
+
+    private final Enforcer enforcer;
+    private final Executor executor;
+    private final int maxInFlight;
+    private int inFlight;
+
+    BinaryEnforceHandler(Enforcer enforcer, Executor executor, int maxInFlight) {
+        this.enforcer = enforcer;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) {
+        if (frame.readableBytes() < 4) {
+            ctx.close();
+            return;
+        }
+        int id = frame.readInt();
+        BinaryProtocol.Request req = BinaryProtocol.readRequest(id, frame);
+        if (req == null) {
+            ctx.writeAndFlush(BinaryProtocol.badRequest(ctx.alloc(), id));
+            return;
+        }
+
+        if (++inFlight >= maxInFlight) ctx.channel().config().setAutoRead(false);
+        try {
+            executor.execute(() -> {
+                ByteBuf reply = decide(ctx, req);
+                ctx.executor().execute(() -> complete(ctx, reply));
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down: still answer, on the event loop we are already on.
+            complete(ctx, BinaryProtocol.failClosed(ctx.alloc(), req.id()));
+        }
+    }
+
+    private ByteBuf decide(ChannelHandlerContext ctx, BinaryProtocol.Request req) {
+        try {
+            Decision d = enforcer.enforce(req.ruleId(), req.key(), req.cost());
+            return BinaryProtocol.response(ctx.alloc(), req.id(), d);
+        } catch (Exception e) {
+            log.warn("binary enforce fail_closed reason=exception ruleId={} cost={}", req.ruleId(), req.cost(), e);
+            return BinaryProtocol.failClosed(ctx.alloc(), req.id());
+        }
+    }
+
+    private void complete(ChannelHandlerContext ctx, ByteBuf reply) {
+        ctx.writeAndFlush(reply);
+        if (inFlight-- == maxInFlight) ctx.channel().config().setAutoRead(true);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        // Oversized or garbled frames: there is no way to resynchronise the stream.
+        log.debug("binary enforce connection closed remote={}", ctx.channel().remoteAddress(), cause);
+        ctx.close();
+    }
+}
@@ -0,0 +1,14 @@
+package com.shlokmestry.traffic.binary;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "traffic.binary")
+public record BinaryProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("0.0.0.0") String host,
+        @DefaultValue("8082") int port,
+        @DefaultValue("0") int ioThreads,            // Netty event loops; 0 = Netty default (2 x cores)
+        @DefaultValue("1024") int maxFrameLength,    // bytes after the length prefix; longer frames close the connection
+        @DefaultValue("1024") int maxInFlight        // per connection; reading pauses until replies drain
+) {}
@@ -0,0 +1,94 @@
+package com.shlokmestry.traffic.binary;
+
+import java.nio.charset.StandardCharsets;
+
+import com.shlokmestry.traffic.client.Decision;
+import com.shlokmestry.traffic.client.RateLimitHeaders;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * Frame layout of the binary enforce listener. Every frame starts with a 4-byte
+ * length of the rest of the frame; all integers are big-endian.
+ *
+ * <pre>
+ * request:  int32 id | uint16 n | ruleId (n bytes UTF-8) | uint16 m | key (m bytes UTF-8) | int32 cost
+ * response: int32 id | uint8 status | int64 retryAfterMs | int64 remaining | int64 limit
+ * </pre>
+ *
+ * The id is echoed back unchanged, so a client can keep many requests in flight on
+ * one connection; replies come back in completion order, not request order.
+ * Status is one of the {@code STATUS_*} constants and maps onto {@code /v1/enforce}
+ * (204, 429, 400 cost_too_high, 429 unavailable, 400 validation).
+ */
+public final class BinaryProtocol {
+
+    public static final byte STATUS_ALLOWED = 0;
+    public static final byte STATUS_LIMITED = 1;
+    public static final byte STATUS_COST_TOO_HIGH = 2;
+    public static final byte STATUS_FAIL_CLOSED = 3;
+    public static final byte STATUS_BAD_REQUEST = 4;
+
+    public static final int LENGTH_FIELD = 4;
+    public static final int RESPONSE_LENGTH = 4 + 1 + 8 + 8 + 8;
+
+    private BinaryProtocol() {}
+
+    public record Request(int id, String ruleId, String key, int cost) {}
+
+    /**
+     * Reads the body of a request frame (everything after the id). Returns null if it
+     * is truncated, has trailing bytes or fails the same checks as {@code /v1/enforce}:
+     * non-blank ruleId and key, cost of at least 1.
+     */
+    public static Request readRequest(int id, ByteBuf frame) {
+        String ruleId = readString(frame);
+        String key = ruleId == null ? null : readString(frame);
+        if (key == null || frame.readableBytes() != 4) return null;
+
+        int cost = frame.readInt();
+        if (ruleId.isBlank() || key.isBlank() || cost < 1) return null;
+        return new Request(id, ruleId, key, cost);
+    }
+
+    public static ByteBuf response(ByteBufAllocator alloc, int id, Decision d) {
+        long limit = d.rule().capacity();
+        return switch (d.status()) {
+            case ALLOWED -> response(alloc, id, STATUS_ALLOWED, 0, Math.max(0, d.result().remaining()), limit);
+            case LIMITED -> response(alloc, id, STATUS_LIMITED, d.result().retryAfterMs(),
+                    Math.max(0, d.result().remaining()), limit);
+            case COST_TOO_HIGH -> response(alloc, id, STATUS_COST_TOO_HIGH, 0, 0, limit);
+            case FAIL_CLOSED -> response(alloc, id, STATUS_FAIL_CLOSED,
+                    RateLimitHeaders.FAIL_CLOSED_RETRY_AFTER_SECONDS * 1000, 0, limit);
+        };
+    }
+
+    /** For a request that could not be decided at all; there is no rule, so limit is 0. */
+    public static ByteBuf failClosed(ByteBufAllocator alloc, int id) {
+        return response(alloc, id, STATUS_FAIL_CLOSED, RateLimitHeaders.FAIL_CLOSED_RETRY_AFTER_SECONDS * 1000, 0, 0);
+    }
+
+    public static ByteBuf badRequest(ByteBufAllocator alloc, int id) {
+        return response(alloc, id, STATUS_BAD_REQUEST, 0, 0, 0);
+    }
+
+    private static ByteBuf response(ByteBufAllocator alloc, int id, byte status,
+                                    long retryAfterMs, long remaining, long limit) {
+        ByteBuf out = alloc.ioBuffer(LENGTH_FIELD + RESPONSE_LENGTH);
+        out.writeInt(RESPONSE_LENGTH);
+        out.writeInt(id);
+        out.writeByte(status);
+        out.writeLong(retryAfterMs);
+        out.writeLong(remaining);
+        out.writeLong(limit);
+        return out;
+    }
+
+    private static String readString(ByteBuf frame) {
+        if (frame.readableBytes() < 2) return null;
+        int len = frame.readUnsignedShort();
+        if (frame.readableBytes() < len) return null;
+        return frame.readCharSequence(len, StandardCharsets.UTF_8).toString();
+    }
+}
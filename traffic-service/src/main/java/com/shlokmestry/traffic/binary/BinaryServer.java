@@ -0,0 +1,95 @@
+package com.shlokmestry.traffic.binary;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.shlokmestry.traffic.enforce.Enforcer;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultiThreadIoEventLoopGroup;
+import io.netty.channel.nio.NioIoHandler;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Optional TCP listener speaking {@link BinaryProtocol}, for sidecars that want
+ * decisions without JSON and HTTP headers. Decisions go through the same
+ * {@link Enforcer} as {@code POST /v1/enforce}.
+ */
+@Component
+@ConditionalOnProperty(name = "traffic.binary.enabled", havingValue = "true")
+public class BinaryServer {
+
+    private static final Logger log = LoggerFactory.getLogger(BinaryServer.class);
+
+    // Replies written from decision threads are flushed together, not one syscall each.
+    private static final int FLUSH_AFTER_WRITES = 256;
+
+    private final Enforcer enforcer;
+    private final BinaryProperties props;
+    private final ExecutorService decisions = Executors.newVirtualThreadPerTaskExecutor();
+
+    private EventLoopGroup boss;
+    private EventLoopGroup workers;
+    private Channel channel;
+
+    public BinaryServer(Enforcer enforcer, BinaryProperties props) {
+        this.enforcer = enforcer;
+        this.props = props;
+    }
+
+    @PostConstruct
+    void start() {
+        boss = new MultiThreadIoEventLoopGroup(1, NioIoHandler.newFactory());
+        workers = new MultiThreadIoEventLoopGroup(props.ioThreads(), NioIoHandler.newFactory());
+
+        channel = new ServerBootstrap()
+                .group(boss, workers)
+                .channel(NioServerSocketChannel.class)
+                .option(ChannelOption.SO_BACKLOG, 1024)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(
+                                new FlushConsolidationHandler(FLUSH_AFTER_WRITES, true),
+                                new LengthFieldBasedFrameDecoder(props.maxFrameLength(), 0,
+                                        BinaryProtocol.LENGTH_FIELD, 0, BinaryProtocol.LENGTH_FIELD),
+                                new BinaryEnforceHandler(enforcer, decisions, props.maxInFlight())
+                        );
+                    }
+                })
+                .bind(props.host(), props.port())
+                .syncUninterruptibly()
+                .channel();
+
+        log.info("binary enforce listener on {}", channel.localAddress());
+    }
+
+    /** The bound port; differs from the configured one when that is 0. */
+    public int port() {
+        return ((InetSocketAddress) channel.localAddress()).getPort();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (channel != null) channel.close().syncUninterruptibly();
+        boss.shutdownGracefully().syncUninterruptibly();
+        workers.shutdownGracefully().syncUninterruptibly();
+        decisions.shutdownNow();
+    }
+}
@@ -0,0 +1,160 @@
+package com.shlokmestry.traffic.enforce;
+
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.shlokmestry.traffic.client.Decision;
+import com.shlokmestry.traffic.observability.DecisionAudit;
+import com.shlokmestry.traffic.observability.DecisionTrace;
+import com.shlokmestry.traffic.observability.DecisionTracer;
+import com.shlokmestry.traffic.observability.HeavyHitters;
+import com.shlokmestry.traffic.observability.RateLimitMetrics;
+import com.shlokmestry.traffic.ratelimit.DenyCache;
+import com.shlokmestry.traffic.ratelimit.RateLimiter;
+import com.shlokmestry.traffic.ratelimit.RuleScriptEnforcer;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+import com.shlokmestry.traffic.rules.RuleStore;
+
+/**
+ * The single-request decision behind {@code POST /v1/enforce} and the binary
+ * listener: deny cache, rule lookup, {@code maxCost}, limiter, with metrics,
+ * tracing and the decision audit. Never throws; failures come back as FAIL_CLOSED decisions.
+ */
+@Component
+public class Enforcer {
+
+    private static final Logger log = LoggerFactory.getLogger(Enforcer.class);
+
+    private final RateLimiter limiter;
+    private final RuleStore rules;
+    private final RateLimitMetrics metrics;
+    private final DenyCache denyCache;
+    private final DecisionTracer tracer;
+    private final HeavyHitters heavyHitters;
+    private final DecisionAudit audit;
+    private final RuleScriptEnforcer ruleScript;     // null unless traffic.ratelimit.server-side-rules
+
+    public Enforcer(
+            RateLimiter limiter,
+            RuleStore rules,
+            RateLimitMetrics metrics,
+            DenyCache denyCache,
+            DecisionTracer tracer,
+            HeavyHitters heavyHitters,
+            DecisionAudit audit,
+            Optional<RuleScriptEnforcer> ruleScript
+    ) {
+        this.limiter = limiter;
+        this.rules = rules;
+        this.metrics = metrics;
+        this.denyCache = denyCache;
+        this.tracer = tracer;
+        this.heavyHitters = heavyHitters;
+        this.audit = audit;
+        this.ruleScript = ruleScript.orElse(null);
+    }
+
+    public Decision enforce(String ruleId, String key, int cost) {
+        DecisionTrace trace = tracer.begin();
+        try {
+            // Already throttled within its retry window: answer from memory, Redis is not touched.
+            DenyCache.Hit cached = denyCache.check(ruleId, key, cost);
+            if (cached != null && cost <= cached.rule().maxCost()) {
+                recordDecision(cached.rule(), key, cost, cached.result(), true);
+                DecisionTrace.outcome(DecisionTrace.Outcome.CACHED);
+                return Decision.of(cached.rule(), cached.result());
+            }
+
+            if (ruleScript != null) {
+                return enforceServerSide(ruleId, key, cost);
+            }
+            return enforceWithRuleLookup(ruleId, key, cost);
+        } finally {
+            tracer.finish(trace, ruleId, cost);
+        }
+    }
+
+    private Decision enforceWithRuleLookup(String ruleId, String key, int cost) {
+        // FAIL-CLOSED #1: Always have a rule (even if RedisRuleStore fails)
+        RateLimitRule rule;
+        long lookupStart = System.nanoTime();
+        try {
+            rule = rules.get(ruleId).orElse(null);
+        } catch (Exception e) {
+            // RedisRuleStore.get() failed → ultra-conservative defaults
+            rule = null;
+        }
+        if (rule == null) rule = RateLimitRule.failClosed(ruleId);
+        DecisionTrace.record(DecisionTrace.Stage.RULE_LOOKUP, System.nanoTime() - lookupStart);
+
+        if (cost > rule.maxCost()) {
+            return costTooHigh(rule, key, cost);
+        }
+
+        return consume(rule, key, cost);
+    }
+
+    // Rule lookup and consume happen inside one script call (traffic.ratelimit.server-side-rules).
+    private Decision enforceServerSide(String ruleId, String key, int cost) {
+        RuleScriptEnforcer.Outcome o = ruleScript.enforce(ruleId, key, cost);
+
+        if (o == null) {
+            // Script failed before the breaker opened: the regular path applies the rule's fallback
+            // (LOCAL decides in memory), as it does once the breaker is open.
+            log.warn("ratelimit rule_script_error ruleId={} cost={} fallback=rule_lookup", ruleId, cost);
+            return enforceWithRuleLookup(ruleId, key, cost);
+        }
+
+        return switch (o.status()) {
+            case COST_TOO_HIGH -> costTooHigh(o.rule(), key, cost);
+            case LOCAL -> consume(o.rule(), key, cost);
+            case DECIDED -> decided(o.rule(), key, cost, o.result());
+            case UNAVAILABLE, RULE_NOT_ON_NODE -> enforceWithRuleLookup(ruleId, key, cost);
+        };
+    }
+
+    private Decision consume(RateLimitRule rule, String key, int cost) {
+        // FAIL-CLOSED #2: Limiter failures
+        final RateLimiter.Result r;
+        try {
+            r = limiter.checkAndConsume(rule, key, cost);
+        } catch (Exception e) {
+            log.warn("ratelimit fail_closed reason=limiter_exception ruleId={} endpoint={} plan={} cost={}",
+                    rule.ruleId(), rule.endpoint(), rule.plan(), cost, e);
+
+            return failClosed(rule, key, cost);
+        }
+
+        return decided(rule, key, cost, r);
+    }
+
+    private Decision decided(RateLimitRule rule, String key, int cost, RateLimiter.Result r) {
+        denyCache.record(rule, key, cost, r);
+        recordDecision(rule, key, cost, r, false);
+        DecisionTrace.outcome(r.allowed() ? DecisionTrace.Outcome.ALLOWED : DecisionTrace.Outcome.LIMITED);
+        return Decision.of(rule, r);
+    }
+
+    private Decision failClosed(RateLimitRule rule, String key, int cost) {
+        audit.record(rule, key, cost, DecisionTrace.Outcome.FAIL_CLOSED);
+        DecisionTrace.outcome(DecisionTrace.Outcome.FAIL_CLOSED);
+        return new Decision(Decision.Status.FAIL_CLOSED, rule, null);
+    }
+
+    private Decision costTooHigh(RateLimitRule rule, String key, int cost) {
+        metrics.costTooHigh(rule);
+        audit.record(rule, key, cost, DecisionTrace.Outcome.COST_TOO_HIGH);
+        DecisionTrace.outcome(DecisionTrace.Outcome.COST_TOO_HIGH);
+        return new Decision(Decision.Status.COST_TOO_HIGH, rule, null);
+    }
+
+    // No per-request log line: the audit ring takes the record and a background thread writes it.
+    private void recordDecision(RateLimitRule rule, String key, int cost, RateLimiter.Result r, boolean cached) {
+        metrics.decision(rule, r.allowed());
+        heavyHitters.record(rule.ruleId(), key, cost, r.allowed());
+        audit.record(rule, key, cost, r, cached);
+    }
+}
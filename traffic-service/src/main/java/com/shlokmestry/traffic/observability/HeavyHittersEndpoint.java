@@ -0,0 +1,34 @@
+package com.shlokmestry.traffic.observability;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code GET /actuator/heavyhitters}: per rule, the identities consuming the most
+ * tokens and the most often denied, with decayed estimates.
+ * {@code GET /actuator/heavyhitters/{ruleId}} for one rule (404 if it has no tables of its own).
+ */
+@Component
+@Endpoint(id = "heavyhitters")
+public class HeavyHittersEndpoint {
+
+    private final HeavyHitters heavyHitters;
+
+    public HeavyHittersEndpoint(HeavyHitters heavyHitters) {
+        this.heavyHitters = heavyHitters;
+    }
+
+    @ReadOperation
+    public Map<String, HeavyHitters.RuleHeavyHitters> heavyHitters() {
+        return heavyHitters.snapshot();
+    }
+
+    @ReadOperation
+    public HeavyHitters.RuleHeavyHitters rule(@Selector String ruleId) {
+        return heavyHitters.snapshot(ruleId);
+    }
+}
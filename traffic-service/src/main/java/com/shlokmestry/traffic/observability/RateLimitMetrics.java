@@ -1,5 +1,8 @@
 package com.shlokmestry.traffic.observability;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.springframework.stereotype.Component;
 
 import com.shlokmestry.traffic.rules.RateLimitRule;
@@ -10,31 +13,76 @@ import io.micrometer.core.instrument.MeterRegistry;
 @Component
 public class RateLimitMetrics {
 
+    // Rule versions and fail-closed stand-ins for unknown ruleIds both add entries; past this, start over.
+    private static final int MAX_RULES = 10_000;
+
     private final MeterRegistry registry;
 
+    // Counters resolved once per (rule, outcome) instead of a registry lookup per decision.
+    private final Map<RateLimitRule, RuleMeters> byRule = new ConcurrentHashMap<>();
+
     public RateLimitMetrics(MeterRegistry registry) {
         this.registry = registry;
     }
 
     public void decision(RateLimitRule rule, boolean allowed) {
-        Counter.builder("ratelimit.decisions.total")
-                .description("Total rate-limit decisions (allowed/blocked)")
-                .tag("allowed", String.valueOf(allowed))
-                .tag("ruleId", rule.ruleId())
-                .tag("endpoint", rule.endpoint())
-                .tag("plan", rule.plan())
-                .register(registry)
-                .increment();
+        meters(rule).decision(allowed).increment();
     }
 
     public void costTooHigh(RateLimitRule rule) {
-        Counter.builder("ratelimit.rejected.total")
-                .description("Total rejected requests (non-rate-limit rejections)")
-                .tag("reason", "cost_too_high")
-                .tag("ruleId", rule.ruleId())
-                .tag("endpoint", rule.endpoint())
-                .tag("plan", rule.plan())
-                .register(registry)
-                .increment();
+        meters(rule).costTooHigh().increment();
+    }
+
+    private RuleMeters meters(RateLimitRule rule) {
+        RuleMeters m = byRule.get(rule);
+        if (m != null) return m;
+
+        if (byRule.size() >= MAX_RULES) byRule.clear();
+        return byRule.computeIfAbsent(rule, RuleMeters::new);
+    }
+
+    // Registered on first use, so a rule that never rejects does not export an empty series.
+    // Racing threads may both register; the registry hands them the same counter.
+    private final class RuleMeters {
+        private final RateLimitRule rule;
+        private volatile Counter allowed;
+        private volatile Counter blocked;
+        private volatile Counter costTooHigh;
+
+        RuleMeters(RateLimitRule rule) {
+            this.rule = rule;
+        }
+
+        Counter decision(boolean isAllowed) {
+            if (isAllowed) {
+                Counter c = allowed;
+                return c != null ? c : (allowed = decisionCounter(true));
+            }
+            Counter c = blocked;
+            return c != null ? c : (blocked = decisionCounter(false));
+        }
+
+        Counter costTooHigh() {
+            Counter c = costTooHigh;
+            if (c != null) return c;
+
+            return costTooHigh = Counter.builder("ratelimit.rejected.total")
+                    .description("Total rejected requests (non-rate-limit rejections)")
+                    .tag("reason", "cost_too_high")
+                    .tag("ruleId", rule.ruleId())
+                    .tag("endpoint", rule.endpoint())
+                    .tag("plan", rule.plan())
+                    .register(registry);
+        }
+
+        private Counter decisionCounter(boolean isAllowed) {
+            return Counter.builder("ratelimit.decisions.total")
+                    .description("Total rate-limit decisions (allowed/blocked)")
+                    .tag("allowed", String.valueOf(isAllowed))
+                    .tag("ruleId", rule.ruleId())
+                    .tag("endpoint", rule.endpoint())
+                    .tag("plan", rule.plan())
+                    .register(registry);
+        }
     }
 }
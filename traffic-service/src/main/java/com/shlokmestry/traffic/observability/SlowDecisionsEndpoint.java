@@ -0,0 +1,24 @@
+package com.shlokmestry.traffic.observability;
+
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/** {@code GET /actuator/slowdecisions}: the recent slow decisions, slowest first. */
+@Component
+@Endpoint(id = "slowdecisions")
+public class SlowDecisionsEndpoint {
+
+    private final DecisionTracer tracer;
+
+    public SlowDecisionsEndpoint(DecisionTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @ReadOperation
+    public List<SlowDecision> slowDecisions() {
+        return tracer.slowDecisions();
+    }
+}
@@ -4,6 +4,7 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -46,6 +47,11 @@ class FailClosedWhenRedisDownIT {
                 public Optional<RateLimitRule> get(String ruleId) {
                     return Optional.ofNullable(rules.get(ruleId));
                 }
+
+                @Override
+                public List<RateLimitRule> all() {
+                    return List.copyOf(rules.values());
+                }
             };
         }
     }
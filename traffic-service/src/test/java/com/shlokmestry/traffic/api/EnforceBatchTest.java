@@ -0,0 +1,176 @@
+package com.shlokmestry.traffic.api;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.util.unit.DataSize;
+
+import com.shlokmestry.traffic.enforce.Enforcer;
+import com.shlokmestry.traffic.observability.AuditProperties;
+import com.shlokmestry.traffic.observability.DecisionAudit;
+import com.shlokmestry.traffic.observability.DecisionTracer;
+import com.shlokmestry.traffic.observability.HeavyHitterProperties;
+import com.shlokmestry.traffic.observability.HeavyHitters;
+import com.shlokmestry.traffic.observability.RateLimitMetrics;
+import com.shlokmestry.traffic.observability.TracingProperties;
+import com.shlokmestry.traffic.ratelimit.AdaptiveLimits;
+import com.shlokmestry.traffic.ratelimit.AdaptiveProperties;
+import com.shlokmestry.traffic.ratelimit.BreakerProperties;
+import com.shlokmestry.traffic.ratelimit.BucketProperties;
+import com.shlokmestry.traffic.ratelimit.CoalescingProperties;
+import com.shlokmestry.traffic.ratelimit.DenyCache;
+import com.shlokmestry.traffic.ratelimit.DenyCacheProperties;
+import com.shlokmestry.traffic.ratelimit.InMemoryProperties;
+import com.shlokmestry.traffic.ratelimit.InMemoryRateLimiter;
+import com.shlokmestry.traffic.ratelimit.LeaseProperties;
+import com.shlokmestry.traffic.ratelimit.RateLimiter;
+import com.shlokmestry.traffic.ratelimit.RedisCircuitBreaker;
+import com.shlokmestry.traffic.ratelimit.TokenBucketRateLimiter;
+import com.shlokmestry.traffic.redis.RedisShards;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+import com.shlokmestry.traffic.rules.RouteIndex;
+import com.shlokmestry.traffic.rules.RouteIndexProperties;
+import com.shlokmestry.traffic.rules.RuleStore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/** {@code POST /v1/enforce:batch} against the controller directly; no Redis is needed. */
+class EnforceBatchTest {
+
+    private static final RateLimitRule OPEN = new RateLimitRule("open", "/v1/search", "pro", 100, 0.0, 100, 60_000, 5);
+    private static final RateLimitRule TIGHT = new RateLimitRule("tight", "/v1/search", "free", 1, 0.0, 1, 60_000, 5);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MapRuleStore rules = new MapRuleStore();
+    private final HeavyHitters heavyHitters =
+            new HeavyHitters(registry, new HeavyHitterProperties(true, 20, 10, 4, 1024, Duration.ofSeconds(60), 3));
+
+    @AfterEach
+    void close() {
+        heavyHitters.close();
+    }
+
+    @Test
+    void mixedBatchIsDecidedPerItemInRequestOrder() {
+        rules.upsert(OPEN);
+        rules.upsert(TIGHT);
+        EnforceController controller = controller(
+                new InMemoryRateLimiter(new InMemoryProperties(4, 16, Duration.ofSeconds(30)), registry));
+
+        List<EnforceBatchResponse.Decision> d = controller.enforceBatch(new EnforceBatchRequest(List.of(
+                new CheckRateLimitRequest("alice", "tight", 1),
+                new CheckRateLimitRequest("alice", "open", 10),     // over maxCost
+                new CheckRateLimitRequest("alice", "tight", 1),     // the one token is gone
+                new CheckRateLimitRequest("bob", "unknown", 1),     // no rule: fail-closed stand-in
+                new CheckRateLimitRequest("bob", "open", 3)
+        ))).decisions();
+
+        assertThat(d).extracting(EnforceBatchResponse.Decision::status).containsExactly(204, 400, 429, 429, 204);
+        assertThat(d).extracting(EnforceBatchResponse.Decision::code)
+                .containsExactly("allowed", "cost_too_high", "rate_limited", "rate_limited", "allowed");
+        assertThat(d.get(0).remaining()).isEqualTo(0);
+        assertThat(d.get(2).retryAfter()).isNotNull();
+        assertThat(d.get(4).remaining()).isEqualTo(97);
+        assertThat(d.get(4).limit()).isEqualTo(100);
+    }
+
+    @Test
+    void wholeBatchFailsClosedWhileBreakerIsOpen() {
+        rules.upsert(OPEN);
+        rules.upsert(TIGHT);
+
+        // Nothing listens here; with the breaker open the limiter never tries to connect.
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", 6390));
+        RedisShards shards = RedisShards.single(new StringRedisTemplate(factory));
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker(
+                new BreakerProperties(true, Duration.ofSeconds(10), 1, 0.5, Duration.ofSeconds(1), 0.5, Duration.ofMinutes(5), 1),
+                registry);
+        breaker.onFailure(RedisCircuitBreaker.Failure.REDIS_ERROR);
+        assertThat(breaker.state()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(shards, registry,
+                new CoalescingProperties(false, 64, Duration.ofMillis(1), 1000, 1, Duration.ofSeconds(1)),
+                new LeaseProperties(Duration.ofMillis(250), Duration.ofMillis(100), Duration.ofSeconds(60)),
+                new InMemoryProperties(4, 16, Duration.ofSeconds(30)),
+                new BucketProperties(true, false),
+                breaker,
+                new AdaptiveLimits(shards, breaker,
+                        new AdaptiveProperties(Duration.ofSeconds(1), 0.05, 0.5, 0.1, 1.0, 0.05, Duration.ofMinutes(10)), registry));
+        try {
+            List<EnforceBatchResponse.Decision> d = controller(limiter).enforceBatch(new EnforceBatchRequest(List.of(
+                    new CheckRateLimitRequest("alice", "open", 1),
+                    new CheckRateLimitRequest("bob", "tight", 1),
+                    new CheckRateLimitRequest("carol", "open", 1)
+            ))).decisions();
+
+            assertThat(d).extracting(EnforceBatchResponse.Decision::status).containsExactly(429, 429, 429);
+            assertThat(d).extracting(EnforceBatchResponse.Decision::allowed).containsOnly(false);
+            assertThat(d).extracting(EnforceBatchResponse.Decision::retryAfterMs).containsOnly(1000L);
+        } finally {
+            limiter.shutdown();
+        }
+    }
+
+    @Test
+    void limiterExceptionFailsTheWholeBatchClosed() {
+        rules.upsert(OPEN);
+        RateLimiter broken = new InMemoryRateLimiter(new InMemoryProperties(4, 16, Duration.ofSeconds(30)), registry) {
+            @Override
+            public List<Result> checkAndConsumeAll(List<Check> checks) {
+                throw new IllegalStateException("boom");
+            }
+        };
+
+        List<EnforceBatchResponse.Decision> d = controller(broken).enforceBatch(new EnforceBatchRequest(List.of(
+                new CheckRateLimitRequest("alice", "open", 1),
+                new CheckRateLimitRequest("bob", "open", 1)
+        ))).decisions();
+
+        assertThat(d).extracting(EnforceBatchResponse.Decision::status).containsExactly(429, 429);
+        assertThat(d).extracting(EnforceBatchResponse.Decision::code).containsOnly("rate_limited");
+    }
+
+    private EnforceController controller(RateLimiter limiter) {
+        RateLimitMetrics metrics = new RateLimitMetrics(registry);
+        // Disabled so denials are decided by the limiter every time.
+        DenyCache denyCache = new DenyCache(new DenyCacheProperties(false, 1000, Duration.ofSeconds(60)), registry);
+        DecisionAudit audit = new DecisionAudit(registry, new AuditProperties(false, AuditProperties.Sink.FILE,
+                16, 16, Duration.ofMillis(100), 0.0,
+                new AuditProperties.File(Path.of("audit"), DataSize.ofMegabytes(1), 1),
+                new AuditProperties.Stream("traffic:audit", 1000)), null);
+        Enforcer enforcer = new Enforcer(limiter, rules, metrics, denyCache,
+                new DecisionTracer(registry, new TracingProperties(20, Duration.ofMillis(50), 16)),
+                heavyHitters, audit, Optional.empty());
+        return new EnforceController(enforcer, limiter, rules, metrics, denyCache,
+                new RouteIndex(rules, new RouteIndexProperties(Duration.ofSeconds(60))), heavyHitters, audit);
+    }
+
+    private static final class MapRuleStore implements RuleStore {
+        private final Map<String, RateLimitRule> rules = new ConcurrentHashMap<>();
+
+        @Override
+        public void upsert(RateLimitRule rule) {
+            rules.put(rule.ruleId(), rule);
+        }
+
+        @Override
+        public Optional<RateLimitRule> get(String ruleId) {
+            return Optional.ofNullable(rules.get(ruleId));
+        }
+
+        @Override
+        public List<RateLimitRule> all() {
+            return List.copyOf(rules.values());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.shlokmestry.traffic.binary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import com.shlokmestry.traffic.client.Decision;
+import com.shlokmestry.traffic.enforce.Enforcer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+class BinaryEnforceHandlerTest {
+
+    private static final Enforcer THROWING = new Enforcer(null, null, null, null, null, null, null, Optional.empty()) {
+        @Override
+        public Decision enforce(String ruleId, String key, int cost) {
+            throw new IllegalStateException("boom");
+        }
+    };
+
+    @Test
+    void failingDecisionsAreAnsweredAndDoNotStallTheConnection() {
+        EmbeddedChannel channel = new EmbeddedChannel(new BinaryEnforceHandler(THROWING, Runnable::run, 2));
+
+        // Twice maxInFlight: had any request leaked its slot, reading would have stopped.
+        for (int id = 1; id <= 4; id++) {
+            channel.writeInbound(request(id));
+            channel.runPendingTasks();
+            assertFailClosed(channel.readOutbound(), id);
+        }
+        assertThat(channel.config().isAutoRead()).isTrue();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void rejectedTasksAreAnswered() {
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException("shut down");
+        };
+        EmbeddedChannel channel = new EmbeddedChannel(new BinaryEnforceHandler(THROWING, rejecting, 1));
+
+        channel.writeInbound(request(7));
+        assertFailClosed(channel.readOutbound(), 7);
+        assertThat(channel.config().isAutoRead()).isTrue();
+
+        channel.writeInbound(request(8));
+        assertFailClosed(channel.readOutbound(), 8);
+        channel.finishAndReleaseAll();
+    }
+
+    private static void assertFailClosed(ByteBuf reply, int id) {
+        assertThat(reply).isNotNull();
+        assertThat(reply.readInt()).isEqualTo(BinaryProtocol.RESPONSE_LENGTH);
+        assertThat(reply.readInt()).isEqualTo(id);
+        assertThat(reply.readByte()).isEqualTo(BinaryProtocol.STATUS_FAIL_CLOSED);
+        reply.release();
+    }
+
+    // A frame as the length decoder hands it on: id, then the request body.
+    private static ByteBuf request(int id) {
+        byte[] r = "r".getBytes(StandardCharsets.UTF_8);
+        byte[] k = "k".getBytes(StandardCharsets.UTF_8);
+        return Unpooled.buffer()
+                .writeInt(id)
+                .writeShort(r.length).writeBytes(r)
+                .writeShort(k.length).writeBytes(k)
+                .writeInt(1);
+    }
+}
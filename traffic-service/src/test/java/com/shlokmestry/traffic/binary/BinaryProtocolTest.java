@@ -0,0 +1,63 @@
+package com.shlokmestry.traffic.binary;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import com.shlokmestry.traffic.client.Decision;
+import com.shlokmestry.traffic.ratelimit.RateLimiter;
+import com.shlokmestry.traffic.rules.RateLimitRule;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+
+class BinaryProtocolTest {
+
+    @Test
+    void readsRequestBody() {
+        ByteBuf frame = body("search-pro", "apiKey:user1", 3);
+
+        assertThat(BinaryProtocol.readRequest(7, frame))
+                .isEqualTo(new BinaryProtocol.Request(7, "search-pro", "apiKey:user1", 3));
+    }
+
+    @Test
+    void rejectsWhatEnforceWouldReject() {
+        assertThat(BinaryProtocol.readRequest(1, body("", "k", 1))).isNull();
+        assertThat(BinaryProtocol.readRequest(1, body("r", " ", 1))).isNull();
+        assertThat(BinaryProtocol.readRequest(1, body("r", "k", 0))).isNull();
+
+        ByteBuf truncated = Unpooled.buffer().writeShort(5).writeBytes("ab".getBytes(StandardCharsets.UTF_8));
+        assertThat(BinaryProtocol.readRequest(1, truncated)).isNull();
+
+        ByteBuf trailing = body("r", "k", 1).writeByte(0);
+        assertThat(BinaryProtocol.readRequest(1, trailing)).isNull();
+    }
+
+    @Test
+    void writesLimitedResponse() {
+        RateLimitRule rule = new RateLimitRule("r", "/search", "pro", 10, 2.0, 10, 60000L, 5);
+        Decision d = Decision.of(rule, new RateLimiter.Result(false, 1200, 0));
+
+        ByteBuf out = BinaryProtocol.response(UnpooledByteBufAllocator.DEFAULT, 42, d);
+
+        assertThat(out.readInt()).isEqualTo(BinaryProtocol.RESPONSE_LENGTH);
+        assertThat(out.readInt()).isEqualTo(42);
+        assertThat(out.readByte()).isEqualTo(BinaryProtocol.STATUS_LIMITED);
+        assertThat(out.readLong()).isEqualTo(1200L);
+        assertThat(out.readLong()).isEqualTo(0L);
+        assertThat(out.readLong()).isEqualTo(10L);
+        assertThat(out.readableBytes()).isZero();
+    }
+
+    private static ByteBuf body(String ruleId, String key, int cost) {
+        byte[] r = ruleId.getBytes(StandardCharsets.UTF_8);
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        return Unpooled.buffer()
+                .writeShort(r.length).writeBytes(r)
+                .writeShort(k.length).writeBytes(k)
+                .writeInt(cost);
+    }
+}